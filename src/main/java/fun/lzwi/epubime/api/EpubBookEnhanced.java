@@ -1,5 +1,6 @@
 package fun.lzwi.epubime.api;
 
+import fun.lzwi.epubime.epub.ChapterPrefetcher;
 import fun.lzwi.epubime.epub.EpubBook;
 import fun.lzwi.epubime.epub.EpubChapter;
 import fun.lzwi.epubime.epub.EpubResource;
@@ -9,6 +10,7 @@ import fun.lzwi.epubime.epub.EpubStreamProcessor;
 import fun.lzwi.epubime.exception.BaseEpubException;
 import fun.lzwi.epubime.exception.EpubResourceException;
 import fun.lzwi.epubime.exception.EpubPathValidationException;
+import fun.lzwi.epubime.zip.EpubSource;
 import java.io.InputStreamReader;
 
 import java.io.File;
@@ -26,6 +28,7 @@ import java.util.stream.Collectors;
 public class EpubBookEnhanced {
     private final EpubBook book;
     private final File epubFile;
+    private volatile ChapterPrefetcher prefetcher;
     
     public EpubBookEnhanced(EpubBook book, File epubFile) {
         this.book = new EpubBook(book);
@@ -216,21 +219,82 @@ public class EpubBookEnhanced {
      */
     public void processChapterContent(EpubChapter chapter, Consumer<InputStream> processor) 
             throws BaseEpubException {
-        if (chapter == null || chapter.getContent() == null) {
+        EpubSource source = getSource();
+        String name = source != null ? source.getName() : "unknown";
+        if (chapter == null || chapter.getContent() == null || source == null) {
             throw new EpubResourceException("Invalid chapter or chapter content", 
-                    epubFile.getName(), "unknown", null);
+                    name, "unknown", null);
         }
         
         try {
             // Use the streaming processor
-            EpubStreamProcessor streamProcessor = new EpubStreamProcessor(epubFile);
+            EpubStreamProcessor streamProcessor = new EpubStreamProcessor(source);
+            streamProcessor.setChapterPrefetcher(prefetcher);
             streamProcessor.processHtmlChapter(chapter.getContent(), processor);
         } catch (BaseEpubException | EpubPathValidationException e) {
             throw new EpubResourceException("Failed to process chapter content",
-                    epubFile.getName(), chapter.getContent(), e);
+                    name, chapter.getContent(), e);
+        }
+    }
+    
+    /**
+     * Get the source the book is read from: the EPUB file if one was given, otherwise the source of its resources
+     * @return the EPUB source, or null if the book is not backed by an EPUB
+     */
+    private EpubSource getSource() {
+        if (epubFile != null) {
+            return EpubSource.fromFile(epubFile);
+        }
+        for (EpubResource resource : book.getResources()) {
+            if (resource.getSource() != null) {
+                return resource.getSource();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Enable background prefetching of the chapters following each chapter read through
+     * {@link #processChapterContent(EpubChapter, Consumer)}. Replaces any prefetcher enabled before.
+     * @param executor executor running the prefetch tasks
+     * @param depth number of following reading-order items to prefetch
+     * @param maxBytes cap on prefetched content that has not been read yet
+     * @return the prefetcher, exposing hit/miss counters; null if the book is not backed by an EPUB,
+     *         in which case prefetching stays as it was
+     */
+    public ChapterPrefetcher enablePrefetch(java.util.concurrent.Executor executor, int depth, long maxBytes) {
+        EpubSource source = getSource();
+        if (source == null) {
+            return null;
+        }
+        ChapterPrefetcher enabled = new ChapterPrefetcher(book, source, executor, depth, maxBytes);
+        ChapterPrefetcher previous = prefetcher;
+        prefetcher = enabled;
+        if (previous != null) {
+            previous.close();
+        }
+        return enabled;
+    }
+    
+    /**
+     * Disable chapter prefetching and drop prefetched content that has not been read
+     */
+    public void disablePrefetch() {
+        ChapterPrefetcher previous = prefetcher;
+        prefetcher = null;
+        if (previous != null) {
+            previous.close();
         }
     }
     
+    /**
+     * Get the chapter prefetcher
+     * @return the prefetcher, or null if prefetching is disabled
+     */
+    public ChapterPrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+    
     /**
      * Get chapter content as string
      * @param chapter the chapter
@@ -262,13 +326,37 @@ public class EpubBookEnhanced {
     }
     
     /**
-     * Load all resource data into memory
+     * Load all resource data into memory, decompressing resources one after another on the calling thread
      * @throws IOException if loading fails
+     * @see #loadAllResources(java.util.concurrent.Executor)
      */
     public void loadAllResources() throws IOException {
         EpubBookProcessor.loadAllResourceData(book);
     }
     
+    /**
+     * Load all resource data into memory, decompressing resources in parallel on the given executor
+     * @param executor executor running the decompression tasks
+     * @throws IOException if loading fails
+     */
+    public void loadAllResources(java.util.concurrent.Executor executor) throws IOException {
+        EpubBookProcessor.loadAllResourceData(book, executor);
+    }
+    
+    /**
+     * Load the data of all image resources, decompressing them in parallel on the given executor
+     * @param executor executor running the decompression tasks
+     * @return the loaded image resources
+     * @throws IOException if loading fails
+     */
+    public List<EpubResource> loadImageResources(java.util.concurrent.Executor executor) throws IOException {
+        List<EpubResource> images = getImageResources();
+        if (!images.isEmpty() && images.get(0).getSource() != null) {
+            EpubResource.loadResourceData(images, images.get(0).getSource(), executor);
+        }
+        return images;
+    }
+    
     /**
      * Get the underlying EpubBook instance
      * @return a copy of the original EpubBook
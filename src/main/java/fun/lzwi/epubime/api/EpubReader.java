@@ -5,10 +5,14 @@ import fun.lzwi.epubime.epub.EpubChapter;
 import fun.lzwi.epubime.epub.EpubResource;
 import fun.lzwi.epubime.epub.Metadata;
 import fun.lzwi.epubime.epub.EpubBookProcessor;
+import fun.lzwi.epubime.epub.EpubStreamParser;
 import fun.lzwi.epubime.epub.EpubStreamProcessor;
 import fun.lzwi.epubime.exception.BaseEpubException;
 import fun.lzwi.epubime.exception.EpubPathValidationException;
 import fun.lzwi.epubime.epub.EpubParser;
+import fun.lzwi.epubime.zip.BlockCache;
+import fun.lzwi.epubime.zip.EpubSource;
+import fun.lzwi.epubime.zip.RangeReader;
 
 import java.io.File;
 import java.io.InputStream;
@@ -34,11 +38,20 @@ import java.util.function.Function;
  *         System.out.println("Processing: " + chapter.getTitle());
  *         // Process content stream
  *     });
+ * 
+ * // Single-pass parsing of a non-seekable stream (e.g. an upload)
+ * EpubBook uploaded = EpubReader.fromStream(request.getInputStream())
+ *     .streamResources((resource, content) -> {
+ *         // Process each manifest resource as it streams by
+ *     });
  * </pre>
  */
 public class EpubReader {
-    private final File epubFile;
+    private final EpubSource source;
+    private final InputStream inputStream;
     private final EpubReaderConfig config;
+    private EpubBook streamedBook;
+    private long streamedBytes;
 
     private EpubReader(File epubFile, EpubReaderConfig config) {
         if (epubFile == null) {
@@ -47,7 +60,33 @@ public class EpubReader {
         if (config == null) {
             throw new IllegalArgumentException("Config cannot be null");
         }
-        this.epubFile = epubFile;
+        this.source = EpubSource.fromFile(epubFile).withCacheNamespace(config.getCacheNamespace());
+        this.inputStream = null;
+        this.config = config;
+    }
+
+    private EpubReader(EpubSource source, EpubReaderConfig config) {
+        if (source == null) {
+            throw new IllegalArgumentException("EPUB source cannot be null");
+        }
+        if (config == null) {
+            throw new IllegalArgumentException("Config cannot be null");
+        }
+        // Read through a namespaced view so the caller's source keeps its own namespace
+        this.source = config.getCacheNamespace() != null ? source.withCacheNamespace(config.getCacheNamespace()) : source;
+        this.inputStream = null;
+        this.config = config;
+    }
+
+    private EpubReader(InputStream inputStream, EpubReaderConfig config) {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("EPUB input stream cannot be null");
+        }
+        if (config == null) {
+            throw new IllegalArgumentException("Config cannot be null");
+        }
+        this.source = null;
+        this.inputStream = inputStream;
         this.config = config;
     }
     
@@ -81,6 +120,73 @@ public class EpubReader {
     public static EpubReader fromFile(File epubFile, EpubReaderConfig config) {
         return new EpubReader(epubFile, config);
     }
+
+    /**
+     * Create an EpubReader from an EPUB source with default config.
+     * In-memory and channel-backed books are parsed and read without writing them to disk.
+     * @param source the EPUB source, e.g. {@link EpubSource#fromBytes(byte[])}
+     * @return a new EpubReader instance
+     */
+    public static EpubReader fromSource(EpubSource source) {
+        return new EpubReader(source, new EpubReaderConfig());
+    }
+
+    /**
+     * Create an EpubReader from an EPUB source with custom config
+     * @param source the EPUB source
+     * @param config the configuration
+     * @return a new EpubReader instance
+     */
+    public static EpubReader fromSource(EpubSource source, EpubReaderConfig config) {
+        return new EpubReader(source, config);
+    }
+
+    /**
+     * Create an EpubReader for a remote EPUB with default config.
+     * Only the central directory and the entries actually read are fetched through the range reader,
+     * in blocks kept in the default in-memory {@link BlockCache}; use
+     * {@link #fromSource(EpubSource)} with {@link EpubSource#fromRemote(RangeReader, String, BlockCache)}
+     * to add a disk tier.
+     * @param reader the range reader, e.g. HTTP GET with a Range header against an object store
+     * @param key a key identifying the remote content (e.g. URL plus ETag), used for block caching
+     * @return a new EpubReader instance
+     */
+    public static EpubReader fromRemote(RangeReader reader, String key) {
+        return new EpubReader(EpubSource.fromRemote(reader, key), new EpubReaderConfig());
+    }
+
+    /**
+     * Create an EpubReader for a remote EPUB with custom config
+     * @param reader the range reader
+     * @param key a key identifying the remote content, used for block caching
+     * @param config the configuration
+     * @return a new EpubReader instance
+     */
+    public static EpubReader fromRemote(RangeReader reader, String key, EpubReaderConfig config) {
+        return new EpubReader(EpubSource.fromRemote(reader, key), config);
+    }
+
+    /**
+     * Create an EpubReader from a non-seekable input stream with default config.
+     * The stream is read once in local-header order, the first operation consumes it and later
+     * operations reuse the parsed book; resources are not backed by a file, so their content is
+     * only available through {@link #streamResources(BiConsumer)}. The caller closes the stream.
+     * @param inputStream the EPUB input stream
+     * @return a new EpubReader instance
+     */
+    public static EpubReader fromStream(InputStream inputStream) {
+        return new EpubReader(inputStream, new EpubReaderConfig());
+    }
+
+    /**
+     * Create an EpubReader from a non-seekable input stream with custom config
+     * @param inputStream the EPUB input stream
+     * @param config the configuration, see {@link EpubReaderConfig#withStreamBufferLimit(long)}
+     * @return a new EpubReader instance
+     */
+    public static EpubReader fromStream(InputStream inputStream, EpubReaderConfig config) {
+        return new EpubReader(inputStream, config);
+    }
     
 
     
@@ -90,7 +196,14 @@ public class EpubReader {
      * @throws BaseEpubException 解析异常
      */
     public EpubBook parse() throws BaseEpubException, java.io.IOException, EpubPathValidationException {
-        EpubParser parser = new EpubParser(epubFile);
+        if (inputStream != null) {
+            if (streamedBook == null) {
+                streamFromInput(null);
+            }
+            return new EpubBook(streamedBook);
+        }
+
+        EpubParser parser = new EpubParser(source).setCaseInsensitiveHrefs(config.isCaseInsensitiveHrefs());
 
         EpubBook book;
         if (config.isUseCache()) {
@@ -99,11 +212,11 @@ public class EpubReader {
             book = parser.parseWithoutCache();
         }
 
-        // Ensure all resources have a reference to the EPUB file for streaming
+        // Ensure all resources have a reference to the EPUB source for streaming
         if (!book.getResources().isEmpty()) {
             for (EpubResource resource : book.getResources()) {
-                if (resource.getEpubFile() == null) {
-                    resource.setEpubFile(epubFile);
+                if (resource.getSource() == null) {
+                    resource.setSource(source);
                 }
             }
         }
@@ -131,14 +244,55 @@ public class EpubReader {
         return parse().getChapters();
     }
     
+    /**
+     * Stream every manifest resource to a processor in a single pass.
+     * Stream readers deliver resources in archive order as they are read and must not have been
+     * consumed yet; file and source readers open each resource in manifest order.
+     * @param processor a consumer that receives each resource and its content stream, valid only during the call
+     * @return the parsed book
+     * @throws BaseEpubException if parsing fails or the stream buffer limit is exceeded
+     */
+    public EpubBook streamResources(BiConsumer<EpubResource, InputStream> processor) throws BaseEpubException, java.io.IOException, EpubPathValidationException {
+        if (inputStream != null) {
+            if (streamedBook != null) {
+                throw new IllegalStateException("EPUB input stream has already been consumed");
+            }
+            streamFromInput(processor);
+            return new EpubBook(streamedBook);
+        }
+
+        EpubBook book = parse();
+        for (EpubResource resource : book.getResources()) {
+            try (InputStream content = resource.getInputStream()) {
+                if (content != null) {
+                    processor.accept(resource, content);
+                }
+            }
+        }
+        return book;
+    }
+
+    private void streamFromInput(BiConsumer<EpubResource, InputStream> processor) throws BaseEpubException, java.io.IOException {
+        EpubStreamParser parser = new EpubStreamParser(inputStream, config.getStreamBufferLimit());
+        streamedBook = parser.parse(processor);
+        streamedBytes = parser.getBytesRead();
+    }
+
+    private void requireSource(String operation) {
+        if (source == null) {
+            throw new IllegalStateException(operation + " requires a seekable EPUB source, use streamResources for input streams");
+        }
+    }
+
     /**
      * Stream process chapters without loading entire content into memory
      * @param processor a consumer that processes each chapter and its content stream
      * @throws BaseEpubException if processing fails
      */
     public void streamChapters(BiConsumer<EpubChapter, InputStream> processor) throws BaseEpubException, java.io.IOException, EpubPathValidationException {
+        requireSource("streamChapters");
         EpubBook book = parse();
-        EpubStreamProcessor streamProcessor = new EpubStreamProcessor(epubFile);
+        EpubStreamProcessor streamProcessor = new EpubStreamProcessor(source);
         streamProcessor.processBookChapters(book, processor);
     }
     
@@ -150,6 +304,7 @@ public class EpubReader {
      * @throws EpubPathValidationException if path validation fails
      */
     public void streamChapter(String chapterId, Consumer<InputStream> processor) throws BaseEpubException, EpubPathValidationException, java.io.IOException {
+        requireSource("streamChapter");
         EpubBook book = parse();
 
         // Find the chapter by ID
@@ -159,7 +314,7 @@ public class EpubReader {
         }
 
         // Stream the chapter content
-        EpubStreamProcessor streamProcessor = new EpubStreamProcessor(epubFile);
+        EpubStreamProcessor streamProcessor = new EpubStreamProcessor(source);
         streamProcessor.processHtmlChapter(targetChapter.getContent(), processor);
     }
     
@@ -227,7 +382,7 @@ public class EpubReader {
             metadata.getCreator(),
             metadata.getLanguage(),
             chapters.size(),
-            epubFile.length()
+            source != null ? source.size() : streamedBytes
         );
     }
     
@@ -1,5 +1,7 @@
 package fun.lzwi.epubime.api;
 
+import fun.lzwi.epubime.epub.EpubStreamParser;
+
 /**
  * EPUB读取器配置类
  * 负责管理EpubReader的配置选项，遵循单一职责原则
@@ -8,6 +10,9 @@ public class EpubReaderConfig {
     private boolean useCache = true;
     private boolean lazyLoading = false;
     private boolean parallelProcessing = false;
+    private long streamBufferLimit = EpubStreamParser.DEFAULT_MAX_BUFFERED_BYTES;
+    private boolean caseInsensitiveHrefs = false;
+    private String cacheNamespace;
 
     /**
      * 默认构造函数，使用默认配置
@@ -22,6 +27,9 @@ public class EpubReaderConfig {
         this.useCache = other.useCache;
         this.lazyLoading = other.lazyLoading;
         this.parallelProcessing = other.parallelProcessing;
+        this.streamBufferLimit = other.streamBufferLimit;
+        this.caseInsensitiveHrefs = other.caseInsensitiveHrefs;
+        this.cacheNamespace = other.cacheNamespace;
     }
 
     /**
@@ -54,8 +62,48 @@ public class EpubReaderConfig {
         return this;
     }
 
+    /**
+     * 设置流式解析时找到OPF之前最多暂存的条目字节数
+     * @param streamBufferLimit 暂存上限
+     * @return this 配置对象，用于方法链
+     */
+    public EpubReaderConfig withStreamBufferLimit(long streamBufferLimit) {
+        if (streamBufferLimit < 0) {
+            throw new IllegalArgumentException("streamBufferLimit must not be negative");
+        }
+        this.streamBufferLimit = streamBufferLimit;
+        return this;
+    }
+
+    /**
+     * 设置是否忽略大小写匹配清单中的href与ZIP条目名称
+     * @param caseInsensitiveHrefs 是否忽略大小写
+     * @return this 配置对象，用于方法链
+     */
+    public EpubReaderConfig withCaseInsensitiveHrefs(boolean caseInsensitiveHrefs) {
+        this.caseInsensitiveHrefs = caseInsensitiveHrefs;
+        return this;
+    }
+
+    /**
+     * 设置使用的缓存命名空间，不同命名空间的预算和统计相互独立
+     * @param cacheNamespace 命名空间名称，null表示默认命名空间
+     * @return this 配置对象，用于方法链
+     * @see fun.lzwi.epubime.cache.EpubCacheManager#getNamespace(String)
+     */
+    public EpubReaderConfig withCacheNamespace(String cacheNamespace) {
+        if (cacheNamespace != null && cacheNamespace.isEmpty()) {
+            throw new IllegalArgumentException("cacheNamespace must not be empty");
+        }
+        this.cacheNamespace = cacheNamespace;
+        return this;
+    }
+
     // Getter方法
     public boolean isUseCache() { return useCache; }
     public boolean isLazyLoading() { return lazyLoading; }
     public boolean isParallelProcessing() { return parallelProcessing; }
+    public long getStreamBufferLimit() { return streamBufferLimit; }
+    public boolean isCaseInsensitiveHrefs() { return caseInsensitiveHrefs; }
+    public String getCacheNamespace() { return cacheNamespace; }
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+package fun.lzwi.epubime.cache;
+
+/**
+ * 缓存统计快照
+ * 计数从缓存管理器创建起累计；两个快照相减（{@link #minus(CacheStats)}）得到这段时间内的增量。
+ * 占用字节数和条目数量是取快照时的值，相减时保留较新的值
+ */
+public final class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long totalLoadTime;
+    private final long evictionCount;
+    private final long retainedBytes;
+    private final long entryCount;
+
+    /**
+     * 构造函数
+     * @param hitCount 命中次数
+     * @param missCount 未命中次数
+     * @param loadCount 未命中后加载的次数
+     * @param totalLoadTime 加载的总耗时（纳秒）
+     * @param evictionCount 淘汰的条目数量
+     * @param retainedBytes 占用的字节数
+     * @param entryCount 条目数量
+     */
+    public CacheStats(long hitCount, long missCount, long loadCount, long totalLoadTime, long evictionCount,
+                      long retainedBytes, long entryCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadCount = loadCount;
+        this.totalLoadTime = totalLoadTime;
+        this.evictionCount = evictionCount;
+        this.retainedBytes = retainedBytes;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * 获取命中次数
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * 获取未命中次数
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * 获取查询次数
+     * @return 命中和未命中次数之和
+     */
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * 获取命中率
+     * @return 命中次数占查询次数的比例，没有查询时返回1
+     */
+    public double getHitRate() {
+        long requests = getRequestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    /**
+     * 获取未命中后加载的次数
+     * @return 加载次数
+     */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * 获取加载的总耗时
+     * @return 纳秒数
+     */
+    public long getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    /**
+     * 获取平均每次加载的耗时
+     * @return 纳秒数，没有加载时返回0
+     */
+    public double getAverageLoadPenalty() {
+        return loadCount == 0 ? 0.0 : (double) totalLoadTime / loadCount;
+    }
+
+    /**
+     * 获取淘汰的条目数量
+     * @return 淘汰次数
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * 获取占用的字节数
+     * @return 字节数
+     */
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * 获取条目数量
+     * @return 条目数量
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * 计算相对于较早快照的增量
+     * @param earlier 较早的快照
+     * @return 计数为两者之差、占用和条目数量取本快照的值的统计
+     */
+    public CacheStats minus(CacheStats earlier) {
+        return new CacheStats(
+                Math.max(0, hitCount - earlier.hitCount),
+                Math.max(0, missCount - earlier.missCount),
+                Math.max(0, loadCount - earlier.loadCount),
+                Math.max(0, totalLoadTime - earlier.totalLoadTime),
+                Math.max(0, evictionCount - earlier.evictionCount),
+                retainedBytes, entryCount);
+    }
+
+    /**
+     * 合并两份统计
+     * @param other 另一份统计
+     * @return 各项之和
+     */
+    public CacheStats plus(CacheStats other) {
+        return new CacheStats(hitCount + other.hitCount, missCount + other.missCount,
+                loadCount + other.loadCount, totalLoadTime + other.totalLoadTime,
+                evictionCount + other.evictionCount, retainedBytes + other.retainedBytes,
+                entryCount + other.entryCount);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats[hits=" + hitCount + ", misses=" + missCount + ", loads=" + loadCount
+                + ", loadTime=" + totalLoadTime + "ns, evictions=" + evictionCount
+                + ", retained=" + retainedBytes + ", entries=" + entryCount + "]";
+    }
+}
@@ -0,0 +1,120 @@
+package fun.lzwi.epubime.cache;
+
+import fun.lzwi.epubime.epub.EpubBook;
+import fun.lzwi.epubime.epub.EpubChapter;
+import fun.lzwi.epubime.epub.EpubResource;
+import fun.lzwi.epubime.epub.Metadata;
+import fun.lzwi.epubime.zip.EpubSource;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 缓存条目权重估算
+ * 按64位JVM（压缩指针）估算对象实际占用的字节数：字符串按字符数、字节数组按长度，
+ * 集合和书籍模型按对象图递归估算。资源引用的内存数据源会随条目一起被缓存持有，每个条目按数据源计入一次。
+ * 估算值用于全局缓存预算，不追求精确
+ */
+final class CacheWeigher {
+    // 对象头和引用的大小
+    static final int OBJECT_HEADER = 16;
+    static final int REFERENCE = 4;
+    // 缓存映射和LRU链表中每个条目的节点开销
+    static final int ENTRY_OVERHEAD = 96;
+    // 无法展开的对象的估算大小
+    static final int UNKNOWN_OBJECT = 64;
+    // 元数据字段较多且访问时会复制，按固定大小估算
+    static final int METADATA_ESTIMATE = 2048;
+    // 递归估算的最大深度，防止循环引用
+    private static final int MAX_DEPTH = 16;
+
+    private CacheWeigher() {
+    }
+
+    /**
+     * 估算缓存条目占用的字节数，包括键和节点开销
+     * @param key 键
+     * @param value 值
+     * @return 估算的字节数
+     */
+    static long weighEntry(String key, Object value) {
+        return ENTRY_OVERHEAD + weigh(key) + weigh(value, 0, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    /**
+     * 估算对象占用的字节数
+     * @param value 对象
+     * @return 估算的字节数
+     */
+    static long weigh(Object value) {
+        return weigh(value, 0, null);
+    }
+
+    /**
+     * 递归估算对象占用的字节数
+     * @param sources 已计入的数据源，同一条目中引用同一数据源的资源只计入一次；为null时每个资源都计入其数据源
+     */
+    private static long weigh(Object value, int depth, Set<EpubSource> sources) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            // String对象加字符数组，按UTF-16保守估算
+            return OBJECT_HEADER + 8 + OBJECT_HEADER + 2L * ((String) value).length();
+        }
+        if (value instanceof byte[]) {
+            return OBJECT_HEADER + ((byte[]) value).length;
+        }
+        if (value instanceof char[]) {
+            return OBJECT_HEADER + 2L * ((char[]) value).length;
+        }
+        if (depth >= MAX_DEPTH) {
+            return UNKNOWN_OBJECT;
+        }
+        if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            long size = OBJECT_HEADER + 8 + OBJECT_HEADER + (long) REFERENCE * collection.size();
+            for (Object element : collection) {
+                size += weigh(element, depth + 1, sources);
+            }
+            return size;
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            long size = OBJECT_HEADER * 3L + 32L * map.size();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += weigh(entry.getKey(), depth + 1, sources) + weigh(entry.getValue(), depth + 1, sources);
+            }
+            return size;
+        }
+        if (value instanceof EpubResource) {
+            EpubResource resource = (EpubResource) value;
+            long size = OBJECT_HEADER + 8L * REFERENCE + weigh(resource.getId()) + weigh(resource.getType())
+                    + weigh(resource.getHref()) + weigh(resource.getProperties()) + weigh(resource.getFallback());
+            EpubSource source = resource.getSource();
+            if (source != null && (sources == null || sources.add(source))) {
+                size += source.getRetainedBytes();
+            }
+            return size;
+        }
+        if (value instanceof EpubChapter) {
+            EpubChapter chapter = (EpubChapter) value;
+            return OBJECT_HEADER + 4L * REFERENCE + weigh(chapter.getId()) + weigh(chapter.getTitle())
+                    + weigh(chapter.getContent()) + weigh(chapter.getChildren(), depth + 1, sources);
+        }
+        if (value instanceof EpubBook) {
+            EpubBook book = (EpubBook) value;
+            return OBJECT_HEADER + 8L * REFERENCE + METADATA_ESTIMATE + weigh(book.getVersion())
+                    + weigh(book.getResources(), depth + 1, sources) + weigh(book.getNcx(), depth + 1, sources)
+                    + weigh(book.getNav(), depth + 1, sources) + weigh(book.getLandmarks(), depth + 1, sources)
+                    + weigh(book.getPageList(), depth + 1, sources);
+        }
+        if (value instanceof Metadata) {
+            return METADATA_ESTIMATE;
+        }
+        return UNKNOWN_OBJECT;
+    }
+}
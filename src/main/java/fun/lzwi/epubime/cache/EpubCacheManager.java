@@ -1,22 +1,136 @@
 package fun.lzwi.epubime.cache;
 
+import fun.lzwi.epubime.zip.ArchiveFingerprint;
+import fun.lzwi.epubime.zip.EpubSource;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * EPUB解析缓存管理器
- * 提供对ZIP文件内容、解析结果等的缓存，避免重复解析相同内容
+ * 提供对ZIP文件内容、解析结果等的缓存，避免重复解析相同内容。
+ * 所有文件的缓存条目共享一个全局字节预算，按估算的实际占用大小计重，超出预算时按最近最少使用淘汰，
+ * 并按书籍和内容类型分别统计占用的字节数。
+ * 文件缓存按内容指纹（大小和中央目录的位置及CRC）共享：每次访问时检查文件的大小和修改时间，
+ * 变化后重新计算指纹，原地替换的文件自动使用新的缓存并释放旧内容；内容相同的不同路径共享同一缓存。
+ * 启用堆外存储后，不小于阈值的二进制内容复制到直接内存中，不计入堆内预算，由堆外存储按自己的容量淘汰。
+ * 按内容类型全局和按文件分别统计命中、未命中、加载和淘汰次数，可通过JMX查看。
+ * 除默认实例外还可以按名称创建命名空间，每个命名空间是独立的缓存管理器，拥有自己的预算、淘汰顺序和统计，
+ * 一个命名空间的大量读取不会淘汰其他命名空间的内容
  */
 public class EpubCacheManager {
-    // 每个EPUB文件的缓存，使用ConcurrentHashMap提高并发性能
-    private final Map<File, EpubFileCache> fileCaches = new ConcurrentHashMap<>();
+    /**
+     * 默认的全局缓存预算
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * 默认的堆外存储阈值，不小于该大小的二进制内容放入堆外存储
+     */
+    public static final int DEFAULT_OFF_HEAP_THRESHOLD = 64 * 1024;
+
+    /**
+     * 默认命名空间的名称，即 {@link #getInstance()} 返回的实例
+     */
+    public static final String DEFAULT_NAMESPACE = "default";
+
+    private static final String MBEAN_NAME = "fun.lzwi.epubime:type=EpubCacheManager";
+
+    // 访问记录缓冲区每个分段的容量（2的幂）和分段数量的上限
+    private static final int READ_BUFFER_SIZE = 16;
+    private static final int MAX_READ_BUFFERS = 64;
+
+    // 除默认实例以外的命名空间
+    private static final Map<String, EpubCacheManager> NAMESPACES = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存内容的类型
+     */
+    public enum Kind {
+        /**
+         * 文本内容
+         */
+        TEXT,
+        /**
+         * 二进制内容
+         */
+        BINARY,
+        /**
+         * 解析结果
+         */
+        PARSED
+    }
+
+    private final String namespace;
+    // 文件路径到其内容指纹和缓存的绑定，使用ConcurrentHashMap提高并发性能
+    private final Map<File, FileBinding> fileBindings = new ConcurrentHashMap<>();
+    // 内容指纹到缓存的映射，修改绑定时需持有该映射的锁
+    private final Map<Object, EpubFileCache> contentCaches = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    // 非文件数据源的缓存，随数据源被回收而释放
+    private final Map<EpubSource, EpubFileCache> sourceCaches = Collections.synchronizedMap(new WeakHashMap<>());
     
+    // 所有缓存条目按访问顺序排列，值为条目的权重；修改缓存内容和访问顺序时需持有该锁
+    private final Object lock = new Object();
+    private final LinkedHashMap<EntryKey, Long> lru = new LinkedHashMap<>(256, 0.75f, true);
+    private final long[] kindBytes = new long[Kind.values().length];
+    private final long[] kindEntries = new long[Kind.values().length];
+    private long totalBytes;
+    private volatile long maxBytes;
+    private final AtomicLong evictions = new AtomicLong();
+    private final StatsCounter stats = new StatsCounter();
+    // 命中时的访问记录按线程分段缓冲，分段写满或需要淘汰时才在锁内重放到LRU
+    private final ReadBuffer[] readBuffers = newReadBuffers();
+
+    // 堆外存储，为null时不启用；替换时持有lock
+    private volatile OffHeapSlabStore offHeap;
+    private volatile int offHeapThreshold = DEFAULT_OFF_HEAP_THRESHOLD;
+    // 持久化的解析结果缓存，为null时不启用
+    private volatile PersistentParseCache persistentParseCache;
+
     /**
      * 私有构造函数，防止外部实例化
      */
-    private EpubCacheManager() {}
+    private EpubCacheManager() {
+        this(DEFAULT_MAX_BYTES);
+    }
     
+    /**
+     * 创建独立的缓存管理器
+     * @param maxBytes 全局缓存预算（字节）
+     */
+    EpubCacheManager(long maxBytes) {
+        this(DEFAULT_NAMESPACE, maxBytes);
+    }
+
+    private EpubCacheManager(String namespace, long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        }
+        this.namespace = namespace;
+        this.maxBytes = maxBytes;
+    }
+
     /**
      * 静态内部类实现延迟初始化的单例模式
      */
@@ -32,28 +146,212 @@ public class EpubCacheManager {
         return SingletonHolder.INSTANCE;
     }
     
+    /**
+     * 获取指定命名空间的缓存管理器，不存在时以默认预算创建
+     * @param name 命名空间名称，null或 {@link #DEFAULT_NAMESPACE} 表示默认实例
+     * @return 缓存管理器
+     */
+    public static EpubCacheManager getNamespace(String name) {
+        if (name == null || DEFAULT_NAMESPACE.equals(name)) {
+            return getInstance();
+        }
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Namespace name cannot be empty");
+        }
+        return NAMESPACES.computeIfAbsent(name, n -> new EpubCacheManager(n, DEFAULT_MAX_BYTES));
+    }
+
+    /**
+     * 获取指定命名空间的缓存管理器并设置其预算
+     * @param name 命名空间名称
+     * @param maxBytes 该命名空间的缓存预算（字节）
+     * @return 缓存管理器
+     */
+    public static EpubCacheManager getNamespace(String name, long maxBytes) {
+        EpubCacheManager manager = getNamespace(name);
+        manager.setMaxBytes(maxBytes);
+        return manager;
+    }
+
+    /**
+     * 获取所有命名空间的名称
+     * @return 按名称排序的集合，总是包含默认命名空间
+     */
+    public static Set<String> getNamespaceNames() {
+        Set<String> names = new TreeSet<>(NAMESPACES.keySet());
+        names.add(DEFAULT_NAMESPACE);
+        return names;
+    }
+
+    /**
+     * 移除命名空间，清空其缓存并注销其MBean
+     * 之后再获取同名命名空间时重新创建一个空的命名空间，使用默认预算且未注册MBean；
+     * 仍持有被移除的缓存管理器的调用者可以继续使用它，但其内容不再与新的命名空间共享
+     * @param name 命名空间名称，不能是默认命名空间
+     * @return 命名空间是否存在
+     */
+    public static boolean removeNamespace(String name) {
+        if (name == null || DEFAULT_NAMESPACE.equals(name)) {
+            throw new IllegalArgumentException("The default namespace cannot be removed");
+        }
+        EpubCacheManager removed = NAMESPACES.remove(name);
+        if (removed == null) {
+            return false;
+        }
+        removed.clearAllCaches();
+        try {
+            removed.unregisterMBean();
+        } catch (JMException e) {
+            // 命名空间已移除，注销失败不影响结果
+        }
+        return true;
+    }
+
+    /**
+     * 获取缓存管理器所属的命名空间
+     * @return 命名空间名称
+     */
+    public String getNamespaceName() {
+        return namespace;
+    }
+
     /**
      * 获取指定EPUB文件的缓存
+     * 文件的大小或修改时间与上次访问不同时重新计算内容指纹，内容变化后返回新的缓存
      * @param epubFile EPUB文件
      * @return 文件缓存
      */
     public EpubFileCache getFileCache(File epubFile) {
-        return fileCaches.computeIfAbsent(epubFile, k -> new EpubFileCache());
+        long length = epubFile.length();
+        long lastModified = epubFile.lastModified();
+        FileBinding binding = fileBindings.get(epubFile);
+        if (binding != null && binding.length == length && binding.lastModified == lastModified) {
+            return binding.cache;
+        }
+        return bind(epubFile, length, lastModified);
     }
-    
+
+    /**
+     * 将文件绑定到其内容指纹对应的缓存，原先绑定的内容不再被任何文件使用时释放
+     */
+    private EpubFileCache bind(File epubFile, long length, long lastModified) {
+        Object contentKey = fingerprintOf(epubFile, length, lastModified);
+        synchronized (contentCaches) {
+            EpubFileCache cache = contentCaches.computeIfAbsent(contentKey, k -> new EpubFileCache(this));
+            FileBinding previous = fileBindings.put(epubFile, new FileBinding(length, lastModified, contentKey, cache));
+            if (previous != null && !previous.contentKey.equals(contentKey)) {
+                invalidations.incrementAndGet();
+                releaseIfUnbound(previous);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * 计算文件的内容指纹；无法读取中央目录时（如文件不存在或不是ZIP）以路径、大小和修改时间作为键，不与其他路径共享
+     */
+    private static Object fingerprintOf(File epubFile, long length, long lastModified) {
+        if (length > 0) {
+            try {
+                return ArchiveFingerprint.of(epubFile);
+            } catch (IOException | RuntimeException e) {
+                // 回退到按路径区分
+            }
+        }
+        return Arrays.asList(epubFile.getAbsolutePath(), length, lastModified);
+    }
+
     /**
-     * 清除指定EPUB文件的缓存
+     * 没有文件再绑定到该内容时移除并清空其缓存，需持有contentCaches的锁
+     */
+    private void releaseIfUnbound(FileBinding released) {
+        for (FileBinding binding : fileBindings.values()) {
+            if (binding.cache == released.cache) {
+                return;
+            }
+        }
+        contentCaches.remove(released.contentKey, released.cache);
+        released.cache.clear();
+    }
+
+    /**
+     * 获取指定数据源的缓存
+     * 文件数据源与 {@link #getFileCache(File)} 共享同一缓存，其他数据源按 {@link EpubSource#getContentSource()} 区分
+     * @param source EPUB数据源
+     * @return 数据源缓存
+     */
+    public EpubFileCache getSourceCache(EpubSource source) {
+        File file = source.getFile();
+        if (file != null) {
+            return getFileCache(file);
+        }
+        return sourceCaches.computeIfAbsent(source.getContentSource(), k -> new EpubFileCache(this));
+    }
+
+    /**
+     * 清除指定数据源的缓存
+     * @param source EPUB数据源
+     */
+    public void clearSourceCache(EpubSource source) {
+        File file = source.getFile();
+        if (file != null) {
+            clearFileCache(file);
+        } else {
+            EpubFileCache cache = sourceCaches.remove(source.getContentSource());
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    /**
+     * 清除指定EPUB文件的缓存，内容相同的其他路径共享该缓存，也一并清空
      * @param epubFile EPUB文件
      */
     public void clearFileCache(File epubFile) {
-        fileCaches.remove(epubFile);
+        synchronized (contentCaches) {
+            FileBinding binding = fileBindings.remove(epubFile);
+            if (binding != null) {
+                // 内容相同的其他路径共享该缓存，也一并清空
+                binding.cache.clear();
+                releaseIfUnbound(binding);
+                return;
+            }
+        }
+        // 文件尚未绑定时，其内容可能已由其他路径缓存
+        long length = epubFile.length();
+        if (length > 0) {
+            EpubFileCache cache = contentCaches.get(fingerprintOf(epubFile, length, epubFile.lastModified()));
+            if (cache != null) {
+                cache.clear();
+            }
+        }
     }
-    
+
     /**
      * 清除所有缓存
      */
     public void clearAllCaches() {
-        fileCaches.clear();
+        synchronized (contentCaches) {
+            fileBindings.clear();
+            contentCaches.clear();
+        }
+        sourceCaches.clear();
+        synchronized (lock) {
+            OffHeapSlabStore store = offHeap;
+            if (store != null) {
+                store.drain();
+            }
+            for (EntryKey key : lru.keySet()) {
+                key.cache.mapOf(key.kind).remove(key.key);
+                key.cache.kindBytes[key.kind.ordinal()] = 0;
+                key.cache.kindEntries[key.kind.ordinal()] = 0;
+            }
+            lru.clear();
+            totalBytes = 0;
+            Arrays.fill(kindBytes, 0);
+            Arrays.fill(kindEntries, 0);
+        }
     }
 
     /**
@@ -61,20 +359,685 @@ public class EpubCacheManager {
      * 建议定期调用此方法
      */
     public void cleanupInvalidCaches() {
-        fileCaches.entrySet().removeIf(entry -> !entry.getKey().exists());
+        synchronized (contentCaches) {
+            Iterator<Map.Entry<File, FileBinding>> it = fileBindings.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<File, FileBinding> entry = it.next();
+                if (!entry.getKey().exists()) {
+                    it.remove();
+                    releaseIfUnbound(entry.getValue());
+                }
+            }
+        }
     }
-    
+
+    /**
+     * 获取全局缓存预算
+     * @return 预算（字节）
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 设置全局缓存预算，缩小时立即淘汰超出的条目
+     * @param maxBytes 预算（字节），为0时不缓存任何内容
+     */
+    public void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        }
+        synchronized (lock) {
+            this.maxBytes = maxBytes;
+            evictToBudget();
+        }
+    }
+
+    /**
+     * 设置堆外存储的容量，替换原有的堆外存储并移除其中的所有条目
+     * 直接内存按块（4MB）按需分配，分配后不归还，直到存储被替换后由垃圾回收释放
+     * @param capacity 直接内存的上限（字节），不足一个块时不启用堆外存储
+     */
+    public void setOffHeapCapacity(long capacity) {
+        setOffHeapCapacity(capacity, OffHeapSlabStore.DEFAULT_SLAB_SIZE);
+    }
+
+    void setOffHeapCapacity(long capacity, int slabSize) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        synchronized (lock) {
+            OffHeapSlabStore previous = offHeap;
+            offHeap = capacity >= slabSize ? new OffHeapSlabStore(capacity, slabSize, this::onOffHeapEvicted) : null;
+            if (previous != null) {
+                previous.drain();
+            }
+        }
+    }
+
+    /**
+     * 获取堆外存储的容量
+     * @return 直接内存的上限（字节），未启用时返回0
+     */
+    public long getOffHeapCapacity() {
+        OffHeapSlabStore store = offHeap;
+        return store != null ? store.getCapacity() : 0;
+    }
+
+    /**
+     * 设置堆外存储阈值
+     * @param threshold 不小于该大小的二进制内容放入堆外存储（字节）
+     */
+    public void setOffHeapThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative");
+        }
+        this.offHeapThreshold = threshold;
+    }
+
+    /**
+     * 获取堆外存储阈值
+     * @return 阈值（字节）
+     */
+    public int getOffHeapThreshold() {
+        return offHeapThreshold;
+    }
+
+    /**
+     * 获取堆外存储中条目占用的槽位大小
+     * @return 字节数，未启用时返回0
+     */
+    public long getOffHeapRetainedBytes() {
+        OffHeapSlabStore store = offHeap;
+        return store != null ? store.getUsedBytes() : 0;
+    }
+
+    /**
+     * 获取堆外存储已分配的直接内存大小
+     * @return 字节数，未启用时返回0
+     */
+    public long getOffHeapAllocatedBytes() {
+        OffHeapSlabStore store = offHeap;
+        return store != null ? store.getAllocatedBytes() : 0;
+    }
+
+    /**
+     * 获取堆外存储中的条目数量
+     * @return 条目数量
+     */
+    public int getOffHeapEntryCount() {
+        OffHeapSlabStore store = offHeap;
+        return store != null ? store.getEntryCount() : 0;
+    }
+
+    /**
+     * 获取堆外存储因空间不足而淘汰的条目数量
+     * @return 淘汰次数
+     */
+    public long getOffHeapEvictionCount() {
+        OffHeapSlabStore store = offHeap;
+        return store != null ? store.getEvictionCount() : 0;
+    }
+
+    /**
+     * 设置持久化的解析结果缓存，解析时先按内容指纹从磁盘读取，未命中时解析后写入
+     * @param cache 持久化缓存，为null时不启用
+     */
+    public void setPersistentParseCache(PersistentParseCache cache) {
+        this.persistentParseCache = cache;
+    }
+
+    /**
+     * 获取持久化的解析结果缓存
+     * @return 持久化缓存，未启用时返回null
+     */
+    public PersistentParseCache getPersistentParseCache() {
+        return persistentParseCache;
+    }
+
+    /**
+     * 获取所有缓存条目的估算占用
+     * @return 字节数
+     */
+    public long getRetainedBytes() {
+        synchronized (lock) {
+            return totalBytes;
+        }
+    }
+
+    /**
+     * 获取指定类型的缓存条目的估算占用
+     * @param kind 内容类型
+     * @return 字节数
+     */
+    public long getRetainedBytes(Kind kind) {
+        synchronized (lock) {
+            return kindBytes[kind.ordinal()];
+        }
+    }
+
+    /**
+     * 获取缓存条目数量
+     * @return 条目数量
+     */
+    public int getEntryCount() {
+        synchronized (lock) {
+            return lru.size();
+        }
+    }
+
+    /**
+     * 获取所有类型的合计统计
+     * 计数从创建起累计，两次快照相减得到区间内的增量；占用字节数不包括堆外存储
+     * @return 统计快照
+     */
+    public CacheStats getStats() {
+        CacheStats total = null;
+        for (Kind kind : Kind.values()) {
+            CacheStats kindStats = getStats(kind);
+            total = total == null ? kindStats : total.plus(kindStats);
+        }
+        return total;
+    }
+
+    /**
+     * 获取指定类型的统计
+     * @param kind 内容类型
+     * @return 统计快照
+     */
+    public CacheStats getStats(Kind kind) {
+        long retained;
+        long entries;
+        synchronized (lock) {
+            retained = kindBytes[kind.ordinal()];
+            entries = kindEntries[kind.ordinal()];
+        }
+        if (kind == Kind.BINARY) {
+            entries += getOffHeapEntryCount();
+        }
+        return stats.snapshot(kind, retained, entries);
+    }
+
+    /**
+     * 获取按文件划分的统计，内容相同的路径共享同一份统计
+     * @return 文件到统计快照的映射
+     */
+    public Map<File, CacheStats> getStatsByFile() {
+        Map<File, CacheStats> result = new HashMap<>();
+        for (Map.Entry<File, FileBinding> entry : fileBindings.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().cache.getStats());
+        }
+        return result;
+    }
+
+    /**
+     * 将缓存统计注册到平台MBean服务器
+     * 默认命名空间的对象名为 {@code fun.lzwi.epubime:type=EpubCacheManager}，
+     * 其他命名空间追加 {@code namespace} 属性；已注册时替换
+     * @return 注册的对象名
+     * @throws JMException 注册失败
+     */
+    public ObjectName registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = objectName();
+        try {
+            server.registerMBean(new StatsMXBean(), name);
+        } catch (InstanceAlreadyExistsException e) {
+            server.unregisterMBean(name);
+            server.registerMBean(new StatsMXBean(), name);
+        }
+        return name;
+    }
+
+    /**
+     * 从平台MBean服务器注销缓存统计
+     * @throws JMException 注销失败
+     */
+    public void unregisterMBean() throws JMException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName());
+        } catch (InstanceNotFoundException e) {
+            // 未注册
+        }
+    }
+
+    private ObjectName objectName() throws JMException {
+        if (DEFAULT_NAMESPACE.equals(namespace)) {
+            return new ObjectName(MBEAN_NAME);
+        }
+        return new ObjectName(MBEAN_NAME + ",namespace=" + ObjectName.quote(namespace));
+    }
+
+    /**
+     * 获取因文件内容变化而失效的缓存数量
+     * @return 失效次数
+     */
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    /**
+     * 获取因超出预算而淘汰的条目数量
+     * @return 淘汰次数
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * 写入或移除缓存条目，并更新访问顺序和占用统计
+     */
+    private void store(EpubFileCache cache, Kind kind, String key, Object value) {
+        Map<String, Object> map = cache.mapOf(kind);
+        EntryKey entryKey = new EntryKey(cache, kind, key);
+        synchronized (lock) {
+            // 先重放之前的访问，使写入前后的访问顺序保持一致
+            drainReadBuffers();
+            if (kind == Kind.BINARY) {
+                cache.unreadBinaryContent.remove(key);
+                OffHeapSlabStore.Entry offHeapEntry = cache.offHeapContent.remove(key);
+                if (offHeapEntry != null) {
+                    offHeapEntry.remove();
+                }
+            }
+            Long previous = lru.remove(entryKey);
+            if (previous != null) {
+                map.remove(key);
+                release(cache, kind, previous);
+            }
+            if (value == null) {
+                return;
+            }
+            long weight = CacheWeigher.weighEntry(key, value);
+            if (weight > maxBytes) {
+                // 单个条目超过预算，不缓存
+                return;
+            }
+            map.put(key, value);
+            lru.put(entryKey, weight);
+            cache.kindBytes[kind.ordinal()] += weight;
+            cache.kindEntries[kind.ordinal()]++;
+            kindBytes[kind.ordinal()] += weight;
+            kindEntries[kind.ordinal()]++;
+            totalBytes += weight;
+            evictToBudget();
+        }
+    }
+
+    /**
+     * 将二进制内容复制到堆外存储，替换该键原有的堆内或堆外内容
+     * @return 内容小于阈值、未启用堆外存储或无法分配槽位时返回false，由调用者放入堆内
+     */
+    private boolean storeOffHeap(EpubFileCache cache, String key, byte[] data) {
+        // 复制数据时不持有全局锁
+        OffHeapSlabStore.Entry entry = copyOffHeap(cache, key, data);
+        if (entry == null) {
+            return false;
+        }
+        synchronized (lock) {
+            return installOffHeap(cache, key, entry);
+        }
+    }
+
+    /**
+     * 将二进制内容复制到堆外存储的新条目，不持有全局锁时调用
+     * @return 新条目，内容小于阈值、未启用堆外存储或无法分配槽位时返回null
+     */
+    private OffHeapSlabStore.Entry copyOffHeap(EpubFileCache cache, String key, byte[] data) {
+        OffHeapSlabStore store = offHeap;
+        if (store == null || data.length < offHeapThreshold || !store.accepts(data.length)) {
+            return null;
+        }
+        return store.put(data, cache, key);
+    }
+
+    /**
+     * 用已复制的堆外条目替换该键原有的内容，需持有锁
+     * @return 复制期间堆外存储已被替换时移除条目并返回false
+     */
+    private boolean installOffHeap(EpubFileCache cache, String key, OffHeapSlabStore.Entry entry) {
+        if (!entry.belongsTo(offHeap)) {
+            entry.remove();
+            return false;
+        }
+        store(cache, Kind.BINARY, key, null);
+        cache.offHeapContent.put(key, entry);
+        if (!entry.isLive()) {
+            // 写入后立即被其他写入淘汰
+            cache.offHeapContent.remove(key, entry);
+        }
+        return true;
+    }
+
+    /**
+     * 堆外条目被淘汰时从所属的文件缓存中移除
+     */
+    private void onOffHeapEvicted(OffHeapSlabStore.Entry entry) {
+        EpubFileCache cache = (EpubFileCache) entry.owner;
+        if (cache.offHeapContent.remove(entry.key, entry)) {
+            stats.recordEviction(Kind.BINARY);
+            cache.stats.recordEviction(Kind.BINARY);
+        }
+    }
+
+    /**
+     * 记录一次访问，写入当前线程对应的缓冲区分段，分段写满时在锁内刷新条目在LRU中的位置
+     * 命中不必每次获取全局锁；分段在重放前被写满时覆盖最早的记录，丢失的访问只影响淘汰顺序的精度
+     */
+    private void touch(EpubFileCache cache, Kind kind, String key) {
+        ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & (readBuffers.length - 1)];
+        long index = buffer.writes.getAndIncrement();
+        int slot = (int) (index & (READ_BUFFER_SIZE - 1));
+        buffer.slots.lazySet(slot, new EntryKey(cache, kind, key));
+        if (slot == READ_BUFFER_SIZE - 1) {
+            synchronized (lock) {
+                buffer.drainTo(lru);
+            }
+        }
+    }
+
+    /**
+     * 将所有分段中的访问记录重放到LRU，需持有锁
+     */
+    private void drainReadBuffers() {
+        for (ReadBuffer buffer : readBuffers) {
+            buffer.drainTo(lru);
+        }
+    }
+
+    private static ReadBuffer[] newReadBuffers() {
+        // 分段数为不小于处理器数量的2的幂
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), MAX_READ_BUFFERS);
+        int count = Integer.highestOneBit(Math.max(processors - 1, 1) << 1);
+        ReadBuffer[] buffers = new ReadBuffer[count];
+        for (int i = 0; i < count; i++) {
+            buffers[i] = new ReadBuffer();
+        }
+        return buffers;
+    }
+
+    private void release(EpubFileCache cache, Kind kind, long weight) {
+        cache.kindBytes[kind.ordinal()] -= weight;
+        cache.kindEntries[kind.ordinal()]--;
+        kindBytes[kind.ordinal()] -= weight;
+        kindEntries[kind.ordinal()]--;
+        totalBytes -= weight;
+    }
+
+    /**
+     * 淘汰最近最少使用的条目直到不超过预算，需持有锁
+     */
+    private void evictToBudget() {
+        if (totalBytes > maxBytes) {
+            // 按最新的访问顺序淘汰
+            drainReadBuffers();
+        }
+        Iterator<Map.Entry<EntryKey, Long>> it = lru.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<EntryKey, Long> eldest = it.next();
+            EntryKey key = eldest.getKey();
+            key.cache.mapOf(key.kind).remove(key.key);
+            release(key.cache, key.kind, eldest.getValue());
+            it.remove();
+            evictions.incrementAndGet();
+            stats.recordEviction(key.kind);
+            key.cache.stats.recordEviction(key.kind);
+        }
+    }
+
+    /**
+     * 移除某个文件缓存的所有条目
+     */
+    private void removeAll(EpubFileCache cache) {
+        synchronized (lock) {
+            Iterator<Map.Entry<EntryKey, Long>> it = lru.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<EntryKey, Long> entry = it.next();
+                if (entry.getKey().cache == cache) {
+                    release(cache, entry.getKey().kind, entry.getValue());
+                    it.remove();
+                }
+            }
+            cache.textContentCache.clear();
+            cache.binaryContentCache.clear();
+            cache.parsedResultCache.clear();
+            for (OffHeapSlabStore.Entry entry : cache.offHeapContent.values()) {
+                entry.remove();
+            }
+            cache.offHeapContent.clear();
+            cache.unreadBinaryContent.clear();
+        }
+    }
+
+    /**
+     * 通过JMX公开的缓存统计
+     */
+    private final class StatsMXBean implements EpubCacheStatsMXBean {
+        @Override
+        public CacheStats getStats() {
+            return EpubCacheManager.this.getStats();
+        }
+
+        @Override
+        public CacheStats getTextStats() {
+            return EpubCacheManager.this.getStats(Kind.TEXT);
+        }
+
+        @Override
+        public CacheStats getBinaryStats() {
+            return EpubCacheManager.this.getStats(Kind.BINARY);
+        }
+
+        @Override
+        public CacheStats getParsedStats() {
+            return EpubCacheManager.this.getStats(Kind.PARSED);
+        }
+
+        @Override
+        public long getMaxBytes() {
+            return EpubCacheManager.this.getMaxBytes();
+        }
+
+        @Override
+        public long getOffHeapRetainedBytes() {
+            return EpubCacheManager.this.getOffHeapRetainedBytes();
+        }
+
+        @Override
+        public int getFileCount() {
+            return fileBindings.size() + sourceCaches.size();
+        }
+    }
+
+    /**
+     * 文件路径的绑定：上次检查时的大小和修改时间，以及对应的内容指纹和缓存
+     */
+    private static final class FileBinding {
+        final long length;
+        final long lastModified;
+        final Object contentKey;
+        final EpubFileCache cache;
+
+        FileBinding(long length, long lastModified, Object contentKey, EpubFileCache cache) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.contentKey = contentKey;
+            this.cache = cache;
+        }
+    }
+
+    /**
+     * LRU中的条目键：所属的文件缓存、内容类型和缓存键
+     */
+    private static final class EntryKey {
+        final EpubFileCache cache;
+        final Kind kind;
+        final String key;
+
+        EntryKey(EpubFileCache cache, Kind kind, String key) {
+            this.cache = cache;
+            this.kind = kind;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EntryKey)) {
+                return false;
+            }
+            EntryKey other = (EntryKey) o;
+            return cache == other.cache && kind == other.kind && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(cache) * 31 + kind.ordinal()) * 31 + key.hashCode();
+        }
+    }
+
+    /**
+     * 访问记录缓冲区的一个分段，写入无锁，重放时持有管理器的锁
+     */
+    private static final class ReadBuffer {
+        final AtomicReferenceArray<EntryKey> slots = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        final AtomicLong writes = new AtomicLong();
+        // 上次重放时的写入次数，持有锁时读写
+        long drained;
+
+        void drainTo(LinkedHashMap<EntryKey, Long> lru) {
+            long end = writes.get();
+            if (end == drained) {
+                return;
+            }
+            drained = end;
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                EntryKey key = slots.getAndSet(i, null);
+                if (key != null) {
+                    // 访问顺序的LinkedHashMap中get即移到末尾，已移除的条目忽略
+                    lru.get(key);
+                }
+            }
+        }
+    }
+
     /**
      * 单个EPUB文件的缓存
+     * 条目计入所属缓存管理器的全局预算，可能在超出预算时被淘汰
      */
     public static class EpubFileCache {
+        private final EpubCacheManager manager;
+
         // ZIP文件内容缓存 (文件路径 -> 文件内容)
         private final Map<String, String> textContentCache = new ConcurrentHashMap<>();
         private final Map<String, byte[]> binaryContentCache = new ConcurrentHashMap<>();
+        // 放入堆外存储的二进制内容
+        private final Map<String, OffHeapSlabStore.Entry> offHeapContent = new ConcurrentHashMap<>();
+        // 由putBinaryContentIfAbsent写入、尚未被读取的二进制内容的键
+        private final Set<String> unreadBinaryContent = ConcurrentHashMap.newKeySet();
         
         // 解析结果缓存
         private final Map<String, Object> parsedResultCache = new ConcurrentHashMap<>();
         
+        // 按内容类型统计的占用字节数和条目数量，由管理器在持有锁时更新
+        private final long[] kindBytes = new long[Kind.values().length];
+        private final long[] kindEntries = new long[Kind.values().length];
+        private final StatsCounter stats = new StatsCounter();
+
+        /**
+         * 创建计入全局缓存管理器预算的文件缓存
+         */
+        public EpubFileCache() {
+            this(EpubCacheManager.getInstance());
+        }
+
+        EpubFileCache(EpubCacheManager manager) {
+            this.manager = manager;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, Object> mapOf(Kind kind) {
+            switch (kind) {
+                case TEXT:
+                    return (Map<String, Object>) (Map<String, ?>) textContentCache;
+                case BINARY:
+                    return (Map<String, Object>) (Map<String, ?>) binaryContentCache;
+                default:
+                    return parsedResultCache;
+            }
+        }
+
+        private Object lookup(Kind kind, String key) {
+            if (key == null) {
+                return null;
+            }
+            Object value = mapOf(kind).get(key);
+            if (value != null) {
+                manager.touch(this, kind, key);
+                if (kind == Kind.BINARY) {
+                    markRead(key);
+                }
+            }
+            return value;
+        }
+
+        /**
+         * 记录一次查询的结果
+         */
+        private <T> T record(Kind kind, T value) {
+            if (value != null) {
+                stats.recordHit(kind);
+                manager.stats.recordHit(kind);
+            } else {
+                stats.recordMiss(kind);
+                manager.stats.recordMiss(kind);
+            }
+            return value;
+        }
+
+        /**
+         * 记录一次未命中后的加载，由读取内容并写入缓存的调用者调用
+         * @param kind 内容类型
+         * @param nanos 加载耗时（纳秒）
+         */
+        public void recordLoad(Kind kind, long nanos) {
+            stats.recordLoad(kind, nanos);
+            manager.stats.recordLoad(kind, nanos);
+        }
+
+        /**
+         * 获取该文件所有类型的合计统计
+         * @return 统计快照
+         */
+        public CacheStats getStats() {
+            CacheStats total = null;
+            for (Kind kind : Kind.values()) {
+                CacheStats kindStats = getStats(kind);
+                total = total == null ? kindStats : total.plus(kindStats);
+            }
+            return total;
+        }
+
+        /**
+         * 获取该文件指定类型的统计
+         * @param kind 内容类型
+         * @return 统计快照，占用字节数不包括堆外存储
+         */
+        public CacheStats getStats(Kind kind) {
+            long retained;
+            long entries;
+            synchronized (manager.lock) {
+                retained = kindBytes[kind.ordinal()];
+                entries = kindEntries[kind.ordinal()];
+            }
+            if (kind == Kind.BINARY) {
+                entries += offHeapContent.size();
+            }
+            return stats.snapshot(kind, retained, entries);
+        }
+
         /**
          * 获取文本内容缓存
          * @return 文本内容缓存的不可修改视图
@@ -89,9 +1052,19 @@ public class EpubCacheManager {
          * @return 文本内容
          */
         public String getTextContent(String key) {
-            return textContentCache.get(key);
+            return record(Kind.TEXT, (String) lookup(Kind.TEXT, key));
         }
-        
+
+        /**
+         * 获取指定键的文本内容，不计入命中统计，也不刷新访问顺序
+         * 用于加载者在合并的加载中再次检查缓存，避免一次读取被计为两次未命中
+         * @param key 键
+         * @return 文本内容，未缓存时返回null
+         */
+        public String peekTextContent(String key) {
+            return key != null ? textContentCache.get(key) : null;
+        }
+
         /**
          * 设置文本内容缓存
          * @param key 键
@@ -99,48 +1072,166 @@ public class EpubCacheManager {
          */
         public void setTextContent(String key, String content) {
             if (key != null) {
-                if (content != null) {
-                    textContentCache.put(key, content);
-                } else {
-                    textContentCache.remove(key);
-                }
+                manager.store(this, Kind.TEXT, key, content);
             }
         }
-        
+
         /**
          * 获取二进制内容缓存
-         * @return 二进制内容缓存的不可修改视图
+         * @return 堆内二进制内容缓存的不可修改视图，不包括放入堆外存储的内容
          */
         public Map<String, byte[]> getBinaryContentCache() {
             return java.util.Collections.unmodifiableMap(binaryContentCache);
         }
         
+        /**
+         * 判断是否缓存了指定键的二进制内容，包括堆外存储中的内容
+         * @param key 键
+         * @return 已缓存时返回true
+         */
+        public boolean containsBinaryContent(String key) {
+            return key != null && (binaryContentCache.containsKey(key) || offHeapContent.containsKey(key));
+        }
+
+        private OffHeapSlabStore.Entry lookupOffHeap(String key) {
+            OffHeapSlabStore.Entry entry = key != null ? offHeapContent.get(key) : null;
+            if (entry != null) {
+                entry.touch();
+                markRead(key);
+            }
+            return entry;
+        }
+
+        private void markRead(String key) {
+            if (!unreadBinaryContent.isEmpty()) {
+                unreadBinaryContent.remove(key);
+            }
+        }
+
         /**
          * 获取指定键的二进制内容
          * @param key 键
-         * @return 二进制内容
+         * @return 二进制内容的副本
          */
         public byte[] getBinaryContent(String key) {
-            byte[] data = binaryContentCache.get(key);
-            return data != null ? data.clone() : null;
+            byte[] data = (byte[]) lookup(Kind.BINARY, key);
+            if (data != null) {
+                return record(Kind.BINARY, data.clone());
+            }
+            OffHeapSlabStore.Entry entry = lookupOffHeap(key);
+            return record(Kind.BINARY, entry != null ? entry.copy() : null);
         }
-        
+
+        /**
+         * 获取指定键的二进制内容的只读视图
+         * 堆内内容不复制数据；返回的视图没有释放时机，堆外存储中的内容复制到堆内后返回，视图在调用者持有期间始终有效。
+         * 能够确定使用结束时间的调用者应使用 {@link #openBinaryBuffer(String)}，避免复制堆外内容
+         * @param key 键
+         * @return 只读视图，position为0，各次调用返回独立的视图；未缓存时返回null
+         */
+        public ByteBuffer getBinaryBuffer(String key) {
+            byte[] data = (byte[]) lookup(Kind.BINARY, key);
+            if (data == null) {
+                OffHeapSlabStore.Entry entry = lookupOffHeap(key);
+                data = entry != null ? entry.copy() : null;
+            }
+            return record(Kind.BINARY, data != null ? ByteBuffer.wrap(data).asReadOnlyBuffer() : null);
+        }
+
+        /**
+         * 获取指定键的二进制内容的只读视图，使用结束后需要关闭
+         * 堆内内容返回数组的视图；堆外内容直接返回槽位的视图而不复制，槽位在视图关闭前被固定，不会被淘汰和复用
+         * @param key 键
+         * @return 只读视图，未缓存时返回null
+         */
+        public BinaryView openBinaryBuffer(String key) {
+            byte[] data = (byte[]) lookup(Kind.BINARY, key);
+            if (data != null) {
+                return record(Kind.BINARY, new BinaryView(ByteBuffer.wrap(data).asReadOnlyBuffer(), null));
+            }
+            OffHeapSlabStore.Entry entry = lookupOffHeap(key);
+            ByteBuffer view = entry != null ? entry.pin() : null;
+            return record(Kind.BINARY, view != null ? new BinaryView(view, entry) : null);
+        }
+
         /**
-         * 设置二进制内容缓存
+         * 设置二进制内容缓存，缓存数据的副本
          * @param key 键
          * @param data 数据
          */
         public void setBinaryContent(String key, byte[] data) {
             if (key != null) {
-                if (data != null) {
-                    binaryContentCache.put(key, data.clone());
-                } else {
-                    // 不存储null值，而是移除对应的键
-                    binaryContentCache.remove(key);
+                // 放入堆外存储时已复制，无需再复制；不存储null值，而是移除对应的键
+                if (data == null || !manager.storeOffHeap(this, key, data)) {
+                    manager.store(this, Kind.BINARY, key, data != null ? data.clone() : null);
                 }
             }
         }
-        
+
+        /**
+         * 设置二进制内容缓存，直接持有传入的数组而不复制
+         * 用于刚解压、没有其他引用的数据；调用后不得再修改该数组，只能通过 {@link #getBinaryBuffer(String)} 只读访问。
+         * 放入堆外存储的内容被复制到直接内存，数组不再被缓存持有
+         * @param key 键
+         * @param data 数据，为null时移除对应的键
+         */
+        public void putBinaryContent(String key, byte[] data) {
+            if (key != null) {
+                if (data == null || !manager.storeOffHeap(this, key, data)) {
+                    manager.store(this, Kind.BINARY, key, data);
+                }
+            }
+        }
+
+        /**
+         * 该键没有缓存内容时写入二进制内容，直接持有传入的数组而不复制
+         * 写入的内容在被读取之前可以通过 {@link #removeUnreadBinaryContent(String)} 撤销，用于预取等投机性的加载
+         * @param key 键
+         * @param data 数据，调用后不得再修改
+         * @return 是否写入；已有内容或内容超过预算时返回false
+         */
+        public boolean putBinaryContentIfAbsent(String key, byte[] data) {
+            if (key == null || data == null || containsBinaryContent(key)) {
+                return false;
+            }
+            // 复制到堆外存储时不持有全局锁，写入前再次检查
+            OffHeapSlabStore.Entry entry = manager.copyOffHeap(this, key, data);
+            synchronized (manager.lock) {
+                if (containsBinaryContent(key)) {
+                    if (entry != null) {
+                        entry.remove();
+                    }
+                    return false;
+                }
+                if (entry == null || !manager.installOffHeap(this, key, entry)) {
+                    manager.store(this, Kind.BINARY, key, data);
+                }
+                if (!containsBinaryContent(key)) {
+                    return false;
+                }
+                unreadBinaryContent.add(key);
+                return true;
+            }
+        }
+
+        /**
+         * 移除由 {@link #putBinaryContentIfAbsent(String, byte[])} 写入、此后没有被读取也没有被替换的二进制内容
+         * @param key 键
+         * @return 是否移除
+         */
+        public boolean removeUnreadBinaryContent(String key) {
+            if (key == null) {
+                return false;
+            }
+            synchronized (manager.lock) {
+                if (!unreadBinaryContent.remove(key)) {
+                    return false;
+                }
+                manager.store(this, Kind.BINARY, key, null);
+                return true;
+            }
+        }
+
         /**
          * 获取解析结果缓存
          * @return 解析结果缓存的不可修改视图
@@ -155,9 +1246,19 @@ public class EpubCacheManager {
          * @return 解析结果
          */
         public Object getParsedResult(String key) {
-            return parsedResultCache.get(key);
+            return record(Kind.PARSED, lookup(Kind.PARSED, key));
         }
-        
+
+        /**
+         * 获取指定键的解析结果，不计入命中统计，也不刷新访问顺序
+         * @param key 键
+         * @return 解析结果，未缓存时返回null
+         * @see #peekTextContent(String)
+         */
+        public Object peekParsedResult(String key) {
+            return key != null ? parsedResultCache.get(key) : null;
+        }
+
         /**
          * 设置解析结果缓存
          * @param key 键
@@ -165,21 +1266,81 @@ public class EpubCacheManager {
          */
         public void setParsedResult(String key, Object result) {
             if (key != null) {
-                if (result != null) {
-                    parsedResultCache.put(key, result);
-                } else {
-                    parsedResultCache.remove(key);
+                manager.store(this, Kind.PARSED, key, result);
+            }
+        }
+
+        /**
+         * 获取该文件所有缓存条目的估算占用
+         * @return 字节数
+         */
+        public long getRetainedBytes() {
+            synchronized (manager.lock) {
+                long total = 0;
+                for (long bytes : kindBytes) {
+                    total += bytes;
                 }
+                return total;
             }
         }
-        
+
+        /**
+         * 获取该文件指定类型缓存条目的估算占用
+         * @param kind 内容类型
+         * @return 字节数
+         */
+        public long getRetainedBytes(Kind kind) {
+            synchronized (manager.lock) {
+                return kindBytes[kind.ordinal()];
+            }
+        }
+
         /**
          * 清除该文件的所有缓存
          */
         public void clear() {
-            textContentCache.clear();
-            binaryContentCache.clear();
-            parsedResultCache.clear();
+            manager.removeAll(this);
+        }
+    }
+
+    /**
+     * 缓存中二进制内容的只读视图
+     * 堆外内容的视图直接指向槽位，关闭前槽位不会被淘汰和复用；关闭后不得再读取视图
+     */
+    public static final class BinaryView implements AutoCloseable {
+        private final ByteBuffer buffer;
+        private final OffHeapSlabStore.Entry entry;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private BinaryView(ByteBuffer buffer, OffHeapSlabStore.Entry entry) {
+            this.buffer = buffer;
+            this.entry = entry;
+        }
+
+        /**
+         * 获取内容的只读视图
+         * @return position为0的只读视图，各次调用返回独立的视图
+         */
+        public ByteBuffer buffer() {
+            return buffer.duplicate();
+        }
+
+        /**
+         * 判断内容是否位于堆外存储
+         * @return 位于堆外存储时返回true
+         */
+        public boolean isOffHeap() {
+            return entry != null;
+        }
+
+        /**
+         * 释放视图，堆外内容的槽位不再被固定；重复关闭没有作用
+         */
+        @Override
+        public void close() {
+            if (entry != null && closed.compareAndSet(false, true)) {
+                entry.unpin();
+            }
         }
     }
-}
\ No newline at end of file
+}
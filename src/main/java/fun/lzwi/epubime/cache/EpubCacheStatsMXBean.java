@@ -0,0 +1,49 @@
+package fun.lzwi.epubime.cache;
+
+/**
+ * 缓存统计的JMX接口
+ * 通过 {@link EpubCacheManager#registerMBean()} 注册到平台MBean服务器，各属性均为累计值
+ */
+public interface EpubCacheStatsMXBean {
+    /**
+     * 获取所有类型的合计统计
+     * @return 统计快照
+     */
+    CacheStats getStats();
+
+    /**
+     * 获取文本内容的统计
+     * @return 统计快照
+     */
+    CacheStats getTextStats();
+
+    /**
+     * 获取二进制内容的统计，占用字节数只包括堆内的内容
+     * @return 统计快照
+     */
+    CacheStats getBinaryStats();
+
+    /**
+     * 获取解析结果的统计
+     * @return 统计快照
+     */
+    CacheStats getParsedStats();
+
+    /**
+     * 获取全局缓存预算
+     * @return 字节数
+     */
+    long getMaxBytes();
+
+    /**
+     * 获取堆外存储中条目占用的槽位大小
+     * @return 字节数
+     */
+    long getOffHeapRetainedBytes();
+
+    /**
+     * 获取缓存的文件数量
+     * @return 文件数量
+     */
+    int getFileCount();
+}
@@ -0,0 +1,485 @@
+package fun.lzwi.epubime.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 堆外二进制内容存储
+ * 按需分配固定大小的直接内存块（slab），每个块只服务一个大小等级，切分为等长的槽位；
+ * 大小等级从1KB起按1.25倍递增，条目放入能容纳它的最小等级。每个等级维护空闲槽位列表和按访问顺序排列的条目，
+ * 没有空闲槽位且无法分配新块时淘汰该等级最近最少使用的条目，或回收其他等级中已完全空闲的块。
+ * 直接内存不计入Java堆，缓存大量资源不会增加垃圾回收的停顿。
+ * 写入槽位前需持有所在块的写锁，复制内容时持有读锁并确认条目仍然有效，因此复制不会读到被复用的槽位。
+ * 条目可以被固定（引用计数），固定期间直接提供槽位的只读视图；被固定的条目不会因空间不足被淘汰，
+ * 被移除时其槽位在最后一个视图释放后才回到空闲列表，因此视图在释放前始终有效
+ */
+final class OffHeapSlabStore {
+    /**
+     * 默认的块大小，超过该大小的条目不放入堆外存储
+     */
+    static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+    // 最小的槽位大小和等级间的增长系数
+    static final int MIN_CHUNK_SIZE = 1024;
+    private static final double GROWTH_FACTOR = 1.25;
+    private static final int CHUNK_ALIGNMENT = 64;
+
+    private final int slabSize;
+    private final int maxSlabs;
+    private final int[] chunkSizes;
+    private final SizeClass[] classes;
+    private final List<Slab> slabs = new ArrayList<>();
+    private final Consumer<Entry> evictionListener;
+
+    private long usedBytes;
+    private int entryCount;
+    private boolean drained;
+    private long evictions;
+    private long rejections;
+
+    /**
+     * 创建堆外存储
+     * @param capacity 直接内存的上限（字节），向下取整为块大小的整数倍
+     * @param slabSize 块大小（字节）
+     * @param evictionListener 条目因空间不足被淘汰时的回调，在持有存储的锁时调用
+     */
+    OffHeapSlabStore(long capacity, int slabSize, Consumer<Entry> evictionListener) {
+        if (slabSize < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Slab size must be at least " + MIN_CHUNK_SIZE);
+        }
+        this.slabSize = slabSize;
+        this.maxSlabs = (int) Math.min(Integer.MAX_VALUE, Math.max(0, capacity) / slabSize);
+        this.evictionListener = evictionListener;
+
+        List<Integer> sizes = new ArrayList<>();
+        int size = MIN_CHUNK_SIZE;
+        while (size < slabSize) {
+            sizes.add(size);
+            size = (int) Math.min(slabSize, align((long) Math.ceil(size * GROWTH_FACTOR)));
+        }
+        sizes.add(slabSize);
+        this.chunkSizes = new int[sizes.size()];
+        this.classes = new SizeClass[sizes.size()];
+        for (int i = 0; i < chunkSizes.length; i++) {
+            chunkSizes[i] = sizes.get(i);
+            classes[i] = new SizeClass(chunkSizes[i]);
+        }
+    }
+
+    private static long align(long size) {
+        return (size + CHUNK_ALIGNMENT - 1) / CHUNK_ALIGNMENT * CHUNK_ALIGNMENT;
+    }
+
+    /**
+     * 获取能容纳指定长度的最小等级
+     * @return 等级序号，超过块大小时返回-1
+     */
+    private int classFor(int length) {
+        if (length > slabSize) {
+            return -1;
+        }
+        int low = 0;
+        int high = chunkSizes.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (chunkSizes[mid] < length) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 判断指定长度的内容能否放入堆外存储
+     * @param length 内容长度
+     * @return 能放入时返回true
+     */
+    boolean accepts(int length) {
+        return maxSlabs > 0 && length <= slabSize;
+    }
+
+    /**
+     * 将内容复制到堆外存储
+     * @param data 内容
+     * @param owner 条目的所有者，淘汰时通过回调传回
+     * @param key 条目的键
+     * @return 新条目，无法分配槽位时返回null
+     */
+    Entry put(byte[] data, Object owner, String key) {
+        int index = classFor(data.length);
+        if (index < 0 || maxSlabs == 0) {
+            return null;
+        }
+        Entry entry;
+        ReentrantReadWriteLock.WriteLock lock;
+        synchronized (this) {
+            if (drained) {
+                return null;
+            }
+            SizeClass sizeClass = classes[index];
+            Chunk chunk = allocate(sizeClass);
+            if (chunk == null) {
+                rejections++;
+                return null;
+            }
+            entry = new Entry(this, chunk, data.length, owner, key);
+            chunk.slab.used++;
+            sizeClass.entries.add(entry);
+            usedBytes += sizeClass.chunkSize;
+            entryCount++;
+            // 释放存储的锁之前取得块的写锁：写入完成前该槽位即使被淘汰、再分配，新的写入者也要等待
+            lock = chunk.slab.lock.writeLock();
+            lock.lock();
+        }
+        try {
+            ByteBuffer target = entry.chunk.buffer.duplicate();
+            target.put(data);
+        } finally {
+            lock.unlock();
+        }
+        return entry;
+    }
+
+    /**
+     * 获取空闲槽位，需持有锁
+     */
+    private Chunk allocate(SizeClass sizeClass) {
+        Chunk chunk = sizeClass.free.pollFirst();
+        if (chunk != null) {
+            return chunk;
+        }
+        Slab slab = newSlab(sizeClass);
+        if (slab != null) {
+            return sizeClass.free.pollFirst();
+        }
+        // 淘汰该等级最近最少使用且未被固定的条目，复用其槽位
+        for (Entry eldest : sizeClass.entries) {
+            if (eldest.pins == 0) {
+                release(eldest);
+                evictions++;
+                evictionListener.accept(eldest);
+                return sizeClass.free.pollLast();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 为等级分配新块，达到上限时回收其他等级中完全空闲的块，需持有锁
+     */
+    private Slab newSlab(SizeClass sizeClass) {
+        Slab slab = null;
+        if (slabs.size() < maxSlabs) {
+            slab = new Slab(ByteBuffer.allocateDirect(slabSize));
+            slabs.add(slab);
+        } else {
+            for (Slab candidate : slabs) {
+                if (candidate.used == 0 && candidate.owner != sizeClass) {
+                    slab = candidate;
+                    Iterator<Chunk> it = candidate.owner.free.iterator();
+                    while (it.hasNext()) {
+                        if (it.next().slab == candidate) {
+                            it.remove();
+                        }
+                    }
+                    break;
+                }
+            }
+            if (slab == null) {
+                return null;
+            }
+        }
+        slab.owner = sizeClass;
+        int count = slabSize / sizeClass.chunkSize;
+        for (int i = 0; i < count; i++) {
+            ByteBuffer buffer = slab.buffer.duplicate();
+            buffer.position(i * sizeClass.chunkSize).limit((i + 1) * sizeClass.chunkSize);
+            sizeClass.free.addLast(new Chunk(slab, buffer.slice()));
+        }
+        return slab;
+    }
+
+    /**
+     * 移除条目，未被固定时释放其槽位，需持有锁
+     */
+    private void release(Entry entry) {
+        if (!entry.live) {
+            return;
+        }
+        entry.live = false;
+        entry.chunk.slab.owner.entries.remove(entry);
+        entryCount--;
+        if (entry.pins == 0) {
+            free(entry.chunk);
+        }
+    }
+
+    /**
+     * 将槽位放回空闲列表末尾，最近释放的槽位最后被复用，需持有锁
+     */
+    private void free(Chunk chunk) {
+        SizeClass sizeClass = chunk.slab.owner;
+        sizeClass.free.addLast(chunk);
+        chunk.slab.used--;
+        usedBytes -= sizeClass.chunkSize;
+    }
+
+    /**
+     * 移除条目并释放其槽位
+     * @param entry 条目
+     */
+    synchronized void remove(Entry entry) {
+        release(entry);
+    }
+
+    /**
+     * 记录一次访问，刷新条目在所属等级中的位置
+     * @param entry 条目
+     */
+    synchronized void touch(Entry entry) {
+        if (entry.live) {
+            LinkedHashSet<Entry> entries = entry.chunk.slab.owner.entries;
+            entries.remove(entry);
+            entries.add(entry);
+        }
+    }
+
+    /**
+     * 固定条目并获取其槽位的只读视图，视图在 {@link #unpin(Entry)} 之前始终有效
+     * @param entry 条目
+     * @return position为0、limit为内容长度的只读视图，条目已被移除时返回null
+     */
+    synchronized ByteBuffer pin(Entry entry) {
+        if (!entry.live) {
+            return null;
+        }
+        entry.pins++;
+        ByteBuffer view = entry.chunk.buffer.asReadOnlyBuffer();
+        view.limit(entry.length);
+        return view.slice();
+    }
+
+    /**
+     * 释放一次固定，条目已被移除且不再被固定时回收其槽位
+     * @param entry 条目
+     */
+    synchronized void unpin(Entry entry) {
+        if (entry.pins > 0 && --entry.pins == 0 && !entry.live) {
+            free(entry.chunk);
+        }
+    }
+
+    /**
+     * 将条目内容复制到堆内数组
+     * @param entry 条目
+     * @return 内容副本，条目已被移除时返回null
+     */
+    byte[] copy(Entry entry) {
+        ReentrantReadWriteLock.ReadLock lock = entry.chunk.slab.lock.readLock();
+        lock.lock();
+        try {
+            // 持有读锁期间槽位不会被写入新内容
+            if (!entry.live) {
+                return null;
+            }
+            byte[] data = new byte[entry.length];
+            entry.chunk.buffer.duplicate().get(data);
+            return data;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 移除所有条目并对每个条目调用淘汰回调，之后不再放入新条目；仍被固定的视图在释放前保持有效
+     */
+    synchronized void drain() {
+        drained = true;
+        for (SizeClass sizeClass : classes) {
+            List<Entry> entries = new ArrayList<>(sizeClass.entries);
+            for (Entry entry : entries) {
+                release(entry);
+                evictionListener.accept(entry);
+            }
+        }
+    }
+
+    /**
+     * 获取已占用的槽位总大小，包括已移除但仍被固定的条目
+     * @return 字节数
+     */
+    synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * 获取已分配的直接内存大小
+     * @return 字节数
+     */
+    synchronized long getAllocatedBytes() {
+        return (long) slabs.size() * slabSize;
+    }
+
+    /**
+     * 获取直接内存的上限
+     * @return 字节数
+     */
+    long getCapacity() {
+        return (long) maxSlabs * slabSize;
+    }
+
+    /**
+     * 获取条目数量
+     * @return 条目数量
+     */
+    synchronized int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * 获取因空间不足而淘汰的条目数量
+     * @return 淘汰次数
+     */
+    synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * 获取因无法分配槽位而未放入的条目数量
+     * @return 拒绝次数
+     */
+    synchronized long getRejectionCount() {
+        return rejections;
+    }
+
+    /**
+     * 大小等级：槽位大小、空闲槽位和按访问顺序排列的条目
+     */
+    private static final class SizeClass {
+        final int chunkSize;
+        final ArrayDeque<Chunk> free = new ArrayDeque<>();
+        final LinkedHashSet<Entry> entries = new LinkedHashSet<>();
+
+        SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    /**
+     * 直接内存块，写入槽位和复制内容时使用该块的读写锁
+     */
+    private static final class Slab {
+        final ByteBuffer buffer;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        SizeClass owner;
+        int used;
+
+        Slab(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * 块中的槽位
+     */
+    private static final class Chunk {
+        final Slab slab;
+        final ByteBuffer buffer;
+
+        Chunk(Slab slab, ByteBuffer buffer) {
+            this.slab = slab;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * 堆外存储中的条目
+     */
+    static final class Entry {
+        private final OffHeapSlabStore store;
+        private final Chunk chunk;
+        private final int length;
+        final Object owner;
+        final String key;
+        private volatile boolean live = true;
+        // 未释放的视图数量，由存储的锁保护
+        private int pins;
+
+        Entry(OffHeapSlabStore store, Chunk chunk, int length, Object owner, String key) {
+            this.store = store;
+            this.chunk = chunk;
+            this.length = length;
+            this.owner = owner;
+            this.key = key;
+        }
+
+        /**
+         * 获取内容长度
+         * @return 字节数
+         */
+        int length() {
+            return length;
+        }
+
+        /**
+         * 判断条目是否仍在存储中
+         * @return 未被淘汰或移除时返回true
+         */
+        boolean isLive() {
+            return live;
+        }
+
+        /**
+         * 从所属的存储中移除条目
+         */
+        void remove() {
+            store.remove(this);
+        }
+
+        /**
+         * 记录一次访问
+         */
+        void touch() {
+            store.touch(this);
+        }
+
+        /**
+         * 判断条目是否属于指定的存储
+         * @param store 堆外存储
+         * @return 属于时返回true
+         */
+        boolean belongsTo(OffHeapSlabStore store) {
+            return this.store == store;
+        }
+
+        /**
+         * 将内容复制到堆内数组
+         * @return 内容副本，条目已被移除时返回null
+         */
+        byte[] copy() {
+            return store.copy(this);
+        }
+
+        /**
+         * 固定条目并获取槽位的只读视图
+         * @return 只读视图，条目已被移除时返回null
+         */
+        ByteBuffer pin() {
+            return store.pin(this);
+        }
+
+        /**
+         * 释放一次固定
+         */
+        void unpin() {
+            store.unpin(this);
+        }
+    }
+}
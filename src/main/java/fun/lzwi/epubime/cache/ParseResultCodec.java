@@ -0,0 +1,292 @@
+package fun.lzwi.epubime.cache;
+
+import fun.lzwi.epubime.epub.EpubBook;
+import fun.lzwi.epubime.epub.EpubChapter;
+import fun.lzwi.epubime.epub.EpubResource;
+import fun.lzwi.epubime.epub.Metadata;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 解析结果的二进制编码
+ * 依次编码版本、元数据、资源清单以及NCX、NAV、地标和页面列表导航。
+ * 数量和长度使用变长整数；字符串以UTF-8编码，长度加1后写入，0表示null。
+ * 资源的数据和数据源引用不编码，解码后由调用者重新设置
+ */
+final class ParseResultCodec {
+    // 元数据中的列表字段，编码顺序即数组顺序
+    private static final List<Function<Metadata, List<String>>> LIST_GETTERS = new ArrayList<>();
+    private static final List<BiConsumer<Metadata, String>> LIST_ADDERS = new ArrayList<>();
+    // 元数据中的字符串字段
+    private static final List<Function<Metadata, String>> STRING_GETTERS = new ArrayList<>();
+    private static final List<BiConsumer<Metadata, String>> STRING_SETTERS = new ArrayList<>();
+
+    static {
+        listField(Metadata::getTitles, Metadata::addTitle);
+        listField(Metadata::getCreators, Metadata::addCreator);
+        listField(Metadata::getContributors, Metadata::addContributor);
+        listField(Metadata::getPublishers, Metadata::addPublisher);
+        listField(Metadata::getIdentifiers, Metadata::addIdentifier);
+        listField(Metadata::getSubjects, Metadata::addSubject);
+        listField(Metadata::getDates, Metadata::addDate);
+        listField(Metadata::getLanguages, Metadata::addLanguage);
+        listField(Metadata::getDescriptions, Metadata::addDescription);
+        listField(Metadata::getRightsList, Metadata::addRights);
+        listField(Metadata::getTypes, Metadata::addType);
+        listField(Metadata::getFormats, Metadata::addFormat);
+        listField(Metadata::getSources, Metadata::addSource);
+        listField(Metadata::getAccessibilityFeatures, Metadata::addAccessibilityFeature);
+        listField(Metadata::getAccessibilityHazard, Metadata::addAccessibilityHazard);
+        listField(Metadata::getAccessibilitySummaries, Metadata::addAccessibilitySummary);
+
+        stringField(Metadata::getModified, Metadata::setModified);
+        stringField(Metadata::getRightsHolder, Metadata::setRightsHolder);
+        stringField(Metadata::getCover, Metadata::setCover);
+        stringField(Metadata::getLayout, Metadata::setLayout);
+        stringField(Metadata::getOrientation, Metadata::setOrientation);
+        stringField(Metadata::getSpread, Metadata::setSpread);
+        stringField(Metadata::getViewport, Metadata::setViewport);
+        stringField(Metadata::getMedia, Metadata::setMedia);
+        stringField(Metadata::getFlow, Metadata::setFlow);
+        stringField(Metadata::getUniqueIdentifier, Metadata::setUniqueIdentifier);
+    }
+
+    private ParseResultCodec() {
+    }
+
+    private static void listField(Function<Metadata, List<String>> getter, BiConsumer<Metadata, String> adder) {
+        LIST_GETTERS.add(getter);
+        LIST_ADDERS.add(adder);
+    }
+
+    private static void stringField(Function<Metadata, String> getter, BiConsumer<Metadata, String> setter) {
+        STRING_GETTERS.add(getter);
+        STRING_SETTERS.add(setter);
+    }
+
+    /**
+     * 编码解析结果
+     * @param book 解析结果
+     * @return 编码后的字节
+     */
+    static byte[] encode(EpubBook book) {
+        Writer out = new Writer();
+        out.writeString(book.getVersion());
+
+        Metadata metadata = book.getMetadata();
+        out.writeBoolean(metadata != null);
+        if (metadata != null) {
+            for (Function<Metadata, List<String>> getter : LIST_GETTERS) {
+                out.writeStrings(getter.apply(metadata));
+            }
+            for (Function<Metadata, String> getter : STRING_GETTERS) {
+                out.writeString(getter.apply(metadata));
+            }
+            out.writeBoolean(metadata.isAlignXCenter());
+        }
+
+        List<EpubResource> resources = book.getResources() != null ? book.getResources()
+                : Collections.<EpubResource>emptyList();
+        out.writeVarInt(resources.size());
+        for (EpubResource resource : resources) {
+            out.writeString(resource.getId());
+            out.writeString(resource.getType());
+            out.writeString(resource.getHref());
+            out.writeString(resource.getProperties());
+            out.writeString(resource.getFallback());
+        }
+
+        out.writeChapters(book.getNcx());
+        out.writeChapters(book.getNav());
+        out.writeChapters(book.getLandmarks());
+        out.writeChapters(book.getPageList());
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码解析结果
+     * @param in 编码后的内容
+     * @return 解析结果
+     * @throws IllegalArgumentException 内容格式错误
+     */
+    static EpubBook decode(ByteBuffer in) {
+        Reader reader = new Reader(in);
+        EpubBook book = new EpubBook();
+        book.setVersion(reader.readString());
+
+        if (reader.readBoolean()) {
+            Metadata metadata = new Metadata();
+            for (BiConsumer<Metadata, String> adder : LIST_ADDERS) {
+                int count = reader.readCount();
+                for (int i = 0; i < count; i++) {
+                    adder.accept(metadata, reader.readString());
+                }
+            }
+            for (BiConsumer<Metadata, String> setter : STRING_SETTERS) {
+                setter.accept(metadata, reader.readString());
+            }
+            metadata.setAlignXCenter(reader.readBoolean());
+            book.setMetadata(metadata);
+        }
+
+        int resourceCount = reader.readCount();
+        List<EpubResource> resources = new ArrayList<>(resourceCount);
+        for (int i = 0; i < resourceCount; i++) {
+            EpubResource resource = new EpubResource();
+            resource.setId(reader.readString());
+            resource.setType(reader.readString());
+            resource.setHref(reader.readString());
+            resource.setProperties(reader.readString());
+            resource.setFallback(reader.readString());
+            resources.add(resource);
+        }
+        book.setResources(resources);
+
+        book.setNcx(reader.readChapters(0));
+        book.setNav(reader.readChapters(0));
+        book.setLandmarks(reader.readChapters(0));
+        book.setPageList(reader.readChapters(0));
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing bytes after parse result");
+        }
+        return book;
+    }
+
+    private static final class Writer {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        void writeBoolean(boolean value) {
+            out.write(value ? 1 : 0);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        void writeStrings(List<String> values) {
+            writeVarInt(values.size());
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        void writeChapters(List<EpubChapter> chapters) {
+            if (chapters == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(chapters.size());
+            for (EpubChapter chapter : chapters) {
+                writeString(chapter.getId());
+                writeString(chapter.getTitle());
+                writeString(chapter.getContent());
+                writeChapters(chapter.getChildren());
+            }
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    private static final class Reader {
+        // 导航的最大嵌套深度，防止损坏的内容导致栈溢出
+        private static final int MAX_DEPTH = 64;
+
+        private final ByteBuffer in;
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = in.get();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        /**
+         * 读取数量，不超过剩余字节数，防止损坏的内容导致分配过大的列表
+         */
+        int readCount() {
+            int count = readVarInt();
+            if (count < 0 || count > in.remaining()) {
+                throw new IllegalArgumentException("Invalid count " + count);
+            }
+            return count;
+        }
+
+        boolean readBoolean() {
+            byte b = in.get();
+            if (b != 0 && b != 1) {
+                throw new IllegalArgumentException("Invalid boolean " + b);
+            }
+            return b == 1;
+        }
+
+        String readString() {
+            int length = readVarInt();
+            if (length == 0) {
+                return null;
+            }
+            length--;
+            if (length < 0 || length > in.remaining()) {
+                throw new IllegalArgumentException("Invalid string length " + length);
+            }
+            String value;
+            if (in.hasArray()) {
+                value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            } else {
+                byte[] bytes = new byte[length];
+                in.duplicate().get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+            }
+            in.position(in.position() + length);
+            return value;
+        }
+
+        List<EpubChapter> readChapters(int depth) {
+            if (depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("Navigation nested too deeply");
+            }
+            int count = readCount();
+            List<EpubChapter> chapters = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                EpubChapter chapter = new EpubChapter();
+                chapter.setId(readString());
+                chapter.setTitle(readString());
+                chapter.setContent(readString());
+                chapter.setChildren(readChapters(depth + 1));
+                chapters.add(chapter);
+            }
+            return chapters;
+        }
+    }
+}
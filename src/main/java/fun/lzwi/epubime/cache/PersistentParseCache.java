@@ -0,0 +1,218 @@
+package fun.lzwi.epubime.cache;
+
+import fun.lzwi.epubime.epub.EpubBook;
+import fun.lzwi.epubime.zip.ArchiveFingerprint;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * 持久化的解析结果缓存
+ * 将解析结果编码后写入本地缓存目录，每个文件对应一个内容指纹和解析选项，重启后直接映射读取，无需再解析OPF、NCX和NAV。
+ * 文件头记录格式版本、内容指纹和内容的CRC32；版本不同的文件视为未命中并被覆盖，
+ * 指纹不符、内容截断或CRC不符的文件视为损坏并被删除。写入时先写临时文件再原子替换，读取方不会看到写了一半的文件
+ */
+public final class PersistentParseCache {
+    /**
+     * 当前的文件格式版本，编码格式变化时递增
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x45504243; // "EPBC"
+    private static final int HEADER_SIZE = 4 + 4 + 8 * 4 + 4 + 4;
+    private static final String SUFFIX = ".epc";
+
+    private final Path directory;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong corruptions = new AtomicLong();
+
+    /**
+     * 构造函数
+     * @param directory 缓存目录，不存在时在首次写入时创建
+     */
+    public PersistentParseCache(Path directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Cache directory cannot be null");
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * 获取缓存目录
+     * @return 缓存目录
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 获取缓存文件的路径
+     * @param fingerprint 内容指纹
+     * @param variant 解析选项，只能包含字母、数字和连字符
+     * @return 缓存文件路径
+     */
+    Path pathOf(ArchiveFingerprint fingerprint, String variant) {
+        return directory.resolve(String.format("%x-%x-%x-%08x-%s%s", fingerprint.getSize(),
+                fingerprint.getCentralDirectoryOffset(), fingerprint.getCentralDirectorySize(),
+                fingerprint.getCentralDirectoryCrc(), variant, SUFFIX));
+    }
+
+    /**
+     * 读取解析结果
+     * @param fingerprint 内容指纹
+     * @param variant 解析选项
+     * @return 解析结果，资源未设置数据源；未缓存、版本不同或文件损坏时返回null
+     */
+    public EpubBook load(ArchiveFingerprint fingerprint, String variant) {
+        Path path = pathOf(fingerprint, variant);
+        MappedByteBuffer mapped = null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= HEADER_SIZE && size <= Integer.MAX_VALUE) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        } catch (IOException e) {
+            // 文件不存在或无法读取
+            misses.incrementAndGet();
+            return null;
+        }
+
+        if (mapped == null || mapped.getInt() != MAGIC) {
+            return corrupted(path);
+        }
+        if (mapped.getInt() != FORMAT_VERSION) {
+            // 旧版本的文件在下次写入时被覆盖
+            misses.incrementAndGet();
+            return null;
+        }
+        if (mapped.getLong() != fingerprint.getSize()
+                || mapped.getLong() != fingerprint.getCentralDirectoryOffset()
+                || mapped.getLong() != fingerprint.getCentralDirectorySize()
+                || mapped.getLong() != fingerprint.getCentralDirectoryCrc()) {
+            return corrupted(path);
+        }
+        int length = mapped.getInt();
+        int crc = mapped.getInt();
+        if (length != mapped.remaining()) {
+            return corrupted(path);
+        }
+        ByteBuffer payload = mapped.slice();
+        CRC32 checksum = new CRC32();
+        checksum.update(payload.duplicate());
+        if ((int) checksum.getValue() != crc) {
+            return corrupted(path);
+        }
+        try {
+            EpubBook book = ParseResultCodec.decode(payload);
+            hits.incrementAndGet();
+            return book;
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            return corrupted(path);
+        }
+    }
+
+    private EpubBook corrupted(Path path) {
+        corruptions.incrementAndGet();
+        misses.incrementAndGet();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // 删除失败时下次写入会覆盖
+        }
+        return null;
+    }
+
+    /**
+     * 写入解析结果
+     * @param fingerprint 内容指纹
+     * @param variant 解析选项
+     * @param book 解析结果
+     * @throws IOException 写入失败
+     */
+    public void store(ArchiveFingerprint fingerprint, String variant, EpubBook book) throws IOException {
+        byte[] payload = ParseResultCodec.encode(book);
+        CRC32 checksum = new CRC32();
+        checksum.update(payload, 0, payload.length);
+
+        ByteBuffer file = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        file.putInt(MAGIC).putInt(FORMAT_VERSION)
+                .putLong(fingerprint.getSize())
+                .putLong(fingerprint.getCentralDirectoryOffset())
+                .putLong(fingerprint.getCentralDirectorySize())
+                .putLong(fingerprint.getCentralDirectoryCrc())
+                .putInt(payload.length)
+                .putInt((int) checksum.getValue())
+                .put(payload);
+
+        Files.createDirectories(directory);
+        // 先写入临时文件再原子替换，避免其他进程读到不完整的文件
+        Path temp = Files.createTempFile(directory, "parse", ".tmp");
+        try {
+            Files.write(temp, file.array());
+            Files.move(temp, pathOf(fingerprint, variant), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            writes.incrementAndGet();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 删除缓存目录中的所有缓存文件
+     * @throws IOException 删除失败
+     */
+    public void clear() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * 获取从磁盘读取到解析结果的次数
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * 获取未读取到解析结果的次数，包括文件损坏和版本不同
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * 获取写入解析结果的次数
+     * @return 写入次数
+     */
+    public long getWriteCount() {
+        return writes.get();
+    }
+
+    /**
+     * 获取检测到损坏并删除的文件数量
+     * @return 损坏次数
+     */
+    public long getCorruptionCount() {
+        return corruptions.get();
+    }
+}
@@ -0,0 +1,86 @@
+package fun.lzwi.epubime.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求合并
+ * 同一个键的并发加载只执行一次：第一个调用者执行加载，其他调用者等待同一个结果，加载失败时得到同一个异常。
+ * 加载完成后移除该键，之后的调用重新执行加载，因此加载函数应先检查缓存。
+ * 加载函数不得在同一线程中再次请求同一个键
+ *
+ * @param <K> 键类型
+ * @param <V> 结果类型
+ */
+public final class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * 执行加载，或等待正在进行的同一个键的加载
+     *
+     * @param key 键
+     * @param loader 加载函数
+     * @return 加载结果，合并的调用者共享同一个对象
+     * @throws Exception 加载函数抛出的异常
+     */
+    public V execute(K key, Callable<V> loader) throws Exception {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = calls.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw unwrap(e.getCause());
+            }
+        }
+
+        executions.increment();
+        try {
+            V value = loader.call();
+            call.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    private static Exception unwrap(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return (Exception) cause;
+    }
+
+    /**
+     * 获取实际执行加载的次数
+     * @return 执行次数
+     */
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+
+    /**
+     * 获取等待其他调用者的加载结果而未重复加载的次数
+     * @return 合并次数
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * 获取正在进行的加载数量
+     * @return 加载数量
+     */
+    public int getInFlightCount() {
+        return calls.size();
+    }
+}
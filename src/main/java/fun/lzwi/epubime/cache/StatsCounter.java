@@ -0,0 +1,53 @@
+package fun.lzwi.epubime.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按内容类型分别累计的缓存计数
+ * 使用分段累加的LongAdder，并发记录时几乎没有竞争
+ */
+final class StatsCounter {
+    private final LongAdder[] hits = adders();
+    private final LongAdder[] misses = adders();
+    private final LongAdder[] loads = adders();
+    private final LongAdder[] loadTime = adders();
+    private final LongAdder[] evictions = adders();
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[EpubCacheManager.Kind.values().length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    void recordHit(EpubCacheManager.Kind kind) {
+        hits[kind.ordinal()].increment();
+    }
+
+    void recordMiss(EpubCacheManager.Kind kind) {
+        misses[kind.ordinal()].increment();
+    }
+
+    void recordLoad(EpubCacheManager.Kind kind, long nanos) {
+        loads[kind.ordinal()].increment();
+        loadTime[kind.ordinal()].add(nanos);
+    }
+
+    void recordEviction(EpubCacheManager.Kind kind) {
+        evictions[kind.ordinal()].increment();
+    }
+
+    /**
+     * 生成指定类型的统计快照
+     * @param kind 内容类型
+     * @param retainedBytes 占用的字节数
+     * @param entryCount 条目数量
+     * @return 统计快照
+     */
+    CacheStats snapshot(EpubCacheManager.Kind kind, long retainedBytes, long entryCount) {
+        int i = kind.ordinal();
+        return new CacheStats(hits[i].sum(), misses[i].sum(), loads[i].sum(), loadTime[i].sum(),
+                evictions[i].sum(), retainedBytes, entryCount);
+    }
+}
@@ -0,0 +1,348 @@
+package fun.lzwi.epubime.epub;
+
+import fun.lzwi.epubime.cache.EpubCacheManager;
+import fun.lzwi.epubime.zip.EpubSource;
+import fun.lzwi.epubime.zip.ZipOperations;
+import fun.lzwi.epubime.zip.ZipUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 章节预取器
+ * 按阅读顺序在某一章节被读取后，于后台将随后若干章节解压到内容缓存中，下次读取时直接从缓存返回。
+ * 预取但尚未读取的内容总量受内存上限约束；读者跳转到其他位置时，不在新窗口内的预取任务被取消，
+ * 由本预取器写入且此后没有被任何读取访问过的内容从缓存移除，缓存中原有或已被读取的内容保留。
+ * 统计命中和未命中次数，只有本预取器加载的内容计为命中，用于衡量预取节省的延迟
+ */
+public class ChapterPrefetcher implements Closeable {
+    /**
+     * 默认预取的章节数量
+     */
+    public static final int DEFAULT_DEPTH = 2;
+
+    /**
+     * 默认预取内容的内存上限
+     */
+    public static final long DEFAULT_MAX_BYTES = 8L * 1024 * 1024;
+
+    private final EpubSource source;
+    private final EpubCacheManager.EpubFileCache cache;
+    private final Executor executor;
+    private final int depth;
+    private final long maxBytes;
+    private final List<String> readingOrder;
+    // 章节路径到条目名称的映射
+    private final Map<String, String> entryNames;
+    private final Map<String, Integer> positions;
+
+    private final Object lock = new Object();
+    // 当前窗口内希望预取的章节
+    private Set<String> window = Collections.emptySet();
+    // 由本预取器写入缓存、尚未被读取的章节及其大小
+    private final Map<String, Long> prefetched = new HashMap<>();
+    // 正在预取的章节
+    private final Set<String> inFlight = new HashSet<>();
+    private long prefetchedBytes;
+    private boolean closed;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong prefetchCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+
+    /**
+     * 构造函数
+     * @param book EPUB书籍，阅读顺序取自展开后的章节列表，同一文件只保留第一次出现的位置；
+     *             章节路径相对于导航文件时按清单中的资源解析为条目名称
+     * @param source 章节所在的EPUB数据源
+     * @param executor 执行预取任务的执行器
+     * @param depth 每次预取的后续章节数量
+     * @param maxBytes 预取但尚未读取的内容的内存上限（字节）
+     */
+    public ChapterPrefetcher(EpubBook book, EpubSource source, Executor executor, int depth, long maxBytes) {
+        if (book == null || source == null || executor == null) {
+            throw new IllegalArgumentException("Book, source and executor cannot be null");
+        }
+        if (depth <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Prefetch depth and memory cap must be positive");
+        }
+        this.source = source;
+        this.cache = source.getCacheManager().getSourceCache(source);
+        this.executor = executor;
+        this.depth = depth;
+        this.maxBytes = maxBytes;
+
+        Map<String, String> entryNames = entryNamesOf(book);
+        this.readingOrder = Collections.unmodifiableList(new ArrayList<>(new LinkedHashSet<>(entryNames.values())));
+        this.entryNames = entryNames;
+        this.positions = new HashMap<>();
+        for (int i = 0; i < readingOrder.size(); i++) {
+            positions.put(readingOrder.get(i), i);
+        }
+    }
+
+    /**
+     * 按阅读顺序列出章节路径及对应的条目名称
+     * @param book EPUB书籍
+     * @return 去掉片段标识的章节路径到条目名称的有序映射
+     */
+    static Map<String, String> entryNamesOf(EpubBook book) {
+        Map<String, String> entryNames = new LinkedHashMap<>();
+        collectReadingOrder(book.getChapters(), book.getResources(), entryNames);
+        return entryNames;
+    }
+
+    private static void collectReadingOrder(List<EpubChapter> chapters, List<EpubResource> resources,
+                                            Map<String, String> entryNames) {
+        for (EpubChapter chapter : chapters) {
+            String path = stripFragment(chapter.getContent());
+            if (path != null && !path.isEmpty() && !entryNames.containsKey(path)) {
+                entryNames.put(path, toEntryName(path, resources));
+            }
+            if (chapter.hasChildren()) {
+                collectReadingOrder(chapter.getChildren(), resources, entryNames);
+            }
+        }
+    }
+
+    private static String toEntryName(String path, List<EpubResource> resources) {
+        String suffix = "/" + path;
+        for (EpubResource resource : resources) {
+            String href = resource.getHref();
+            if (href != null && (href.equals(path) || href.endsWith(suffix))) {
+                return href;
+            }
+        }
+        return path;
+    }
+
+    private static String stripFragment(String href) {
+        if (href == null) {
+            return null;
+        }
+        int hash = href.indexOf('#');
+        return hash >= 0 ? href.substring(0, hash) : href;
+    }
+
+    /**
+     * 将章节路径解析为条目名称
+     * @param href 章节路径，可以带片段标识
+     * @return 条目名称，不在阅读顺序中时返回去掉片段后的路径
+     */
+    public String resolve(String href) {
+        String path = stripFragment(href);
+        String entryName = path != null ? entryNames.get(path) : null;
+        return entryName != null ? entryName : path;
+    }
+
+    /**
+     * 获取阅读顺序
+     * @return 按阅读顺序排列的条目名称
+     */
+    public List<String> getReadingOrder() {
+        return readingOrder;
+    }
+
+    /**
+     * 读取章节前调用，返回缓存中的内容并统计命中或未命中
+     * 只有本预取器加载且仍在缓存中的内容计为命中，其他读取放入缓存的内容照常返回，但计为未命中
+     * @param href 章节路径
+     * @return 缓存内容的只读视图；未缓存时返回null
+     */
+    public ByteBuffer getPrefetched(String href) {
+        String path = resolve(href);
+        if (path == null || !positions.containsKey(path)) {
+            return null;
+        }
+        boolean ours;
+        synchronized (lock) {
+            Long size = prefetched.remove(path);
+            ours = size != null;
+            if (ours) {
+                prefetchedBytes -= size;
+            }
+        }
+        ByteBuffer data = cache.getBinaryBuffer(path);
+        if (ours && data != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return data;
+    }
+
+    /**
+     * 章节被读取后调用，取消不在新窗口内的预取并在后台预取随后的章节
+     * @param href 已读取的章节路径
+     */
+    public void onChapterServed(String href) {
+        Integer position = positions.get(resolve(href));
+        if (position == null) {
+            return;
+        }
+        Set<String> next = new LinkedHashSet<>();
+        for (int i = position + 1; i < readingOrder.size() && next.size() < depth; i++) {
+            next.add(readingOrder.get(i));
+        }
+        List<String> toFetch = new ArrayList<>();
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            window = next;
+            evictOutsideWindow();
+            for (String path : next) {
+                if (!prefetched.containsKey(path) && !inFlight.contains(path)
+                        && !cache.containsBinaryContent(path)) {
+                    inFlight.add(path);
+                    toFetch.add(path);
+                }
+            }
+        }
+        for (String path : toFetch) {
+            try {
+                executor.execute(() -> prefetch(path));
+            } catch (RejectedExecutionException e) {
+                synchronized (lock) {
+                    inFlight.remove(path);
+                }
+            }
+        }
+    }
+
+    private void prefetch(String path) {
+        long size;
+        synchronized (lock) {
+            if (closed || !window.contains(path)) {
+                inFlight.remove(path);
+                cancelledCount.incrementAndGet();
+                return;
+            }
+        }
+        try {
+            size = source.getEntrySize(path);
+        } catch (IOException e) {
+            size = -1;
+        }
+        synchronized (lock) {
+            // 预先占用额度，避免并发的预取任务超过内存上限
+            if (size < 0 || prefetchedBytes + size > maxBytes) {
+                inFlight.remove(path);
+                return;
+            }
+            prefetchedBytes += size;
+        }
+        boolean loaded = false;
+        long start = System.nanoTime();
+        try (InputStream in = ZipUtils.getZipFileInputStream(source, path)) {
+            // 其他读取已经缓存的内容不属于本预取器
+            loaded = in != null && cache.putBinaryContentIfAbsent(path, ZipOperations.readBinaryContent(in, size));
+        } catch (IOException e) {
+            // 预取失败不影响正常读取，读取时再报告错误
+        }
+        if (loaded) {
+            cache.recordLoad(EpubCacheManager.Kind.BINARY, System.nanoTime() - start);
+        }
+        synchronized (lock) {
+            inFlight.remove(path);
+            if (loaded && !closed && window.contains(path)) {
+                prefetched.put(path, size);
+                prefetchCount.incrementAndGet();
+                return;
+            }
+            prefetchedBytes -= size;
+            if (loaded) {
+                // 预取期间读者已跳转到其他位置
+                cache.removeUnreadBinaryContent(path);
+                cancelledCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 放弃不在当前窗口内、尚未被读取的预取内容，需持有锁
+     * 只从缓存中移除本预取器写入后没有被其他读取访问过的内容
+     */
+    private void evictOutsideWindow() {
+        Iterator<Map.Entry<String, Long>> it = prefetched.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            if (!window.contains(entry.getKey())) {
+                cache.removeUnreadBinaryContent(entry.getKey());
+                prefetchedBytes -= entry.getValue();
+                cancelledCount.incrementAndGet();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 获取读取时内容已预取的次数
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * 获取读取时内容未预取的次数
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * 获取完成预取的章节数量
+     * @return 预取次数
+     */
+    public long getPrefetchCount() {
+        return prefetchCount.get();
+    }
+
+    /**
+     * 获取因读者跳转或关闭而取消、丢弃的预取数量
+     * @return 取消次数
+     */
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    /**
+     * 获取已预取、尚未被读取的内容大小
+     * @return 字节数
+     */
+    public long getPrefetchedBytes() {
+        synchronized (lock) {
+            return prefetchedBytes;
+        }
+    }
+
+    /**
+     * 停止预取并从缓存中移除本预取器写入、尚未被读取的内容
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            window = Collections.emptySet();
+            evictOutsideWindow();
+        }
+    }
+}
@@ -74,10 +74,11 @@ public class EpubBookProcessor {
     }
 
     /**
-     * 批量加载所有资源数据 - DEPRECATED: Use streaming methods instead to avoid memory issues
+     * 批量加载所有资源数据，在调用线程中依次解压 - DEPRECATED: Use streaming methods instead to avoid memory issues
      * @param book EPUB书籍
      * @throws java.io.IOException 文件读取异常
      * @deprecated Use streaming processing to avoid loading all resources into memory
+     * @see #loadAllResourceData(EpubBook, java.util.concurrent.Executor)
      */
     @Deprecated
     public static void loadAllResourceData(EpubBook book) throws java.io.IOException {
@@ -91,4 +92,24 @@ public class EpubBookProcessor {
             EpubResource.loadResourceData(book.getResources(), epubFile);
         }
     }
+
+    /**
+     * 批量加载所有资源数据，各资源在指定执行器上并行解压
+     * 通过资源的数据源读取，内存和远程数据源中的书籍同样适用；只需处理部分资源时应使用流式读取
+     * @param book EPUB书籍
+     * @param executor 执行解压任务的执行器
+     * @throws java.io.IOException 文件读取异常
+     */
+    public static void loadAllResourceData(EpubBook book, java.util.concurrent.Executor executor)
+            throws java.io.IOException {
+        if (book == null || book.getResources().isEmpty()) {
+            return;
+        }
+
+        // 假设第一个资源有数据源引用
+        fun.lzwi.epubime.zip.EpubSource source = book.getResources().get(0).getSource();
+        if (source != null) {
+            EpubResource.loadResourceData(book.getResources(), source, executor);
+        }
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package fun.lzwi.epubime.epub;
 
 import fun.lzwi.epubime.exception.EpubPathValidationException;
 import fun.lzwi.epubime.exception.EpubZipException;
+import fun.lzwi.epubime.zip.EpubSource;
 import fun.lzwi.epubime.zip.PathValidator;
 import fun.lzwi.epubime.zip.ZipUtils;
 
@@ -16,7 +17,12 @@ import java.util.function.Consumer;
  * 负责读取EPUB文件中的内容，遵循单一职责原则
  */
 public class EpubFileReader {
+    /**
+     * EPUB文件，非文件数据源为null
+     */
     public final File epubFile;
+    public final EpubSource source;
+    private volatile boolean ignoreCase;
 
     /**
      * 构造函数
@@ -27,10 +33,47 @@ public class EpubFileReader {
             throw new IllegalArgumentException("EPUB file cannot be null");
         }
         this.epubFile = epubFile;
+        this.source = EpubSource.fromFile(epubFile);
+    }
+
+    /**
+     * 构造函数
+     * @param source EPUB数据源
+     */
+    public EpubFileReader(EpubSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("EPUB source cannot be null");
+        }
+        this.epubFile = source.getFile();
+        this.source = source;
+    }
+
+    /**
+     * 设置解析路径时是否忽略大小写
+     * @param ignoreCase 是否忽略大小写
+     */
+    public void setIgnoreCase(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * 将清单中的路径解析为实际的条目名称，处理百分号编码、"./"段和可选的大小写差异
+     * @param path 文件路径
+     * @return 实际的条目名称；找不到对应条目时原样返回
+     * @throws EpubZipException 读取ZIP索引失败
+     */
+    public String resolvePath(String path) throws EpubZipException {
+        try {
+            String resolved = source.resolveEntryName(path, ignoreCase);
+            return resolved != null ? resolved : path;
+        } catch (IOException e) {
+            throw new EpubZipException("Failed to read EPUB entry index", epubFile, path, e);
+        }
     }
 
     /**
      * 读取EPUB文件中指定路径的内容
+     * 路径通过规范化名称索引解析为实际的条目名称
      * @param path 文件路径
      * @return 文件内容
      * @throws EpubZipException 读取异常
@@ -42,8 +85,9 @@ public class EpubFileReader {
             throw new EpubPathValidationException("Invalid file path: " + path, path);
         }
 
+        String entryName = resolvePath(path);
         try {
-            return ZipUtils.getZipFileContent(epubFile, path);
+            return ZipUtils.getZipFileContent(source, entryName);
         } catch (IOException e) {
             throw new EpubZipException("Failed to read EPUB file content", epubFile, path, e);
         }
@@ -64,7 +108,7 @@ public class EpubFileReader {
         }
 
         try {
-            ZipUtils.processHtmlContent(epubFile, htmlFileName, processor);
+            ZipUtils.processZipFileContent(source, htmlFileName, processor);
         } catch (IOException e) {
             throw new EpubZipException("Failed to process HTML chapter content", epubFile, htmlFileName, e);
         }
@@ -88,7 +132,7 @@ public class EpubFileReader {
         }
 
         try {
-            ZipUtils.processMultipleHtmlContents(epubFile, htmlFileNames, processor);
+            ZipUtils.processMultipleHtmlContents(source, htmlFileNames, processor);
         } catch (IOException e) {
             throw new EpubZipException("Failed to process multiple HTML chapters", epubFile, "multiple files", e);
         }
@@ -109,7 +153,7 @@ public class EpubFileReader {
         }
 
         try {
-            ZipUtils.processZipFileContent(epubFile, resourceFileName, processor);
+            ZipUtils.processZipFileContent(source, resourceFileName, processor);
         } catch (IOException e) {
             throw new EpubZipException("Failed to process resource content", epubFile, resourceFileName, e);
         }
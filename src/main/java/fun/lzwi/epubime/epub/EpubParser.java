@@ -1,6 +1,8 @@
 package fun.lzwi.epubime.epub;
 
 import fun.lzwi.epubime.cache.EpubCacheManager;
+import fun.lzwi.epubime.cache.PersistentParseCache;
+import fun.lzwi.epubime.cache.SingleFlight;
 import fun.lzwi.epubime.exception.EpubFormatException;
 import fun.lzwi.epubime.exception.EpubZipException;
 import fun.lzwi.epubime.exception.BaseEpubException;
@@ -8,12 +10,15 @@ import fun.lzwi.epubime.exception.EpubPathValidationException;
 import fun.lzwi.epubime.parser.MetadataParser;
 import fun.lzwi.epubime.parser.NavigationParser;
 import fun.lzwi.epubime.parser.ResourceParser;
+import fun.lzwi.epubime.zip.ArchiveFingerprint;
+import fun.lzwi.epubime.zip.EpubSource;
 import fun.lzwi.epubime.zip.ZipFileManager;
 import fun.lzwi.epubime.zip.ZipUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -26,11 +31,16 @@ public class EpubParser {
      */
     public static final String CONTAINER_FILE_PATH = "META-INF/container.xml";
 
+    // 按缓存和缓存键合并同一本书的并发解析
+    private static final SingleFlight<Object, EpubBook> PARSES = new SingleFlight<>();
+
     private final File epubFile;
+    private final EpubSource source;
     private final EpubFileReader fileReader;
     private final MetadataParser metadataParser;
     private final NavigationParser navigationParser;
     private final ResourceParser resourceParser;
+    private boolean caseInsensitiveHrefs;
 
     /**
      * 构造函数
@@ -38,14 +48,38 @@ public class EpubParser {
      * @param epubFile EPUB文件
      */
     public EpubParser(File epubFile) {
-        if (epubFile == null) {
-            throw new IllegalArgumentException("EPUB file cannot be null");
+        this(EpubSource.fromFile(epubFile));
+    }
+
+    /**
+     * 构造函数
+     * 内存或通道数据源无需先写入磁盘即可解析
+     *
+     * @param source EPUB数据源
+     */
+    public EpubParser(EpubSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("EPUB source cannot be null");
         }
-        this.epubFile = epubFile;
-        this.fileReader = new EpubFileReader(epubFile);
+        this.epubFile = source.getFile();
+        this.source = source;
+        this.fileReader = new EpubFileReader(source);
         this.metadataParser = new MetadataParser();
         this.navigationParser = new NavigationParser();
-        this.resourceParser = new ResourceParser(epubFile);
+        this.resourceParser = ResourceParser.forSource(source);
+    }
+
+    /**
+     * 设置是否忽略大小写匹配清单中的href与ZIP条目名称
+     * 无论是否启用，百分号编码和"./"段都会被规范化
+     *
+     * @param caseInsensitiveHrefs 是否忽略大小写
+     * @return 当前解析器
+     */
+    public EpubParser setCaseInsensitiveHrefs(boolean caseInsensitiveHrefs) {
+        this.caseInsensitiveHrefs = caseInsensitiveHrefs;
+        fileReader.setIgnoreCase(caseInsensitiveHrefs);
+        return this;
     }
 
     /**
@@ -62,7 +96,7 @@ public class EpubParser {
      * @param containerContent 容器文件内容
      * @return 根文件路径
      */
-    private String extractRootFilePath(String containerContent) {
+    static String extractRootFilePath(String containerContent) {
         int start = containerContent.indexOf("full-path=\"");
         if (start == -1) {
             throw new IllegalArgumentException("No root file path found in container.xml");
@@ -82,7 +116,7 @@ public class EpubParser {
      * @param rootFilePath 根文件路径
      * @return 根文件目录
      */
-    private String extractRootFileDir(String rootFilePath) {
+    static String extractRootFileDir(String rootFilePath) {
         int lastSlashIndex = rootFilePath.lastIndexOf("/");
         if (lastSlashIndex == -1) {
             return "";
@@ -96,7 +130,7 @@ public class EpubParser {
      * @param opfContent OPF文件内容
      * @return EPUB版本字符串
      */
-    private String detectEpubVersion(String opfContent) {
+    static String detectEpubVersion(String opfContent) {
         // 使用更快的解析配置
         org.jsoup.nodes.Document opfDocument = org.jsoup.Jsoup.parse(opfContent, "", org.jsoup.parser.Parser.xmlParser());
         org.jsoup.nodes.Element packageElement = opfDocument.selectFirst("package");
@@ -117,17 +151,101 @@ public class EpubParser {
      * @throws BaseEpubException 解析异常
      */
     public EpubBook parse() throws BaseEpubException, java.io.IOException, EpubPathValidationException {
-        EpubBook book = new EpubBook();
-
-        // 获取当前EPUB文件的缓存
-        EpubCacheManager.EpubFileCache cache = EpubCacheManager.getInstance().getFileCache(epubFile);
-        String cacheKey = "fullParse:" + epubFile.getAbsolutePath();
+        // 获取当前EPUB数据源的缓存
+        EpubCacheManager.EpubFileCache cache = source.getCacheManager().getSourceCache(source);
+        // 缓存按内容区分，键中不含路径，内容相同的文件共享同一解析结果
+        String cacheKey = "fullParse" + (caseInsensitiveHrefs ? ":ignoreCase" : "");
 
         // 尝试从缓存获取完整解析结果
         EpubBook cachedBook = (EpubBook) cache.getParsedResult(cacheKey);
         if (cachedBook != null) {
-            return new EpubBook(cachedBook);
+            return withSource(cachedBook, source);
+        }
+
+        // 同一本书的并发解析只执行一次，其他调用者等待同一个结果；结果由所有调用者共享，返回副本
+        EpubBook shared;
+        try {
+            shared = PARSES.execute(Arrays.asList(cache, cacheKey), () -> {
+                EpubBook cached = (EpubBook) cache.peekParsedResult(cacheKey);
+                if (cached != null) {
+                    return cached;
+                }
+                long start = System.nanoTime();
+                // 缓存的完整解析结果不引用数据源，否则弱引用的数据源缓存键永远不会被回收
+                EpubBook book = withSource(loadOrParse(), null);
+                cache.setParsedResult(cacheKey, book);
+                cache.recordLoad(EpubCacheManager.Kind.PARSED, System.nanoTime() - start);
+                // 解析完成后清理ZIP文件句柄
+                ZipFileManager.getInstance().closeCurrentZipFile();
+                return book;
+            });
+        } catch (BaseEpubException | IOException | EpubPathValidationException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Unexpected parse failure", e);
+        }
+        return withSource(shared, source);
+    }
+
+    /**
+     * 复制书籍并设置副本中资源的数据源
+     *
+     * @param book 书籍
+     * @param source 资源的数据源，null表示不引用数据源
+     * @return 书籍副本
+     */
+    private static EpubBook withSource(EpubBook book, EpubSource source) {
+        EpubBook copy = new EpubBook(book);
+        for (EpubResource resource : copy.getResources()) {
+            resource.setSource(source);
+        }
+        return copy;
+    }
+
+    /**
+     * 获取并发解析的合并统计
+     * 执行次数为实际解析的次数，合并次数为等待其他线程的解析结果而未重复解析的调用次数
+     *
+     * @return 解析请求合并器
+     */
+    public static SingleFlight<Object, EpubBook> getParseFlights() {
+        return PARSES;
+    }
+
+    /**
+     * 启用持久化缓存时先按内容指纹从磁盘读取解析结果，未命中时解析并写入磁盘
+     */
+    private EpubBook loadOrParse() throws BaseEpubException, IOException, EpubPathValidationException {
+        PersistentParseCache persistent = source.getCacheManager().getPersistentParseCache();
+        if (persistent == null) {
+            return parseBook();
+        }
+        String variant = caseInsensitiveHrefs ? "ignorecase" : "default";
+        ArchiveFingerprint fingerprint;
+        try {
+            fingerprint = ArchiveFingerprint.of(source);
+        } catch (IOException e) {
+            // 无法读取中央目录时按常规解析报告错误
+            return parseBook();
+        }
+        EpubBook book = persistent.load(fingerprint, variant);
+        if (book != null) {
+            for (EpubResource resource : book.getResources()) {
+                resource.setSource(source);
+            }
+            return book;
+        }
+        book = parseBook();
+        try {
+            persistent.store(fingerprint, variant, book);
+        } catch (IOException e) {
+            // 持久化缓存是可选的，写入失败不影响解析结果
         }
+        return book;
+    }
+
+    private EpubBook parseBook() throws BaseEpubException, IOException, EpubPathValidationException {
+        EpubBook book = new EpubBook();
 
         // 首先读取container.xml获取OPF文件路径
         String container = fileReader.readContent(CONTAINER_FILE_PATH);
@@ -153,6 +271,18 @@ public class EpubParser {
 
         // 解析资源文件 - 现在只设置引用，不加载数据
         List<EpubResource> resources = resourceParser.parseResources(opfContent, opfDir);
+        // 将href一次性解析为实际的条目名称，之后读取资源时直接精确查找；
+        // 资源对象可能与资源解析缓存共享，改变时替换为副本
+        for (int i = 0; i < resources.size(); i++) {
+            EpubResource resource = resources.get(i);
+            String href = resource.getHref();
+            String entryName = href != null ? fileReader.resolvePath(href) : null;
+            if (entryName != null && !entryName.equals(href)) {
+                EpubResource resolved = new EpubResource(resource);
+                resolved.setHref(entryName);
+                resources.set(i, resolved);
+            }
+        }
         book.setResources(resources);
 
         String ncxPath = null;
@@ -165,11 +295,17 @@ public class EpubParser {
         }
 
         navPath = resourceParser.getNavPath(opfContent, opfDir);
+        if (ncxPath != null) {
+            ncxPath = fileReader.resolvePath(ncxPath);
+        }
+        if (navPath != null) {
+            navPath = fileReader.resolvePath(navPath);
+        }
 
         // 流式解析导航文件，避免加载整个文件到内存
         // 解析NCX
         if (ncxPath != null) {
-            try (java.io.InputStream ncxStream = ZipUtils.getZipFileInputStream(fileReader.epubFile, ncxPath)) {
+            try (java.io.InputStream ncxStream = ZipUtils.getZipFileInputStream(source, ncxPath)) {
                 if (ncxStream != null) {
                     List<EpubChapter> ncx = navigationParser.parseNcx(ncxStream);
                     book.setNcx(ncx);
@@ -179,19 +315,19 @@ public class EpubParser {
 
         // 解析NAV
         if (navPath != null) {
-            try (java.io.InputStream navStream = ZipUtils.getZipFileInputStream(fileReader.epubFile, navPath)) {
+            try (java.io.InputStream navStream = ZipUtils.getZipFileInputStream(source, navPath)) {
                 if (navStream != null) {
                     List<EpubChapter> nav = navigationParser.parseNav(navStream);
                     book.setNav(nav);
 
                     // 重新打开流来解析其他类型的导航（landmarks、page-list等）
                     // 注意：这里需要重新打开流，因为InputStream不能重置
-                    try (java.io.InputStream navStream2 = ZipUtils.getZipFileInputStream(fileReader.epubFile, navPath)) {
+                    try (java.io.InputStream navStream2 = ZipUtils.getZipFileInputStream(source, navPath)) {
                         List<EpubChapter> landmarks = navigationParser.parseNavByType(navStream2, "landmarks");
                         book.setLandmarks(landmarks);
                     }
 
-                    try (java.io.InputStream navStream3 = ZipUtils.getZipFileInputStream(fileReader.epubFile, navPath)) {
+                    try (java.io.InputStream navStream3 = ZipUtils.getZipFileInputStream(source, navPath)) {
                         List<EpubChapter> pageList = navigationParser.parseNavByType(navStream3, "page-list");
                         book.setPageList(pageList);
                     }
@@ -199,12 +335,6 @@ public class EpubParser {
             }
         }
 
-        // 缓存完整解析结果
-        cache.setParsedResult(cacheKey, new EpubBook(book));
-
-        // 解析完成后清理ZIP文件句柄
-        ZipFileManager.getInstance().closeCurrentZipFile();
-
         return book;
     }
 
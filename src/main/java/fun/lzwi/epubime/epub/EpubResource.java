@@ -1,13 +1,18 @@
 package fun.lzwi.epubime.epub;
 
 import fun.lzwi.epubime.exception.EpubResourceException;
+import fun.lzwi.epubime.zip.EpubSource;
 import fun.lzwi.epubime.zip.ZipUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 /**
@@ -22,6 +27,7 @@ public class EpubResource {
     private String fallback; // Fallback resource ID for core media type fallback mechanism
     private byte[] data;
     private File epubFile; // EPUB file reference for streaming processing
+    private EpubSource source; // EPUB source the content is read from, also set for in-memory books
 
     /**
      * Default constructor
@@ -41,6 +47,7 @@ public class EpubResource {
         this.properties = other.properties;
         this.fallback = other.fallback;
         this.epubFile = other.epubFile;
+        this.source = other.source;
         if (other.data != null) {
             this.data = other.data.clone();
         }
@@ -93,11 +100,11 @@ public class EpubResource {
 
         // If there is an EPUB file reference, try to stream read data
 
-        if (epubFile != null && href != null) {
+        if (source != null && href != null) {
 
             try {
 
-                data = ZipUtils.getZipFileBytes(epubFile, href);
+                data = ZipUtils.getZipFileBytes(source, href);
 
                 return data.clone(); // Clone to prevent external modification
 
@@ -209,21 +216,127 @@ public class EpubResource {
      */
     public void setEpubFile(File epubFile) {
         this.epubFile = epubFile;
+        this.source = epubFile != null ? EpubSource.fromFile(epubFile) : null;
+    }
+
+    /**
+     * Get the EPUB source this resource is read from
+     * @return EPUB source, or null if the resource is not backed by an EPUB
+     */
+    public EpubSource getSource() {
+        return source;
+    }
+
+    /**
+     * Set the EPUB source this resource is read from, e.g. an in-memory book
+     * @param source EPUB source, the EPUB file reference follows {@link EpubSource#getFile()}
+     */
+    public void setSource(EpubSource source) {
+        this.source = source;
+        this.epubFile = source != null ? source.getFile() : null;
     }
 
     /**
      * Get resource input stream for streaming processing of large files
+     * Hrefs from the parser are already resolved to entry names; other hrefs fall back to
+     * the archive's normalized name index when there is no exact match
      * @return input stream
      * @throws IOException IO exception
      */
     public InputStream getInputStream() throws IOException {
-        if (epubFile != null && href != null) {
-            // Use ZipFileManager to optimize ZIP access
-            return ZipUtils.getZipFileInputStream(epubFile, href);
+        if (source != null && href != null) {
+            InputStream in = ZipUtils.getZipFileInputStream(source, href);
+            if (in == null) {
+                // Hrefs set outside the parser may be percent-encoded or contain "./" segments
+                String entryName = source.resolveEntryName(href, false);
+                if (entryName != null && !entryName.equals(href)) {
+                    in = ZipUtils.getZipFileInputStream(source, entryName);
+                }
+            }
+            return in;
         }
         return null;
     }
-    
+
+    /**
+     * Get resource content as a read-only ByteBuffer
+     * Uncompressed (STORED) entries are returned as a view of the memory-mapped EPUB file without copying,
+     * compressed entries are decoded once into an exactly sized buffer
+     * @return read-only buffer positioned at the start of the content, or null if the resource is not available
+     * @throws IOException IO exception
+     */
+    public ByteBuffer getByteBuffer() throws IOException {
+        if (data != null) {
+            return ByteBuffer.wrap(data).asReadOnlyBuffer();
+        }
+        if (source != null && href != null) {
+            return ZipUtils.getZipFileBuffer(source, href);
+        }
+        return null;
+    }
+
+    /**
+     * Open a read-only seekable channel over the resource content, e.g. to serve HTTP Range requests
+     * for audio and video. Uncompressed (STORED) entries seek directly in the memory-mapped EPUB file;
+     * compressed entries build a checkpoint index on the first jump so that later random reads
+     * only inflate from the nearest checkpoint.
+     * @return seekable channel to be closed by the caller, or null if the resource is not available
+     * @throws IOException IO exception
+     */
+    public SeekableByteChannel openChannel() throws IOException {
+        if (source != null && href != null) {
+            return ZipUtils.getZipFileChannel(source, href);
+        }
+        return null;
+    }
+
+    /**
+     * Transfer the whole resource content to a channel without staging it in a heap buffer
+     * @param target target channel, e.g. a socket channel
+     * @return number of bytes transferred, or -1 if the resource is not available
+     * @throws IOException IO exception
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        return transferTo(target, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Transfer a range of the resource content to a channel
+     * Uncompressed (STORED) entries are sent with FileChannel.transferTo so the kernel can avoid copies,
+     * compressed entries are inflated with a pooled inflater straight into the channel.
+     * If a non-blocking channel stops accepting bytes the call returns early;
+     * resume from {@code position} plus the returned count.
+     * @param target target channel
+     * @param position start position within the resource content
+     * @param count maximum number of bytes to transfer
+     * @return number of bytes transferred, or -1 if the resource is not available
+     * @throws IOException IO exception
+     */
+    public long transferTo(WritableByteChannel target, long position, long count) throws IOException {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("position and count must not be negative");
+        }
+        if (data != null) {
+            if (position >= data.length) {
+                return 0;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(data, (int) position, (int) Math.min(count, data.length - position));
+            long transferred = 0;
+            while (buffer.hasRemaining()) {
+                int n = target.write(buffer);
+                if (n <= 0) {
+                    break;
+                }
+                transferred += n;
+            }
+            return transferred;
+        }
+        if (source != null && href != null) {
+            return ZipUtils.transferTo(source, href, position, count, target);
+        }
+        return -1;
+    }
+
     /**
      * Load resource data in batch
      * @param resources resource list
@@ -231,17 +344,51 @@ public class EpubResource {
      * @throws IOException IO exception
      */
     public static void loadResourceData(List<EpubResource> resources, File epubFile) throws IOException {
+        // Use ZIP file stream reuse mechanism to read all resource data at once
+        Map<String, byte[]> resourceData = ZipUtils.getMultipleZipFileBytes(epubFile, collectHrefs(resources));
+        assignResourceData(resources, resourceData);
+    }
+
+    /**
+     * Load resource data in batch, decompressing entries in parallel on the given executor
+     * Useful for bulk operations such as extracting all images of a book
+     * @param resources resource list
+     * @param epubFile EPUB file
+     * @param executor executor running the decompression tasks, e.g. ForkJoinPool.commonPool()
+     * @throws IOException IO exception
+     */
+    public static void loadResourceData(List<EpubResource> resources, File epubFile, Executor executor)
+            throws IOException {
+        Map<String, byte[]> resourceData = ZipUtils.getMultipleZipFileBytes(epubFile, collectHrefs(resources), executor);
+        assignResourceData(resources, resourceData);
+    }
+
+    /**
+     * Load resource data in batch from an EPUB source, decompressing entries in parallel on the given executor
+     * Works for in-memory and remote books as well as files
+     * @param resources resource list
+     * @param source EPUB source
+     * @param executor executor running the decompression tasks, e.g. ForkJoinPool.commonPool()
+     * @throws IOException IO exception
+     */
+    public static void loadResourceData(List<EpubResource> resources, EpubSource source, Executor executor)
+            throws IOException {
+        Map<String, byte[]> resourceData = ZipUtils.getMultipleZipFileBytes(source, collectHrefs(resources), executor);
+        assignResourceData(resources, resourceData);
+    }
+
+    private static List<String> collectHrefs(List<EpubResource> resources) {
         // Collect all resource paths that need to be loaded
         List<String> hrefs = new java.util.ArrayList<>();
         for (EpubResource resource : resources) {
-            if (resource.epubFile != null && resource.href != null) {
+            if (resource.source != null && resource.href != null) {
                 hrefs.add(resource.href);
             }
         }
-        
-        // Use ZIP file stream reuse mechanism to read all resource data at once
-        Map<String, byte[]> resourceData = ZipUtils.getMultipleZipFileBytes(epubFile, hrefs);
-        
+        return hrefs;
+    }
+
+    private static void assignResourceData(List<EpubResource> resources, Map<String, byte[]> resourceData) {
         // Set data to corresponding resource objects
         for (EpubResource resource : resources) {
             if (resource.href != null) {
@@ -263,16 +410,16 @@ public class EpubResource {
 
     public void processContent(Consumer<InputStream> processor) throws EpubResourceException {
 
-        if (epubFile != null && href != null) {
+        if (source != null && href != null) {
 
             try {
 
-                ZipUtils.processZipFileContent(epubFile, href, processor);
+                ZipUtils.processZipFileContent(source, href, processor);
 
             } catch (IOException e) {
 
-                throw new EpubResourceException("Failed to process resource content for " + href + " from EPUB file " + epubFile.getName(),
-                    epubFile.getName(), href, e);
+                throw new EpubResourceException("Failed to process resource content for " + href + " from EPUB file " + source.getName(),
+                    source.getName(), href, e);
 
             }
 
@@ -0,0 +1,309 @@
+package fun.lzwi.epubime.epub;
+
+import fun.lzwi.epubime.exception.BaseEpubException;
+import fun.lzwi.epubime.exception.EpubFormatException;
+import fun.lzwi.epubime.parser.MetadataParser;
+import fun.lzwi.epubime.parser.NavigationParser;
+import fun.lzwi.epubime.parser.ResourceParser;
+import fun.lzwi.epubime.zip.PathValidator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * EPUB流式解析器
+ * 按本地文件头顺序单遍读取不可定位的输入流（如上传流），无需先写入临时文件。
+ * 读取过程中捕获container.xml、OPF和NAV/NCX，清单中的资源在流经时交给回调处理。
+ * OPF出现在内容条目之后时，之前的条目暂存在内存中，总大小受上限约束。
+ * 实例只能解析一次。
+ */
+public class EpubStreamParser {
+    /**
+     * 默认的暂存上限：找到OPF之前最多暂存的条目字节数
+     */
+    public static final long DEFAULT_MAX_BUFFERED_BYTES = 64L * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CountingInputStream inputStream;
+    private final long maxBufferedBytes;
+    private final MetadataParser metadataParser = new MetadataParser();
+    private final NavigationParser navigationParser = new NavigationParser();
+    private final ResourceParser resourceParser = new ResourceParser(null);
+
+    // 解析状态
+    private final Map<String, byte[]> pending = new LinkedHashMap<>();
+    private long pendingBytes;
+    private String opfPath;
+    private EpubBook book;
+    private Map<String, EpubResource> manifest;
+    private String ncxPath;
+    private String navPath;
+    private String ncxContent;
+    private String navContent;
+    private boolean parsed;
+
+    /**
+     * 构造函数，使用默认的暂存上限
+     *
+     * @param inputStream EPUB输入流，解析完成后由调用者关闭
+     */
+    public EpubStreamParser(InputStream inputStream) {
+        this(inputStream, DEFAULT_MAX_BUFFERED_BYTES);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param inputStream EPUB输入流，解析完成后由调用者关闭
+     * @param maxBufferedBytes 找到OPF之前最多暂存的条目字节数
+     */
+    public EpubStreamParser(InputStream inputStream, long maxBufferedBytes) {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("EPUB input stream cannot be null");
+        }
+        if (maxBufferedBytes < 0) {
+            throw new IllegalArgumentException("maxBufferedBytes must not be negative");
+        }
+        this.inputStream = new CountingInputStream(inputStream);
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * 解析EPUB输入流，忽略资源内容
+     *
+     * @return 解析后的EpubBook对象，资源不关联文件也不包含数据
+     * @throws BaseEpubException 格式错误或暂存超过上限
+     * @throws IOException 读取异常
+     */
+    public EpubBook parse() throws BaseEpubException, IOException {
+        return parse(null);
+    }
+
+    /**
+     * 解析EPUB输入流，并在清单中的资源流经时交给处理函数
+     * 处理函数收到的输入流只在回调期间有效，无需关闭；资源按其在ZIP中的顺序交付，
+     * 暂存的资源在OPF解析完成后按原顺序交付
+     *
+     * @param resourceProcessor 资源处理函数，可以为null
+     * @return 解析后的EpubBook对象，资源不关联文件也不包含数据
+     * @throws BaseEpubException 格式错误或暂存超过上限
+     * @throws IOException 读取异常
+     */
+    public EpubBook parse(BiConsumer<EpubResource, InputStream> resourceProcessor)
+            throws BaseEpubException, IOException {
+        if (parsed) {
+            throw new IllegalStateException("EPUB stream has already been parsed");
+        }
+        parsed = true;
+
+        ZipInputStream zip = new ZipInputStream(inputStream, StandardCharsets.UTF_8);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            String name = entry.getName();
+            if (entry.isDirectory() || !PathValidator.isPathSafe("", name)) {
+                continue;
+            }
+
+            if (EpubParser.CONTAINER_FILE_PATH.equals(name)) {
+                opfPath = EpubParser.extractRootFilePath(readText(zip));
+                byte[] opf = pending.remove(opfPath);
+                if (opf != null) {
+                    pendingBytes -= opf.length;
+                    parsePackage(new String(opf, StandardCharsets.UTF_8), resourceProcessor);
+                }
+            } else if (name.equals(opfPath)) {
+                parsePackage(readText(zip), resourceProcessor);
+            } else if (book == null) {
+                buffer(name, zip);
+            } else {
+                deliver(name, zip, resourceProcessor);
+            }
+        }
+        // 读完中央目录，使读取字节数等于整个EPUB的大小
+        byte[] remaining = new byte[BUFFER_SIZE];
+        while (inputStream.read(remaining) != -1) {
+            // 丢弃
+        }
+
+        if (opfPath == null) {
+            throw new EpubFormatException("Container file not found", (String) null, EpubParser.CONTAINER_FILE_PATH);
+        }
+        if (book == null) {
+            throw new EpubFormatException("OPF file not found", (String) null, opfPath);
+        }
+        parseNavigation();
+        return book;
+    }
+
+    /**
+     * 获取已从输入流读取的字节数，解析完成后即EPUB的大小
+     * @return 字节数
+     */
+    public long getBytesRead() {
+        return inputStream.count;
+    }
+
+    private void parsePackage(String opfContent, BiConsumer<EpubResource, InputStream> resourceProcessor)
+            throws IOException {
+        String opfDir = EpubParser.extractRootFileDir(opfPath);
+        EpubBook parsedBook = new EpubBook();
+        String epubVersion = EpubParser.detectEpubVersion(opfContent);
+        parsedBook.setVersion(epubVersion);
+        parsedBook.setMetadata(metadataParser.parseMetadata(opfContent, epubVersion));
+        List<EpubResource> resources = resourceParser.parseResources(opfContent, opfDir);
+        parsedBook.setResources(resources);
+
+        manifest = new HashMap<>((int) (resources.size() / 0.75f) + 1);
+        for (EpubResource resource : resources) {
+            manifest.put(resource.getHref(), resource);
+        }
+        try {
+            ncxPath = resourceParser.getNcxPath(opfContent, opfDir);
+        } catch (IllegalArgumentException e) {
+            // NCX路径可选，不抛出异常
+        }
+        navPath = resourceParser.getNavPath(opfContent, opfDir);
+        book = parsedBook;
+
+        // 按原顺序交付OPF之前暂存的条目
+        Iterator<Map.Entry<String, byte[]>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, byte[]> buffered = iterator.next();
+            iterator.remove();
+            deliver(buffered.getKey(), new ByteArrayInputStream(buffered.getValue()), resourceProcessor);
+        }
+        pendingBytes = 0;
+    }
+
+    private void deliver(String name, InputStream in, BiConsumer<EpubResource, InputStream> resourceProcessor)
+            throws IOException {
+        boolean ncx = name.equals(ncxPath);
+        boolean nav = name.equals(navPath);
+        EpubResource resource = manifest.get(name);
+        if (ncx || nav) {
+            byte[] data = readBytes(in, Long.MAX_VALUE);
+            String content = new String(data, StandardCharsets.UTF_8);
+            if (ncx) {
+                ncxContent = content;
+            }
+            if (nav) {
+                navContent = content;
+            }
+            in = new ByteArrayInputStream(data);
+        }
+        if (resource != null && resourceProcessor != null) {
+            resourceProcessor.accept(resource, new UnclosableInputStream(in));
+        }
+    }
+
+    private void buffer(String name, InputStream in) throws IOException, EpubFormatException {
+        byte[] data = readBytes(in, maxBufferedBytes - pendingBytes);
+        if (data == null) {
+            throw new EpubFormatException("Entries before the OPF package document exceed the stream buffer limit",
+                    (String) null, name);
+        }
+        pending.put(name, data);
+        pendingBytes += data.length;
+    }
+
+    private void parseNavigation() {
+        if (ncxContent != null) {
+            book.setNcx(navigationParser.parseNcx(ncxContent));
+        }
+        if (navContent != null) {
+            book.setNav(navigationParser.parseNav(navContent));
+            book.setLandmarks(navigationParser.parseNavByType(navContent, "landmarks"));
+            book.setPageList(navigationParser.parseNavByType(navContent, "page-list"));
+        }
+    }
+
+    private static String readText(InputStream in) throws IOException {
+        return new String(readBytes(in, Long.MAX_VALUE), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取条目的全部内容，超过上限时返回null
+     */
+    private static byte[] readBytes(InputStream in, long limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            total += n;
+            if (total > limit) {
+                return null;
+            }
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 统计读取字节数的输入流
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    /**
+     * 忽略关闭操作的输入流，避免回调关闭整个ZIP输入流
+     */
+    private static final class UnclosableInputStream extends FilterInputStream {
+        UnclosableInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+            // 条目流由解析器管理
+        }
+    }
+}
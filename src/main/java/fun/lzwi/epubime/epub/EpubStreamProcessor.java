@@ -3,9 +3,13 @@ package fun.lzwi.epubime.epub;
 import fun.lzwi.epubime.exception.BaseEpubException;
 import fun.lzwi.epubime.exception.EpubPathValidationException;
 import fun.lzwi.epubime.exception.EpubResourceException;
+import fun.lzwi.epubime.zip.ByteBufferInputStream;
+import fun.lzwi.epubime.zip.EpubSource;
+import fun.lzwi.epubime.zip.PathValidator;
 
 import java.io.File;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.function.BiConsumer;
 
@@ -15,6 +19,7 @@ import java.util.function.BiConsumer;
  */
 public class EpubStreamProcessor {
     private final EpubFileReader fileReader;
+    private volatile ChapterPrefetcher prefetcher;
 
     /**
      * 构造函数
@@ -24,6 +29,30 @@ public class EpubStreamProcessor {
         this.fileReader = new EpubFileReader(epubFile);
     }
 
+    /**
+     * 构造函数
+     * @param source EPUB数据源
+     */
+    public EpubStreamProcessor(EpubSource source) {
+        this.fileReader = new EpubFileReader(source);
+    }
+
+    /**
+     * 设置章节预取器，之后处理的章节优先从预取的内容读取，处理完成后预取随后的章节
+     * @param prefetcher 章节预取器，为null时关闭预取
+     */
+    public void setChapterPrefetcher(ChapterPrefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+    }
+
+    /**
+     * 获取章节预取器
+     * @return 章节预取器，未启用时返回null
+     */
+    public ChapterPrefetcher getChapterPrefetcher() {
+        return prefetcher;
+    }
+
     /**
      * 流式处理HTML章节内容
      * @param htmlFileName HTML文件名
@@ -33,7 +62,20 @@ public class EpubStreamProcessor {
      */
     public void processHtmlChapter(String htmlFileName, java.util.function.Consumer<InputStream> processor)
             throws BaseEpubException, EpubPathValidationException {
-        fileReader.processHtmlChapterContent(htmlFileName, processor);
+        ChapterPrefetcher current = prefetcher;
+        if (current == null) {
+            fileReader.processHtmlChapterContent(htmlFileName, processor);
+            return;
+        }
+        // 预取器按清单将相对于导航文件的章节路径解析为条目名称
+        String entryName = current.resolve(htmlFileName);
+        ByteBuffer prefetched = PathValidator.isPathSafe("", entryName) ? current.getPrefetched(entryName) : null;
+        if (prefetched != null) {
+            processor.accept(new ByteBufferInputStream(prefetched));
+        } else {
+            fileReader.processHtmlChapterContent(entryName, processor);
+        }
+        current.onChapterServed(entryName);
     }
 
     /**
@@ -65,7 +107,7 @@ public class EpubStreamProcessor {
             } catch (Exception e) {
                 throw new EpubResourceException("Failed to process chapter: " + chapter.getContent(),
                                                 book.getResources().isEmpty() ? null :
-                                                book.getResources().get(0).getEpubFile().getName(),
+                                                book.getResources().get(0).getSource().getName(),
                                                 chapter.getContent(), e);
             }
         }
@@ -89,7 +131,7 @@ public class EpubStreamProcessor {
                 }
             } catch (Exception e) {
                 throw new EpubResourceException("Failed to process resource: " + resource.getHref(),
-                                                resource.getEpubFile().getName(),
+                                                resource.getSource().getName(),
                                                 resource.getHref(), e);
             }
         }
@@ -0,0 +1,385 @@
+package fun.lzwi.epubime.epub;
+
+import fun.lzwi.epubime.cache.EpubCacheManager;
+import fun.lzwi.epubime.zip.EpubSource;
+import fun.lzwi.epubime.zip.ZipUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 书库预热器
+ * 启动时按给定的文件列表（如前一天访问最多的书籍）并行解析，使解析结果进入缓存；可选地预读每本书的前几个章节和封面。
+ * 同时进行的任务数量受并发上限约束，提交任务的线程在达到上限时等待。
+ * 缓存占用（包括堆外存储）达到预算的指定比例后仍解析剩余的书籍，但不再预读章节和封面，避免预读的内容互相淘汰
+ */
+public class LibraryWarmer {
+    /**
+     * 默认的预算比例，缓存占用达到全局预算的该比例后停止预读
+     */
+    public static final double DEFAULT_BUDGET_FRACTION = 0.9;
+
+    /**
+     * 预热进度的监听器
+     */
+    public interface ProgressListener {
+        /**
+         * 一本书预热完成、失败或跳过预读时调用，可能在执行器的线程中并发调用
+         * @param file EPUB文件
+         * @param completed 已处理的书籍数量
+         * @param total 书籍总数
+         * @param error 解析或预读失败的原因，成功或跳过预读时为null；预读失败时书籍已解析，仍计入预热数量
+         */
+        void onProgress(File file, int completed, int total, Exception error);
+    }
+
+    private final Executor executor;
+    private final int parallelism;
+    private volatile int chapterCount;
+    private volatile boolean preloadCover;
+    private volatile double budgetFraction = DEFAULT_BUDGET_FRACTION;
+    private volatile ProgressListener listener;
+    private volatile String cacheNamespace;
+
+    /**
+     * 构造函数
+     * @param executor 执行预热任务的执行器
+     * @param parallelism 同时预热的书籍数量上限
+     */
+    public LibraryWarmer(Executor executor, int parallelism) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 设置每本书预读的章节数量
+     * @param chapterCount 按阅读顺序预读的章节数量，0表示只解析
+     * @return 当前实例
+     */
+    public LibraryWarmer withChapters(int chapterCount) {
+        if (chapterCount < 0) {
+            throw new IllegalArgumentException("Chapter count cannot be negative");
+        }
+        this.chapterCount = chapterCount;
+        return this;
+    }
+
+    /**
+     * 设置是否预读封面
+     * @param preloadCover 是否预读封面
+     * @return 当前实例
+     */
+    public LibraryWarmer withCover(boolean preloadCover) {
+        this.preloadCover = preloadCover;
+        return this;
+    }
+
+    /**
+     * 设置预热可以使用的缓存预算比例
+     * @param budgetFraction 大于0且不大于1的比例
+     * @return 当前实例
+     */
+    public LibraryWarmer withBudgetFraction(double budgetFraction) {
+        if (!(budgetFraction > 0 && budgetFraction <= 1)) {
+            throw new IllegalArgumentException("Budget fraction must be in (0, 1]");
+        }
+        this.budgetFraction = budgetFraction;
+        return this;
+    }
+
+    /**
+     * 设置预热的缓存命名空间，预算比例按该命名空间的预算计算
+     * @param cacheNamespace 命名空间名称，null表示默认命名空间，不能为空字符串
+     * @return 当前实例
+     */
+    public LibraryWarmer withCacheNamespace(String cacheNamespace) {
+        if (cacheNamespace != null && cacheNamespace.isEmpty()) {
+            throw new IllegalArgumentException("Namespace name cannot be empty");
+        }
+        this.cacheNamespace = cacheNamespace;
+        return this;
+    }
+
+    /**
+     * 设置进度监听器
+     * @param listener 进度监听器，null表示不报告进度
+     * @return 当前实例
+     */
+    public LibraryWarmer withProgressListener(ProgressListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * 读取清单文件中的EPUB路径
+     * 每行一个路径，忽略空行和以 # 开头的注释行；相对路径相对于清单文件所在的目录
+     * @param manifest 清单文件，UTF-8编码
+     * @return 按清单顺序排列的文件，重复的路径只保留一次
+     * @throws IOException 读取清单失败
+     */
+    public static List<File> readManifest(Path manifest) throws IOException {
+        Path base = manifest.toAbsolutePath().getParent();
+        LinkedHashSet<File> files = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            String path = line.trim();
+            if (path.isEmpty() || path.startsWith("#")) {
+                continue;
+            }
+            File file = new File(path);
+            if (!file.isAbsolute() && base != null) {
+                file = base.resolve(path).toFile();
+            }
+            files.add(file);
+        }
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * 预热清单文件中列出的书籍
+     * @param manifest 清单文件
+     * @return 预热报告
+     * @throws IOException 读取清单失败
+     * @throws InterruptedException 等待时被中断，已提交的任务继续执行
+     * @see #readManifest(Path)
+     */
+    public Report warmUp(Path manifest) throws IOException, InterruptedException {
+        return warmUp(readManifest(manifest));
+    }
+
+    /**
+     * 并行预热给定的书籍，所有任务完成后返回
+     * @param files EPUB文件列表，越靠前越先预热
+     * @return 预热报告
+     * @throws InterruptedException 等待时被中断，已提交的任务继续执行
+     */
+    public Report warmUp(List<File> files) throws InterruptedException {
+        long start = System.nanoTime();
+        Report report = new Report(files.size());
+        Semaphore permits = new Semaphore(parallelism);
+        for (File file : files) {
+            permits.acquire();
+            try {
+                executor.execute(() -> {
+                    try {
+                        warmUp(file, report);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                report.failed(file, e, listener);
+            }
+        }
+        // 取回全部许可即所有任务已完成
+        permits.acquire(parallelism);
+        permits.release(parallelism);
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private void warmUp(File file, Report report) {
+        EpubSource source = EpubSource.fromFile(file).withCacheNamespace(cacheNamespace);
+        EpubBook book;
+        try {
+            book = new EpubParser(source).parse();
+        } catch (Exception e) {
+            report.failed(file, e, listener);
+            return;
+        }
+        if (overBudget()) {
+            report.skipped(file, listener);
+            return;
+        }
+        try {
+            preload(source, book, report);
+        } catch (Exception e) {
+            // 预读失败不影响解析结果的预热
+            report.preloadFailed(file, e, listener);
+            return;
+        }
+        report.warmed(file, listener);
+    }
+
+    private void preload(EpubSource source, EpubBook book, Report report) throws Exception {
+        if (chapterCount > 0) {
+            EpubFileReader reader = new EpubFileReader(source);
+            int loaded = 0;
+            for (String entryName : new LinkedHashSet<>(ChapterPrefetcher.entryNamesOf(book).values())) {
+                if (loaded >= chapterCount || overBudget()) {
+                    break;
+                }
+                if (reader.readContent(entryName) != null) {
+                    report.preloadedEntries.incrementAndGet();
+                }
+                loaded++;
+            }
+        }
+        if (preloadCover && !overBudget()) {
+            EpubResource cover = EpubBookProcessor.getCover(book);
+            EpubCacheManager.EpubFileCache cache = source.getCacheManager().getSourceCache(source);
+            // 已缓存时不再读取，避免复制缓存中的内容；读取结果不被持有。
+            // 未压缩的封面直接读取映射的数据，不进入缓存，也不计入预读数量
+            if (cover != null && !cache.containsBinaryContent(cover.getHref())) {
+                ZipUtils.getZipFileBuffer(source, cover.getHref());
+                if (cache.containsBinaryContent(cover.getHref())) {
+                    report.preloadedEntries.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * 堆内缓存或已启用的堆外存储的占用达到各自容量的预算比例
+     */
+    private boolean overBudget() {
+        EpubCacheManager manager = EpubCacheManager.getNamespace(cacheNamespace);
+        if (manager.getRetainedBytes() >= manager.getMaxBytes() * budgetFraction) {
+            return true;
+        }
+        long offHeapCapacity = manager.getOffHeapCapacity();
+        return offHeapCapacity > 0 && manager.getOffHeapRetainedBytes() >= offHeapCapacity * budgetFraction;
+    }
+
+    /**
+     * 预热报告，预热进行中也可以读取
+     */
+    public static final class Report {
+        private final int total;
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger warmedCount = new AtomicInteger();
+        private final AtomicInteger skippedCount = new AtomicInteger();
+        private final AtomicLong preloadedEntries = new AtomicLong();
+        private final Map<File, Exception> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+        private final Map<File, Exception> preloadFailures = Collections.synchronizedMap(new LinkedHashMap<>());
+        private volatile long elapsedNanos;
+
+        private Report(int total) {
+            this.total = total;
+        }
+
+        private void warmed(File file, ProgressListener listener) {
+            warmedCount.incrementAndGet();
+            progress(file, null, listener);
+        }
+
+        private void skipped(File file, ProgressListener listener) {
+            warmedCount.incrementAndGet();
+            skippedCount.incrementAndGet();
+            progress(file, null, listener);
+        }
+
+        private void preloadFailed(File file, Exception error, ProgressListener listener) {
+            warmedCount.incrementAndGet();
+            preloadFailures.put(file, error);
+            progress(file, error, listener);
+        }
+
+        private void failed(File file, Exception error, ProgressListener listener) {
+            failures.put(file, error);
+            progress(file, error, listener);
+        }
+
+        private void progress(File file, Exception error, ProgressListener listener) {
+            int done = completed.incrementAndGet();
+            if (listener != null) {
+                listener.onProgress(file, done, total, error);
+            }
+        }
+
+        /**
+         * 获取书籍总数
+         * @return 书籍总数
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * 获取已处理的书籍数量，包括失败的书籍
+         * @return 已处理数量
+         */
+        public int getCompleted() {
+            return completed.get();
+        }
+
+        /**
+         * 获取解析成功的书籍数量，包括跳过预读和预读失败的书籍
+         * @return 预热数量
+         */
+        public int getWarmedCount() {
+            return warmedCount.get();
+        }
+
+        /**
+         * 获取已解析、但因缓存占用达到预算而跳过预读的书籍数量
+         * @return 跳过数量
+         */
+        public int getSkippedCount() {
+            return skippedCount.get();
+        }
+
+        /**
+         * 获取解析失败的书籍及原因
+         * @return 文件到异常的映射
+         */
+        public Map<File, Exception> getFailures() {
+            synchronized (failures) {
+                return new LinkedHashMap<>(failures);
+            }
+        }
+
+        /**
+         * 获取已解析、但预读章节或封面失败的书籍及原因
+         * @return 文件到异常的映射
+         */
+        public Map<File, Exception> getPreloadFailures() {
+            synchronized (preloadFailures) {
+                return new LinkedHashMap<>(preloadFailures);
+            }
+        }
+
+        /**
+         * 获取预读并放入缓存的章节和封面数量
+         * @return 预读条目数量
+         */
+        public long getPreloadedEntries() {
+            return preloadedEntries.get();
+        }
+
+        /**
+         * 获取预热的总耗时
+         * @return 纳秒数，预热完成前为0
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Report[total=" + total + ", warmed=" + warmedCount + ", skipped=" + skippedCount
+                    + ", failed=" + failures.size() + ", preloadFailed=" + preloadFailures.size()
+                    + ", preloaded=" + preloadedEntries + "]";
+        }
+    }
+}
@@ -1319,6 +1319,22 @@ public class Metadata {
     }
 
 
+    /**
+     * 获取可访问性摘要列表
+     *
+     * @return 可访问性摘要列表（不可修改）
+     */
+
+
+    public List<String> getAccessibilitySummaries() {
+
+
+        return Collections.unmodifiableList(accessibilitySummary);
+
+
+    }
+
+
     /**
      * 添加可访问性摘要
      *
@@ -1,6 +1,7 @@
 package fun.lzwi.epubime.parser;
 
 import fun.lzwi.epubime.epub.Metadata;
+import fun.lzwi.epubime.zip.ZipOperations;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
@@ -136,16 +137,7 @@ public class MetadataParser {
      * @throws java.io.IOException IO异常
      */
     private String readStreamToString(java.io.InputStream inputStream) throws java.io.IOException {
-        StringBuilder contentBuilder = new StringBuilder();
-        try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                new java.io.InputStreamReader(inputStream, java.nio.charset.StandardCharsets.UTF_8))) {
-            char[] buffer = new char[8192];
-            int charsRead;
-            while ((charsRead = reader.read(buffer)) != -1) {
-                contentBuilder.append(buffer, 0, charsRead);
-            }
-        }
-        return contentBuilder.toString();
+        return ZipOperations.readTextContent(inputStream);
     }
     
     /**
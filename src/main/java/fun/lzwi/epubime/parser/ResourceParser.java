@@ -2,6 +2,7 @@ package fun.lzwi.epubime.parser;
 
 import fun.lzwi.epubime.cache.EpubCacheManager;
 import fun.lzwi.epubime.epub.EpubResource;
+import fun.lzwi.epubime.zip.EpubSource;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
@@ -18,7 +19,7 @@ import java.util.List;
  */
 public class ResourceParser {
     
-    private final File epubFile;
+    private final EpubSource source;
     
     /**
      * 构造函数
@@ -26,7 +27,21 @@ public class ResourceParser {
      * @param epubFile EPUB文件（可以为null，但某些功能将不可用）
      */
     public ResourceParser(File epubFile) {
-        this.epubFile = epubFile;
+        this.source = epubFile != null ? EpubSource.fromFile(epubFile) : null;
+    }
+    
+    private ResourceParser(EpubSource source) {
+        this.source = source;
+    }
+    
+    /**
+     * 创建读取指定数据源的资源解析器
+     *
+     * @param source EPUB数据源（可以为null，但某些功能将不可用）
+     * @return 资源解析器
+     */
+    public static ResourceParser forSource(EpubSource source) {
+        return new ResourceParser(source);
     }
     
     /**
@@ -44,16 +59,16 @@ public class ResourceParser {
             throw new IllegalArgumentException("OPF directory cannot be null");
         }
         
-        // 如果epubFile为null，跳过缓存
-        if (epubFile != null) {
-            EpubCacheManager.EpubFileCache cache = EpubCacheManager.getInstance().getFileCache(epubFile);
+        // 如果数据源为null，跳过缓存
+        if (source != null) {
+            EpubCacheManager.EpubFileCache cache = source.getCacheManager().getSourceCache(source);
             String cacheKey = "resources:" + opfContent.hashCode() + ":" + opfDir;
             
             @SuppressWarnings("unchecked")
             List<EpubResource> cachedResult = (List<EpubResource>) cache.getParsedResult(cacheKey);
             
             if (cachedResult != null) {
-                return new ArrayList<>(cachedResult);
+                return withSource(cachedResult, source);
             }
         }
         
@@ -72,16 +87,34 @@ public class ResourceParser {
             resources.add(createResource(item, opfDir));
         }
         
-        // 如果epubFile不为null，缓存结果
-        if (epubFile != null) {
-            EpubCacheManager.EpubFileCache cache = EpubCacheManager.getInstance().getFileCache(epubFile);
+        // 如果数据源不为null，缓存结果
+        if (source != null) {
+            EpubCacheManager.EpubFileCache cache = source.getCacheManager().getSourceCache(source);
             String cacheKey = "resources:" + opfContent.hashCode() + ":" + opfDir;
-            cache.setParsedResult(cacheKey, new ArrayList<>(resources));
+            // 缓存不引用数据源的副本，否则弱引用的数据源缓存键永远不会被回收
+            cache.setParsedResult(cacheKey, withSource(resources, null));
         }
         
         return resources;
     }
     
+    /**
+     * 复制资源列表并设置副本的数据源
+     *
+     * @param resources 资源列表
+     * @param source 副本的数据源，null表示不引用数据源
+     * @return 资源副本列表
+     */
+    private static List<EpubResource> withSource(List<EpubResource> resources, EpubSource source) {
+        List<EpubResource> copies = new ArrayList<>(resources.size());
+        for (EpubResource resource : resources) {
+            EpubResource copy = new EpubResource(resource);
+            copy.setSource(source);
+            copies.add(copy);
+        }
+        return copies;
+    }
+    
     /**
      * 根据manifest元素创建资源对象
      *
@@ -107,8 +140,8 @@ public class ResourceParser {
             resource.setFallback(fallback);
         }
         
-        // 设置EPUB文件引用，用于按需流式加载资源
-        resource.setEpubFile(epubFile);
+        // 设置EPUB数据源引用，用于按需流式加载资源
+        resource.setSource(source);
         
         return resource;
     }
@@ -0,0 +1,125 @@
+package fun.lzwi.epubime.zip;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * ZIP文件内容指纹
+ * 由文件大小、中央目录的偏移量和大小以及中央目录内容的CRC32组成。中央目录记录了每个条目的名称、大小和CRC，
+ * 因此内容相同的文件（即使路径不同）指纹相同，原地替换后的文件指纹不同。计算时只读取文件末尾和中央目录
+ */
+public final class ArchiveFingerprint {
+    private final long size;
+    private final long centralDirectoryOffset;
+    private final long centralDirectorySize;
+    private final long centralDirectoryCrc;
+
+    private ArchiveFingerprint(long size, long centralDirectoryOffset, long centralDirectorySize,
+                               long centralDirectoryCrc) {
+        this.size = size;
+        this.centralDirectoryOffset = centralDirectoryOffset;
+        this.centralDirectorySize = centralDirectorySize;
+        this.centralDirectoryCrc = centralDirectoryCrc;
+    }
+
+    /**
+     * 计算文件的内容指纹
+     *
+     * @param file ZIP文件
+     * @return 内容指纹
+     * @throws IOException 读取失败、ZIP格式错误或使用了不支持的ZIP64格式
+     */
+    public static ArchiveFingerprint of(File file) throws IOException {
+        return of(EpubSource.fromFile(file));
+    }
+
+    /**
+     * 计算数据源的内容指纹
+     *
+     * @param source EPUB数据源
+     * @return 内容指纹
+     * @throws IOException 读取失败、ZIP格式错误或使用了不支持的ZIP64格式
+     */
+    public static ArchiveFingerprint of(EpubSource source) throws IOException {
+        long size = source.size();
+        int tailLength = (int) Math.min(size, ZipEntryIndex.EOCD_MAX_SEARCH);
+        long tailStart = size - tailLength;
+        ByteBuffer tail = source.read(tailStart, tailLength).order(ByteOrder.LITTLE_ENDIAN);
+        int eocd = ZipEntryIndex.locateEndOfCentralDirectory(tail);
+        if (eocd < 0) {
+            throw new ZipException("End of central directory record not found");
+        }
+        ZipEntryIndex.EndRecord end = ZipEntryIndex.EndRecord.parse(tail, tailStart, eocd);
+        ByteBuffer cd = end.sliceCentralDirectory(tail, tailStart);
+        if (cd == null) {
+            cd = source.read(end.centralDirectoryOffset, (int) end.centralDirectorySize);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(cd);
+        return new ArchiveFingerprint(size, end.centralDirectoryOffset, end.centralDirectorySize, crc.getValue());
+    }
+
+    /**
+     * 获取文件大小
+     * @return 文件大小
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 获取中央目录的偏移量
+     * @return 偏移量
+     */
+    public long getCentralDirectoryOffset() {
+        return centralDirectoryOffset;
+    }
+
+    /**
+     * 获取中央目录的大小
+     * @return 字节数
+     */
+    public long getCentralDirectorySize() {
+        return centralDirectorySize;
+    }
+
+    /**
+     * 获取中央目录内容的CRC32
+     * @return CRC32值
+     */
+    public long getCentralDirectoryCrc() {
+        return centralDirectoryCrc;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ArchiveFingerprint)) {
+            return false;
+        }
+        ArchiveFingerprint other = (ArchiveFingerprint) o;
+        return size == other.size && centralDirectoryOffset == other.centralDirectoryOffset
+                && centralDirectorySize == other.centralDirectorySize
+                && centralDirectoryCrc == other.centralDirectoryCrc;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(size);
+        result = 31 * result + Long.hashCode(centralDirectoryOffset);
+        result = 31 * result + Long.hashCode(centralDirectorySize);
+        return 31 * result + Long.hashCode(centralDirectoryCrc);
+    }
+
+    @Override
+    public String toString() {
+        return "ArchiveFingerprint[size=" + size + ", cd=" + centralDirectoryOffset + "+" + centralDirectorySize
+                + ", crc=" + Long.toHexString(centralDirectoryCrc) + "]";
+    }
+}
@@ -0,0 +1,343 @@
+package fun.lzwi.epubime.zip;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipException;
+
+/**
+ * 异步ZIP条目读取器
+ * 基于 {@link AsynchronousFileChannel} 的定位读取，读取条目时不占用调用线程或等待磁盘IO的工作线程：
+ * 首次读取条目时一次读取本地文件头和数据（按中央目录估计头部长度，不足时补读剩余部分），
+ * 之后缓存数据偏移量只读取数据。STORED条目直接返回读取的缓冲区，DEFLATED条目在计算线程池中使用池化的解压器解压。
+ * 适合事件循环式的HTTP服务在不阻塞线程的情况下读取资源，使用完毕后需要关闭
+ */
+public final class AsyncZipReader implements Closeable {
+    // 本地文件头扩展字段长度通常与中央目录不同，首次读取时预留的额外字节
+    private static final int LOCAL_EXTRA_SLACK = 64;
+
+    private final Path path;
+    private final AsynchronousFileChannel channel;
+    private final ZipEntryIndex index;
+    private final long length;
+    private final Executor inflateExecutor;
+    private final long[] dataOffsets;
+
+    private static class DefaultInflateExecutorHolder {
+        private static final ExecutorService INSTANCE = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)), runnable -> {
+                    Thread thread = new Thread(runnable, "epubime-async-inflate");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private AsyncZipReader(Path path, AsynchronousFileChannel channel, ZipEntryIndex index, long length,
+                           Executor inflateExecutor) {
+        this.path = path;
+        this.channel = channel;
+        this.index = index;
+        this.length = length;
+        this.inflateExecutor = inflateExecutor;
+        this.dataOffsets = new long[index.size()];
+        Arrays.fill(dataOffsets, -1);
+    }
+
+    /**
+     * 异步打开ZIP文件并读取中央目录，DEFLATED条目在共享的小型计算线程池中解压
+     *
+     * @param path ZIP文件路径
+     * @return 读取器
+     */
+    public static CompletableFuture<AsyncZipReader> open(Path path) {
+        return open(path, DefaultInflateExecutorHolder.INSTANCE);
+    }
+
+    /**
+     * 异步打开ZIP文件并读取中央目录
+     * 先读取文件末尾的一小段查找EOCD，找不到时再读取完整的搜索区域，中央目录不在已读取的区域内时再读取一次
+     *
+     * @param path ZIP文件路径
+     * @param inflateExecutor 解压DEFLATED条目的执行器
+     * @return 读取器，打开失败时以异常完成
+     */
+    public static CompletableFuture<AsyncZipReader> open(Path path, Executor inflateExecutor) {
+        if (path == null || inflateExecutor == null) {
+            throw new IllegalArgumentException("Path and executor cannot be null");
+        }
+        AsynchronousFileChannel channel;
+        long size;
+        try {
+            channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+            size = channel.size();
+        } catch (IOException e) {
+            return failed(e);
+        }
+        int probeLength = (int) Math.min(size, ZipEntryIndex.EOCD_PROBE_LENGTH);
+        CompletableFuture<AsyncZipReader> opened = read(channel, size - probeLength, probeLength)
+                .thenCompose(tail -> {
+                    int eocd = ZipEntryIndex.locateEndOfCentralDirectory(tail.order(ByteOrder.LITTLE_ENDIAN));
+                    int searchLength = (int) Math.min(size, ZipEntryIndex.EOCD_MAX_SEARCH);
+                    if (eocd < 0 && probeLength < searchLength) {
+                        // 末尾有较长的注释，读取完整的搜索区域
+                        return read(channel, size - searchLength, searchLength)
+                                .thenCompose(fullTail -> readIndex(channel, fullTail, size - searchLength));
+                    }
+                    return readIndex(channel, tail, size - probeLength);
+                })
+                .thenApply(index -> new AsyncZipReader(path, channel, index, size, inflateExecutor));
+        opened.whenComplete((reader, error) -> {
+            if (error != null) {
+                closeQuietly(channel);
+            }
+        });
+        return opened;
+    }
+
+    private static CompletableFuture<ZipEntryIndex> readIndex(AsynchronousFileChannel channel, ByteBuffer tail,
+                                                              long tailStart) {
+        tail.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            int eocd = ZipEntryIndex.locateEndOfCentralDirectory(tail);
+            if (eocd < 0) {
+                throw new ZipException("End of central directory record not found");
+            }
+            ZipEntryIndex.EndRecord end = ZipEntryIndex.EndRecord.parse(tail, tailStart, eocd);
+            ByteBuffer cd = end.sliceCentralDirectory(tail, tailStart);
+            if (cd != null) {
+                return CompletableFuture.completedFuture(end.parseCentralDirectory(cd));
+            }
+            return read(channel, end.centralDirectoryOffset, (int) end.centralDirectorySize).thenApply(data -> {
+                try {
+                    return end.parseCentralDirectory(data);
+                } catch (ZipException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (ZipException e) {
+            return failed(e);
+        }
+    }
+
+    /**
+     * 获取中央目录索引
+     * @return 中央目录索引
+     */
+    public ZipEntryIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * 获取ZIP文件路径
+     * @return 文件路径
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * 异步读取条目内容
+     *
+     * @param name 条目名称
+     * @return 只读的内容缓冲区，position为0；条目不存在时结果为null，读取或解压失败时以异常完成
+     */
+    public CompletableFuture<ByteBuffer> readEntry(String name) {
+        try {
+            ZipOperations.validatePathSafety(name);
+        } catch (IOException e) {
+            return failed(e);
+        }
+        int entry = index.indexOf(name);
+        if (entry < 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return readEntry(entry);
+    }
+
+    /**
+     * 异步读取条目内容
+     *
+     * @param entry 条目下标
+     * @return 只读的内容缓冲区，position为0；读取或解压失败时以异常完成
+     */
+    public CompletableFuture<ByteBuffer> readEntry(int entry) {
+        int method = index.getMethod(entry);
+        long compressedSize = index.getCompressedSize(entry);
+        long size = index.getSize(entry);
+        String name = index.getName(entry);
+        if (compressedSize > Integer.MAX_VALUE || size > Integer.MAX_VALUE) {
+            return failed(new ZipException("Entry too large: " + name));
+        }
+        if (method != ZipEntryIndex.METHOD_STORED && method != ZipEntryIndex.METHOD_DEFLATED) {
+            return failed(new ZipException("Unsupported compression method " + method + " for entry: " + name));
+        }
+        CompletableFuture<ByteBuffer> raw = readRawData(entry, (int) compressedSize);
+        if (method == ZipEntryIndex.METHOD_STORED) {
+            return raw.thenApply(ByteBuffer::asReadOnlyBuffer);
+        }
+        return raw.thenApplyAsync(data -> {
+            try {
+                return ByteBuffer.wrap(MappedZipFile.inflate(data, (int) size, name)).asReadOnlyBuffer();
+            } catch (ZipException e) {
+                throw new CompletionException(e);
+            }
+        }, inflateExecutor);
+    }
+
+    /**
+     * 异步批量读取条目内容，所有读取同时发出
+     *
+     * @param names 条目名称列表
+     * @return 按请求顺序排列的条目名称到内容的映射，不存在的条目对应null；任一条目失败时以异常完成
+     */
+    public CompletableFuture<Map<String, ByteBuffer>> readEntries(List<String> names) {
+        try {
+            ZipOperations.validateMultiplePathsSafety(names);
+        } catch (IOException e) {
+            return failed(e);
+        }
+        Map<String, CompletableFuture<ByteBuffer>> pending = new LinkedHashMap<>();
+        for (String name : names) {
+            if (!pending.containsKey(name)) {
+                int entry = index.indexOf(name);
+                pending.put(name, entry < 0 ? CompletableFuture.completedFuture(null) : readEntry(entry));
+            }
+        }
+        return CompletableFuture.allOf(pending.values().toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<String, ByteBuffer> contents = new LinkedHashMap<>((int) (pending.size() / 0.75f) + 1);
+            for (Map.Entry<String, CompletableFuture<ByteBuffer>> result : pending.entrySet()) {
+                contents.put(result.getKey(), result.getValue().join());
+            }
+            return contents;
+        });
+    }
+
+    /**
+     * 读取条目原始数据；数据偏移量未知时同时读取本地文件头
+     */
+    private CompletableFuture<ByteBuffer> readRawData(int entry, int compressedSize) {
+        long offset = dataOffsets[entry];
+        if (offset >= 0) {
+            return read(channel, offset, compressedSize);
+        }
+        long header = index.getLocalHeaderOffset(entry);
+        int nameLength = index.getName(entry).getBytes(java.nio.charset.StandardCharsets.UTF_8).length;
+        long guess = ZipEntryIndex.LOC_HEADER_LENGTH + nameLength + LOCAL_EXTRA_SLACK + (long) compressedSize;
+        int firstRead = (int) Math.min(guess, length - header);
+        if (header + ZipEntryIndex.LOC_HEADER_LENGTH > length || firstRead < ZipEntryIndex.LOC_HEADER_LENGTH) {
+            return failed(new ZipException("Invalid local file header for entry: " + index.getName(entry)));
+        }
+        return read(channel, header, firstRead).thenCompose(buf -> {
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getInt(0) != ZipEntryIndex.LOC_SIGNATURE) {
+                return failed(new ZipException("Invalid local file header for entry: " + index.getName(entry)));
+            }
+            int dataStart = ZipEntryIndex.LOC_HEADER_LENGTH + (buf.getShort(26) & 0xFFFF) + (buf.getShort(28) & 0xFFFF);
+            long dataOffset = header + dataStart;
+            if (dataOffset + compressedSize > length) {
+                return failed(new ZipException("Entry data exceeds archive bounds: " + index.getName(entry)));
+            }
+            // 良性竞争：多个线程计算得到相同的值
+            dataOffsets[entry] = dataOffset;
+            int available = buf.limit() - dataStart;
+            if (available >= compressedSize) {
+                buf.position(dataStart).limit(dataStart + compressedSize);
+                return CompletableFuture.completedFuture(buf.slice());
+            }
+            // 扩展字段比预估的长，补读剩余的数据
+            ByteBuffer data = ByteBuffer.allocate(compressedSize);
+            if (available > 0) {
+                buf.position(dataStart);
+                data.put(buf);
+            }
+            return read(channel, dataOffset + data.position(), data).thenApply(ignored -> {
+                data.flip();
+                return data;
+            });
+        });
+    }
+
+    private static CompletableFuture<ByteBuffer> read(AsynchronousFileChannel channel, long position, int size) {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        return read(channel, position, buffer).thenApply(ignored -> {
+            buffer.flip();
+            return buffer;
+        });
+    }
+
+    /**
+     * 从指定位置开始读满缓冲区的剩余空间
+     */
+    private static CompletableFuture<ByteBuffer> read(AsynchronousFileChannel channel, long position, ByteBuffer buffer) {
+        CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+        if (!buffer.hasRemaining()) {
+            future.complete(buffer);
+            return future;
+        }
+        AtomicInteger total = new AtomicInteger();
+        channel.read(buffer, position, buffer, new CompletionHandler<Integer, ByteBuffer>() {
+            @Override
+            public void completed(Integer n, ByteBuffer target) {
+                if (n < 0) {
+                    future.completeExceptionally(new EOFException("Unexpected end of ZIP file at " + (position + total.get())));
+                    return;
+                }
+                int read = total.addAndGet(n);
+                if (!target.hasRemaining()) {
+                    future.complete(target);
+                    return;
+                }
+                try {
+                    channel.read(target, position + read, target, this);
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Throwable error, ByteBuffer target) {
+                future.completeExceptionally(error);
+            }
+        });
+        return future;
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    private static void closeQuietly(AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // 忽略关闭异常
+        }
+    }
+
+    /**
+     * 关闭通道，未完成的读取以异常完成
+     * @throws IOException IO异常
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,17 @@
+package fun.lzwi.epubime.zip;
+
+/**
+ * 批量读取条目时的读取顺序
+ */
+public enum BatchReadMode {
+    /**
+     * 按调用者给出的顺序逐个读取条目，内存占用最低
+     */
+    REQUEST_ORDER,
+
+    /**
+     * 按条目在文件中的偏移量排序，将相邻条目合并为大块顺序读取，结果仍按调用者给出的顺序交付。
+     * 减少机械硬盘和网络存储上的随机寻道，代价是需要暂存本批条目的原始数据
+     */
+    OFFSET_ORDER
+}
@@ -0,0 +1,358 @@
+package fun.lzwi.epubime.zip;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 远程数据块缓存
+ * 按固定大小的块缓存从 {@link RangeReader} 读取的内容，分为内存和本地磁盘两级，均按最近最少使用淘汰。
+ * 获取数据时先查内存，再查磁盘（命中后提升到内存），新读取的块同时写入两级缓存。
+ * 磁盘缓存的文件在进程重启后仍可使用，因此块的键必须能唯一标识远程文件的内容（如包含ETag或版本号）。
+ * 块文件名包含块大小，目录被不同块大小的缓存复用时互不干扰；长度与预期不符的块视为未命中。
+ */
+public final class BlockCache {
+    /**
+     * 默认块大小
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 32 * 1024;
+
+    /**
+     * 默认的内存缓存上限
+     */
+    public static final long DEFAULT_MEMORY_BYTES = 32L * 1024 * 1024;
+
+    private static final String BLOCK_SUFFIX = ".blk";
+    private static final String TEMP_PREFIX = "block";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // 超过该时间仍未完成的临时文件视为中断的写入
+    private static final long STALE_TEMP_MILLIS = 60 * 1000;
+
+    private final int blockSize;
+    private final long maxMemoryBytes;
+    private final Path diskDirectory;
+    private final long maxDiskBytes;
+
+    // 按访问顺序排列，访问时需持有自身锁
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    // 磁盘块文件名到大小，按访问顺序排列，访问时需持有自身锁
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long diskBytes;
+
+    // 统计信息
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private static class DefaultHolder {
+        private static final BlockCache INSTANCE = new BlockCache(DEFAULT_BLOCK_SIZE, DEFAULT_MEMORY_BYTES);
+    }
+
+    /**
+     * 构造只使用内存的块缓存
+     *
+     * @param blockSize 块大小
+     * @param maxMemoryBytes 内存缓存上限
+     */
+    public BlockCache(int blockSize, long maxMemoryBytes) {
+        this(blockSize, maxMemoryBytes, null, 0);
+    }
+
+    /**
+     * 构造内存和磁盘两级块缓存
+     * 目录中已有的块文件会按修改时间载入磁盘缓存的记录，供重启后复用；中断的写入留下的临时文件被删除
+     *
+     * @param blockSize 块大小
+     * @param maxMemoryBytes 内存缓存上限
+     * @param diskDirectory 磁盘缓存目录，为null时不使用磁盘缓存
+     * @param maxDiskBytes 磁盘缓存上限
+     */
+    public BlockCache(int blockSize, long maxMemoryBytes, Path diskDirectory, long maxDiskBytes) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        if (maxMemoryBytes < 0 || maxDiskBytes < 0) {
+            throw new IllegalArgumentException("Cache limits must not be negative");
+        }
+        this.blockSize = blockSize;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.diskDirectory = diskDirectory;
+        this.maxDiskBytes = maxDiskBytes;
+        if (diskDirectory != null) {
+            loadDiskIndex();
+        }
+    }
+
+    /**
+     * 获取默认的块缓存，只使用内存
+     * @return 默认块缓存
+     */
+    public static BlockCache getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * 获取块大小
+     * @return 块大小
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * 获取缓存的块
+     *
+     * @param key 远程文件的键
+     * @param block 块序号
+     * @param length 块的预期长度，最后一块可能小于块大小
+     * @return 块内容，未缓存或长度不符时返回null；调用者不得修改
+     */
+    byte[] get(String key, long block, int length) {
+        String name = blockName(key, block);
+        synchronized (memory) {
+            byte[] data = memory.get(name);
+            if (data != null && data.length == length) {
+                memoryHits.incrementAndGet();
+                return data;
+            }
+        }
+        byte[] data = readDisk(name, length);
+        if (data != null) {
+            diskHits.incrementAndGet();
+            putMemory(name, data);
+            return data;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 缓存新读取的块，同时写入内存和磁盘
+     *
+     * @param key 远程文件的键
+     * @param block 块序号
+     * @param data 块内容，缓存后调用者不得修改
+     */
+    void put(String key, long block, byte[] data) {
+        String name = blockName(key, block);
+        putMemory(name, data);
+        writeDisk(name, data);
+    }
+
+    private void putMemory(String name, byte[] data) {
+        if (data.length > maxMemoryBytes) {
+            return;
+        }
+        synchronized (memory) {
+            byte[] previous = memory.put(name, data);
+            memoryBytes += data.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> iterator = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+                memoryBytes -= iterator.next().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    private byte[] readDisk(String name, int length) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        synchronized (disk) {
+            if (disk.get(name) == null) {
+                return null;
+            }
+        }
+        Path path = diskDirectory.resolve(name);
+        try {
+            byte[] data = Files.readAllBytes(path);
+            if (data.length == length) {
+                return data;
+            }
+        } catch (IOException e) {
+            // 文件已被外部删除或损坏，从记录中移除
+            removeDisk(name);
+            return null;
+        }
+        // 长度不符的块（被截断或由其他程序写入）不再使用
+        removeDisk(name);
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // 忽略删除失败，之后会被同名的块覆盖
+        }
+        return null;
+    }
+
+    private void writeDisk(String name, byte[] data) {
+        if (diskDirectory == null || data.length > maxDiskBytes) {
+            return;
+        }
+        try {
+            Files.createDirectories(diskDirectory);
+            // 先写入临时文件再原子替换，避免其他进程读到不完整的块
+            Path temp = Files.createTempFile(diskDirectory, TEMP_PREFIX, TEMP_SUFFIX);
+            try {
+                Files.write(temp, data);
+                Files.move(temp, diskDirectory.resolve(name), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // 磁盘缓存是可选的，写入失败时只使用内存缓存
+            return;
+        }
+        List<String> evicted = new ArrayList<>();
+        synchronized (disk) {
+            Long previous = disk.put(name, (long) data.length);
+            diskBytes += data.length - (previous != null ? previous : 0);
+            Iterator<Map.Entry<String, Long>> iterator = disk.entrySet().iterator();
+            while (diskBytes > maxDiskBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                diskBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                iterator.remove();
+            }
+        }
+        for (String file : evicted) {
+            try {
+                Files.deleteIfExists(diskDirectory.resolve(file));
+            } catch (IOException e) {
+                // 忽略删除失败，下次启动时重新计入
+            }
+        }
+    }
+
+    private void removeDisk(String name) {
+        synchronized (disk) {
+            Long size = disk.remove(name);
+            if (size != null) {
+                diskBytes -= size;
+            }
+        }
+    }
+
+    private void loadDiskIndex() {
+        if (!Files.isDirectory(diskDirectory)) {
+            return;
+        }
+        List<File> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(diskDirectory, "*" + BLOCK_SUFFIX)) {
+            for (Path path : stream) {
+                files.add(path.toFile());
+            }
+        } catch (IOException e) {
+            return;
+        }
+        deleteStaleTempFiles();
+        // 最早修改的文件最先淘汰
+        files.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        synchronized (disk) {
+            for (File file : files) {
+                disk.put(file.getName(), file.length());
+                diskBytes += file.length();
+            }
+        }
+    }
+
+    /**
+     * 删除中断的写入留下的临时文件，最近创建的可能属于正在写入的其他进程，予以保留
+     */
+    private void deleteStaleTempFiles() {
+        long cutoff = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(diskDirectory, TEMP_PREFIX + "*" + TEMP_SUFFIX)) {
+            for (Path path : stream) {
+                if (path.toFile().lastModified() < cutoff) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            // 清理是尽力而为的，失败时保留临时文件
+        }
+    }
+
+    private String blockName(String key, long block) {
+        return digest(key) + "-" + blockSize + "-" + block + BLOCK_SUFFIX;
+    }
+
+    private static String digest(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                hex.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 清空内存缓存，磁盘缓存保留
+     */
+    public void clearMemory() {
+        synchronized (memory) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+    }
+
+    /**
+     * 获取内存缓存当前占用的字节数
+     * @return 字节数
+     */
+    public long getMemoryBytes() {
+        synchronized (memory) {
+            return memoryBytes;
+        }
+    }
+
+    /**
+     * 获取磁盘缓存当前占用的字节数
+     * @return 字节数
+     */
+    public long getDiskBytes() {
+        synchronized (disk) {
+            return diskBytes;
+        }
+    }
+
+    /**
+     * 获取内存命中次数
+     * @return 命中次数
+     */
+    public long getMemoryHitCount() {
+        return memoryHits.get();
+    }
+
+    /**
+     * 获取磁盘命中次数
+     * @return 命中次数
+     */
+    public long getDiskHitCount() {
+        return diskHits.get();
+    }
+
+    /**
+     * 获取未命中次数，即需要远程读取的块数
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,113 @@
+package fun.lzwi.epubime.zip;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 字节数组池
+ * 复用读取条目时使用的暂存数组，按2的幂划分大小等级，每个等级有空闲数量上限。
+ * 超过最大等级的数组不入池，由调用者直接分配。线程安全，并统计命中和未命中次数
+ */
+public final class ByteArrayPool {
+    /**
+     * 最小的数组长度
+     */
+    public static final int MIN_LENGTH = ZipOperations.BUFFER_SIZE;
+
+    /**
+     * 入池的最大数组长度，更大的数组用完即丢弃
+     */
+    public static final int MAX_POOLED_LENGTH = 1024 * 1024;
+
+    /**
+     * 默认每个大小等级最多保留的空闲数组数量
+     */
+    public static final int DEFAULT_MAX_IDLE = 16;
+
+    // 单例实例
+    private static final ByteArrayPool INSTANCE = new ByteArrayPool(DEFAULT_MAX_IDLE);
+
+    private final BlockingQueue<byte[]>[] idle;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * 创建独立的字节数组池
+     * @param maxIdle 每个大小等级最多保留的空闲数组数量
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ByteArrayPool(int maxIdle) {
+        if (maxIdle <= 0) {
+            throw new IllegalArgumentException("maxIdle must be positive");
+        }
+        int classes = sizeClass(MAX_POOLED_LENGTH) + 1;
+        this.idle = new BlockingQueue[classes];
+        for (int i = 0; i < classes; i++) {
+            idle[i] = new ArrayBlockingQueue<>(maxIdle);
+        }
+    }
+
+    /**
+     * 获取全局共享的字节数组池实例
+     * @return 字节数组池实例
+     */
+    public static ByteArrayPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 借出长度至少为minLength的数组，内容未清零
+     * @param minLength 最小长度
+     * @return 数组，使用完毕后应调用 {@link #release(byte[])}
+     */
+    public byte[] borrow(int minLength) {
+        if (minLength > MAX_POOLED_LENGTH) {
+            misses.incrementAndGet();
+            return new byte[minLength];
+        }
+        int sizeClass = sizeClass(minLength);
+        byte[] array = idle[sizeClass].poll();
+        if (array != null) {
+            hits.incrementAndGet();
+            return array;
+        }
+        misses.incrementAndGet();
+        return new byte[MIN_LENGTH << sizeClass];
+    }
+
+    /**
+     * 归还数组；不是由池分配的长度或所在等级已满时直接丢弃
+     * @param array 借出的数组
+     */
+    public void release(byte[] array) {
+        if (array == null || array.length < MIN_LENGTH || array.length > MAX_POOLED_LENGTH
+                || Integer.bitCount(array.length) != 1) {
+            return;
+        }
+        idle[sizeClass(array.length)].offer(array);
+    }
+
+    private static int sizeClass(int length) {
+        if (length <= MIN_LENGTH) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(length - 1) - Integer.numberOfTrailingZeros(MIN_LENGTH);
+    }
+
+    /**
+     * 获取从池中取得空闲数组的次数
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * 获取新分配数组的次数
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+}
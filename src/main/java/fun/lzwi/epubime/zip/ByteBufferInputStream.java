@@ -0,0 +1,50 @@
+package fun.lzwi.epubime.zip;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 读取ByteBuffer剩余内容的输入流
+ * 直接读取缓冲区，不复制数据；用于以流的形式提供映射文件的切片或缓存的只读视图
+ */
+public final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    /**
+     * 构造函数
+     * @param buffer 要读取的缓冲区，读取时会移动其position，调用者需要共享时应传入duplicate
+     */
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+}
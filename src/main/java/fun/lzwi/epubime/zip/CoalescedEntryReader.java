@@ -0,0 +1,155 @@
+package fun.lzwi.epubime.zip;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.ZipException;
+
+/**
+ * 合并读取器
+ * 将一批条目按本地文件头偏移量排序，把相邻的条目合并为一次大块的顺序读取，
+ * 避免按调用者顺序访问时在大文件中来回寻道（机械硬盘和网络存储上尤其明显）。
+ * 读取通过 {@link FileChannel} 的定位读取完成，而不是依赖内存映射按访问顺序触发的缺页；
+ * 非文件数据源直接按区域从数据源读取。
+ */
+final class CoalescedEntryReader {
+    /**
+     * 相邻条目之间的间隙不超过此值时合并到同一次读取中
+     */
+    static final int DEFAULT_MAX_GAP = 64 * 1024;
+
+    /**
+     * 单次合并读取的最大字节数，超过此值的单个条目单独读取
+     */
+    static final int DEFAULT_MAX_RUN = 8 * 1024 * 1024;
+
+    /**
+     * 接收条目原始数据的回调
+     */
+    @FunctionalInterface
+    interface RawEntryConsumer {
+        /**
+         * @param entry 条目下标
+         * @param raw 条目原始（可能已压缩）数据，position为0；所在的读取块不会被复用，可以保留引用
+         * @throws IOException IO异常
+         */
+        void accept(int entry, ByteBuffer raw) throws IOException;
+    }
+
+    private CoalescedEntryReader() {
+    }
+
+    /**
+     * 按文件中的顺序读取条目，使用默认的合并参数
+     *
+     * @param archive 映射的ZIP文件，用于条目索引和区域边界
+     * @param entries 条目下标，可以包含重复项
+     * @param consumer 按偏移量顺序接收每个条目的原始数据
+     * @return 执行的读取次数
+     * @throws IOException IO异常
+     */
+    static int read(MappedZipFile archive, int[] entries, RawEntryConsumer consumer) throws IOException {
+        return read(archive, entries, DEFAULT_MAX_GAP, DEFAULT_MAX_RUN, consumer);
+    }
+
+    /**
+     * 按文件中的顺序读取条目
+     *
+     * @param archive 映射的ZIP文件，用于条目索引和区域边界
+     * @param entries 条目下标，可以包含重复项
+     * @param maxGap 可合并的最大间隙
+     * @param maxRun 单次合并读取的最大字节数
+     * @param consumer 按偏移量顺序接收每个条目的原始数据
+     * @return 执行的读取次数
+     * @throws IOException IO异常
+     */
+    static int read(MappedZipFile archive, int[] entries, int maxGap, int maxRun, RawEntryConsumer consumer)
+            throws IOException {
+        ZipEntryIndex index = archive.getIndex();
+        int[] sorted = Arrays.stream(entries).distinct()
+                .boxed()
+                .sorted((a, b) -> Long.compare(index.getLocalHeaderOffset(a), index.getLocalHeaderOffset(b)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        if (sorted.length == 0) {
+            return 0;
+        }
+
+        int reads = 0;
+        File file = archive.getFile();
+        try (FileChannel channel = file != null ? FileChannel.open(file.toPath(), StandardOpenOption.READ) : null) {
+            int first = 0;
+            while (first < sorted.length) {
+                long start = index.getLocalHeaderOffset(sorted[first]);
+                long end = archive.getEntryEnd(sorted[first]);
+                int last = first + 1;
+                while (last < sorted.length) {
+                    long next = index.getLocalHeaderOffset(sorted[last]);
+                    long nextEnd = archive.getEntryEnd(sorted[last]);
+                    if (next - end > maxGap || nextEnd - start > maxRun) {
+                        break;
+                    }
+                    end = Math.max(end, nextEnd);
+                    last++;
+                }
+
+                ByteBuffer chunk = channel != null
+                        ? readFully(channel, start, end - start)
+                        : readSource(archive.getSource(), start, end - start);
+                reads++;
+                for (int i = first; i < last; i++) {
+                    consumer.accept(sorted[i], entryData(index, sorted[i], chunk, start));
+                }
+                first = last;
+            }
+        }
+        return reads;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new ZipException("Entry region too large: " + length);
+        }
+        ByteBuffer chunk = ByteBuffer.allocate((int) length);
+        while (chunk.hasRemaining()) {
+            if (channel.read(chunk, position + chunk.position()) < 0) {
+                throw new ZipException("Unexpected end of ZIP file");
+            }
+        }
+        chunk.flip();
+        return chunk;
+    }
+
+    private static ByteBuffer readSource(EpubSource source, long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new ZipException("Entry region too large: " + length);
+        }
+        return source.read(position, (int) length);
+    }
+
+    /**
+     * 从读取块中解析本地文件头并切出条目数据
+     */
+    private static ByteBuffer entryData(ZipEntryIndex index, int entry, ByteBuffer chunk, long chunkStart)
+            throws ZipException {
+        ByteBuffer buf = chunk.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int header = (int) (index.getLocalHeaderOffset(entry) - chunkStart);
+        if (header + ZipEntryIndex.LOC_HEADER_LENGTH > buf.limit()
+                || buf.getInt(header) != ZipEntryIndex.LOC_SIGNATURE) {
+            throw new ZipException("Invalid local file header for entry: " + index.getName(entry));
+        }
+        int nameLength = buf.getShort(header + 26) & 0xFFFF;
+        int extraLength = buf.getShort(header + 28) & 0xFFFF;
+        long offset = (long) header + ZipEntryIndex.LOC_HEADER_LENGTH + nameLength + extraLength;
+        if (offset + index.getCompressedSize(entry) > buf.limit()) {
+            throw new ZipException("Entry data exceeds archive bounds: " + index.getName(entry));
+        }
+        buf.position((int) offset);
+        buf.limit((int) (offset + index.getCompressedSize(entry)));
+        return buf.slice();
+    }
+}
@@ -0,0 +1,470 @@
+package fun.lzwi.epubime.zip;
+
+import java.nio.ByteBuffer;
+import java.util.zip.ZipException;
+
+/**
+ * 纯Java实现的原始DEFLATE（RFC 1951）解码器
+ * 与 {@link java.util.zip.Inflater} 不同，它可以报告块边界处的比特位置，
+ * 并可以从记录的块边界配合32KB历史窗口恢复解码，用于在压缩条目内建立检查点实现随机访问。
+ * 实例不是线程安全的。
+ */
+final class DeflateDecoder {
+    /**
+     * DEFLATE历史窗口大小
+     */
+    static final int WINDOW_SIZE = 32768;
+    private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+
+    private static final int FAST_BITS = 9;
+    private static final int FAST_MASK = (1 << FAST_BITS) - 1;
+
+    private static final int STATE_HEADER = 0;
+    private static final int STATE_STORED = 1;
+    private static final int STATE_HUFFMAN = 2;
+    private static final int STATE_DONE = 3;
+
+    private static final int[] LENGTH_BASE = {
+            3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+            35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258};
+    private static final int[] LENGTH_EXTRA = {
+            0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+            3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0};
+    private static final int[] DIST_BASE = {
+            1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
+            257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577};
+    private static final int[] DIST_EXTRA = {
+            0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
+            7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13};
+    private static final int[] CODE_LENGTH_ORDER = {
+            16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15};
+
+    private static final Huffman FIXED_LITERALS;
+    private static final Huffman FIXED_DISTANCES;
+
+    static {
+        byte[] lengths = new byte[288];
+        for (int i = 0; i < 288; i++) {
+            lengths[i] = (byte) (i < 144 ? 8 : i < 256 ? 9 : i < 280 ? 7 : 8);
+        }
+        byte[] distances = new byte[32];
+        java.util.Arrays.fill(distances, (byte) 5);
+        try {
+            FIXED_LITERALS = new Huffman(lengths, 288);
+            FIXED_DISTANCES = new Huffman(distances, 32);
+        } catch (ZipException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final ByteBuffer in;
+    private final int inLimit;
+    private int inPos;
+    private long bitBuffer;
+    private int bitCount;
+    // 输入耗尽后补充的零比特数量，被实际消耗时说明数据被截断
+    private int paddingBits;
+
+    private final byte[] window = new byte[WINDOW_SIZE];
+    private long outPos;
+    private long historyStart;
+
+    private int state = STATE_HEADER;
+    private boolean lastBlock;
+    private int storedRemaining;
+    private Huffman literals;
+    private Huffman distances;
+    private int copyLength;
+    private int copyDistance;
+
+    /**
+     * 从压缩数据开头开始解码
+     * @param in 压缩数据，使用绝对下标访问，不修改其position
+     */
+    DeflateDecoder(ByteBuffer in) {
+        this.in = in;
+        this.inLimit = in.limit();
+    }
+
+    /**
+     * 从块边界检查点恢复解码
+     * @param in 压缩数据
+     * @param bitPosition 块头在压缩数据中的比特位置
+     * @param outPosition 检查点处的解压位置
+     * @param history 检查点之前最多32KB的解压数据
+     */
+    DeflateDecoder(ByteBuffer in, long bitPosition, long outPosition, byte[] history) {
+        this(in);
+        this.inPos = (int) (bitPosition >>> 3);
+        int skip = (int) (bitPosition & 7);
+        if (skip > 0) {
+            refill();
+            bitBuffer >>>= skip;
+            bitCount -= skip;
+        }
+        this.outPos = outPosition;
+        this.historyStart = outPosition - history.length;
+        for (int i = 0; i < history.length; i++) {
+            window[(int) ((historyStart + i) & WINDOW_MASK)] = history[i];
+        }
+    }
+
+    /**
+     * 获取已解压的字节数（恢复解码时包括检查点之前的部分）
+     * @return 解压位置
+     */
+    long getOutPosition() {
+        return outPos;
+    }
+
+    /**
+     * 判断是否位于块边界，即下一次读取将从新的块头开始
+     * @return 如果位于块边界返回true
+     */
+    boolean isAtBlockBoundary() {
+        return state == STATE_HEADER && copyLength == 0 && !lastBlock;
+    }
+
+    /**
+     * 判断是否已解码到最后一个块的末尾
+     * @return 如果已结束返回true
+     */
+    boolean isFinished() {
+        return state == STATE_DONE || (state == STATE_HEADER && lastBlock && copyLength == 0);
+    }
+
+    /**
+     * 获取下一个待读取比特在压缩数据中的位置
+     * @return 比特位置
+     */
+    long getBitPosition() {
+        return (long) inPos * 8 - bitCount;
+    }
+
+    /**
+     * 复制当前历史窗口中最近的数据，用于建立检查点
+     * @return 最多32KB的历史数据
+     */
+    byte[] copyHistory() {
+        int length = (int) Math.min(WINDOW_SIZE, outPos - historyStart);
+        byte[] history = new byte[length];
+        long start = outPos - length;
+        for (int i = 0; i < length; i++) {
+            history[i] = window[(int) ((start + i) & WINDOW_MASK)];
+        }
+        return history;
+    }
+
+    /**
+     * 解码数据，读到块末尾时提前返回，使调用者可以在块边界处记录检查点
+     *
+     * @param b 目标数组
+     * @param off 起始偏移
+     * @param len 最多读取的字节数
+     * @return 读取的字节数，数据结束时返回-1
+     * @throws ZipException 压缩数据无效
+     */
+    int read(byte[] b, int off, int len) throws ZipException {
+        int n = 0;
+        while (n < len) {
+            if (copyLength > 0) {
+                int count = Math.min(copyLength, len - n);
+                long src = outPos - copyDistance;
+                for (int i = 0; i < count; i++) {
+                    byte value = window[(int) ((src + i) & WINDOW_MASK)];
+                    window[(int) ((outPos + i) & WINDOW_MASK)] = value;
+                    b[off + n + i] = value;
+                }
+                outPos += count;
+                copyLength -= count;
+                n += count;
+                continue;
+            }
+            switch (state) {
+                case STATE_HEADER:
+                    if (lastBlock) {
+                        state = STATE_DONE;
+                        continue;
+                    }
+                    if (n > 0) {
+                        // 在块边界处返回
+                        return n;
+                    }
+                    readBlockHeader();
+                    break;
+                case STATE_STORED:
+                    n += readStored(b, off + n, len - n);
+                    if (storedRemaining == 0) {
+                        state = STATE_HEADER;
+                    }
+                    break;
+                case STATE_HUFFMAN:
+                    int symbol = decode(literals);
+                    if (symbol < 256) {
+                        window[(int) (outPos & WINDOW_MASK)] = (byte) symbol;
+                        outPos++;
+                        b[off + n++] = (byte) symbol;
+                    } else if (symbol == 256) {
+                        state = STATE_HEADER;
+                    } else {
+                        readCopy(symbol);
+                    }
+                    break;
+                default:
+                    return n > 0 ? n : -1;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 解码并丢弃数据
+     *
+     * @param count 要跳过的字节数
+     * @param scratch 暂存数组
+     * @return 实际跳过的字节数
+     * @throws ZipException 压缩数据无效
+     */
+    long skip(long count, byte[] scratch) throws ZipException {
+        long skipped = 0;
+        while (skipped < count) {
+            int n = read(scratch, 0, (int) Math.min(scratch.length, count - skipped));
+            if (n < 0) {
+                break;
+            }
+            skipped += n;
+        }
+        return skipped;
+    }
+
+    private void readBlockHeader() throws ZipException {
+        lastBlock = bits(1) == 1;
+        int type = bits(2);
+        switch (type) {
+            case 0:
+                // 存储块：跳到字节边界后读取LEN和NLEN
+                dropBits(bitCount & 7);
+                int length = bits(16);
+                int inverse = bits(16);
+                if ((length ^ 0xFFFF) != inverse) {
+                    throw new ZipException("Invalid stored block length");
+                }
+                storedRemaining = length;
+                state = length > 0 ? STATE_STORED : STATE_HEADER;
+                break;
+            case 1:
+                literals = FIXED_LITERALS;
+                distances = FIXED_DISTANCES;
+                state = STATE_HUFFMAN;
+                break;
+            case 2:
+                readDynamicTables();
+                state = STATE_HUFFMAN;
+                break;
+            default:
+                throw new ZipException("Invalid deflate block type");
+        }
+    }
+
+    private int readStored(byte[] b, int off, int len) throws ZipException {
+        int count = Math.min(storedRemaining, len);
+        int n = 0;
+        // 先消耗比特缓冲区中剩余的整字节
+        while (n < count && bitCount >= 8) {
+            b[off + n++] = (byte) bits(8);
+        }
+        if (n < count) {
+            int direct = count - n;
+            if (inPos + direct > inLimit) {
+                throw new ZipException("Unexpected end of deflate data");
+            }
+            for (int i = 0; i < direct; i++) {
+                b[off + n + i] = in.get(inPos + i);
+            }
+            inPos += direct;
+            n = count;
+        }
+        for (int i = 0; i < count; i++) {
+            window[(int) ((outPos + i) & WINDOW_MASK)] = b[off + i];
+        }
+        outPos += count;
+        storedRemaining -= count;
+        return count;
+    }
+
+    private void readCopy(int symbol) throws ZipException {
+        int lengthIndex = symbol - 257;
+        if (lengthIndex >= LENGTH_BASE.length) {
+            throw new ZipException("Invalid deflate length code");
+        }
+        int length = LENGTH_BASE[lengthIndex] + bits(LENGTH_EXTRA[lengthIndex]);
+        int distanceIndex = decode(distances);
+        if (distanceIndex >= DIST_BASE.length) {
+            throw new ZipException("Invalid deflate distance code");
+        }
+        int distance = DIST_BASE[distanceIndex] + bits(DIST_EXTRA[distanceIndex]);
+        if (distance > outPos - historyStart) {
+            throw new ZipException("Invalid deflate distance too far back");
+        }
+        copyLength = length;
+        copyDistance = distance;
+    }
+
+    private void readDynamicTables() throws ZipException {
+        int literalCount = bits(5) + 257;
+        int distanceCount = bits(5) + 1;
+        int codeLengthCount = bits(4) + 4;
+
+        byte[] codeLengthLengths = new byte[19];
+        for (int i = 0; i < codeLengthCount; i++) {
+            codeLengthLengths[CODE_LENGTH_ORDER[i]] = (byte) bits(3);
+        }
+        Huffman codeLengths = new Huffman(codeLengthLengths, 19);
+
+        byte[] lengths = new byte[literalCount + distanceCount];
+        int i = 0;
+        while (i < lengths.length) {
+            int symbol = decode(codeLengths);
+            if (symbol < 16) {
+                lengths[i++] = (byte) symbol;
+                continue;
+            }
+            int repeat;
+            byte value = 0;
+            if (symbol == 16) {
+                if (i == 0) {
+                    throw new ZipException("Invalid deflate code length repeat");
+                }
+                value = lengths[i - 1];
+                repeat = 3 + bits(2);
+            } else if (symbol == 17) {
+                repeat = 3 + bits(3);
+            } else if (symbol == 18) {
+                repeat = 11 + bits(7);
+            } else {
+                throw new ZipException("Invalid deflate code length symbol");
+            }
+            if (i + repeat > lengths.length) {
+                throw new ZipException("Invalid deflate code lengths");
+            }
+            java.util.Arrays.fill(lengths, i, i + repeat, value);
+            i += repeat;
+        }
+        if (lengths[256] == 0) {
+            throw new ZipException("Missing deflate end-of-block code");
+        }
+        literals = new Huffman(java.util.Arrays.copyOf(lengths, literalCount), literalCount);
+        distances = new Huffman(java.util.Arrays.copyOfRange(lengths, literalCount, lengths.length), distanceCount);
+    }
+
+    private int decode(Huffman huffman) throws ZipException {
+        if (bitCount < 16) {
+            refill();
+        }
+        int entry = huffman.fast[(int) (bitBuffer & FAST_MASK)];
+        if (entry != 0) {
+            dropBits(entry >>> 9);
+            return entry & 511;
+        }
+        int k = Integer.reverse((int) (bitBuffer & 0xFFFF)) >>> 16;
+        int s = FAST_BITS + 1;
+        while (k >= huffman.maxCode[s]) {
+            s++;
+        }
+        if (s >= 16) {
+            throw new ZipException("Invalid deflate Huffman code");
+        }
+        int b = (k >>> (16 - s)) - huffman.firstCode[s] + huffman.firstSymbol[s];
+        if (b >= huffman.sizes.length || huffman.sizes[b] != s) {
+            throw new ZipException("Invalid deflate Huffman code");
+        }
+        dropBits(s);
+        return huffman.values[b];
+    }
+
+    private int bits(int count) throws ZipException {
+        if (count == 0) {
+            return 0;
+        }
+        if (bitCount < count) {
+            refill();
+        }
+        int value = (int) (bitBuffer & ((1L << count) - 1));
+        dropBits(count);
+        return value;
+    }
+
+    private void dropBits(int count) throws ZipException {
+        bitBuffer >>>= count;
+        bitCount -= count;
+        if (bitCount < paddingBits) {
+            throw new ZipException("Unexpected end of deflate data");
+        }
+    }
+
+    private void refill() {
+        while (bitCount <= 56) {
+            if (inPos < inLimit) {
+                bitBuffer |= (long) (in.get(inPos++) & 0xFF) << bitCount;
+            } else {
+                paddingBits += 8;
+            }
+            bitCount += 8;
+        }
+    }
+
+    /**
+     * 规范Huffman解码表：低位快速查找表加按码长比较的慢速路径
+     */
+    private static final class Huffman {
+        final short[] fast = new short[1 << FAST_BITS];
+        final int[] firstCode = new int[16];
+        final int[] firstSymbol = new int[16];
+        final int[] maxCode = new int[17];
+        final byte[] sizes;
+        final short[] values;
+
+        Huffman(byte[] lengths, int count) throws ZipException {
+            sizes = new byte[count];
+            values = new short[count];
+            int[] lengthCounts = new int[17];
+            for (int i = 0; i < count; i++) {
+                lengthCounts[lengths[i]]++;
+            }
+            lengthCounts[0] = 0;
+            int[] nextCode = new int[16];
+            int code = 0;
+            int symbol = 0;
+            for (int i = 1; i < 16; i++) {
+                nextCode[i] = code;
+                firstCode[i] = code;
+                firstSymbol[i] = symbol;
+                code += lengthCounts[i];
+                if (lengthCounts[i] != 0 && code - 1 >= (1 << i)) {
+                    throw new ZipException("Invalid deflate Huffman table");
+                }
+                maxCode[i] = code << (16 - i);
+                code <<= 1;
+                symbol += lengthCounts[i];
+            }
+            maxCode[16] = 0x10000;
+            for (int i = 0; i < count; i++) {
+                int length = lengths[i];
+                if (length == 0) {
+                    continue;
+                }
+                int c = nextCode[length] - firstCode[length] + firstSymbol[length];
+                sizes[c] = (byte) length;
+                values[c] = (short) i;
+                if (length <= FAST_BITS) {
+                    int j = Integer.reverse(nextCode[length]) >>> (32 - length);
+                    while (j < (1 << FAST_BITS)) {
+                        fast[j] = (short) ((length << 9) | i);
+                        j += 1 << length;
+                    }
+                }
+                nextCode[length]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package fun.lzwi.epubime.zip;
+
+import fun.lzwi.epubime.cache.EpubCacheManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.zip.ZipException;
+
+/**
+ * EPUB数据源
+ * 对EPUB内容所在位置的抽象，可以是本地文件、内存中的字节数组/ByteBuffer、任意 {@link SeekableByteChannel}，
+ * 或通过 {@link RangeReader} 按范围读取的远程文件。
+ * 内存中的EPUB无需先写入磁盘即可解析和读取；每个数据源只解析一次中央目录，
+ * 之后按条目所在的区域随机读取。数据源实例线程安全，应在多次读取之间复用以共享索引和内容缓存。
+ */
+public abstract class EpubSource {
+    // 非文件数据源在首次读取时解析的ZIP索引
+    private volatile MappedZipFile archive;
+
+    EpubSource() {
+    }
+
+    /**
+     * 创建基于本地文件的数据源
+     * 读取通过共享的内存映射完成，与按 {@link File} 读取的方法共用缓存
+     *
+     * @param file EPUB文件
+     * @return 数据源
+     */
+    public static EpubSource fromFile(File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("EPUB file cannot be null");
+        }
+        return new FileSource(file);
+    }
+
+    /**
+     * 创建基于字节数组的数据源，不复制数组，调用者之后不应修改数组内容
+     *
+     * @param data EPUB文件内容
+     * @return 数据源
+     */
+    public static EpubSource fromBytes(byte[] data) {
+        return fromBytes(data, "memory.epub");
+    }
+
+    /**
+     * 创建基于字节数组的数据源，不复制数组，调用者之后不应修改数组内容
+     *
+     * @param data EPUB文件内容
+     * @param name 数据源名称，用于错误信息
+     * @return 数据源
+     */
+    public static EpubSource fromBytes(byte[] data, String name) {
+        if (data == null) {
+            throw new IllegalArgumentException("EPUB data cannot be null");
+        }
+        return new BufferSource(ByteBuffer.wrap(data), name);
+    }
+
+    /**
+     * 创建基于ByteBuffer的数据源，使用position到limit之间的内容，不复制数据
+     *
+     * @param buffer EPUB文件内容，可以是直接缓冲区或映射缓冲区
+     * @return 数据源
+     */
+    public static EpubSource fromBuffer(ByteBuffer buffer) {
+        return fromBuffer(buffer, "memory.epub");
+    }
+
+    /**
+     * 创建基于ByteBuffer的数据源，使用position到limit之间的内容，不复制数据
+     *
+     * @param buffer EPUB文件内容，可以是直接缓冲区或映射缓冲区
+     * @param name 数据源名称，用于错误信息
+     * @return 数据源
+     */
+    public static EpubSource fromBuffer(ByteBuffer buffer, String name) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("EPUB buffer cannot be null");
+        }
+        return new BufferSource(buffer.slice(), name);
+    }
+
+    /**
+     * 创建基于可定位通道的数据源
+     * 只读取中央目录和实际访问的条目区域，不会把整个通道读入内存；通道由调用者关闭
+     *
+     * @param channel 可定位通道，内容在数据源使用期间不应改变
+     * @return 数据源
+     */
+    public static EpubSource fromChannel(SeekableByteChannel channel) {
+        return fromChannel(channel, "channel.epub");
+    }
+
+    /**
+     * 创建基于可定位通道的数据源
+     * 只读取中央目录和实际访问的条目区域，不会把整个通道读入内存；通道由调用者关闭
+     *
+     * @param channel 可定位通道，内容在数据源使用期间不应改变
+     * @param name 数据源名称，用于错误信息
+     * @return 数据源
+     */
+    public static EpubSource fromChannel(SeekableByteChannel channel, String name) {
+        if (channel == null) {
+            throw new IllegalArgumentException("EPUB channel cannot be null");
+        }
+        return new ChannelSource(channel, name);
+    }
+
+    /**
+     * 创建通过范围读取访问远程EPUB的数据源，使用默认的内存块缓存
+     * 打开时只读取文件末尾的中央目录，之后只读取实际访问的条目所在的块
+     *
+     * @param reader 范围读取实现
+     * @param key 唯一标识远程文件内容的键（如URL加ETag），用作块缓存的键
+     * @return 数据源
+     */
+    public static EpubSource fromRemote(RangeReader reader, String key) {
+        return fromRemote(reader, key, BlockCache.getDefault());
+    }
+
+    /**
+     * 创建通过范围读取访问远程EPUB的数据源
+     *
+     * @param reader 范围读取实现
+     * @param key 唯一标识远程文件内容的键（如URL加ETag），用作块缓存的键
+     * @param cache 块缓存，可以在多个数据源之间共享，也可以配置磁盘缓存
+     * @return 数据源
+     */
+    public static EpubSource fromRemote(RangeReader reader, String key, BlockCache cache) {
+        if (reader == null) {
+            throw new IllegalArgumentException("Range reader cannot be null");
+        }
+        if (key == null) {
+            throw new IllegalArgumentException("Remote key cannot be null");
+        }
+        if (cache == null) {
+            throw new IllegalArgumentException("Block cache cannot be null");
+        }
+        return new RangeSource(reader, key, cache);
+    }
+
+    /**
+     * 获取数据源名称
+     * @return 名称
+     */
+    public abstract String getName();
+
+    /**
+     * 获取数据源对应的本地文件
+     * @return 本地文件，非文件数据源返回null
+     */
+    public File getFile() {
+        return null;
+    }
+
+    /**
+     * 获取在指定缓存命名空间中读取内容和缓存解析结果的数据源
+     * 命名空间在数据源创建时确定，不可更改；返回的数据源与当前数据源共享ZIP索引，当前数据源不受影响
+     *
+     * @param namespace 命名空间名称，null或 {@link EpubCacheManager#DEFAULT_NAMESPACE} 表示默认命名空间
+     * @return 使用该命名空间的数据源，命名空间相同时返回当前数据源
+     * @see EpubCacheManager#getNamespace(String)
+     */
+    public EpubSource withCacheNamespace(String namespace) {
+        if (namespace != null && namespace.isEmpty()) {
+            throw new IllegalArgumentException("Namespace name cannot be empty");
+        }
+        if (EpubCacheManager.DEFAULT_NAMESPACE.equals(namespace)) {
+            namespace = null;
+        }
+        if (namespace == null ? getCacheNamespace() == null : namespace.equals(getCacheNamespace())) {
+            return this;
+        }
+        EpubSource base = getContentSource();
+        return namespace == null ? base : new NamespacedSource(base, namespace);
+    }
+
+    /**
+     * 获取缓存命名空间
+     * @return 命名空间名称，默认命名空间返回null
+     */
+    public String getCacheNamespace() {
+        return null;
+    }
+
+    /**
+     * 获取数据源所在命名空间的缓存管理器
+     * @return 缓存管理器
+     */
+    public EpubCacheManager getCacheManager() {
+        return EpubCacheManager.getNamespace(getCacheNamespace());
+    }
+
+    /**
+     * 获取实际提供内容的数据源，缓存管理器按该数据源区分缓存
+     * @return 指定了命名空间的数据源返回原数据源，否则返回当前数据源
+     */
+    public EpubSource getContentSource() {
+        return this;
+    }
+
+    /**
+     * 获取数据源的总字节数
+     * @return 字节数
+     * @throws IOException IO异常
+     */
+    public abstract long size() throws IOException;
+
+    /**
+     * 获取数据源在Java堆中持有的字节数，用于估算引用该数据源的缓存条目的占用
+     * @return 字节数，文件、通道、远程和直接内存中的数据源返回0
+     */
+    public long getRetainedBytes() {
+        return 0;
+    }
+
+    /**
+     * 读取指定区域的内容
+     *
+     * @param position 起始位置
+     * @param length 字节数
+     * @return 只读的内容，position为0，limit为length；可能是底层缓冲区的视图
+     * @throws IOException 区域超出数据源范围或读取失败
+     */
+    abstract ByteBuffer read(long position, int length) throws IOException;
+
+    /**
+     * 获取数据源的ZIP索引，首次调用时解析中央目录
+     *
+     * @return ZIP文件读取器
+     * @throws IOException 格式错误或读取失败
+     */
+    MappedZipFile openArchive() throws IOException {
+        MappedZipFile opened = archive;
+        if (opened == null) {
+            synchronized (this) {
+                opened = archive;
+                if (opened == null) {
+                    opened = MappedZipFile.open(this);
+                    archive = opened;
+                }
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * 将清单中的href解析为实际的条目名称
+     * 通过每个归档只构建一次的规范化名称表查找，处理百分号编码、"./"段和可选的大小写差异，
+     * 解析结果可直接用于之后的精确查找
+     *
+     * @param href 条目名称或清单中的href
+     * @param ignoreCase 是否忽略大小写
+     * @return 实际的条目名称，不存在时返回null；无法建立索引的文件（如ZIP64）原样返回href
+     * @throws IOException 格式错误或读取失败
+     */
+    public String resolveEntryName(String href, boolean ignoreCase) throws IOException {
+        if (href == null) {
+            return null;
+        }
+        MappedZipFile opened = getFile() != null ? MappedZipFile.openIfSupported(getFile()) : openArchive();
+        if (opened == null) {
+            return href;
+        }
+        ZipEntryIndex index = opened.getIndex();
+        int entry = index.resolve(href, ignoreCase);
+        return entry >= 0 ? index.getName(entry) : null;
+    }
+
+    /**
+     * 获取条目解压后的大小，只读取中央目录索引
+     *
+     * @param name 条目名称
+     * @return 解压后的大小，条目不存在或无法建立索引时返回-1
+     * @throws IOException 格式错误或读取失败
+     */
+    public long getEntrySize(String name) throws IOException {
+        MappedZipFile opened = getFile() != null ? MappedZipFile.openIfSupported(getFile()) : openArchive();
+        if (opened == null || name == null) {
+            return -1;
+        }
+        int entry = opened.findEntry(name);
+        return entry >= 0 ? opened.getIndex().getSize(entry) : -1;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + getName() + "]";
+    }
+
+    static void checkBounds(long position, int length, long size) throws ZipException {
+        if (position < 0 || length < 0 || position + length > size) {
+            throw new ZipException("Read beyond end of EPUB source: " + position + "+" + length + " > " + size);
+        }
+    }
+
+    /**
+     * 本地文件数据源，读取委托给按文件缓存的内存映射
+     */
+    private static final class FileSource extends EpubSource {
+        private final File file;
+
+        FileSource(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public String getName() {
+            return file.getName();
+        }
+
+        @Override
+        public File getFile() {
+            return file;
+        }
+
+        @Override
+        public long size() {
+            return file.length();
+        }
+
+        @Override
+        ByteBuffer read(long position, int length) throws IOException {
+            return openArchive().getSource().read(position, length);
+        }
+
+        @Override
+        MappedZipFile openArchive() throws IOException {
+            // 使用按文件身份缓存的映射，文件变化后自动重新映射
+            return MappedZipFile.open(file);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FileSource && file.equals(((FileSource) o).file);
+        }
+
+        @Override
+        public int hashCode() {
+            return file.hashCode();
+        }
+    }
+
+    /**
+     * 内存数据源，读取返回底层缓冲区的只读视图
+     */
+    static final class BufferSource extends EpubSource {
+        private final ByteBuffer buffer;
+        private final String name;
+
+        BufferSource(ByteBuffer buffer, String name) {
+            this.buffer = buffer.asReadOnlyBuffer();
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long size() {
+            return buffer.limit();
+        }
+
+        @Override
+        public long getRetainedBytes() {
+            return buffer.isDirect() ? 0 : buffer.capacity();
+        }
+
+        @Override
+        ByteBuffer read(long position, int length) throws IOException {
+            checkBounds(position, length, buffer.limit());
+            ByteBuffer view = buffer.duplicate();
+            view.position((int) position);
+            view.limit((int) position + length);
+            return view.slice();
+        }
+    }
+
+    /**
+     * 通道数据源，按需读取指定区域
+     * {@link FileChannel} 使用不改变通道位置的定位读取，其他通道在锁内设置位置后读取
+     */
+    private static final class ChannelSource extends EpubSource {
+        private final SeekableByteChannel channel;
+        private final String name;
+
+        ChannelSource(SeekableByteChannel channel, String name) {
+            this.channel = channel;
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        ByteBuffer read(long position, int length) throws IOException {
+            checkBounds(position, length, channel.size());
+            ByteBuffer dst = ByteBuffer.allocate(length);
+            if (channel instanceof FileChannel) {
+                FileChannel fileChannel = (FileChannel) channel;
+                while (dst.hasRemaining()) {
+                    if (fileChannel.read(dst, position + dst.position()) < 0) {
+                        throw new ZipException("Unexpected end of EPUB source: " + name);
+                    }
+                }
+            } else {
+                synchronized (channel) {
+                    channel.position(position);
+                    while (dst.hasRemaining()) {
+                        if (channel.read(dst) < 0) {
+                            throw new ZipException("Unexpected end of EPUB source: " + name);
+                        }
+                    }
+                }
+            }
+            dst.flip();
+            return dst.asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * 指定缓存命名空间的数据源，读取和ZIP索引委托给原数据源
+     */
+    private static final class NamespacedSource extends EpubSource {
+        private final EpubSource delegate;
+        private final String namespace;
+
+        NamespacedSource(EpubSource delegate, String namespace) {
+            this.delegate = delegate;
+            this.namespace = namespace;
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public File getFile() {
+            return delegate.getFile();
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public long getRetainedBytes() {
+            return delegate.getRetainedBytes();
+        }
+
+        @Override
+        public String getCacheNamespace() {
+            return namespace;
+        }
+
+        @Override
+        public EpubSource getContentSource() {
+            return delegate;
+        }
+
+        @Override
+        ByteBuffer read(long position, int length) throws IOException {
+            return delegate.read(position, length);
+        }
+
+        @Override
+        MappedZipFile openArchive() throws IOException {
+            return delegate.openArchive();
+        }
+
+        @Override
+        public String toString() {
+            return delegate + "@" + namespace;
+        }
+    }
+}
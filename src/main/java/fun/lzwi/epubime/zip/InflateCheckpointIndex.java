@@ -0,0 +1,144 @@
+package fun.lzwi.epubime.zip;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipException;
+
+/**
+ * DEFLATED条目的解压检查点索引
+ * 完整解压一次条目，在间隔不小于指定大小的块边界处记录比特位置、解压位置和32KB历史窗口，
+ * 之后的随机读取只需从最近的检查点开始解压。每个检查点约占用32KB内存。
+ * 实例不可变且线程安全。
+ */
+final class InflateCheckpointIndex {
+    /**
+     * 默认检查点间隔（解压后的字节数）
+     */
+    static final int DEFAULT_SPACING = 256 * 1024;
+
+    private final int spacing;
+    private final long[] bitPositions;
+    private final long[] outPositions;
+    private final byte[][] histories;
+
+    private InflateCheckpointIndex(int spacing, long[] bitPositions, long[] outPositions, byte[][] histories) {
+        this.spacing = spacing;
+        this.bitPositions = bitPositions;
+        this.outPositions = outPositions;
+        this.histories = histories;
+    }
+
+    /**
+     * 解压整个条目并建立检查点索引
+     *
+     * @param raw 压缩数据
+     * @param size 中央目录记录的解压大小
+     * @param spacing 检查点间隔
+     * @param name 条目名称，用于错误信息
+     * @return 检查点索引
+     * @throws ZipException 数据损坏或大小与中央目录记录不一致
+     */
+    static InflateCheckpointIndex build(ByteBuffer raw, long size, int spacing, String name) throws ZipException {
+        if (spacing <= 0) {
+            throw new IllegalArgumentException("spacing must be positive");
+        }
+        List<long[]> positions = new ArrayList<>();
+        List<byte[]> histories = new ArrayList<>();
+        positions.add(new long[]{0, 0});
+        histories.add(new byte[0]);
+
+        DeflateDecoder decoder = new DeflateDecoder(raw);
+        byte[] scratch = new byte[ZipOperations.BUFFER_SIZE * 8];
+        long lastCheckpoint = 0;
+        while (decoder.read(scratch, 0, scratch.length) >= 0) {
+            // read在块末尾返回，此时可以记录下一个块的起点
+            if (decoder.isAtBlockBoundary() && decoder.getOutPosition() - lastCheckpoint >= spacing) {
+                lastCheckpoint = decoder.getOutPosition();
+                positions.add(new long[]{decoder.getBitPosition(), lastCheckpoint});
+                histories.add(decoder.copyHistory());
+            }
+        }
+        if (decoder.getOutPosition() != size) {
+            throw new ZipException("Entry size mismatch for " + name + ": expected " + size
+                    + " bytes, got " + decoder.getOutPosition());
+        }
+
+        long[] bitPositions = new long[positions.size()];
+        long[] outPositions = new long[positions.size()];
+        for (int i = 0; i < positions.size(); i++) {
+            bitPositions[i] = positions.get(i)[0];
+            outPositions[i] = positions.get(i)[1];
+        }
+        return new InflateCheckpointIndex(spacing, bitPositions, outPositions, histories.toArray(new byte[0][]));
+    }
+
+    /**
+     * 获取建立索引时使用的检查点间隔
+     * @return 检查点间隔
+     */
+    int getSpacing() {
+        return spacing;
+    }
+
+    /**
+     * 估算索引占用的内存，主要是每个检查点的历史窗口
+     * @return 字节数
+     */
+    long getRetainedBytes() {
+        long bytes = 64 + 2L * 8 * outPositions.length;
+        for (byte[] history : histories) {
+            bytes += 16 + history.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * 获取检查点数量（包括条目起点）
+     * @return 检查点数量
+     */
+    int size() {
+        return outPositions.length;
+    }
+
+    /**
+     * 获取检查点的解压位置
+     * @param checkpoint 检查点下标
+     * @return 解压位置
+     */
+    long getOutPosition(int checkpoint) {
+        return outPositions[checkpoint];
+    }
+
+    /**
+     * 查找解压位置不大于指定位置的最后一个检查点
+     * @param position 解压后的位置
+     * @return 检查点下标
+     */
+    int floor(long position) {
+        int low = 0;
+        int high = outPositions.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (outPositions[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 创建从指定检查点开始解压的解码器
+     * @param raw 压缩数据
+     * @param checkpoint 检查点下标
+     * @return 解码器
+     */
+    DeflateDecoder decoderAt(ByteBuffer raw, int checkpoint) {
+        if (checkpoint == 0) {
+            return new DeflateDecoder(raw);
+        }
+        return new DeflateDecoder(raw, bitPositions[checkpoint], outPositions[checkpoint], histories[checkpoint]);
+    }
+}
@@ -0,0 +1,125 @@
+package fun.lzwi.epubime.zip;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Inflater;
+
+/**
+ * 解压器池
+ * 复用原始DEFLATE格式（nowrap）的 {@link Inflater}，避免每次读取条目都分配新的本地解压器。
+ * 池有容量上限且线程安全，归还时重置解压器，并统计命中、未命中和因池满而释放的次数
+ */
+public final class InflaterPool {
+    /**
+     * 默认最多保留的空闲解压器数量
+     */
+    public static final int DEFAULT_MAX_IDLE = 32;
+
+    // 单例实例
+    private static final InflaterPool INSTANCE = new InflaterPool(DEFAULT_MAX_IDLE);
+
+    private final BlockingQueue<Inflater> idle;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong discards = new AtomicLong();
+
+    /**
+     * 创建独立的解压器池
+     * @param maxIdle 最多保留的空闲解压器数量
+     */
+    public InflaterPool(int maxIdle) {
+        if (maxIdle <= 0) {
+            throw new IllegalArgumentException("maxIdle must be positive");
+        }
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /**
+     * 获取全局共享的解压器池实例
+     * @return 解压器池实例
+     */
+    public static InflaterPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 借出一个解压器
+     * @return 处于初始状态的解压器，使用完毕后必须调用 {@link #release(Inflater)}
+     */
+    public Inflater borrow() {
+        Inflater inflater = idle.poll();
+        if (inflater != null) {
+            hits.incrementAndGet();
+            return inflater;
+        }
+        misses.incrementAndGet();
+        return new Inflater(true);
+    }
+
+    /**
+     * 归还解压器，重置后放回池中；池已满时直接释放本地资源
+     * @param inflater 借出的解压器
+     */
+    public void release(Inflater inflater) {
+        if (inflater == null) {
+            return;
+        }
+        inflater.reset();
+        if (!idle.offer(inflater)) {
+            discards.incrementAndGet();
+            inflater.end();
+        }
+    }
+
+    /**
+     * 获取当前空闲的解压器数量
+     * @return 空闲解压器数量
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * 获取从池中取得空闲解压器的次数
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * 获取池为空而新建解压器的次数
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * 获取归还时因池满而直接释放的解压器数量
+     * @return 释放次数
+     */
+    public long getDiscardCount() {
+        return discards.get();
+    }
+
+    /**
+     * 获取命中率
+     * @return 命中次数占借出次数的比例，尚未借出时返回0
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * 重置统计信息
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        discards.set(0);
+    }
+}
@@ -0,0 +1,745 @@
+package fun.lzwi.epubime.zip;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * 基于内存映射的ZIP文件读取器
+ * 使用 {@link FileChannel#map} 映射整个EPUB文件，只解析一次中央目录并生成 {@link ZipEntryIndex}。
+ * 实例不可变且线程安全，按文件身份缓存并在多次打开之间复用；映射建立后不再占用文件描述符。
+ * 文件大小或修改时间变化后会重新映射和解析。
+ * 内存和通道等非文件数据源通过 {@link EpubSource} 按区域读取，实例缓存在数据源上。
+ */
+public final class MappedZipFile {
+    /**
+     * 最多缓存的映射文件数量
+     */
+    public static final int MAX_CACHED_ARCHIVES = 128;
+
+    /**
+     * 默认的解压检查点索引缓存上限（字节）
+     */
+    public static final long DEFAULT_MAX_CHECKPOINT_BYTES = 16L * 1024 * 1024;
+
+    // 所有映射共享的检查点索引缓存，按访问顺序排列，键为映射的检查点令牌和条目下标；访问时需持有自身锁
+    private static final LinkedHashMap<List<Object>, InflateCheckpointIndex> CHECKPOINTS =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private static long checkpointBytes;
+    private static long maxCheckpointBytes = DEFAULT_MAX_CHECKPOINT_BYTES;
+
+    // 按访问顺序排列的映射缓存，访问时需持有自身锁
+    private static final Map<Object, MappedZipFile> ARCHIVES =
+            new LinkedHashMap<Object, MappedZipFile>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, MappedZipFile> eldest) {
+                    return size() > MAX_CACHED_ARCHIVES;
+                }
+            };
+
+    private final File file;
+    private final long length;
+    private final long lastModified;
+    private final EpubSource source;
+    private final ZipEntryIndex index;
+    // 条目数据偏移量，首次访问时从本地文件头计算，-1表示尚未计算
+    private final long[] dataOffsets;
+    // 按本地文件头偏移量计算的条目区域结束位置，首次批量顺序读取时计算
+    private volatile long[] entryEnds;
+    // 检查点缓存中标识本映射的令牌，缓存不引用映射本身，映射被淘汰后其检查点随LRU老化
+    private final Object checkpointToken = new Object();
+
+    private MappedZipFile(File file, long length, long lastModified, EpubSource source, ZipEntryIndex index) {
+        this.file = file;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.source = source;
+        this.index = index;
+        this.dataOffsets = new long[index.size()];
+        Arrays.fill(dataOffsets, -1L);
+    }
+
+    /**
+     * 打开ZIP文件，优先返回缓存中未过期的实例
+     *
+     * @param file ZIP文件
+     * @return 映射的ZIP文件
+     * @throws IOException 文件无法读取、格式错误，或文件超过映射大小上限及使用ZIP64格式
+     */
+    public static MappedZipFile open(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("ZIP file cannot be null");
+        }
+        Object key = ZipFilePool.identityOf(file);
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        MappedZipFile cached;
+        synchronized (ARCHIVES) {
+            cached = ARCHIVES.get(key);
+        }
+        if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+            return cached;
+        }
+
+        MappedZipFile archive = map(file, length, lastModified);
+        synchronized (ARCHIVES) {
+            ARCHIVES.put(key, archive);
+        }
+        return archive;
+    }
+
+    /**
+     * 打开非文件数据源，解析其中央目录
+     * 由 {@link EpubSource#openArchive()} 调用，实例缓存在数据源上而不是按文件身份缓存
+     *
+     * @param source 数据源
+     * @return ZIP文件读取器
+     * @throws IOException 读取失败或格式错误
+     */
+    static MappedZipFile open(EpubSource source) throws IOException {
+        return new MappedZipFile(null, source.size(), 0, source, ZipEntryIndex.read(source));
+    }
+
+    /**
+     * 打开ZIP文件，失败时返回null而不抛出异常
+     * 用于可以回退到 {@link java.util.zip.ZipFile} 的调用方
+     *
+     * @param file ZIP文件
+     * @return 映射的ZIP文件，无法映射时返回null
+     */
+    public static MappedZipFile openIfSupported(File file) {
+        try {
+            return open(file);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 从缓存中移除指定文件的映射
+     * @param file ZIP文件
+     */
+    public static void evict(File file) {
+        Object key = ZipFilePool.identityOf(file);
+        synchronized (ARCHIVES) {
+            ARCHIVES.remove(key);
+        }
+    }
+
+    /**
+     * 清空映射缓存
+     */
+    public static void evictAll() {
+        synchronized (ARCHIVES) {
+            ARCHIVES.clear();
+        }
+    }
+
+    private static MappedZipFile map(File file, long length, long lastModified) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new ZipException("ZIP file too large to map: " + file);
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ZipEntryIndex index = ZipEntryIndex.read(mapped);
+            EpubSource source = new EpubSource.BufferSource(mapped, file.getName());
+            return new MappedZipFile(file, length, lastModified, source, index);
+        }
+    }
+
+    /**
+     * 获取对应的文件
+     * @return 文件，非文件数据源返回null
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 获取读取条目区域使用的数据源，文件对应映射缓冲区上的数据源
+     * @return 数据源
+     */
+    EpubSource getSource() {
+        return source;
+    }
+
+    /**
+     * 获取中央目录索引
+     * @return 中央目录索引
+     */
+    public ZipEntryIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * 获取所有条目名称
+     * @return 不可修改的名称列表
+     */
+    public List<String> getEntryNames() {
+        return index.getNames();
+    }
+
+    /**
+     * 查找条目
+     * @param name 条目名称
+     * @return 条目下标，如果不存在返回-1
+     */
+    public int findEntry(String name) {
+        return index.indexOf(name);
+    }
+
+    /**
+     * 获取条目数据在文件中的起始偏移量
+     * 需要读取本地文件头，因为其扩展字段长度可能与中央目录不同
+     *
+     * @param entry 条目下标
+     * @return 数据偏移量
+     * @throws IOException 本地文件头无效或读取失败
+     */
+    public long getDataOffset(int entry) throws IOException {
+        long offset = dataOffsets[entry];
+        if (offset >= 0) {
+            return offset;
+        }
+        long header = index.getLocalHeaderOffset(entry);
+        if (header + ZipEntryIndex.LOC_HEADER_LENGTH > length) {
+            throw new ZipException("Invalid local file header for entry: " + index.getName(entry));
+        }
+        ByteBuffer buf = source.read(header, ZipEntryIndex.LOC_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.getInt(0) != ZipEntryIndex.LOC_SIGNATURE) {
+            throw new ZipException("Invalid local file header for entry: " + index.getName(entry));
+        }
+        int nameLength = buf.getShort(26) & 0xFFFF;
+        int extraLength = buf.getShort(28) & 0xFFFF;
+        offset = header + ZipEntryIndex.LOC_HEADER_LENGTH + nameLength + extraLength;
+        if (offset + index.getCompressedSize(entry) > length) {
+            throw new ZipException("Entry data exceeds archive bounds: " + index.getName(entry));
+        }
+        // 良性竞争：多个线程计算得到相同的值
+        dataOffsets[entry] = offset;
+        return offset;
+    }
+
+    /**
+     * 获取条目在文件中占用区域的结束位置（不含）
+     * 即下一个本地文件头或中央目录的起始偏移量，区域包括本地文件头、数据和可能存在的数据描述符
+     *
+     * @param entry 条目下标
+     * @return 结束偏移量
+     */
+    long getEntryEnd(int entry) {
+        long[] ends = entryEnds;
+        if (ends == null) {
+            ends = computeEntryEnds();
+            entryEnds = ends;
+        }
+        return ends[entry];
+    }
+
+    private long[] computeEntryEnds() {
+        long centralDirectory = index.getCentralDirectoryOffset();
+
+        int count = index.size();
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(index.getLocalHeaderOffset(a), index.getLocalHeaderOffset(b)));
+        long[] ends = new long[count];
+        for (int i = 0; i < count; i++) {
+            ends[order[i]] = i + 1 < count ? index.getLocalHeaderOffset(order[i + 1]) : centralDirectory;
+        }
+        return ends;
+    }
+
+    /**
+     * 获取条目原始（可能已压缩）数据的只读视图，不复制数据
+     *
+     * @param entry 条目下标
+     * @return 只读的数据视图，position为0
+     * @throws IOException 本地文件头无效或读取失败
+     */
+    public ByteBuffer getRawData(int entry) throws IOException {
+        long compressedSize = index.getCompressedSize(entry);
+        if (compressedSize > Integer.MAX_VALUE) {
+            throw new ZipException("Entry too large: " + index.getName(entry));
+        }
+        return source.read(getDataOffset(entry), (int) compressedSize);
+    }
+
+    /**
+     * 获取条目解压后的内容
+     * STORED条目直接返回映射文件或内存数据源的只读切片，不复制任何数据；
+     * DEFLATED条目按中央目录记录的解压大小一次性分配结果数组并解压
+     *
+     * @param entry 条目下标
+     * @return 只读的内容视图，position为0
+     * @throws IOException 条目数据损坏或使用了不支持的压缩方法
+     */
+    public ByteBuffer getContent(int entry) throws IOException {
+        int method = index.getMethod(entry);
+        if (method == ZipEntryIndex.METHOD_STORED) {
+            return getRawData(entry);
+        }
+        return ByteBuffer.wrap(getContentBytes(entry)).asReadOnlyBuffer();
+    }
+
+    /**
+     * 获取条目解压后的内容，结果数组按中央目录记录的解压大小一次性分配
+     *
+     * @param entry 条目下标
+     * @return 新分配的内容数组，调用者独占
+     * @throws IOException 条目数据损坏或使用了不支持的压缩方法
+     */
+    public byte[] getContentBytes(int entry) throws IOException {
+        return decode(getRawData(entry), index.getMethod(entry), index.getSize(entry), index.getName(entry));
+    }
+
+    /**
+     * 将原始条目数据解码到精确大小的数组中
+     *
+     * @param raw 原始（可能已压缩）数据
+     * @param method 压缩方法
+     * @param size 解压后大小
+     * @param name 条目名称，用于错误信息
+     * @return 新分配的内容数组
+     * @throws ZipException 数据损坏或使用了不支持的压缩方法
+     */
+    static byte[] decode(ByteBuffer raw, int method, long size, String name) throws ZipException {
+        if (size > Integer.MAX_VALUE) {
+            throw new ZipException("Entry too large: " + name);
+        }
+        if (method == ZipEntryIndex.METHOD_STORED) {
+            byte[] content = new byte[raw.remaining()];
+            raw.get(content);
+            return content;
+        }
+        if (method != ZipEntryIndex.METHOD_DEFLATED) {
+            throw new ZipException("Unsupported compression method " + method + " for entry: " + name);
+        }
+        return inflate(raw, (int) size, name);
+    }
+
+    /**
+     * 打开条目内容的输入流
+     * STORED条目直接读取映射文件；DEFLATED条目从解压器池借出解压器，关闭流时归还。
+     * 不占用ZIP文件句柄，多个线程可以同时读取不同条目
+     *
+     * @param entry 条目下标
+     * @return 输入流，调用者需要关闭
+     * @throws IOException 条目数据无效或使用了不支持的压缩方法
+     */
+    public InputStream openStream(int entry) throws IOException {
+        return openStream(getRawData(entry), index.getMethod(entry), index.getSize(entry), index.getName(entry));
+    }
+
+    /**
+     * 打开原始条目数据的输入流
+     *
+     * @param raw 原始（可能已压缩）数据
+     * @param method 压缩方法
+     * @param size 解压后大小
+     * @param name 条目名称，用于错误信息
+     * @return 输入流，调用者需要关闭
+     * @throws ZipException 使用了不支持的压缩方法
+     */
+    static InputStream openStream(ByteBuffer raw, int method, long size, String name) throws ZipException {
+        if (method == ZipEntryIndex.METHOD_STORED) {
+            return new ByteBufferInputStream(raw);
+        }
+        if (method != ZipEntryIndex.METHOD_DEFLATED) {
+            throw new ZipException("Unsupported compression method " + method + " for entry: " + name);
+        }
+        return new PooledInflaterInputStream(raw, size);
+    }
+
+    /**
+     * 将DEFLATED数据解压到精确大小的数组中
+     *
+     * @param raw 压缩数据
+     * @param size 解压后大小
+     * @param name 条目名称，用于错误信息
+     * @return 解压后的数据
+     * @throws ZipException 数据损坏或大小与中央目录记录不一致
+     */
+    static byte[] inflate(ByteBuffer raw, int size, String name) throws ZipException {
+        byte[] out = new byte[size];
+        inflate(raw, out, size, name);
+        return out;
+    }
+
+    /**
+     * 将DEFLATED数据解压到目标数组的前size个字节
+     * 压缩数据按块复制到池化的暂存数组后输入池化的解压器，避免复制整个压缩数据
+     *
+     * @param raw 压缩数据
+     * @param out 目标数组，长度不小于size
+     * @param size 解压后大小
+     * @param name 条目名称，用于错误信息
+     * @throws ZipException 数据损坏或大小与中央目录记录不一致
+     */
+    static void inflate(ByteBuffer raw, byte[] out, int size, String name) throws ZipException {
+        ByteArrayPool arrays = ByteArrayPool.getInstance();
+        byte[] input = arrays.borrow(Math.min(raw.remaining(), ZipOperations.BUFFER_SIZE));
+        InflaterPool pool = InflaterPool.getInstance();
+        Inflater inflater = pool.borrow();
+        try {
+            int written = 0;
+            while (written < size) {
+                int n = inflater.inflate(out, written, size - written);
+                if (n == 0) {
+                    if (inflater.finished() || inflater.needsDictionary()) {
+                        break;
+                    }
+                    if (inflater.needsInput()) {
+                        int chunk = Math.min(input.length, raw.remaining());
+                        if (chunk == 0) {
+                            break;
+                        }
+                        raw.get(input, 0, chunk);
+                        inflater.setInput(input, 0, chunk);
+                    }
+                }
+                written += n;
+            }
+            if (written != size) {
+                throw new ZipException("Entry size mismatch for " + name + ": expected " + size + " bytes, got " + written);
+            }
+        } catch (DataFormatException e) {
+            ZipException zipException = new ZipException("Invalid deflate data for entry: " + name);
+            zipException.initCause(e);
+            throw zipException;
+        } finally {
+            pool.release(inflater);
+            arrays.release(input);
+        }
+    }
+
+    /**
+     * 获取条目内容解码为UTF-8的文本
+     * 内容解压或复制到池化的暂存数组后直接解码，只分配结果字符串
+     *
+     * @param entry 条目下标
+     * @return 文本内容
+     * @throws IOException 条目数据损坏或使用了不支持的压缩方法
+     */
+    public String getContentText(int entry) throws IOException {
+        ByteBuffer raw = getRawData(entry);
+        int method = index.getMethod(entry);
+        String name = index.getName(entry);
+        long size = method == ZipEntryIndex.METHOD_STORED ? raw.remaining() : index.getSize(entry);
+        if (size > Integer.MAX_VALUE) {
+            throw new ZipException("Entry too large: " + name);
+        }
+        if (method != ZipEntryIndex.METHOD_STORED && method != ZipEntryIndex.METHOD_DEFLATED) {
+            throw new ZipException("Unsupported compression method " + method + " for entry: " + name);
+        }
+        int length = (int) size;
+        ByteArrayPool pool = ByteArrayPool.getInstance();
+        byte[] buffer = pool.borrow(length);
+        try {
+            if (method == ZipEntryIndex.METHOD_STORED) {
+                raw.get(buffer, 0, length);
+            } else {
+                inflate(raw, buffer, length, name);
+            }
+            return ZipOperations.decodeUtf8(buffer, 0, length);
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * 打开条目的只读可定位通道，DEFLATED条目使用默认的检查点间隔
+     *
+     * @param entry 条目下标
+     * @return 可定位通道
+     * @throws IOException 条目数据无效或使用了不支持的压缩方法
+     */
+    public ZipEntryChannel openChannel(int entry) throws IOException {
+        return openChannel(entry, InflateCheckpointIndex.DEFAULT_SPACING);
+    }
+
+    /**
+     * 打开条目的只读可定位通道
+     * DEFLATED条目首次需要跳跃定位时按指定间隔建立检查点索引，索引在多个通道之间共享，
+     * 缓存总量受 {@link #setMaxCheckpointBytes(long)} 限制
+     *
+     * @param entry 条目下标
+     * @param checkpointSpacing 检查点间隔（解压后的字节数），0表示不建立索引，每次向后定位都从头解压
+     * @return 可定位通道
+     * @throws IOException 条目数据无效或使用了不支持的压缩方法
+     */
+    public ZipEntryChannel openChannel(int entry, int checkpointSpacing) throws IOException {
+        return new ZipEntryChannel(this, entry, checkpointSpacing);
+    }
+
+    /**
+     * 获取DEFLATED条目的解压检查点索引，不存在或间隔不同时重新建立
+     *
+     * @param entry 条目下标
+     * @param spacing 检查点间隔
+     * @return 检查点索引
+     * @throws IOException 条目数据损坏或读取失败
+     */
+    InflateCheckpointIndex getCheckpointIndex(int entry, int spacing) throws IOException {
+        List<Object> key = Arrays.asList(checkpointToken, entry);
+        synchronized (CHECKPOINTS) {
+            InflateCheckpointIndex cached = CHECKPOINTS.get(key);
+            if (cached != null && cached.getSpacing() == spacing) {
+                return cached;
+            }
+        }
+        InflateCheckpointIndex built = InflateCheckpointIndex.build(
+                getRawData(entry), index.getSize(entry), spacing, index.getName(entry));
+        synchronized (CHECKPOINTS) {
+            InflateCheckpointIndex previous = CHECKPOINTS.remove(key);
+            if (previous != null) {
+                checkpointBytes -= previous.getRetainedBytes();
+            }
+            // 超过上限的索引只供本次使用，不进入缓存
+            if (built.getRetainedBytes() <= maxCheckpointBytes) {
+                CHECKPOINTS.put(key, built);
+                checkpointBytes += built.getRetainedBytes();
+                trimCheckpoints();
+            }
+        }
+        return built;
+    }
+
+    /**
+     * 淘汰最久未使用的检查点索引直到不超过上限，需持有CHECKPOINTS的锁
+     */
+    private static void trimCheckpoints() {
+        Iterator<InflateCheckpointIndex> it = CHECKPOINTS.values().iterator();
+        while (checkpointBytes > maxCheckpointBytes && it.hasNext()) {
+            checkpointBytes -= it.next().getRetainedBytes();
+            it.remove();
+        }
+    }
+
+    /**
+     * 设置所有映射共享的解压检查点索引缓存上限，超出部分立即淘汰
+     *
+     * @param maxBytes 上限（字节），0表示不缓存检查点索引
+     */
+    public static void setMaxCheckpointBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        }
+        synchronized (CHECKPOINTS) {
+            maxCheckpointBytes = maxBytes;
+            trimCheckpoints();
+        }
+    }
+
+    /**
+     * 获取解压检查点索引缓存上限
+     *
+     * @return 上限（字节）
+     */
+    public static long getMaxCheckpointBytes() {
+        synchronized (CHECKPOINTS) {
+            return maxCheckpointBytes;
+        }
+    }
+
+    /**
+     * 获取缓存中的解压检查点索引占用的字节数
+     *
+     * @return 字节数
+     */
+    public static long getCheckpointBytes() {
+        synchronized (CHECKPOINTS) {
+            return checkpointBytes;
+        }
+    }
+
+    /**
+     * 将条目内容的指定范围写入目标通道
+     * STORED条目使用 {@link FileChannel#transferTo} 从条目数据偏移量直接传输，由内核完成零拷贝，
+     * 非文件数据源直接写入读取到的区域；
+     * DEFLATED条目使用解压器池中的解压器解压后写入目标通道，position之前的内容解压后丢弃。
+     * 目标通道为非阻塞通道且暂时无法写入时提前返回，调用者可从 position + 返回值 处继续传输
+     *
+     * @param entry 条目下标
+     * @param position 内容中的起始位置
+     * @param count 最多传输的字节数
+     * @param target 目标通道
+     * @return 实际写入目标通道的字节数
+     * @throws IOException IO异常
+     */
+    public long transferTo(int entry, long position, long count, WritableByteChannel target) throws IOException {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("position and count must not be negative");
+        }
+        long size = index.getSize(entry);
+        if (position >= size || count == 0) {
+            return 0;
+        }
+        long length = Math.min(count, size - position);
+        int method = index.getMethod(entry);
+        if (method == ZipEntryIndex.METHOD_STORED) {
+            return transferStored(getDataOffset(entry) + position, length, target);
+        }
+        if (method != ZipEntryIndex.METHOD_DEFLATED) {
+            throw new ZipException("Unsupported compression method " + method + " for entry: " + index.getName(entry));
+        }
+        return transferDeflated(getRawData(entry), position, length, target);
+    }
+
+    private long transferStored(long offset, long length, WritableByteChannel target) throws IOException {
+        long transferred = 0;
+        if (file == null) {
+            ByteBuffer region = source.read(offset, (int) length);
+            while (region.hasRemaining()) {
+                if (target.write(region) <= 0) {
+                    break;
+                }
+            }
+            return region.position();
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (transferred < length) {
+                long n = channel.transferTo(offset + transferred, length - transferred, target);
+                if (n <= 0) {
+                    // 目标通道暂时无法写入，返回已传输的字节数
+                    break;
+                }
+                transferred += n;
+            }
+        }
+        return transferred;
+    }
+
+    private long transferDeflated(ByteBuffer raw, long position, long length, WritableByteChannel target)
+            throws IOException {
+        byte[] input = new byte[ZipOperations.BUFFER_SIZE];
+        byte[] output = new byte[ZipOperations.BUFFER_SIZE];
+        ByteBuffer out = ByteBuffer.wrap(output);
+        InflaterPool pool = InflaterPool.getInstance();
+        Inflater inflater = pool.borrow();
+        try {
+            long skipped = 0;
+            long transferred = 0;
+            while (transferred < length) {
+                int n = inflater.inflate(output);
+                if (n == 0) {
+                    if (inflater.finished() || inflater.needsDictionary()) {
+                        break;
+                    }
+                    if (inflater.needsInput()) {
+                        int chunk = Math.min(input.length, raw.remaining());
+                        if (chunk == 0) {
+                            throw new ZipException("Unexpected end of deflate data");
+                        }
+                        raw.get(input, 0, chunk);
+                        inflater.setInput(input, 0, chunk);
+                    }
+                    continue;
+                }
+                int start = 0;
+                if (skipped < position) {
+                    start = (int) Math.min(n, position - skipped);
+                    skipped += start;
+                    if (start == n) {
+                        continue;
+                    }
+                }
+                int end = (int) Math.min(n, start + (length - transferred));
+                out.limit(end);
+                out.position(start);
+                while (out.hasRemaining()) {
+                    int written = target.write(out);
+                    if (written <= 0) {
+                        // 目标通道暂时无法写入，返回已写入的字节数
+                        return transferred + (out.position() - start);
+                    }
+                }
+                transferred += end - start;
+            }
+            return transferred;
+        } catch (DataFormatException e) {
+            ZipException zipException = new ZipException("Invalid deflate data");
+            zipException.initCause(e);
+            throw zipException;
+        } finally {
+            pool.release(inflater);
+        }
+    }
+
+    /**
+     * 使用池化解压器的输入流，关闭时将解压器归还到 {@link InflaterPool}
+     */
+    private static final class PooledInflaterInputStream extends InflaterInputStream {
+        private final long size;
+        private long written;
+        private boolean eofPadded;
+        private boolean closed;
+
+        PooledInflaterInputStream(ByteBuffer raw, long size) {
+            super(new ByteBufferInputStream(raw), InflaterPool.getInstance().borrow(),
+                    Math.max(1, Math.min(raw.remaining(), ZipOperations.BUFFER_SIZE)));
+            this.size = size;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                written += n;
+            }
+            return n;
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            int n = in.read(buf, 0, buf.length);
+            if (n < 0) {
+                if (eofPadded) {
+                    throw new java.io.EOFException("Unexpected end of ZLIB input stream");
+                }
+                // nowrap模式下需要额外提供一个空字节，与ZipFile的处理方式相同
+                eofPadded = true;
+                buf[0] = 0;
+                n = 1;
+            }
+            len = n;
+            inf.setInput(buf, 0, n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            long remaining = size - written;
+            return remaining > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.max(0, remaining);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                super.close();
+                InflaterPool.getInstance().release(inf);
+            }
+        }
+    }
+}
@@ -1 +1 @@
-package fun.lzwi.epubime.zip;import java.io.UnsupportedEncodingException;import java.net.URLDecoder;import java.nio.file.Path;import java.nio.file.Paths;/** * Path validation utility class * Used to prevent directory traversal attacks (Path Traversal Attack) */public class PathValidator {        /**     * Validates whether a file path is safe to prevent directory traversal attacks     * @param basePath base path     * @param relativePath relative path     * @return true if the path is safe, false otherwise     */    public static boolean isPathSafe(String basePath, String relativePath) {        if (basePath == null || relativePath == null) {            return false;        }                try {            // Decode URL-encoded characters first to handle cases like ..%2F (.. encoded as %2F)            relativePath = URLDecoder.decode(relativePath, "UTF-8");        } catch (UnsupportedEncodingException e) {            // If decoding fails, proceed with original path but return false as a safe default            return false;        }                // Normalize paths        Path base = Paths.get(basePath).toAbsolutePath().normalize();        Path resolved = base.resolve(relativePath).normalize();                // Check if the resolved path is under the base path        return resolved.startsWith(base);    }        /**     * Sanitizes a path string by removing potential directory traversal characters     * @param path path string     * @return sanitized path     */    public static String sanitizePath(String path) {        if (path == null) {            return null;        }                try {            // Decode URL-encoded characters first            path = URLDecoder.decode(path, "UTF-8");        } catch (UnsupportedEncodingException e) {            // If decoding fails, return the original path            return path;        }                // Remove leading and trailing whitespace        path = path.trim();                // Remove leading slashes (if any)        while (path.startsWith("/")) {            path = path.substring(1);        }                // Remove trailing slashes (if any, but preserve root path slash)        while (path.endsWith("/") && path.length() > 1) {            path = path.substring(0, path.length() - 1);        }                return path;    }}
\ No newline at end of file
+package fun.lzwi.epubime.zip;import java.io.UnsupportedEncodingException;import java.net.URLDecoder;import java.nio.file.Path;import java.nio.file.Paths;/** * Path validation utility class * Used to prevent directory traversal attacks (Path Traversal Attack) */public class PathValidator {        /**     * Validates whether a file path is safe to prevent directory traversal attacks     * @param basePath base path     * @param relativePath relative path     * @return true if the path is safe, false otherwise     */    public static boolean isPathSafe(String basePath, String relativePath) {        if (basePath == null || relativePath == null) {            return false;        }                // Fast path: a plain relative path that never climbs above its start is always under the base        if (basePath.isEmpty() && isLexicallySafe(relativePath)) {            return true;        }        return isPathSafeByPath(basePath, relativePath);    }        /**     * Validates a path with {@link Path} normalization, used for inputs the lexical scan does not accept     * @param basePath base path     * @param relativePath relative path     * @return true if the path is safe, false otherwise     */    static boolean isPathSafeByPath(String basePath, String relativePath) {        try {            // Decode URL-encoded characters first to handle cases like ..%2F (.. encoded as %2F)            relativePath = URLDecoder.decode(relativePath, "UTF-8");        } catch (UnsupportedEncodingException e) {            // If decoding fails, proceed with original path but return false as a safe default            return false;        }                // Normalize paths        Path base = Paths.get(basePath).toAbsolutePath().normalize();        Path resolved = base.resolve(relativePath).normalize();                // Check if the resolved path is under the base path        return resolved.startsWith(base);    }        /**     * Scans a relative path once, decoding percent-escapes in place and tracking the directory depth.     * Only returns true when the path is certainly safe; absolute paths, climbing above the start,     * malformed escapes and characters with platform-specific meaning all return false so the caller     * can fall back to {@link #isPathSafeByPath(String, String)}     * @param path relative path, possibly URL-encoded     * @return true if the path is a plain relative path that stays inside its start directory     */    static boolean isLexicallySafe(String path) {        int length = path.length();        int depth = 0;        int segmentLength = 0;        boolean allDots = true;        char last = 0;        for (int i = 0; i <= length; i++) {            boolean first = i == 0;            char c;            if (i == length) {                c = '/';            } else {                c = path.charAt(i);                if (c == '%') {                    if (i + 2 >= length) {                        return false;                    }                    int high = Character.digit(path.charAt(i + 1), 16);                    int low = Character.digit(path.charAt(i + 2), 16);                    if (high < 0 || low < 0) {                        return false;                    }                    // Bytes of multi-byte UTF-8 sequences never decode to ASCII, so they are ordinary characters                    c = (char) ((high << 4) | low);                    i += 2;                } else if (c == '+') {                    c = ' ';                }            }            if (c == '/') {                if (segmentLength == 0) {                    if (first && i < length) {                        // Absolute path                        return false;                    }                    continue;                }                if (allDots) {                    if (segmentLength == 2) {                        depth--;                        if (depth < 0) {                            return false;                        }                    } else if (segmentLength > 2) {                        return false;                    }                } else if (last == '.' || last == ' ') {                    // Trailing dots and spaces are stripped on some platforms                    return false;                } else {                    depth++;                }                segmentLength = 0;                allDots = true;                continue;            }            if (c < 0x20 || c == 0x7F || c == '\\' || c == ':' || c == '*' || c == '?'                    || c == '"' || c == '<' || c == '>' || c == '|') {                return false;            }            segmentLength++;            allDots &= c == '.';            last = c;        }        return true;    }        /**     * Sanitizes a path string by removing potential directory traversal characters     * @param path path string     * @return sanitized path     */    public static String sanitizePath(String path) {        if (path == null) {            return null;        }                try {            // Decode URL-encoded characters first            path = URLDecoder.decode(path, "UTF-8");        } catch (UnsupportedEncodingException e) {            // If decoding fails, return the original path            return path;        }                // Remove leading and trailing whitespace        path = path.trim();                // Remove leading slashes (if any)        while (path.startsWith("/")) {            path = path.substring(1);        }                // Remove trailing slashes (if any, but preserve root path slash)        while (path.endsWith("/") && path.length() > 1) {            path = path.substring(0, path.length() - 1);        }                return path;    }}
\ No newline at end of file
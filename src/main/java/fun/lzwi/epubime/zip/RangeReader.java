@@ -0,0 +1,29 @@
+package fun.lzwi.epubime.zip;
+
+import java.io.IOException;
+
+/**
+ * 范围读取接口
+ * 远程EPUB（如对象存储中的文件）的读取方式，通常实现为带Range请求头的HTTP GET。
+ * 实现需要线程安全，多个线程可能同时读取不同的范围。
+ */
+public interface RangeReader {
+    /**
+     * 获取远程文件的总字节数
+     *
+     * @return 字节数
+     * @throws IOException 读取失败
+     */
+    long size() throws IOException;
+
+    /**
+     * 读取指定范围的内容，读满length个字节
+     *
+     * @param position 起始位置
+     * @param buffer 目标数组
+     * @param offset 目标数组中的起始位置
+     * @param length 字节数
+     * @throws IOException 读取失败或范围超出文件末尾
+     */
+    void readFully(long position, byte[] buffer, int offset, int length) throws IOException;
+}
@@ -0,0 +1,106 @@
+package fun.lzwi.epubime.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 远程数据源
+ * 通过 {@link RangeReader} 按块读取远程EPUB，只获取中央目录和实际访问的条目所在的块。
+ * 读取的块保存在 {@link BlockCache} 中，连续的未缓存块合并为一次范围读取。
+ */
+final class RangeSource extends EpubSource {
+    private final RangeReader reader;
+    private final String key;
+    private final BlockCache cache;
+    private volatile long size = -1;
+
+    RangeSource(RangeReader reader, String key, BlockCache cache) {
+        this.reader = reader;
+        this.key = key;
+        this.cache = cache;
+    }
+
+    @Override
+    public String getName() {
+        return key;
+    }
+
+    @Override
+    public long size() throws IOException {
+        long known = size;
+        if (known < 0) {
+            known = reader.size();
+            size = known;
+        }
+        return known;
+    }
+
+    @Override
+    ByteBuffer read(long position, int length) throws IOException {
+        long total = size();
+        checkBounds(position, length, total);
+        if (length == 0) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        int blockSize = cache.getBlockSize();
+        long first = position / blockSize;
+        long last = (position + length - 1) / blockSize;
+        int count = (int) (last - first + 1);
+
+        byte[][] blocks = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            long start = (first + i) * blockSize;
+            blocks[i] = cache.get(key, first + i, (int) Math.min(blockSize, total - start));
+        }
+        // 连续的未缓存块合并为一次范围读取
+        int i = 0;
+        while (i < count) {
+            if (blocks[i] != null) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < count && blocks[end] == null) {
+                end++;
+            }
+            fetch(first + i, first + end, total, blocks, i);
+            i = end;
+        }
+
+        int offset = (int) (position - first * blockSize);
+        if (count == 1) {
+            return ByteBuffer.wrap(blocks[0], offset, length).slice().asReadOnlyBuffer();
+        }
+        byte[] result = new byte[length];
+        int copied = 0;
+        for (int b = 0; b < count && copied < length; b++) {
+            int start = b == 0 ? offset : 0;
+            int n = Math.min(blocks[b].length - start, length - copied);
+            System.arraycopy(blocks[b], start, result, copied, n);
+            copied += n;
+        }
+        return ByteBuffer.wrap(result).asReadOnlyBuffer();
+    }
+
+    /**
+     * 读取[startBlock, endBlock)范围内的块并写入缓存
+     */
+    private void fetch(long startBlock, long endBlock, long total, byte[][] blocks, int slot) throws IOException {
+        int blockSize = cache.getBlockSize();
+        long start = startBlock * blockSize;
+        long end = Math.min(total, endBlock * blockSize);
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IOException("Range too large: " + (end - start));
+        }
+        byte[] data = new byte[(int) (end - start)];
+        reader.readFully(start, data, 0, data.length);
+        for (long block = startBlock; block < endBlock; block++) {
+            int from = (int) ((block - startBlock) * blockSize);
+            int to = Math.min(data.length, from + blockSize);
+            byte[] blockData = Arrays.copyOfRange(data, from, to);
+            cache.put(key, block, blockData);
+            blocks[slot + (int) (block - startBlock)] = blockData;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package fun.lzwi.epubime.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.zip.ZipException;
+
+/**
+ * ZIP条目的只读可定位通道，用于响应HTTP Range等随机范围读取
+ * STORED条目直接定位到映射文件中的数据；DEFLATED条目在首次需要向后定位或跳跃时
+ * 建立解压检查点索引（由 {@link MappedZipFile} 缓存），之后的随机读取只从最近的检查点开始解压。
+ * 顺序读取复用当前的解码状态，不会重复解压。实例不是线程安全的。
+ */
+public final class ZipEntryChannel implements SeekableByteChannel {
+    private final ByteBuffer content;
+    private final MappedZipFile archive;
+    private final int entry;
+    private final ByteBuffer raw;
+    private final long size;
+    private final int checkpointSpacing;
+    private long position;
+    private boolean open = true;
+    private DeflateDecoder decoder;
+    private byte[] scratch;
+
+    /**
+     * 基于已解压内容创建通道
+     * @param content 条目内容，读取时不修改其position和limit
+     */
+    ZipEntryChannel(ByteBuffer content) {
+        this.content = content.slice();
+        this.archive = null;
+        this.entry = -1;
+        this.raw = null;
+        this.size = this.content.remaining();
+        this.checkpointSpacing = 0;
+    }
+
+    /**
+     * 基于映射文件中的条目创建通道
+     *
+     * @param archive 映射的ZIP文件
+     * @param entry 条目下标
+     * @param checkpointSpacing DEFLATED条目的检查点间隔，0表示不建立检查点索引
+     * @throws IOException 条目数据无效或使用了不支持的压缩方法
+     */
+    ZipEntryChannel(MappedZipFile archive, int entry, int checkpointSpacing) throws IOException {
+        ZipEntryIndex index = archive.getIndex();
+        int method = index.getMethod(entry);
+        if (method != ZipEntryIndex.METHOD_STORED && method != ZipEntryIndex.METHOD_DEFLATED) {
+            throw new ZipException("Unsupported compression method " + method + " for entry: " + index.getName(entry));
+        }
+        if (checkpointSpacing < 0) {
+            throw new IllegalArgumentException("checkpointSpacing must not be negative");
+        }
+        boolean stored = method == ZipEntryIndex.METHOD_STORED;
+        this.content = stored ? archive.getRawData(entry) : null;
+        this.archive = archive;
+        this.entry = entry;
+        this.raw = stored ? null : archive.getRawData(entry);
+        this.size = index.getSize(entry);
+        this.checkpointSpacing = checkpointSpacing;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= size) {
+            return -1;
+        }
+        int length = (int) Math.min(dst.remaining(), size - position);
+        if (length == 0) {
+            return 0;
+        }
+        if (content != null) {
+            ByteBuffer view = content.duplicate();
+            view.position((int) position);
+            view.limit((int) position + length);
+            dst.put(view);
+            position += length;
+            return length;
+        }
+
+        seekDecoder();
+        int total = 0;
+        while (total < length) {
+            int n;
+            if (dst.hasArray()) {
+                n = decoder.read(dst.array(), dst.arrayOffset() + dst.position(), length - total);
+                if (n > 0) {
+                    dst.position(dst.position() + n);
+                }
+            } else {
+                byte[] buffer = scratch();
+                n = decoder.read(buffer, 0, Math.min(buffer.length, length - total));
+                if (n > 0) {
+                    dst.put(buffer, 0, n);
+                }
+            }
+            if (n < 0) {
+                throw new ZipException("Unexpected end of deflate data at position " + (position + total));
+            }
+            total += n;
+        }
+        position += total;
+        return total;
+    }
+
+    /**
+     * 让解码器到达当前位置：能顺序前进时直接跳过中间内容，否则从最近的检查点重新开始
+     */
+    private void seekDecoder() throws IOException {
+        long current = decoder != null ? decoder.getOutPosition() : -1;
+        if (current == position) {
+            return;
+        }
+        boolean reachable = current >= 0 && current < position;
+        if (!reachable || (checkpointSpacing > 0 && position - current > checkpointSpacing)) {
+            InflateCheckpointIndex checkpoints = checkpointSpacing > 0 && size > checkpointSpacing
+                    ? archive.getCheckpointIndex(entry, checkpointSpacing) : null;
+            if (checkpoints != null) {
+                int checkpoint = checkpoints.floor(position);
+                if (!reachable || checkpoints.getOutPosition(checkpoint) > current) {
+                    decoder = checkpoints.decoderAt(raw, checkpoint);
+                }
+            } else if (!reachable) {
+                decoder = new DeflateDecoder(raw);
+            }
+        }
+        long skip = position - decoder.getOutPosition();
+        if (decoder.skip(skip, scratch()) != skip) {
+            throw new ZipException("Unexpected end of deflate data at position " + position);
+        }
+    }
+
+    private byte[] scratch() {
+        if (scratch == null) {
+            scratch = new byte[ZipOperations.BUFFER_SIZE];
+        }
+        return scratch;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("position must not be negative");
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        decoder = null;
+        scratch = null;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
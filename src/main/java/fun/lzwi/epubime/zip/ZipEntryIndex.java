@@ -0,0 +1,563 @@
+package fun.lzwi.epubime.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.zip.ZipException;
+
+/**
+ * ZIP中央目录索引
+ * 解析一次End-of-Central-Directory和中央目录后得到的紧凑不可变索引，
+ * 以并行数组保存每个条目的名称哈希、本地文件头偏移、压缩/解压大小、压缩方法和CRC，
+ * 条目查找为O(1)的开放寻址哈希查找，条目以整数下标表示以避免额外对象分配
+ */
+public final class ZipEntryIndex {
+    /**
+     * STORED压缩方法
+     */
+    public static final int METHOD_STORED = 0;
+
+    /**
+     * DEFLATED压缩方法
+     */
+    public static final int METHOD_DEFLATED = 8;
+
+    static final int EOCD_SIGNATURE = 0x06054b50;
+    static final int CEN_SIGNATURE = 0x02014b50;
+    static final int LOC_SIGNATURE = 0x04034b50;
+    static final int EOCD_MIN_LENGTH = 22;
+    static final int CEN_HEADER_LENGTH = 46;
+    static final int LOC_HEADER_LENGTH = 30;
+    // EOCD记录之后最多跟随65535字节的注释
+    static final int EOCD_MAX_SEARCH = EOCD_MIN_LENGTH + 0xFFFF;
+    // 从数据源读取时先尝试的末尾长度，没有长注释时EOCD和较小的中央目录都在其中
+    static final int EOCD_PROBE_LENGTH = 8 * 1024;
+
+    private final String[] names;
+    private final int[] nameHashes;
+    private final long[] localHeaderOffsets;
+    private final long[] compressedSizes;
+    private final long[] sizes;
+    private final short[] methods;
+    private final int[] crcs;
+    // 开放寻址哈希表，保存条目下标加一，0表示空槽
+    private final int[] table;
+    private final List<String> nameList;
+    private final long centralDirectoryOffset;
+    // 规范化名称的别名表，首次按非精确名称查找时构建
+    private volatile NameAliases aliases;
+
+    private ZipEntryIndex(String[] names, int[] nameHashes, long[] localHeaderOffsets, long[] compressedSizes,
+                          long[] sizes, short[] methods, int[] crcs, long centralDirectoryOffset) {
+        this.names = names;
+        this.nameHashes = nameHashes;
+        this.localHeaderOffsets = localHeaderOffsets;
+        this.compressedSizes = compressedSizes;
+        this.sizes = sizes;
+        this.methods = methods;
+        this.crcs = crcs;
+        this.table = buildTable(names, nameHashes);
+        this.nameList = new NameList(names);
+        this.centralDirectoryOffset = centralDirectoryOffset;
+    }
+
+    /**
+     * 从整个ZIP文件内容中解析中央目录索引
+     *
+     * @param archive ZIP文件内容，position为0，limit为文件长度
+     * @return 中央目录索引
+     * @throws ZipException ZIP格式错误或使用了不支持的ZIP64格式
+     */
+    public static ZipEntryIndex read(ByteBuffer archive) throws ZipException {
+        ByteBuffer buf = archive.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int eocd = findEndOfCentralDirectory(buf);
+        int entryCount = buf.getShort(eocd + 10) & 0xFFFF;
+        long cdSize = buf.getInt(eocd + 12) & 0xFFFFFFFFL;
+        long cdOffset = buf.getInt(eocd + 16) & 0xFFFFFFFFL;
+        if (entryCount == 0xFFFF || cdSize == 0xFFFFFFFFL || cdOffset == 0xFFFFFFFFL) {
+            throw new ZipException("ZIP64 archives are not supported by the index reader");
+        }
+        if (cdOffset + cdSize > eocd) {
+            throw new ZipException("Invalid central directory bounds");
+        }
+        buf.position((int) cdOffset).limit((int) (cdOffset + cdSize));
+        return parseCentralDirectory(buf.slice().order(ByteOrder.LITTLE_ENDIAN), entryCount, cdOffset);
+    }
+
+    /**
+     * 从数据源中解析中央目录索引
+     * 先读取文件末尾的一小段查找EOCD，找不到时再读取完整的搜索区域；中央目录位于已读取的区域内时只需一次读取，
+     * 对远程数据源意味着打开文件通常只需一到两次范围读取
+     *
+     * @param source EPUB数据源
+     * @return 中央目录索引
+     * @throws IOException 读取失败、ZIP格式错误或使用了不支持的ZIP64格式
+     */
+    public static ZipEntryIndex read(EpubSource source) throws IOException {
+        long size = source.size();
+        int tailLength = (int) Math.min(size, EOCD_PROBE_LENGTH);
+        long tailStart = size - tailLength;
+        ByteBuffer tail = source.read(tailStart, tailLength).order(ByteOrder.LITTLE_ENDIAN);
+        int eocd = locateEndOfCentralDirectory(tail);
+        if (eocd < 0 && tailLength < Math.min(size, EOCD_MAX_SEARCH)) {
+            // 末尾有较长的注释，读取完整的搜索区域
+            tailLength = (int) Math.min(size, EOCD_MAX_SEARCH);
+            tailStart = size - tailLength;
+            tail = source.read(tailStart, tailLength).order(ByteOrder.LITTLE_ENDIAN);
+            eocd = locateEndOfCentralDirectory(tail);
+        }
+        if (eocd < 0) {
+            throw new ZipException("End of central directory record not found");
+        }
+        EndRecord end = EndRecord.parse(tail, tailStart, eocd);
+        ByteBuffer cd = end.sliceCentralDirectory(tail, tailStart);
+        if (cd == null) {
+            cd = source.read(end.centralDirectoryOffset, (int) end.centralDirectorySize);
+        }
+        return end.parseCentralDirectory(cd);
+    }
+
+    /**
+     * End-of-Central-Directory记录中的中央目录位置信息
+     */
+    static final class EndRecord {
+        final int entryCount;
+        final long centralDirectoryOffset;
+        final long centralDirectorySize;
+
+        private EndRecord(int entryCount, long centralDirectoryOffset, long centralDirectorySize) {
+            this.entryCount = entryCount;
+            this.centralDirectoryOffset = centralDirectoryOffset;
+            this.centralDirectorySize = centralDirectorySize;
+        }
+
+        /**
+         * 解析EOCD记录
+         *
+         * @param tail 小端序的文件末尾内容
+         * @param tailStart 末尾内容在文件中的起始偏移量
+         * @param eocd EOCD记录在末尾内容中的位置
+         * @return 中央目录位置信息
+         * @throws ZipException 使用了不支持的ZIP64格式或中央目录范围无效
+         */
+        static EndRecord parse(ByteBuffer tail, long tailStart, int eocd) throws ZipException {
+            int entryCount = tail.getShort(eocd + 10) & 0xFFFF;
+            long cdSize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+            long cdOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+            if (entryCount == 0xFFFF || cdSize == 0xFFFFFFFFL || cdOffset == 0xFFFFFFFFL) {
+                throw new ZipException("ZIP64 archives are not supported by the index reader");
+            }
+            if (cdOffset + cdSize > tailStart + eocd) {
+                throw new ZipException("Invalid central directory bounds");
+            }
+            return new EndRecord(entryCount, cdOffset, cdSize);
+        }
+
+        /**
+         * 中央目录位于已读取的末尾内容中时返回其切片
+         *
+         * @param tail 文件末尾内容
+         * @param tailStart 末尾内容在文件中的起始偏移量
+         * @return 中央目录切片，不在末尾内容中时返回null
+         */
+        ByteBuffer sliceCentralDirectory(ByteBuffer tail, long tailStart) {
+            if (centralDirectoryOffset < tailStart) {
+                return null;
+            }
+            ByteBuffer cd = tail.duplicate();
+            cd.position((int) (centralDirectoryOffset - tailStart))
+                    .limit((int) (centralDirectoryOffset - tailStart + centralDirectorySize));
+            return cd.slice();
+        }
+
+        ZipEntryIndex parseCentralDirectory(ByteBuffer cd) throws ZipException {
+            return ZipEntryIndex.parseCentralDirectory(cd.order(ByteOrder.LITTLE_ENDIAN), entryCount,
+                    centralDirectoryOffset);
+        }
+    }
+
+    /**
+     * 在ZIP文件末尾查找End-of-Central-Directory记录
+     *
+     * @param buf 小端序的ZIP内容
+     * @return EOCD记录的起始位置
+     * @throws ZipException 找不到EOCD记录
+     */
+    static int findEndOfCentralDirectory(ByteBuffer buf) throws ZipException {
+        int eocd = locateEndOfCentralDirectory(buf);
+        if (eocd < 0) {
+            throw new ZipException("End of central directory record not found");
+        }
+        return eocd;
+    }
+
+    /**
+     * 查找EOCD记录
+     *
+     * @param buf 小端序的ZIP文件末尾内容
+     * @return EOCD记录的起始位置，找不到时返回-1
+     */
+    static int locateEndOfCentralDirectory(ByteBuffer buf) {
+        int limit = buf.limit();
+        int stop = Math.max(0, limit - EOCD_MAX_SEARCH);
+        for (int pos = limit - EOCD_MIN_LENGTH; pos >= stop; pos--) {
+            if (buf.getInt(pos) == EOCD_SIGNATURE
+                    && pos + EOCD_MIN_LENGTH + (buf.getShort(pos + 20) & 0xFFFF) <= limit) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 解析中央目录
+     *
+     * @param cd 小端序的中央目录内容
+     * @param entryCount EOCD中记录的条目数量
+     * @param cdOffset 中央目录在文件中的偏移量
+     * @return 中央目录索引
+     * @throws ZipException 中央目录格式错误
+     */
+    static ZipEntryIndex parseCentralDirectory(ByteBuffer cd, int entryCount, long cdOffset) throws ZipException {
+        String[] names = new String[entryCount];
+        int[] nameHashes = new int[entryCount];
+        long[] localHeaderOffsets = new long[entryCount];
+        long[] compressedSizes = new long[entryCount];
+        long[] sizes = new long[entryCount];
+        short[] methods = new short[entryCount];
+        int[] crcs = new int[entryCount];
+
+        byte[] nameBytes = new byte[256];
+        int pos = 0;
+        int limit = cd.limit();
+        for (int i = 0; i < entryCount; i++) {
+            if (pos + CEN_HEADER_LENGTH > limit || cd.getInt(pos) != CEN_SIGNATURE) {
+                throw new ZipException("Invalid central directory header at entry " + i);
+            }
+            methods[i] = cd.getShort(pos + 10);
+            crcs[i] = cd.getInt(pos + 16);
+            compressedSizes[i] = cd.getInt(pos + 20) & 0xFFFFFFFFL;
+            sizes[i] = cd.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nameLength = cd.getShort(pos + 28) & 0xFFFF;
+            int extraLength = cd.getShort(pos + 30) & 0xFFFF;
+            int commentLength = cd.getShort(pos + 32) & 0xFFFF;
+            localHeaderOffsets[i] = cd.getInt(pos + 42) & 0xFFFFFFFFL;
+            if (compressedSizes[i] == 0xFFFFFFFFL || sizes[i] == 0xFFFFFFFFL
+                    || localHeaderOffsets[i] == 0xFFFFFFFFL) {
+                throw new ZipException("ZIP64 entries are not supported by the index reader");
+            }
+            int next = pos + CEN_HEADER_LENGTH + nameLength + extraLength + commentLength;
+            if (next > limit) {
+                throw new ZipException("Central directory entry exceeds directory bounds");
+            }
+
+            if (nameBytes.length < nameLength) {
+                nameBytes = new byte[nameLength];
+            }
+            for (int j = 0; j < nameLength; j++) {
+                nameBytes[j] = cd.get(pos + CEN_HEADER_LENGTH + j);
+            }
+            // 与java.util.zip.ZipFile一致，未设置UTF-8标志的名称同样按UTF-8解码
+            names[i] = new String(nameBytes, 0, nameLength, StandardCharsets.UTF_8);
+            nameHashes[i] = names[i].hashCode();
+            pos = next;
+        }
+        return new ZipEntryIndex(names, nameHashes, localHeaderOffsets, compressedSizes, sizes, methods, crcs,
+                cdOffset);
+    }
+
+    private static int[] buildTable(String[] names, int[] nameHashes) {
+        // 保持装载因子不超过0.5
+        int capacity = Integer.highestOneBit(Math.max(2, names.length) * 2 - 1) << 1;
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < names.length; i++) {
+            int slot = mix(nameHashes[i]) & mask;
+            while (table[slot] != 0) {
+                int existing = table[slot] - 1;
+                if (nameHashes[existing] == nameHashes[i] && names[existing].equals(names[i])) {
+                    // 重复条目以后出现的为准，与ZipFile的行为一致
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+        return table;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 查找条目
+     *
+     * @param name 条目名称
+     * @return 条目下标，如果不存在返回-1
+     */
+    public int indexOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        int hash = name.hashCode();
+        int mask = table.length - 1;
+        int slot = mix(hash) & mask;
+        int candidate;
+        while ((candidate = table[slot]) != 0) {
+            int i = candidate - 1;
+            if (nameHashes[i] == hash && names[i].equals(name)) {
+                return i;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * 按清单中的href查找条目
+     * 先按原名称精确查找；未命中时将href百分号解码并规范化（去除"./"和多余的"/"，解析".."）后查找，
+     * 可选地再忽略大小写查找。别名表每个归档只构建一次，之后的查找均为O(1)
+     *
+     * @param href 条目名称或清单中的href
+     * @param ignoreCase 是否在规范化名称也未命中时忽略大小写；多个条目仅大小写不同时视为未找到
+     * @return 条目下标，如果不存在返回-1
+     */
+    public int resolve(String href, boolean ignoreCase) {
+        int entry = indexOf(href);
+        if (entry >= 0 || href == null) {
+            return entry;
+        }
+        String key = normalizeName(href);
+        if (key == null) {
+            return -1;
+        }
+        NameAliases table = aliases();
+        Integer match = table.normalized.get(key);
+        if (match == null && ignoreCase) {
+            match = table.folded.get(key.toLowerCase(Locale.ROOT));
+        }
+        return match != null ? match : -1;
+    }
+
+    private NameAliases aliases() {
+        NameAliases table = aliases;
+        if (table == null) {
+            synchronized (this) {
+                table = aliases;
+                if (table == null) {
+                    table = new NameAliases(names);
+                    aliases = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 规范化条目名称：百分号解码、去除开头的"/"、空段和"."段，并解析".."段
+     *
+     * @param href 条目名称或href
+     * @return 规范化后的名称，如果包含无效的百分号编码或".."超出根目录返回null
+     */
+    public static String normalizeName(String href) {
+        String decoded = percentDecode(href);
+        return decoded != null ? normalizePath(decoded) : null;
+    }
+
+    /**
+     * 规范化路径的各段，不做解码；条目名称本身就是字面路径
+     */
+    private static String normalizePath(String path) {
+        String[] segments = path.split("/");
+        int depth = 0;
+        for (String segment : segments) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                if (depth == 0) {
+                    return null;
+                }
+                depth--;
+            } else {
+                segments[depth++] = segment;
+            }
+        }
+        StringBuilder normalized = new StringBuilder(path.length());
+        for (int i = 0; i < depth; i++) {
+            if (i > 0) {
+                normalized.append('/');
+            }
+            normalized.append(segments[i]);
+        }
+        return normalized.toString();
+    }
+
+    private static String percentDecode(String href) {
+        int percent = href.indexOf('%');
+        if (percent < 0) {
+            return href;
+        }
+        byte[] bytes = new byte[href.length() * 3];
+        int length = 0;
+        StringBuilder decoded = new StringBuilder(href.length());
+        decoded.append(href, 0, percent);
+        for (int i = percent; i < href.length(); ) {
+            char c = href.charAt(i);
+            if (c == '%') {
+                // 连续的编码字节一起按UTF-8解码
+                length = 0;
+                while (i < href.length() && href.charAt(i) == '%') {
+                    if (i + 2 >= href.length()) {
+                        return null;
+                    }
+                    int high = Character.digit(href.charAt(i + 1), 16);
+                    int low = Character.digit(href.charAt(i + 2), 16);
+                    if (high < 0 || low < 0) {
+                        return null;
+                    }
+                    bytes[length++] = (byte) ((high << 4) | low);
+                    i += 3;
+                }
+                decoded.append(new String(bytes, 0, length, StandardCharsets.UTF_8));
+            } else {
+                decoded.append(c);
+                i++;
+            }
+        }
+        return decoded.toString();
+    }
+
+    /**
+     * 规范化名称和忽略大小写名称到条目下标的映射
+     */
+    private static final class NameAliases {
+        final Map<String, Integer> normalized;
+        final Map<String, Integer> folded;
+
+        NameAliases(String[] names) {
+            normalized = new HashMap<>(names.length * 2);
+            folded = new HashMap<>(names.length * 2);
+            Map<String, String> foldedSources = new HashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                String key = normalizePath(names[i]);
+                if (key == null) {
+                    continue;
+                }
+                // 名称本身已是规范形式的条目优先，其余以先出现的为准
+                if (key.equals(names[i]) || !normalized.containsKey(key)) {
+                    normalized.put(key, i);
+                }
+                String foldedKey = key.toLowerCase(Locale.ROOT);
+                String previous = foldedSources.putIfAbsent(foldedKey, key);
+                if (previous == null || previous.equals(key)) {
+                    folded.put(foldedKey, normalized.get(key));
+                } else {
+                    // 仅大小写不同的多个条目，无法确定目标
+                    folded.remove(foldedKey);
+                    foldedSources.put(foldedKey, "");
+                }
+            }
+        }
+    }
+
+    /**
+     * 判断条目是否存在
+     *
+     * @param name 条目名称
+     * @return 如果存在返回true
+     */
+    public boolean contains(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    /**
+     * 获取条目数量
+     * @return 条目数量
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * 获取所有条目名称，按中央目录顺序排列
+     * @return 不可修改的名称列表，不会产生复制
+     */
+    public List<String> getNames() {
+        return nameList;
+    }
+
+    public String getName(int entry) {
+        return names[entry];
+    }
+
+    public int getNameHash(int entry) {
+        return nameHashes[entry];
+    }
+
+    public long getLocalHeaderOffset(int entry) {
+        return localHeaderOffsets[entry];
+    }
+
+    public long getCompressedSize(int entry) {
+        return compressedSizes[entry];
+    }
+
+    public long getSize(int entry) {
+        return sizes[entry];
+    }
+
+    public int getMethod(int entry) {
+        return methods[entry] & 0xFFFF;
+    }
+
+    public long getCrc(int entry) {
+        return crcs[entry] & 0xFFFFFFFFL;
+    }
+
+    /**
+     * 获取中央目录在文件中的偏移量，即最后一个条目区域的结束位置
+     * @return 偏移量
+     */
+    long getCentralDirectoryOffset() {
+        return centralDirectoryOffset;
+    }
+
+    /**
+     * 判断条目是否为目录
+     * @param entry 条目下标
+     * @return 如果是目录返回true
+     */
+    public boolean isDirectory(int entry) {
+        return names[entry].endsWith("/");
+    }
+
+    /**
+     * 名称数组的只读列表视图
+     */
+    private static final class NameList extends AbstractList<String> implements RandomAccess {
+        private final String[] names;
+
+        NameList(String[] names) {
+            this.names = names;
+        }
+
+        @Override
+        public String get(int index) {
+            return names[index];
+        }
+
+        @Override
+        public int size() {
+            return names.length;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package fun.lzwi.epubime.zip;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+/**
+ * 跨线程共享的ZIP文件句柄池
+ * 按文件身份（文件系统fileKey，不可用时退化为规范化的绝对路径）缓存 {@link ZipFile}，
+ * 所有线程共享同一个句柄并通过引用计数管理生命周期。
+ * 空闲句柄按LRU顺序保留，超出最大打开数量时淘汰最久未使用的空闲句柄，
+ * 并由后台守护线程关闭空闲超时的句柄。
+ */
+public class ZipFilePool {
+    /**
+     * 默认最大打开句柄数量
+     */
+    public static final int DEFAULT_MAX_OPEN_HANDLES = 64;
+
+    /**
+     * 默认空闲超时时间（毫秒）
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000L;
+
+    // 单例实例
+    private static final ZipFilePool INSTANCE = new ZipFilePool(DEFAULT_MAX_OPEN_HANDLES, DEFAULT_IDLE_TIMEOUT_MILLIS);
+
+    // 按访问顺序排列的句柄表，用于LRU淘汰，所有访问都在this锁内进行
+    private final LinkedHashMap<Object, PooledZipFile> handles = new LinkedHashMap<>(16, 0.75f, true);
+
+    // ZipFile句柄到池条目的映射，用于按句柄释放
+    private final Map<ZipFile, PooledZipFile> leases = new IdentityHashMap<>();
+
+    private int maxOpenHandles;
+    private long idleTimeoutMillis;
+
+    // 后台空闲清理任务，延迟创建
+    private ScheduledExecutorService cleaner;
+    private ScheduledFuture<?> cleanerTask;
+
+    /**
+     * 创建独立的句柄池
+     * @param maxOpenHandles 最大打开句柄数量
+     * @param idleTimeoutMillis 空闲超时时间（毫秒），小于等于0表示不做后台清理
+     */
+    public ZipFilePool(int maxOpenHandles, long idleTimeoutMillis) {
+        if (maxOpenHandles <= 0) {
+            throw new IllegalArgumentException("maxOpenHandles must be positive");
+        }
+        this.maxOpenHandles = maxOpenHandles;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * 获取全局共享的句柄池实例
+     * @return 句柄池实例
+     */
+    public static ZipFilePool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 获取ZIP文件句柄，引用计数加一
+     * 调用者使用完毕后必须调用 {@link #release(ZipFile)}
+     * @param file ZIP文件
+     * @return 共享的ZIP文件句柄
+     * @throws IOException IO异常
+     */
+    public ZipFile acquire(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("ZIP file cannot be null");
+        }
+        Object key = identityOf(file);
+
+        PooledZipFile pooled;
+        synchronized (this) {
+            pooled = handles.get(key);
+            if (pooled == null) {
+                pooled = new PooledZipFile(key, file);
+                handles.put(key, pooled);
+            }
+            pooled.refCount++;
+        }
+
+        // 在池锁之外打开文件，避免中央目录扫描阻塞其他书籍的访问
+        ZipFile zipFile;
+        try {
+            zipFile = pooled.open();
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                pooled.refCount--;
+                if (pooled.refCount == 0 && handles.get(key) == pooled) {
+                    handles.remove(key);
+                }
+            }
+            throw e;
+        }
+
+        List<PooledZipFile> evicted;
+        synchronized (this) {
+            leases.put(zipFile, pooled);
+            evicted = evictIdleOverflow();
+            scheduleCleanerIfNeeded();
+        }
+        closeAll(evicted);
+        return zipFile;
+    }
+
+    /**
+     * 释放ZIP文件句柄，引用计数减一
+     * 引用计数归零后句柄保持打开状态，等待重用或被淘汰
+     * @param zipFile 由 {@link #acquire(File)} 返回的句柄
+     */
+    public void release(ZipFile zipFile) {
+        if (zipFile == null) {
+            return;
+        }
+        List<PooledZipFile> toClose = Collections.emptyList();
+        synchronized (this) {
+            PooledZipFile pooled = leases.get(zipFile);
+            if (pooled == null) {
+                return;
+            }
+            pooled.refCount--;
+            if (pooled.refCount <= 0) {
+                pooled.refCount = 0;
+                pooled.lastReleased = System.nanoTime();
+                leases.remove(zipFile);
+                if (pooled.retired) {
+                    toClose = Collections.singletonList(pooled);
+                } else {
+                    toClose = evictIdleOverflow();
+                }
+            }
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * 设置最大打开句柄数量，超出部分的空闲句柄会立即被关闭
+     * @param maxOpenHandles 最大打开句柄数量
+     */
+    public void setMaxOpenHandles(int maxOpenHandles) {
+        if (maxOpenHandles <= 0) {
+            throw new IllegalArgumentException("maxOpenHandles must be positive");
+        }
+        List<PooledZipFile> evicted;
+        synchronized (this) {
+            this.maxOpenHandles = maxOpenHandles;
+            evicted = evictIdleOverflow();
+        }
+        closeAll(evicted);
+    }
+
+    /**
+     * 获取最大打开句柄数量
+     * @return 最大打开句柄数量
+     */
+    public synchronized int getMaxOpenHandles() {
+        return maxOpenHandles;
+    }
+
+    /**
+     * 设置空闲超时时间
+     * @param idleTimeoutMillis 空闲超时时间（毫秒），小于等于0表示不做后台清理
+     */
+    public synchronized void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        if (cleanerTask != null) {
+            cleanerTask.cancel(false);
+            cleanerTask = null;
+        }
+        scheduleCleanerIfNeeded();
+    }
+
+    /**
+     * 获取空闲超时时间
+     * @return 空闲超时时间（毫秒）
+     */
+    public synchronized long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * 获取当前池中的句柄数量（包括正在使用和空闲的句柄）
+     * @return 句柄数量
+     */
+    public synchronized int getOpenHandleCount() {
+        return handles.size();
+    }
+
+    /**
+     * 获取指定文件当前的引用计数
+     * @param file ZIP文件
+     * @return 引用计数，如果文件不在池中返回0
+     */
+    public int getReferenceCount(File file) {
+        Object key = identityOf(file);
+        synchronized (this) {
+            PooledZipFile pooled = handles.get(key);
+            return pooled != null ? pooled.refCount : 0;
+        }
+    }
+
+    /**
+     * 关闭空闲时间超过超时时间的句柄
+     * 通常由后台线程调用，也可以手动调用
+     * @return 被关闭的句柄数量
+     */
+    public int closeIdleHandles() {
+        List<PooledZipFile> expired = new ArrayList<>();
+        synchronized (this) {
+            if (idleTimeoutMillis <= 0) {
+                return 0;
+            }
+            long deadline = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+            Iterator<PooledZipFile> it = handles.values().iterator();
+            while (it.hasNext()) {
+                PooledZipFile pooled = it.next();
+                if (pooled.refCount == 0 && pooled.lastReleased - deadline <= 0) {
+                    it.remove();
+                    expired.add(pooled);
+                }
+            }
+        }
+        closeAll(expired);
+        return expired.size();
+    }
+
+    /**
+     * 关闭指定文件的句柄
+     * 正在使用的句柄会在最后一个引用释放时关闭
+     * @param file ZIP文件
+     */
+    public void close(File file) {
+        Object key = identityOf(file);
+        PooledZipFile toClose = null;
+        synchronized (this) {
+            PooledZipFile pooled = handles.remove(key);
+            if (pooled != null) {
+                if (pooled.refCount == 0) {
+                    toClose = pooled;
+                } else {
+                    pooled.retired = true;
+                }
+            }
+        }
+        if (toClose != null) {
+            toClose.close();
+        }
+    }
+
+    /**
+     * 关闭池中所有句柄
+     * 正在使用的句柄会在最后一个引用释放时关闭
+     */
+    public void closeAll() {
+        List<PooledZipFile> idle = new ArrayList<>();
+        synchronized (this) {
+            for (PooledZipFile pooled : handles.values()) {
+                if (pooled.refCount == 0) {
+                    idle.add(pooled);
+                } else {
+                    pooled.retired = true;
+                }
+            }
+            handles.clear();
+        }
+        closeAll(idle);
+    }
+
+    /**
+     * 从池中移除超出容量的最久未使用的空闲句柄，必须持有this锁调用
+     * 移除的句柄没有其他引用，由调用者在释放锁之后关闭，避免关闭文件时阻塞其他线程
+     * @return 需要关闭的句柄
+     */
+    private List<PooledZipFile> evictIdleOverflow() {
+        if (handles.size() <= maxOpenHandles) {
+            return Collections.emptyList();
+        }
+        List<PooledZipFile> evicted = new ArrayList<>();
+        Iterator<PooledZipFile> it = handles.values().iterator();
+        while (handles.size() > maxOpenHandles && it.hasNext()) {
+            PooledZipFile pooled = it.next();
+            if (pooled.refCount == 0) {
+                it.remove();
+                evicted.add(pooled);
+            }
+        }
+        return evicted;
+    }
+
+    private static void closeAll(List<PooledZipFile> pooledFiles) {
+        for (PooledZipFile pooled : pooledFiles) {
+            pooled.close();
+        }
+    }
+
+    /**
+     * 按需启动后台空闲清理任务，必须持有this锁调用
+     */
+    private void scheduleCleanerIfNeeded() {
+        if (cleanerTask != null || idleTimeoutMillis <= 0) {
+            return;
+        }
+        if (cleaner == null) {
+            cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "epubime-zip-pool-cleaner");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        long period = Math.max(1L, idleTimeoutMillis / 2);
+        cleanerTask = cleaner.scheduleWithFixedDelay(this::closeIdleHandles, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 计算文件身份
+     * 优先使用文件系统提供的fileKey（如inode），使同一文件的不同路径共享句柄，
+     * 文件被原地替换后也会得到新的身份；不可用时退化为规范化的绝对路径
+     * @param file 文件
+     * @return 文件身份
+     */
+    static Object identityOf(File file) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        try {
+            Object fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            if (fileKey != null) {
+                return fileKey;
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            // 文件不存在或无法读取属性，使用路径作为身份，打开时会抛出相应异常
+        }
+        return path;
+    }
+
+    /**
+     * 池中的ZIP文件句柄条目
+     */
+    private static final class PooledZipFile {
+        private final Object key;
+        private final File file;
+        private volatile ZipFile zipFile;
+        // 以下字段受池锁保护
+        private int refCount;
+        private long lastReleased;
+        private boolean retired;
+
+        PooledZipFile(Object key, File file) {
+            this.key = key;
+            this.file = file;
+        }
+
+        /**
+         * 按需打开ZIP文件，多个线程并发获取同一文件时只打开一次
+         * @return ZIP文件句柄
+         * @throws IOException IO异常
+         */
+        ZipFile open() throws IOException {
+            ZipFile current = zipFile;
+            if (current != null) {
+                return current;
+            }
+            synchronized (this) {
+                if (zipFile == null) {
+                    zipFile = new ZipFile(file);
+                }
+                return zipFile;
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                if (zipFile != null) {
+                    try {
+                        zipFile.close();
+                    } catch (IOException e) {
+                        // 忽略关闭异常
+                    } finally {
+                        zipFile = null;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "PooledZipFile{" + key + ", refCount=" + refCount + "}";
+        }
+    }
+}
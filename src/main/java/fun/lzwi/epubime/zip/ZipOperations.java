@@ -3,7 +3,12 @@ package fun.lzwi.epubime.zip;
 import fun.lzwi.epubime.cache.EpubCacheManager;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -17,6 +22,11 @@ public class ZipOperations {
     public static final String DEFAULT_CHARSET = StandardCharsets.UTF_8.name();
     public static final int BUFFER_SIZE = 8192;
     public static final int INITIAL_STRING_BUILDER_CAPACITY = 4096;
+    // 部分虚拟机无法分配长度为Integer.MAX_VALUE的数组
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    // 每个线程保留的解码暂存数组上限，更长的文本直接使用String的构造方法
+    private static final int MAX_DECODE_SCRATCH_CHARS = 256 * 1024;
+    private static final ThreadLocal<TextDecoder> TEXT_DECODER = ThreadLocal.withInitial(TextDecoder::new);
     
     /**
      * 验证文件路径安全性
@@ -43,19 +53,32 @@ public class ZipOperations {
     }
     
     /**
-     * 获取ZIP文件句柄
+     * 获取ZIP文件句柄，句柄由全局句柄池跨线程共享
      * 
      * @param zipFile ZIP文件
-     * @return ZIP文件句柄
+     * @return ZIP文件句柄，使用完毕后需调用 {@link #releaseZipFile(ZipFile)}
      * @throws IOException IO异常
      */
     public static ZipFile getZipFile(File zipFile) throws IOException {
-        return ZipFileManager.getInstance().getZipFile(zipFile);
+        return ZipFilePool.getInstance().acquire(zipFile);
     }
     
     /**
-     * 释放ZIP文件句柄
+     * 释放ZIP文件句柄，减少引用计数
+     * 
+     * @param zip 由 {@link #getZipFile(File)} 返回的句柄
+     */
+    public static void releaseZipFile(ZipFile zip) {
+        ZipFilePool.getInstance().release(zip);
+    }
+
+    /**
+     * 释放当前线程通过 {@link ZipFileManager#getZipFile(File)} 最近获取的ZIP文件句柄
+     * 
+     * @deprecated 句柄由跨线程共享的句柄池按引用计数管理，无参版本无法确定要释放哪个句柄，
+     *             请改用 {@link #releaseZipFile(ZipFile)}
      */
+    @Deprecated
     public static void releaseZipFile() {
         ZipFileManager.getInstance().releaseZipFile();
     }
@@ -71,6 +94,30 @@ public class ZipOperations {
         return zipFile.getEntry(entryName);
     }
     
+    /**
+     * 获取ZIP文件的中央目录索引
+     * 索引只在首次打开时解析一次，之后在多次打开之间复用
+     * 
+     * @param zipFile ZIP文件
+     * @return 中央目录索引，如果文件无法映射（如ZIP64或超大文件）返回null
+     */
+    public static ZipEntryIndex getEntryIndex(File zipFile) {
+        MappedZipFile archive = MappedZipFile.openIfSupported(zipFile);
+        return archive != null ? archive.getIndex() : null;
+    }
+    
+    /**
+     * 通过中央目录索引判断条目是否一定不存在，避免为不存在的条目获取ZIP文件句柄
+     * 
+     * @param zipFile ZIP文件
+     * @param entryName 条目名称
+     * @return 如果索引可用且不包含该条目返回true
+     */
+    public static boolean isKnownMissing(File zipFile, String entryName) {
+        ZipEntryIndex index = getEntryIndex(zipFile);
+        return index != null && !index.contains(entryName);
+    }
+    
     /**
      * 从缓存获取文本内容
      * 
@@ -94,6 +141,18 @@ public class ZipOperations {
         EpubCacheManager.EpubFileCache cache = EpubCacheManager.getInstance().getFileCache(zipFile);
         return cache.getBinaryContent(fileName);
     }
+
+    /**
+     * 从缓存获取二进制内容的只读视图，堆内内容不复制数据，堆外内容返回堆内副本
+     * 
+     * @param zipFile ZIP文件
+     * @param fileName 文件名
+     * @return 缓存内容的只读视图，如果不存在返回null
+     */
+    public static ByteBuffer getCachedBinaryBuffer(File zipFile, String fileName) {
+        EpubCacheManager.EpubFileCache cache = EpubCacheManager.getInstance().getFileCache(zipFile);
+        return cache.getBinaryBuffer(fileName);
+    }
     
     /**
      * 缓存文本内容
@@ -116,32 +175,95 @@ public class ZipOperations {
      */
     public static void cacheBinaryContent(File zipFile, String fileName, byte[] data) {
         EpubCacheManager.EpubFileCache cache = EpubCacheManager.getInstance().getFileCache(zipFile);
-        cache.setBinaryContent(fileName, data.clone());
+        cache.setBinaryContent(fileName, data);
     }
-    
+
     /**
-     * 从输入流读取文本内容
+     * 从输入流读取文本内容并关闭输入流
+     * 大小未知时以输入流的可用字节数作为初始容量提示
      * 
      * @param inputStream 输入流
      * @return 文本内容
      * @throws IOException IO异常
      */
     public static String readTextContent(InputStream inputStream) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, DEFAULT_CHARSET))) {
-            StringBuilder content = new StringBuilder(INITIAL_STRING_BUILDER_CAPACITY);
-            char[] buffer = new char[BUFFER_SIZE];
-            int charsRead;
-            
-            while ((charsRead = reader.read(buffer)) != -1) {
-                content.append(buffer, 0, charsRead);
+        return readTextContent(inputStream, -1);
+    }
+    
+    /**
+     * 从输入流读取文本内容并关闭输入流
+     * 字节读入池化的暂存数组后直接解码为字符串，不经过Reader和StringBuilder
+     * 
+     * @param inputStream 输入流
+     * @param expectedSize 预期大小（如ZIP条目的解压大小），未知时传入-1
+     * @return 文本内容
+     * @throws IOException IO异常
+     */
+    public static String readTextContent(InputStream inputStream, long expectedSize) throws IOException {
+        try (InputStream in = inputStream) {
+            ByteArrayPool pool = ByteArrayPool.getInstance();
+            // 多留一个字节，读满预期大小后无需扩容即可确认流已结束
+            byte[] buffer = pool.borrow(initialCapacity(in, expectedSize, 1));
+            try {
+                int length = 0;
+                int n;
+                while ((n = in.read(buffer, length, buffer.length - length)) != -1) {
+                    length += n;
+                    if (length == buffer.length) {
+                        buffer = grow(pool, buffer, length);
+                    }
+                }
+                return decodeUtf8(buffer, 0, length);
+            } finally {
+                pool.release(buffer);
             }
-            
-            return content.toString();
+        }
+    }
+    
+    /**
+     * 将UTF-8字节解码为字符串
+     * 使用线程内复用的解码器和字符暂存数组，只分配结果字符串；
+     * 直接使用 {@code new String(bytes, UTF_8)} 时，非ASCII内容会先按最坏情况分配中间数组再复制。
+     * 非法字节序列替换为U+FFFD，与 {@link String} 的构造方法一致
+     * 
+     * @param bytes 字节数组
+     * @param offset 起始位置
+     * @param length 字节数
+     * @return 解码后的字符串
+     */
+    static String decodeUtf8(byte[] bytes, int offset, int length) {
+        if (length > MAX_DECODE_SCRATCH_CHARS) {
+            return new String(bytes, offset, length, StandardCharsets.UTF_8);
+        }
+        TextDecoder decoder = TEXT_DECODER.get();
+        return decoder.decode(bytes, offset, length);
+    }
+    
+    /**
+     * 线程内复用的UTF-8解码器和字符暂存数组
+     */
+    private static final class TextDecoder {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private char[] scratch = new char[BUFFER_SIZE];
+        
+        String decode(byte[] bytes, int offset, int length) {
+            // UTF-8解码后的字符数不超过字节数
+            if (scratch.length < length) {
+                scratch = new char[Math.max(length, Math.min(MAX_DECODE_SCRATCH_CHARS, scratch.length * 2))];
+            }
+            CharBuffer out = CharBuffer.wrap(scratch);
+            decoder.reset();
+            decoder.decode(ByteBuffer.wrap(bytes, offset, length), out, true);
+            decoder.flush(out);
+            return new String(scratch, 0, out.position());
         }
     }
     
     /**
      * 从输入流读取二进制内容
+     * 预期大小已知时结果数组只分配一次；未知时读入池化的暂存数组后复制为精确大小
      * 
      * @param inputStream 输入流
      * @param expectedSize 预期大小（如果已知）
@@ -149,22 +271,80 @@ public class ZipOperations {
      * @throws IOException IO异常
      */
     public static byte[] readBinaryContent(InputStream inputStream, long expectedSize) throws IOException {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream(
-                expectedSize > 0 && expectedSize < Integer.MAX_VALUE ? (int) expectedSize : BUFFER_SIZE)) {
-            
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int bytesRead;
-            
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
+        if (expectedSize < 0 || expectedSize > MAX_ARRAY_LENGTH) {
+            return readWithPool(inputStream, null, 0, initialCapacity(inputStream, -1, 0));
+        }
+        byte[] result = new byte[(int) expectedSize];
+        int length = 0;
+        int n;
+        while (length < result.length && (n = inputStream.read(result, length, result.length - length)) != -1) {
+            length += n;
+        }
+        if (length < result.length) {
+            // 实际内容比预期短
+            return Arrays.copyOf(result, length);
+        }
+        int next = inputStream.read();
+        if (next == -1) {
+            return result;
+        }
+        // 实际内容比预期长，已读部分作为前缀继续读取
+        byte[] prefix = Arrays.copyOf(result, length + 1);
+        prefix[length] = (byte) next;
+        return readWithPool(inputStream, prefix, prefix.length, prefix.length * 2);
+    }
+    
+    /**
+     * 读取剩余内容到池化的暂存数组，最后复制为精确大小
+     */
+    private static byte[] readWithPool(InputStream in, byte[] prefix, int prefixLength, int capacity) throws IOException {
+        ByteArrayPool pool = ByteArrayPool.getInstance();
+        byte[] buffer = pool.borrow(Math.max(capacity, prefixLength + 1));
+        try {
+            int length = prefixLength;
+            if (prefix != null) {
+                System.arraycopy(prefix, 0, buffer, 0, prefixLength);
             }
-            
-            return out.toByteArray();
+            int n;
+            while ((n = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += n;
+                if (length == buffer.length) {
+                    buffer = grow(pool, buffer, length);
+                }
+            }
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            pool.release(buffer);
         }
     }
     
+    /**
+     * 扩容暂存数组，旧数组归还到池中
+     */
+    private static byte[] grow(ByteArrayPool pool, byte[] buffer, int length) throws IOException {
+        if (length >= MAX_ARRAY_LENGTH) {
+            throw new IOException("Content too large");
+        }
+        byte[] larger = pool.borrow((int) Math.min(MAX_ARRAY_LENGTH, (long) length * 2));
+        System.arraycopy(buffer, 0, larger, 0, length);
+        pool.release(buffer);
+        return larger;
+    }
+    
+    /**
+     * 计算暂存数组的初始容量
+     */
+    private static int initialCapacity(InputStream in, long expectedSize, int extra) throws IOException {
+        long size = expectedSize;
+        if (size < 0) {
+            size = in.available();
+        }
+        return (int) Math.max(BUFFER_SIZE, Math.min(MAX_ARRAY_LENGTH, size + extra));
+    }
+    
     /**
      * 处理ZIP文件内容
+     * 可映射的文件直接读取映射数据并使用池化的解压器，否则回退到ZIP文件句柄
      * 
      * @param zipFile ZIP文件
      * @param fileName 文件名
@@ -175,39 +355,91 @@ public class ZipOperations {
                                        java.util.function.Consumer<InputStream> processor) throws IOException {
         validatePathSafety(fileName);
         
+        MappedZipFile archive = MappedZipFile.openIfSupported(zipFile);
+        if (archive != null) {
+            int entry = archive.findEntry(fileName);
+            if (entry < 0) {
+                return;
+            }
+            try (InputStream in = archive.openStream(entry)) {
+                processor.accept(in);
+            }
+            return;
+        }
+        
         ZipFile zip = getZipFile(zipFile);
         ZipEntry entry = getZipEntry(zip, fileName);
         
         if (entry == null) {
-            releaseZipFile();
+            releaseZipFile(zip);
             return;
         }
 
         try (InputStream in = zip.getInputStream(entry)) {
             processor.accept(in);
         } finally {
-            releaseZipFile();
+            releaseZipFile(zip);
         }
     }
     
     /**
      * 获取ZIP文件输入流
+     * 可映射的文件直接读取映射数据并使用池化的解压器，否则回退到ZIP文件句柄
      * 
      * @param zipFile ZIP文件
      * @param fileName 文件名
-     * @return 输入流，如果不存在返回null
+     * @return 输入流，如果不存在返回null；关闭输入流时归还解压器或释放ZIP文件句柄
      * @throws IOException IO异常
      */
     public static InputStream getZipInputStream(File zipFile, String fileName) throws IOException {
         validatePathSafety(fileName);
         
+        MappedZipFile archive = MappedZipFile.openIfSupported(zipFile);
+        if (archive != null) {
+            int entry = archive.findEntry(fileName);
+            return entry < 0 ? null : archive.openStream(entry);
+        }
+        
         ZipFile zip = getZipFile(zipFile);
         ZipEntry entry = getZipEntry(zip, fileName);
         
         if (entry == null) {
+            releaseZipFile(zip);
             return null;
         }
 
-        return zip.getInputStream(entry);
+        try {
+            return new ReleasingInputStream(zip.getInputStream(entry), zip);
+        } catch (IOException | RuntimeException e) {
+            releaseZipFile(zip);
+            throw e;
+        }
+    }
+    
+    /**
+     * 关闭时释放ZIP文件句柄的输入流
+     */
+    private static final class ReleasingInputStream extends FilterInputStream {
+        private final ZipFile zip;
+        private boolean released;
+        
+        ReleasingInputStream(InputStream in, ZipFile zip) {
+            super(in);
+            this.zip = zip;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                synchronized (this) {
+                    if (!released) {
+                        released = true;
+                        releaseZipFile(zip);
+                    }
+                }
+            }
+        }
     }
 }
\ No newline at end of file
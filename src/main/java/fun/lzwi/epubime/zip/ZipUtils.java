@@ -1,7 +1,18 @@
 package fun.lzwi.epubime.zip;
 
+import fun.lzwi.epubime.cache.EpubCacheManager;
+import fun.lzwi.epubime.cache.SingleFlight;
+
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.zip.ZipEntry;
@@ -14,24 +25,32 @@ import java.util.zip.ZipFile;
  * 重构后使用ZipOperations工具类消除重复代码
  */
 public class ZipUtils {
+
+    // 按缓存和条目名称合并同一条目的并发文本读取
+    private static final SingleFlight<Object, String> CONTENT_LOADS = new SingleFlight<>();
     
     /**
      * 获取ZIP文件中的文件列表
      *
      * @param zipFile ZIP文件
-     * @return 文件名列表
+     * @return 文件名列表（不可修改）
      * @throws IOException IO异常
      */
     public static List<String> getZipFileList(File zipFile) throws IOException {
+        // 优先使用中央目录索引，直接返回不可修改的名称列表，无需扫描和复制
+        ZipEntryIndex index = ZipOperations.getEntryIndex(zipFile);
+        if (index != null) {
+            return index.getNames();
+        }
+
         ZipFile zip = ZipOperations.getZipFile(zipFile);
         try {
-            // 使用并行流提高性能（对于大文件）
-            return zip.stream()
+            return java.util.Collections.unmodifiableList(zip.stream()
                      .map(ZipEntry::getName)
-                     .collect(java.util.stream.Collectors.toList());
+                     .collect(java.util.stream.Collectors.toList()));
         } finally {
             // 释放ZIP文件句柄，减少引用计数
-            ZipOperations.releaseZipFile();
+            ZipOperations.releaseZipFile(zip);
         }
     }
 
@@ -44,31 +63,83 @@ public class ZipUtils {
      * @throws IOException IO异常
      */
     public static String getZipFileContent(File zipFile, String fileName) throws IOException {
+        return getZipFileContent(EpubCacheManager.getInstance(), zipFile, fileName);
+    }
+
+    private static String getZipFileContent(EpubCacheManager manager, File zipFile, String fileName)
+            throws IOException {
         // 尝试从缓存获取
-        String cachedContent = ZipOperations.getCachedTextContent(zipFile, fileName);
+        EpubCacheManager.EpubFileCache cache = manager.getFileCache(zipFile);
+        String cachedContent = cache.getTextContent(fileName);
         
         if (cachedContent != null) {
             return cachedContent;
         }
 
-        // 缓存未命中，从ZIP文件读取
+        // 缓存未命中，同一条目的并发读取只解压一次
+        return loadOnce(cache, fileName, () -> {
+            String content = cache.peekTextContent(fileName);
+            if (content != null) {
+                return content;
+            }
+            long start = System.nanoTime();
+            content = loadZipFileContent(cache, zipFile, fileName);
+            cache.recordLoad(EpubCacheManager.Kind.TEXT, System.nanoTime() - start);
+            return content;
+        });
+    }
+
+    /**
+     * 获取条目文本读取的合并统计
+     * 执行次数为实际解压的次数，合并次数为等待其他线程的读取结果而未重复解压的调用次数
+     *
+     * @return 条目读取合并器
+     */
+    public static SingleFlight<Object, String> getContentFlights() {
+        return CONTENT_LOADS;
+    }
+
+    private static String loadOnce(EpubCacheManager.EpubFileCache cache, String fileName,
+                                   Callable<String> loader) throws IOException {
+        try {
+            return CONTENT_LOADS.execute(Arrays.asList(cache, fileName), loader);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to read " + fileName, e);
+        }
+    }
+
+    private static String loadZipFileContent(EpubCacheManager.EpubFileCache cache, File zipFile, String fileName)
+            throws IOException {
+        // 优先从映射文件读取
+        MappedZipFile archive = MappedZipFile.openIfSupported(zipFile);
+        if (archive != null) {
+            int index = archive.findEntry(fileName);
+            if (index < 0) {
+                return null;
+            }
+            String result = archive.getContentText(index);
+            cache.setTextContent(fileName, result);
+            return result;
+        }
         ZipFile zip = ZipOperations.getZipFile(zipFile);
         ZipEntry entry = ZipOperations.getZipEntry(zip, fileName);
         
         if (entry == null) {
             // 释放ZIP文件句柄，减少引用计数
-            ZipOperations.releaseZipFile();
+            ZipOperations.releaseZipFile(zip);
             return null;
         }
 
         try (InputStream in = zip.getInputStream(entry)) {
-            String result = ZipOperations.readTextContent(in);
+            String result = ZipOperations.readTextContent(in, entry.getSize());
             // 缓存结果
-            ZipOperations.cacheTextContent(zipFile, fileName, result);
+            cache.setTextContent(fileName, result);
             return result;
         } finally {
             // 释放ZIP文件句柄，减少引用计数
-            ZipOperations.releaseZipFile();
+            ZipOperations.releaseZipFile(zip);
         }
     }
 
@@ -81,14 +152,32 @@ public class ZipUtils {
      * @throws IOException IO异常
      */
     public static byte[] getZipFileBytes(File zipFile, String fileName) throws IOException {
-        // 尝试从缓存获取
-        byte[] cachedData = ZipOperations.getCachedBinaryContent(zipFile, fileName);
+        return getZipFileBytes(EpubCacheManager.getInstance(), zipFile, fileName);
+    }
+
+    private static byte[] getZipFileBytes(EpubCacheManager manager, File zipFile, String fileName)
+            throws IOException {
+        // 尝试从缓存获取，只复制一次交给调用者
+        EpubCacheManager.EpubFileCache cache = manager.getFileCache(zipFile);
+        byte[] cachedData = cache.getBinaryContent(fileName);
         
         if (cachedData != null) {
-            return cachedData.clone(); // 返回克隆避免修改缓存数据
+            return cachedData;
         }
 
-        // 缓存未命中，从ZIP文件读取
+        // 缓存未命中，优先从映射文件按已知大小一次性解压
+        long start = System.nanoTime();
+        MappedZipFile archive = MappedZipFile.openIfSupported(zipFile);
+        if (archive != null) {
+            int index = archive.findEntry(fileName);
+            if (index < 0) {
+                return null;
+            }
+            byte[] data = archive.getContentBytes(index);
+            cache.setBinaryContent(fileName, data);
+            cache.recordLoad(EpubCacheManager.Kind.BINARY, System.nanoTime() - start);
+            return data;
+        }
         ZipFile zip = ZipOperations.getZipFile(zipFile);
         try {
             ZipEntry entry = ZipOperations.getZipEntry(zip, fileName);
@@ -100,13 +189,222 @@ public class ZipUtils {
             try (InputStream in = zip.getInputStream(entry)) {
                 byte[] data = ZipOperations.readBinaryContent(in, entry.getSize());
                 // 缓存结果
-                ZipOperations.cacheBinaryContent(zipFile, fileName, data.clone());
+                cache.setBinaryContent(fileName, data);
+                cache.recordLoad(EpubCacheManager.Kind.BINARY, System.nanoTime() - start);
                 return data;
             }
         } finally {
             // 释放ZIP文件句柄，减少引用计数
-            ZipOperations.releaseZipFile();
+            ZipOperations.releaseZipFile(zip);
+        }
+    }
+
+    /**
+     * 获取ZIP文件中指定文件的只读ByteBuffer内容
+     * STORED条目直接返回内存映射文件的只读切片，不复制数据；
+     * DEFLATED条目按已知的解压大小一次性解压，并写入二进制缓存。
+     * 缓存在堆外存储中的内容复制到堆内后返回，视图不会因条目被淘汰而失效；
+     * {@link #getZipFileInputStream(File, String)} 和 {@link #transferTo(File, String, WritableByteChannel)} 直接读取堆外内容，不复制
+     *
+     * @param zipFile  ZIP文件
+     * @param fileName 文件名
+     * @return 只读的内容视图，如果不存在返回null
+     * @throws IOException IO异常
+     */
+    public static ByteBuffer getZipFileBuffer(File zipFile, String fileName) throws IOException {
+        return getZipFileBuffer(EpubCacheManager.getInstance(), zipFile, fileName);
+    }
+
+    private static ByteBuffer getZipFileBuffer(EpubCacheManager manager, File zipFile, String fileName)
+            throws IOException {
+        ZipOperations.validatePathSafety(fileName);
+
+        MappedZipFile archive = MappedZipFile.openIfSupported(zipFile);
+        if (archive == null) {
+            // 无法映射的文件回退到ZipFile读取
+            ByteBuffer cachedData = manager.getFileCache(zipFile).getBinaryBuffer(fileName);
+            if (cachedData != null) {
+                return cachedData;
+            }
+            byte[] data = getZipFileBytes(manager, zipFile, fileName);
+            return data != null ? ByteBuffer.wrap(data).asReadOnlyBuffer() : null;
+        }
+
+        int entry = archive.findEntry(fileName);
+        if (entry < 0) {
+            return null;
         }
+        if (archive.getIndex().getMethod(entry) == ZipEntryIndex.METHOD_STORED) {
+            return archive.getContent(entry);
+        }
+
+        // 命中时直接返回缓存数组的只读视图，未命中时解压的数组直接交给缓存持有
+        EpubCacheManager.EpubFileCache cache = manager.getFileCache(zipFile);
+        ByteBuffer cachedData = cache.getBinaryBuffer(fileName);
+        if (cachedData != null) {
+            return cachedData;
+        }
+        long start = System.nanoTime();
+        byte[] data = archive.getContentBytes(entry);
+        cache.putBinaryContent(fileName, data);
+        cache.recordLoad(EpubCacheManager.Kind.BINARY, System.nanoTime() - start);
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
+    /**
+     * 打开ZIP文件中指定文件的只读可定位通道，用于随机范围读取（如响应HTTP Range请求）
+     * STORED条目直接定位到映射文件中的数据；DEFLATED条目首次跳跃定位时建立解压检查点索引，
+     * 之后的随机读取只需从最近的检查点开始解压
+     *
+     * @param zipFile  ZIP文件
+     * @param fileName 文件名
+     * @return 可定位通道，如果文件不存在返回null
+     * @throws IOException IO异常
+     */
+    public static SeekableByteChannel getZipFileChannel(File zipFile, String fileName) throws IOException {
+        ZipOperations.validatePathSafety(fileName);
+
+        MappedZipFile archive = MappedZipFile.openIfSupported(zipFile);
+        if (archive == null) {
+            // 无法映射的文件回退到读取完整内容
+            byte[] data = getZipFileBytes(zipFile, fileName);
+            return data != null ? new ZipEntryChannel(ByteBuffer.wrap(data)) : null;
+        }
+        int entry = archive.findEntry(fileName);
+        return entry < 0 ? null : archive.openChannel(entry);
+    }
+
+    /**
+     * 将ZIP文件中指定文件的全部内容写入目标通道
+     *
+     * @param zipFile  ZIP文件
+     * @param fileName 文件名
+     * @param target   目标通道
+     * @return 写入的字节数，如果文件不存在返回-1
+     * @throws IOException IO异常
+     * @see #transferTo(File, String, long, long, WritableByteChannel)
+     */
+    public static long transferTo(File zipFile, String fileName, WritableByteChannel target) throws IOException {
+        return transferTo(zipFile, fileName, 0, Long.MAX_VALUE, target);
+    }
+
+    /**
+     * 将ZIP文件中指定文件内容的指定范围写入目标通道，不经过堆内存中转
+     * STORED条目使用FileChannel.transferTo直接传输，DEFLATED条目通过池化的解压器流式解压后写入。
+     * 目标通道为非阻塞通道且暂时无法写入时提前返回，调用者可从 position + 返回值 处继续传输
+     *
+     * @param zipFile  ZIP文件
+     * @param fileName 文件名
+     * @param position 内容中的起始位置
+     * @param count    最多传输的字节数
+     * @param target   目标通道
+     * @return 写入的字节数，如果文件不存在返回-1
+     * @throws IOException IO异常
+     */
+    public static long transferTo(File zipFile, String fileName, long position, long count,
+                                  WritableByteChannel target) throws IOException {
+        ZipOperations.validatePathSafety(fileName);
+        if (target == null) {
+            throw new IllegalArgumentException("Target channel cannot be null");
+        }
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("position and count must not be negative");
+        }
+        long transferred = transferCached(EpubCacheManager.getInstance().getFileCache(zipFile), fileName,
+                position, count, target);
+        if (transferred >= 0) {
+            return transferred;
+        }
+
+        MappedZipFile archive = MappedZipFile.openIfSupported(zipFile);
+        if (archive != null) {
+            int entry = archive.findEntry(fileName);
+            return entry < 0 ? -1 : archive.transferTo(entry, position, count, target);
+        }
+
+        // 无法映射的文件回退到输入流复制
+        try (InputStream in = ZipOperations.getZipInputStream(zipFile, fileName)) {
+            if (in == null) {
+                return -1;
+            }
+            return copyRange(in, position, count, target);
+        }
+    }
+
+    /**
+     * 将已缓存的二进制内容的指定范围写入目标通道，堆外内容直接从槽位写出，写入期间槽位被固定
+     * @return 写入的字节数，未缓存时返回-1
+     */
+    private static long transferCached(EpubCacheManager.EpubFileCache cache, String fileName, long position,
+                                       long count, WritableByteChannel target) throws IOException {
+        if (!cache.containsBinaryContent(fileName)) {
+            return -1;
+        }
+        try (EpubCacheManager.BinaryView view = cache.openBinaryBuffer(fileName)) {
+            if (view == null) {
+                return -1;
+            }
+            ByteBuffer buffer = view.buffer();
+            if (position >= buffer.limit()) {
+                return 0;
+            }
+            buffer.position((int) position);
+            buffer.limit((int) Math.min(buffer.limit(), position + Math.min(count, buffer.remaining())));
+            long written = 0;
+            while (buffer.hasRemaining()) {
+                int n = target.write(buffer);
+                if (n <= 0) {
+                    break;
+                }
+                written += n;
+            }
+            return written;
+        }
+    }
+
+    /**
+     * 以输入流的形式读取已缓存的二进制内容，堆外内容直接从槽位读取，关闭流时释放槽位
+     * @return 输入流，未缓存时返回null
+     */
+    private static InputStream openCachedStream(EpubCacheManager.EpubFileCache cache, String fileName) {
+        if (!cache.containsBinaryContent(fileName)) {
+            return null;
+        }
+        EpubCacheManager.BinaryView view = cache.openBinaryBuffer(fileName);
+        return view != null ? new BinaryViewInputStream(view) : null;
+    }
+
+    private static long copyRange(InputStream in, long position, long count, WritableByteChannel target)
+            throws IOException {
+        long skipped = 0;
+        while (skipped < position) {
+            long n = in.skip(position - skipped);
+            if (n <= 0) {
+                if (in.read() < 0) {
+                    return 0;
+                }
+                n = 1;
+            }
+            skipped += n;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(ZipOperations.BUFFER_SIZE);
+        long transferred = 0;
+        while (transferred < count) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), count - transferred));
+            int n = in.read(buffer.array(), 0, buffer.limit());
+            if (n < 0) {
+                break;
+            }
+            buffer.limit(n);
+            while (buffer.hasRemaining()) {
+                if (target.write(buffer) <= 0) {
+                    return transferred + buffer.position();
+                }
+            }
+            transferred += n;
+        }
+        return transferred;
     }
 
     /**
@@ -130,11 +428,14 @@ public class ZipUtils {
      * @throws IOException IO异常
      */
     public static InputStream getZipFileInputStream(File zipFile, String fileName) throws IOException {
-        return ZipOperations.getZipInputStream(zipFile, fileName);
+        ZipOperations.validatePathSafety(fileName);
+        InputStream cached = openCachedStream(EpubCacheManager.getInstance().getFileCache(zipFile), fileName);
+        return cached != null ? cached : ZipOperations.getZipInputStream(zipFile, fileName);
     }
 
     /**
-     * 使用单个ZIP文件句柄批量读取多个文件内容
+     * 批量读取多个文件内容
+     * 可映射的文件直接读取映射数据并使用池化的解压器，否则使用单个ZIP文件句柄
      *
      * @param zipFile   ZIP文件
      * @param fileNames 要读取的文件名列表
@@ -145,66 +446,97 @@ public class ZipUtils {
         ZipOperations.validateMultiplePathsSafety(fileNames);
 
         java.util.Map<String, String> contents = new java.util.HashMap<>((int) (fileNames.size() / 0.75f) + 1);
-        ZipFile zip = ZipOperations.getZipFile(zipFile);
         
-        // 优化：预分配StringBuilder，避免重复创建
-        StringBuilder contentBuilder = new StringBuilder(ZipOperations.INITIAL_STRING_BUILDER_CAPACITY);
-        char[] buffer = new char[ZipOperations.BUFFER_SIZE];
-        
-        for (String fileName : fileNames) {
-            ZipEntry entry = ZipOperations.getZipEntry(zip, fileName);
-            if (entry != null) {
-                try (InputStream in = zip.getInputStream(entry); 
-                     BufferedReader reader = new BufferedReader(new InputStreamReader(in, ZipOperations.DEFAULT_CHARSET))) {
-                    
-                    contentBuilder.setLength(0); // 重置StringBuilder
-                    int charsRead;
-                    
-                    while ((charsRead = reader.read(buffer)) != -1) {
-                        contentBuilder.append(buffer, 0, charsRead);
-                    }
-                    
-                    contents.put(fileName, contentBuilder.toString());
-                }
-            } else {
-                contents.put(fileName, null);
+        MappedZipFile archive = MappedZipFile.openIfSupported(zipFile);
+        if (archive != null) {
+            for (String fileName : fileNames) {
+                int index = archive.findEntry(fileName);
+                contents.put(fileName, index < 0 ? null : archive.getContentText(index));
             }
+            return contents;
         }
         
-        // 释放ZIP文件句柄，减少引用计数
-        ZipOperations.releaseZipFile();
+        ZipFile zip = ZipOperations.getZipFile(zipFile);
+        try {
+            for (String fileName : fileNames) {
+                ZipEntry entry = ZipOperations.getZipEntry(zip, fileName);
+                contents.put(fileName, entry == null ? null
+                        : ZipOperations.readTextContent(zip.getInputStream(entry), entry.getSize()));
+            }
+        } finally {
+            // 释放ZIP文件句柄，减少引用计数
+            ZipOperations.releaseZipFile(zip);
+        }
         return contents;
     }
 
     /**
-     * 使用单个ZIP文件句柄批量读取多个文件字节数组
+     * 查找存在的条目下标，忽略不存在的文件名
+     */
+    private static int[] findEntries(MappedZipFile archive, List<String> fileNames) {
+        return fileNames.stream().mapToInt(archive::findEntry).filter(index -> index >= 0).toArray();
+    }
+
+    /**
+     * 批量读取多个文件字节数组
+     * 按调用者给出的顺序逐个读取，可映射的文件按已知大小一次性解压，否则使用单个ZIP文件句柄
      *
      * @param zipFile   ZIP文件
      * @param fileNames 要读取的文件名列表
      * @return 文件名到字节数组的映射
      * @throws IOException IO异常
+     * @see #getMultipleZipFileBytes(File, List, BatchReadMode)
      */
     public static java.util.Map<String, byte[]> getMultipleZipFileBytes(File zipFile, List<String> fileNames) throws IOException {
+        return getMultipleZipFileBytes(zipFile, fileNames, BatchReadMode.REQUEST_ORDER);
+    }
+
+    /**
+     * 按指定的读取顺序批量读取多个文件字节数组
+     * {@link BatchReadMode#OFFSET_ORDER} 按条目在文件中的偏移量排序并合并相邻条目的读取，
+     * 无法映射的文件总是按调用者顺序读取
+     *
+     * @param zipFile   ZIP文件
+     * @param fileNames 要读取的文件名列表
+     * @param mode      读取顺序
+     * @return 文件名到字节数组的映射
+     * @throws IOException IO异常
+     */
+    public static java.util.Map<String, byte[]> getMultipleZipFileBytes(File zipFile, List<String> fileNames,
+                                                                        BatchReadMode mode) throws IOException {
         ZipOperations.validateMultiplePathsSafety(fileNames);
 
         java.util.Map<String, byte[]> contents = new java.util.HashMap<>((int) (fileNames.size() / 0.75f) + 1);
+        
+        MappedZipFile archive = MappedZipFile.openIfSupported(zipFile);
+        if (archive != null && mode == BatchReadMode.OFFSET_ORDER) {
+            ZipEntryIndex entryIndex = archive.getIndex();
+            java.util.Map<Integer, byte[]> decoded = new java.util.HashMap<>();
+            CoalescedEntryReader.read(archive, findEntries(archive, fileNames), (entry, raw) ->
+                    decoded.put(entry, MappedZipFile.decode(raw, entryIndex.getMethod(entry),
+                            entryIndex.getSize(entry), entryIndex.getName(entry))));
+            for (String fileName : fileNames) {
+                contents.put(fileName, decoded.get(archive.findEntry(fileName)));
+            }
+            return contents;
+        }
+        if (archive != null) {
+            // 按中央目录记录的大小一次性解压，无需ZIP文件句柄
+            for (String fileName : fileNames) {
+                int index = archive.findEntry(fileName);
+                contents.put(fileName, index < 0 ? null : archive.getContentBytes(index));
+            }
+            return contents;
+        }
+        
         ZipFile zip = ZipOperations.getZipFile(zipFile);
         
         try {
-            byte[] buffer = new byte[ZipOperations.BUFFER_SIZE];
-            
             for (String fileName : fileNames) {
                 ZipEntry entry = ZipOperations.getZipEntry(zip, fileName);
                 if (entry != null) {
-                    try (InputStream in = zip.getInputStream(entry); 
-                         ByteArrayOutputStream out = new ByteArrayOutputStream((int) entry.getSize())) {
-                        
-                        int bytesRead;
-                        while ((bytesRead = in.read(buffer)) != -1) {
-                            out.write(buffer, 0, bytesRead);
-                        }
-                        
-                        contents.put(fileName, out.toByteArray());
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        contents.put(fileName, ZipOperations.readBinaryContent(in, entry.getSize()));
                     }
                 } else {
                     contents.put(fileName, null);
@@ -212,12 +544,165 @@ public class ZipUtils {
             }
         } finally {
             // 释放ZIP文件句柄，减少引用计数
-            ZipOperations.releaseZipFile();
+            ZipOperations.releaseZipFile(zip);
         }
         
         return contents;
     }
 
+    /**
+     * 并行批量读取多个文件内容，每个条目的解压作为独立任务提交到指定的执行器
+     * 可映射的文件由各任务直接读取映射数据的独立视图，否则所有任务共享一个线程安全的ZIP文件句柄
+     *
+     * @param zipFile   ZIP文件
+     * @param fileNames 要读取的文件名列表
+     * @param executor  执行解压任务的执行器，如 {@link java.util.concurrent.ForkJoinPool#commonPool()}
+     * @return 文件名到内容的映射，不存在的文件对应null
+     * @throws IOException IO异常
+     */
+    public static java.util.Map<String, String> getMultipleZipFileContents(File zipFile, List<String> fileNames,
+                                                                          Executor executor) throws IOException {
+        ZipOperations.validateMultiplePathsSafety(fileNames);
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+
+        MappedZipFile archive = MappedZipFile.openIfSupported(zipFile);
+        if (archive != null) {
+            return readInParallel(fileNames, executor, fileName -> {
+                int index = archive.findEntry(fileName);
+                return index < 0 ? null : archive.getContentText(index);
+            });
+        }
+
+        ZipFile zip = ZipOperations.getZipFile(zipFile);
+        try {
+            return readInParallel(fileNames, executor, fileName -> {
+                ZipEntry entry = ZipOperations.getZipEntry(zip, fileName);
+                return entry == null ? null : ZipOperations.readTextContent(zip.getInputStream(entry), entry.getSize());
+            });
+        } finally {
+            // 释放ZIP文件句柄，减少引用计数
+            ZipOperations.releaseZipFile(zip);
+        }
+    }
+
+    /**
+     * 并行批量读取多个文件字节数组，每个条目的解压作为独立任务提交到指定的执行器
+     * 可映射的文件由各任务直接读取映射数据的独立视图，否则所有任务共享一个线程安全的ZIP文件句柄
+     *
+     * @param zipFile   ZIP文件
+     * @param fileNames 要读取的文件名列表
+     * @param executor  执行解压任务的执行器，如 {@link java.util.concurrent.ForkJoinPool#commonPool()}
+     * @return 文件名到字节数组的映射，不存在的文件对应null
+     * @throws IOException IO异常
+     */
+    public static java.util.Map<String, byte[]> getMultipleZipFileBytes(File zipFile, List<String> fileNames,
+                                                                        Executor executor) throws IOException {
+        ZipOperations.validateMultiplePathsSafety(fileNames);
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+
+        MappedZipFile archive = MappedZipFile.openIfSupported(zipFile);
+        if (archive != null) {
+            return readInParallel(fileNames, executor, fileName -> {
+                int index = archive.findEntry(fileName);
+                return index < 0 ? null : archive.getContentBytes(index);
+            });
+        }
+
+        ZipFile zip = ZipOperations.getZipFile(zipFile);
+        try {
+            return readInParallel(fileNames, executor, fileName -> {
+                ZipEntry entry = ZipOperations.getZipEntry(zip, fileName);
+                return entry == null ? null
+                        : ZipOperations.readBinaryContent(zip.getInputStream(entry), entry.getSize());
+            });
+        } finally {
+            // 释放ZIP文件句柄，减少引用计数
+            ZipOperations.releaseZipFile(zip);
+        }
+    }
+
+    /**
+     * 并行批量读取数据源中的多个文件字节数组，每个条目的解压作为独立任务提交到指定的执行器
+     * 文件数据源与 {@link #getMultipleZipFileBytes(File, List, Executor)} 相同，其他数据源由各任务直接读取ZIP索引中的条目
+     *
+     * @param source    EPUB数据源
+     * @param fileNames 要读取的文件名列表
+     * @param executor  执行解压任务的执行器
+     * @return 文件名到字节数组的映射，不存在的文件对应null
+     * @throws IOException IO异常
+     */
+    public static java.util.Map<String, byte[]> getMultipleZipFileBytes(EpubSource source, List<String> fileNames,
+                                                                        Executor executor) throws IOException {
+        File file = source.getFile();
+        if (file != null) {
+            return getMultipleZipFileBytes(file, fileNames, executor);
+        }
+        ZipOperations.validateMultiplePathsSafety(fileNames);
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+
+        MappedZipFile archive = source.openArchive();
+        return readInParallel(fileNames, executor, fileName -> {
+            int index = archive.findEntry(fileName);
+            return index < 0 ? null : archive.getContentBytes(index);
+        });
+    }
+
+    /**
+     * 读取单个条目的任务
+     */
+    @FunctionalInterface
+    private interface EntryReader<T> {
+        T read(String fileName) throws IOException;
+    }
+
+    /**
+     * 为每个不同的文件名提交读取任务并等待全部完成
+     * 即使有任务失败也会等待其余任务结束，保证调用者释放句柄时没有任务仍在读取
+     */
+    private static <T> java.util.Map<String, T> readInParallel(List<String> fileNames, Executor executor,
+                                                              EntryReader<T> reader) throws IOException {
+        java.util.Map<String, CompletableFuture<T>> futures = new java.util.LinkedHashMap<>();
+        for (String fileName : fileNames) {
+            if (!futures.containsKey(fileName)) {
+                futures.put(fileName, CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return reader.read(fileName);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor));
+            }
+        }
+
+        java.util.Map<String, T> contents = new java.util.HashMap<>((int) (futures.size() / 0.75f) + 1);
+        Throwable failure = null;
+        for (java.util.Map.Entry<String, CompletableFuture<T>> entry : futures.entrySet()) {
+            try {
+                contents.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() != null ? e.getCause() : e;
+                }
+            }
+        }
+        if (failure instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) failure).getCause();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure != null) {
+            throw new IOException("Failed to read ZIP entries", failure);
+        }
+        return contents;
+    }
+
     /**
      * 流式处理HTML内容，避免将整个文件加载到内存
      *
@@ -240,8 +725,52 @@ public class ZipUtils {
      */
     public static void processMultipleHtmlContents(File zipFile, List<String> htmlFileNames, BiConsumer<String,
             InputStream> processor) throws IOException {
+        processMultipleHtmlContents(zipFile, htmlFileNames, processor, BatchReadMode.REQUEST_ORDER);
+    }
+
+    /**
+     * 按指定的读取顺序批量流式处理多个HTML文件内容
+     * 无论采用哪种读取顺序，处理函数都按调用者给出的顺序被调用；
+     * {@link BatchReadMode#OFFSET_ORDER} 先按偏移量合并读取所有条目的压缩数据，再逐个解压交给处理函数
+     *
+     * @param zipFile       ZIP文件
+     * @param htmlFileNames HTML文件名列表
+     * @param processor     处理每个HTML内容的消费者函数
+     * @param mode          读取顺序
+     * @throws IOException IO异常
+     */
+    public static void processMultipleHtmlContents(File zipFile, List<String> htmlFileNames, BiConsumer<String,
+            InputStream> processor, BatchReadMode mode) throws IOException {
         ZipOperations.validateMultiplePathsSafety(htmlFileNames);
 
+        MappedZipFile archive = MappedZipFile.openIfSupported(zipFile);
+        if (archive != null && mode == BatchReadMode.OFFSET_ORDER) {
+            ZipEntryIndex entryIndex = archive.getIndex();
+            java.util.Map<Integer, ByteBuffer> rawData = new java.util.HashMap<>();
+            CoalescedEntryReader.read(archive, findEntries(archive, htmlFileNames), rawData::put);
+            for (String fileName : htmlFileNames) {
+                int index = archive.findEntry(fileName);
+                if (index >= 0) {
+                    try (InputStream in = MappedZipFile.openStream(rawData.get(index).duplicate(),
+                            entryIndex.getMethod(index), entryIndex.getSize(index), fileName)) {
+                        processor.accept(fileName, in);
+                    }
+                }
+            }
+            return;
+        }
+        if (archive != null) {
+            for (String fileName : htmlFileNames) {
+                int index = archive.findEntry(fileName);
+                if (index >= 0) {
+                    try (InputStream in = archive.openStream(index)) {
+                        processor.accept(fileName, in);
+                    }
+                }
+            }
+            return;
+        }
+
         ZipFile zip = ZipOperations.getZipFile(zipFile);
         try {
             for (String fileName : htmlFileNames) {
@@ -254,9 +783,270 @@ public class ZipUtils {
             }
         } finally {
             // 释放ZIP文件句柄，减少引用计数
-            ZipOperations.releaseZipFile();
+            ZipOperations.releaseZipFile(zip);
+        }
+    }
+
+    /**
+     * 获取数据源中的文件列表
+     *
+     * @param source EPUB数据源
+     * @return 文件名列表（不可修改）
+     * @throws IOException IO异常
+     */
+    public static List<String> getZipFileList(EpubSource source) throws IOException {
+        File file = source.getFile();
+        if (file != null) {
+            return getZipFileList(file);
         }
+        return source.openArchive().getEntryNames();
     }
 
+    /**
+     * 获取数据源中的文本内容
+     * 文件数据源与 {@link #getZipFileContent(File, String)} 行为一致，其他数据源直接从内存或通道读取
+     *
+     * @param source   EPUB数据源
+     * @param fileName 文件名
+     * @return 文件内容，如果不存在返回null
+     * @throws IOException IO异常
+     */
+    public static String getZipFileContent(EpubSource source, String fileName) throws IOException {
+        File file = source.getFile();
+        if (file != null) {
+            return getZipFileContent(source.getCacheManager(), file, fileName);
+        }
+
+        EpubCacheManager.EpubFileCache cache = source.getCacheManager().getSourceCache(source);
+        String cachedContent = cache.getTextContent(fileName);
+        if (cachedContent != null) {
+            return cachedContent;
+        }
+        return loadOnce(cache, fileName, () -> {
+            String content = cache.peekTextContent(fileName);
+            if (content != null) {
+                return content;
+            }
+            long start = System.nanoTime();
+            MappedZipFile archive = source.openArchive();
+            int index = archive.findEntry(fileName);
+            if (index < 0) {
+                return null;
+            }
+            String result = archive.getContentText(index);
+            cache.setTextContent(fileName, result);
+            cache.recordLoad(EpubCacheManager.Kind.TEXT, System.nanoTime() - start);
+            return result;
+        });
+    }
 
-}
\ No newline at end of file
+    /**
+     * 获取数据源中的字节数组内容
+     *
+     * @param source   EPUB数据源
+     * @param fileName 文件名
+     * @return 文件内容字节数组，如果不存在返回null
+     * @throws IOException IO异常
+     */
+    public static byte[] getZipFileBytes(EpubSource source, String fileName) throws IOException {
+        File file = source.getFile();
+        if (file != null) {
+            return getZipFileBytes(source.getCacheManager(), file, fileName);
+        }
+
+        EpubCacheManager.EpubFileCache cache = source.getCacheManager().getSourceCache(source);
+        byte[] cachedData = cache.getBinaryContent(fileName);
+        if (cachedData != null) {
+            return cachedData;
+        }
+        long start = System.nanoTime();
+        MappedZipFile archive = source.openArchive();
+        int index = archive.findEntry(fileName);
+        if (index < 0) {
+            return null;
+        }
+        byte[] data = archive.getContentBytes(index);
+        cache.setBinaryContent(fileName, data);
+        cache.recordLoad(EpubCacheManager.Kind.BINARY, System.nanoTime() - start);
+        return data;
+    }
+
+    /**
+     * 获取数据源中指定文件的只读ByteBuffer内容
+     * 内存数据源中的STORED条目直接返回底层缓冲区的只读切片，不复制数据
+     *
+     * @param source   EPUB数据源
+     * @param fileName 文件名
+     * @return 只读的内容视图，如果不存在返回null
+     * @throws IOException IO异常
+     */
+    public static ByteBuffer getZipFileBuffer(EpubSource source, String fileName) throws IOException {
+        File file = source.getFile();
+        if (file != null) {
+            return getZipFileBuffer(source.getCacheManager(), file, fileName);
+        }
+        ZipOperations.validatePathSafety(fileName);
+
+        MappedZipFile archive = source.openArchive();
+        int entry = archive.findEntry(fileName);
+        if (entry < 0) {
+            return null;
+        }
+        if (archive.getIndex().getMethod(entry) == ZipEntryIndex.METHOD_STORED) {
+            return archive.getContent(entry);
+        }
+        EpubCacheManager.EpubFileCache cache = source.getCacheManager().getSourceCache(source);
+        ByteBuffer cachedData = cache.getBinaryBuffer(fileName);
+        if (cachedData != null) {
+            return cachedData;
+        }
+        long start = System.nanoTime();
+        byte[] data = archive.getContentBytes(entry);
+        cache.putBinaryContent(fileName, data);
+        cache.recordLoad(EpubCacheManager.Kind.BINARY, System.nanoTime() - start);
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
+    /**
+     * 打开数据源中指定文件的只读可定位通道
+     *
+     * @param source   EPUB数据源
+     * @param fileName 文件名
+     * @return 可定位通道，如果文件不存在返回null
+     * @throws IOException IO异常
+     * @see #getZipFileChannel(File, String)
+     */
+    public static SeekableByteChannel getZipFileChannel(EpubSource source, String fileName) throws IOException {
+        File file = source.getFile();
+        if (file != null) {
+            return getZipFileChannel(file, fileName);
+        }
+        ZipOperations.validatePathSafety(fileName);
+
+        MappedZipFile archive = source.openArchive();
+        int entry = archive.findEntry(fileName);
+        return entry < 0 ? null : archive.openChannel(entry);
+    }
+
+    /**
+     * 将数据源中指定文件内容的指定范围写入目标通道
+     *
+     * @param source   EPUB数据源
+     * @param fileName 文件名
+     * @param position 内容中的起始位置
+     * @param count    最多传输的字节数
+     * @param target   目标通道
+     * @return 写入的字节数，如果文件不存在返回-1
+     * @throws IOException IO异常
+     * @see #transferTo(File, String, long, long, WritableByteChannel)
+     */
+    public static long transferTo(EpubSource source, String fileName, long position, long count,
+                                  WritableByteChannel target) throws IOException {
+        File file = source.getFile();
+        if (file != null) {
+            return transferTo(file, fileName, position, count, target);
+        }
+        ZipOperations.validatePathSafety(fileName);
+        if (target == null) {
+            throw new IllegalArgumentException("Target channel cannot be null");
+        }
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("position and count must not be negative");
+        }
+        long transferred = transferCached(source.getCacheManager().getSourceCache(source), fileName,
+                position, count, target);
+        if (transferred >= 0) {
+            return transferred;
+        }
+
+        MappedZipFile archive = source.openArchive();
+        int entry = archive.findEntry(fileName);
+        return entry < 0 ? -1 : archive.transferTo(entry, position, count, target);
+    }
+
+    /**
+     * 流式处理数据源中的内容
+     *
+     * @param source    EPUB数据源
+     * @param fileName  要处理的文件名
+     * @param processor 处理输入流的消费者函数
+     * @throws IOException IO异常
+     */
+    public static void processZipFileContent(EpubSource source, String fileName, Consumer<InputStream> processor)
+            throws IOException {
+        try (InputStream in = getZipFileInputStream(source, fileName)) {
+            if (in != null) {
+                processor.accept(in);
+            }
+        }
+    }
+
+    /**
+     * 获取数据源中指定文件的输入流
+     *
+     * @param source   EPUB数据源
+     * @param fileName 要获取的文件名
+     * @return 输入流，如果不存在返回null，调用者需要关闭
+     * @throws IOException IO异常
+     */
+    public static InputStream getZipFileInputStream(EpubSource source, String fileName) throws IOException {
+        File file = source.getFile();
+        if (file != null) {
+            return getZipFileInputStream(file, fileName);
+        }
+        ZipOperations.validatePathSafety(fileName);
+        InputStream cached = openCachedStream(source.getCacheManager().getSourceCache(source), fileName);
+        if (cached != null) {
+            return cached;
+        }
+
+        MappedZipFile archive = source.openArchive();
+        int entry = archive.findEntry(fileName);
+        return entry < 0 ? null : archive.openStream(entry);
+    }
+
+    /**
+     * 批量流式处理数据源中的多个HTML文件内容
+     *
+     * @param source        EPUB数据源
+     * @param htmlFileNames HTML文件名列表
+     * @param processor     处理每个HTML内容的消费者函数
+     * @throws IOException IO异常
+     */
+    public static void processMultipleHtmlContents(EpubSource source, List<String> htmlFileNames,
+                                                   BiConsumer<String, InputStream> processor) throws IOException {
+        File file = source.getFile();
+        if (file != null) {
+            processMultipleHtmlContents(file, htmlFileNames, processor);
+            return;
+        }
+        ZipOperations.validateMultiplePathsSafety(htmlFileNames);
+
+        MappedZipFile archive = source.openArchive();
+        for (String fileName : htmlFileNames) {
+            int index = archive.findEntry(fileName);
+            if (index >= 0) {
+                try (InputStream in = archive.openStream(index)) {
+                    processor.accept(fileName, in);
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取缓存视图的输入流，关闭时释放视图
+     */
+    private static final class BinaryViewInputStream extends FilterInputStream {
+        private final EpubCacheManager.BinaryView view;
+
+        BinaryViewInputStream(EpubCacheManager.BinaryView view) {
+            super(new ByteBufferInputStream(view.buffer()));
+            this.view = view;
+        }
+
+        @Override
+        public void close() {
+            view.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package fun.lzwi.epubime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class EpubFixtures {
+    private static final String CONTAINER_XML = "<container><rootfiles><rootfile full-path=\"OEBPS/content.opf\"/>"
+            + "</rootfiles></container>";
+
+    // 按名称和内容交替给出的条目生成ZIP
+    public static byte[] zipOf(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                out.putNextEntry(new ZipEntry(namesAndContents[i]));
+                out.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    // 最小的EPUB：mimetype、指向OEBPS/content.opf的container.xml、OPF和NCX，其后追加其他条目
+    public static byte[] minimalEpub(String opf, String ncx, String... namesAndContents) throws IOException {
+        List<String> entries = new ArrayList<>(Arrays.asList(
+                "mimetype", "application/epub+zip",
+                "META-INF/container.xml", CONTAINER_XML,
+                "OEBPS/content.opf", opf,
+                "OEBPS/toc.ncx", ncx));
+        entries.addAll(Arrays.asList(namesAndContents));
+        return zipOf(entries.toArray(new String[0]));
+    }
+}
@@ -733,4 +733,96 @@ public class EpubReaderTest {
 
         // Both should have processed resources (counts may differ due to parallel vs sequential)
     }
-}
\ No newline at end of file
+
+
+    @Test
+    public void testLoadImageResourcesInParallel() throws Exception {
+        EpubBook book = EpubReader.fromFile(testEpubFile).parse();
+        EpubBookEnhanced enhancedBook = new EpubBookEnhanced(book, testEpubFile);
+        java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(2);
+        try {
+            java.util.List<EpubResource> images = enhancedBook.loadImageResources(executor);
+            assertFalse(images.isEmpty());
+            for (EpubResource image : images) {
+                assertNotNull(image.getData(), image.getHref());
+                assertArrayEquals(fun.lzwi.epubime.zip.ZipUtils.getZipFileBytes(testEpubFile, image.getHref()),
+                        image.getData(), image.getHref());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // In-memory books load their images through the resource source
+        byte[] data = java.nio.file.Files.readAllBytes(testEpubFile.toPath());
+        EpubBook inMemory = EpubReader.fromSource(fun.lzwi.epubime.zip.EpubSource.fromBytes(data, "in-memory.epub")).parse();
+        java.util.List<EpubResource> images = new EpubBookEnhanced(inMemory, null)
+                .loadImageResources(java.util.concurrent.ForkJoinPool.commonPool());
+        assertFalse(images.isEmpty());
+        for (EpubResource image : images) {
+            assertArrayEquals(fun.lzwi.epubime.zip.ZipUtils.getZipFileBytes(testEpubFile, image.getHref()),
+                    image.getData(), image.getHref());
+        }
+    }
+
+
+    @Test
+    public void testPrefetchInMemoryBook() throws Exception {
+        byte[] data = java.nio.file.Files.readAllBytes(testEpubFile.toPath());
+        EpubBook inMemory = EpubReader.fromSource(fun.lzwi.epubime.zip.EpubSource.fromBytes(data, "prefetch.epub")).parse();
+        EpubBookEnhanced enhancedBook = new EpubBookEnhanced(inMemory, null);
+
+        // Prefetch reads through the resources' source when the book has no file
+        fun.lzwi.epubime.epub.ChapterPrefetcher prefetcher = enhancedBook.enablePrefetch(Runnable::run, 2, 1024 * 1024);
+        assertNotNull(prefetcher);
+        AtomicInteger read = new AtomicInteger();
+        enhancedBook.processChapterContent(inMemory.getChapters().get(0), in -> read.incrementAndGet());
+        assertEquals(1, read.get());
+        assertTrue(prefetcher.getPrefetchCount() > 0);
+        enhancedBook.disablePrefetch();
+
+        // Books not backed by an EPUB skip prefetching
+        assertNull(new EpubBookEnhanced(new EpubBook(), null).enablePrefetch(Runnable::run, 2, 1024));
+    }
+
+
+    @Test
+    public void testFromStream() throws Exception {
+        EpubBook expected = EpubReader.fromFile(testEpubFile).parse();
+        try (InputStream in = new java.io.FileInputStream(testEpubFile)) {
+            EpubReader reader = EpubReader.fromStream(in);
+            AtomicInteger count = new AtomicInteger();
+            EpubBook book = reader.streamResources((resource, content) -> count.incrementAndGet());
+            assertEquals(expected.getMetadata().getTitle(), book.getMetadata().getTitle());
+            assertEquals(expected.getResources().size(), count.get());
+
+            // 输入流只能读取一次，之后的操作复用解析结果
+            assertEquals(expected.getChapters().size(), reader.parseTableOfContents().size());
+            assertEquals(testEpubFile.length(), reader.getInfo().getFileSize());
+            assertThrows(IllegalStateException.class, () -> reader.streamResources((resource, content) -> { }));
+            assertThrows(IllegalStateException.class, () -> reader.streamChapters((chapter, content) -> { }));
+        }
+    }
+
+
+    @Test
+    public void testFromSourceInMemory() throws Exception {
+        byte[] data = java.nio.file.Files.readAllBytes(testEpubFile.toPath());
+        EpubReader reader = EpubReader.fromSource(fun.lzwi.epubime.zip.EpubSource.fromBytes(data, "in-memory.epub"));
+        EpubBook expected = EpubReader.fromFile(testEpubFile).parse();
+        EpubBook book = reader.parse();
+
+        assertEquals(expected.getMetadata().getTitle(), book.getMetadata().getTitle());
+        assertEquals(expected.getChapters().size(), book.getChapters().size());
+        assertNull(book.getResources().get(0).getEpubFile());
+        EpubResource cover = reader.getCover();
+        assertNotNull(cover);
+        assertArrayEquals(EpubReader.fromFile(testEpubFile).getCover().getData(), cover.getData());
+        assertEquals(data.length, reader.getInfo().getFileSize());
+
+        AtomicInteger chapters = new AtomicInteger();
+        AtomicInteger fileChapters = new AtomicInteger();
+        reader.streamChapters((chapter, content) -> chapters.incrementAndGet());
+        EpubReader.fromFile(testEpubFile).streamChapters((chapter, content) -> fileChapters.incrementAndGet());
+        assertEquals(fileChapters.get(), chapters.get());
+    }
+}
@@ -0,0 +1,131 @@
+package fun.lzwi.epubime.cache;
+
+import fun.lzwi.epubime.ResUtils;
+import fun.lzwi.epubime.epub.EpubParser;
+import fun.lzwi.epubime.zip.ZipUtils;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheStatsTest {
+
+    private static final int BLOCK = 10 * 1024;
+
+    @Test
+    public void countsHitsMissesAndLoadsPerKind() {
+        EpubCacheManager manager = new EpubCacheManager(EpubCacheManager.DEFAULT_MAX_BYTES);
+        EpubCacheManager.EpubFileCache cache = manager.getFileCache(new File("book.epub"));
+
+        assertNull(cache.getTextContent("chapter.html"));
+        cache.setTextContent("chapter.html", "第一章");
+        cache.recordLoad(EpubCacheManager.Kind.TEXT, 1000);
+        assertNotNull(cache.getTextContent("chapter.html"));
+        assertNotNull(cache.getTextContent("chapter.html"));
+        assertNull(cache.getBinaryContent("cover.jpg"));
+        assertNull(cache.getBinaryBuffer("cover.jpg"));
+
+        CacheStats text = manager.getStats(EpubCacheManager.Kind.TEXT);
+        assertEquals(2, text.getHitCount());
+        assertEquals(1, text.getMissCount());
+        assertEquals(1, text.getLoadCount());
+        assertEquals(1000, text.getTotalLoadTime());
+        assertEquals(1000.0, text.getAverageLoadPenalty());
+        assertEquals(2.0 / 3, text.getHitRate(), 1e-9);
+        assertEquals(1, text.getEntryCount());
+        assertEquals(manager.getRetainedBytes(EpubCacheManager.Kind.TEXT), text.getRetainedBytes());
+
+        CacheStats binary = manager.getStats(EpubCacheManager.Kind.BINARY);
+        assertEquals(0, binary.getHitCount());
+        assertEquals(2, binary.getMissCount());
+        assertEquals(0, binary.getEntryCount());
+
+        // 查询是否存在不计入统计
+        assertFalse(cache.containsBinaryContent("cover.jpg"));
+        assertEquals(2, manager.getStats(EpubCacheManager.Kind.BINARY).getMissCount());
+
+        CacheStats total = manager.getStats();
+        assertEquals(2, total.getHitCount());
+        assertEquals(3, total.getMissCount());
+        assertEquals(1.0, manager.getStats(EpubCacheManager.Kind.PARSED).getHitRate());
+        assertEquals(text.getHitCount(), cache.getStats(EpubCacheManager.Kind.TEXT).getHitCount());
+    }
+
+    @Test
+    public void snapshotsSubtractToInterval() {
+        EpubCacheManager manager = new EpubCacheManager(3 * BLOCK + 1024);
+        EpubCacheManager.EpubFileCache cache = manager.getFileCache(new File("book.epub"));
+        cache.setBinaryContent("image0", new byte[BLOCK]);
+        assertNotNull(cache.getBinaryContent("image0"));
+        CacheStats before = manager.getStats(EpubCacheManager.Kind.BINARY);
+
+        for (int i = 1; i < 5; i++) {
+            cache.setBinaryContent("image" + i, new byte[BLOCK]);
+        }
+        assertNull(cache.getBinaryContent("image0"));
+        assertNotNull(cache.getBinaryContent("image4"));
+
+        CacheStats interval = manager.getStats(EpubCacheManager.Kind.BINARY).minus(before);
+        assertEquals(1, interval.getHitCount());
+        assertEquals(1, interval.getMissCount());
+        assertEquals(2, interval.getEvictionCount());
+        assertEquals(3, interval.getEntryCount());
+        assertEquals(manager.getEvictionCount(), manager.getStats().getEvictionCount());
+        assertEquals(2, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void recordsLoadsPerFile() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        EpubCacheManager manager = EpubCacheManager.getInstance();
+        manager.clearFileCache(epubFile);
+        CacheStats before = manager.getFileCache(epubFile).getStats(EpubCacheManager.Kind.TEXT);
+
+        assertNotNull(ZipUtils.getZipFileContent(epubFile, "META-INF/container.xml"));
+        assertNotNull(ZipUtils.getZipFileContent(epubFile, "META-INF/container.xml"));
+
+        CacheStats stats = manager.getStatsByFile().get(epubFile);
+        assertNotNull(stats);
+        CacheStats text = manager.getFileCache(epubFile).getStats(EpubCacheManager.Kind.TEXT).minus(before);
+        // 合并的加载中再次检查缓存不计入统计，一次读取只记一次未命中
+        assertEquals(1, text.getMissCount());
+        assertEquals(1, text.getLoadCount());
+        assertEquals(1, text.getHitCount());
+        assertTrue(text.getTotalLoadTime() > 0);
+
+        CacheStats parsedBefore = manager.getFileCache(epubFile).getStats(EpubCacheManager.Kind.PARSED);
+        assertNotNull(new EpubParser(epubFile).parse());
+        CacheStats parsed = manager.getFileCache(epubFile).getStats(EpubCacheManager.Kind.PARSED).minus(parsedBefore);
+        // 完整解析结果和资源列表各未命中一次
+        assertEquals(2, parsed.getMissCount());
+        assertEquals(1, parsed.getLoadCount());
+        manager.clearFileCache(epubFile);
+    }
+
+    @Test
+    public void exposesStatsOverJmx() throws Exception {
+        EpubCacheManager manager = EpubCacheManager.getInstance();
+        ObjectName name = manager.registerMBean();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertTrue(server.isRegistered(name));
+            // 重复注册时替换
+            assertEquals(name, manager.registerMBean());
+
+            CompositeData text = (CompositeData) server.getAttribute(name, "TextStats");
+            assertTrue(text.containsKey("hitCount"));
+            assertTrue(text.containsKey("retainedBytes"));
+            assertEquals(manager.getMaxBytes(), server.getAttribute(name, "MaxBytes"));
+        } finally {
+            manager.unregisterMBean();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        manager.unregisterMBean();
+    }
+}
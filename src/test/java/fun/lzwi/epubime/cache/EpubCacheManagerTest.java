@@ -0,0 +1,484 @@
+package fun.lzwi.epubime.cache;
+
+import fun.lzwi.epubime.EpubFixtures;
+import fun.lzwi.epubime.ResUtils;
+import fun.lzwi.epubime.api.EpubReader;
+import fun.lzwi.epubime.api.EpubReaderConfig;
+import fun.lzwi.epubime.epub.EpubBook;
+import fun.lzwi.epubime.epub.EpubParser;
+import fun.lzwi.epubime.epub.EpubResource;
+import fun.lzwi.epubime.zip.EpubSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EpubCacheManagerTest {
+
+    private static final int BLOCK = 10 * 1024;
+    private static final int SLAB = 64 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void evictsLeastRecentlyUsedWithinBudget() {
+        EpubCacheManager manager = new EpubCacheManager(5 * BLOCK + 1024);
+        EpubCacheManager.EpubFileCache book1 = manager.getFileCache(new File("book1.epub"));
+        EpubCacheManager.EpubFileCache book2 = manager.getFileCache(new File("book2.epub"));
+
+        for (int i = 0; i < 4; i++) {
+            book1.setBinaryContent("image" + i, new byte[BLOCK]);
+        }
+        // 访问后image0成为最近使用的条目
+        assertNotNull(book1.getBinaryContent("image0"));
+        book2.setBinaryContent("cover", new byte[BLOCK]);
+        book2.setBinaryContent("chapter", new byte[BLOCK]);
+
+        assertTrue(manager.getRetainedBytes() <= manager.getMaxBytes());
+        assertEquals(1, manager.getEvictionCount());
+        assertNull(book1.getBinaryContent("image1"));
+        assertNotNull(book1.getBinaryContent("image0"));
+        assertNotNull(book2.getBinaryContent("chapter"));
+
+        // 缩小预算时立即淘汰
+        manager.setMaxBytes(2 * BLOCK);
+        assertTrue(manager.getRetainedBytes() <= 2 * BLOCK);
+        assertEquals(1, manager.getEntryCount());
+    }
+
+    @Test
+    public void accountsPerBookAndKind() throws Exception {
+        EpubCacheManager manager = new EpubCacheManager(EpubCacheManager.DEFAULT_MAX_BYTES);
+        EpubCacheManager.EpubFileCache book1 = manager.getFileCache(new File("book1.epub"));
+        EpubCacheManager.EpubFileCache book2 = manager.getFileCache(new File("book2.epub"));
+
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 4096) {
+            text.append("第一章");
+        }
+        book1.setTextContent("chapter.html", text.toString());
+        book1.setBinaryContent("cover.jpg", new byte[8192]);
+        EpubBook parsed = new EpubParser(ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub")).parse();
+        book2.setParsedResult("fullParse", parsed);
+
+        assertTrue(book1.getRetainedBytes(EpubCacheManager.Kind.TEXT) >= 2L * text.length());
+        assertTrue(book1.getRetainedBytes(EpubCacheManager.Kind.BINARY) >= 8192);
+        assertEquals(0, book1.getRetainedBytes(EpubCacheManager.Kind.PARSED));
+        // 解析结果按对象图估算，包含所有资源和章节
+        assertTrue(book2.getRetainedBytes(EpubCacheManager.Kind.PARSED) > 30 * 100);
+        assertEquals(book1.getRetainedBytes() + book2.getRetainedBytes(), manager.getRetainedBytes());
+        assertEquals(book2.getRetainedBytes(), manager.getRetainedBytes(EpubCacheManager.Kind.PARSED));
+
+        // 替换和移除条目时释放占用
+        book1.setTextContent("chapter.html", "short");
+        assertTrue(book1.getRetainedBytes(EpubCacheManager.Kind.TEXT) < 1024);
+        book1.setBinaryContent("cover.jpg", null);
+        assertEquals(0, book1.getRetainedBytes(EpubCacheManager.Kind.BINARY));
+
+        manager.clearFileCache(new File("book2.epub"));
+        assertEquals(book1.getRetainedBytes(), manager.getRetainedBytes());
+        manager.clearAllCaches();
+        assertEquals(0, manager.getRetainedBytes());
+        assertEquals(0, book1.getRetainedBytes());
+        assertEquals(0, manager.getEntryCount());
+    }
+
+    @Test
+    public void weighsInMemorySourcesOnce() {
+        EpubCacheManager manager = new EpubCacheManager(EpubCacheManager.DEFAULT_MAX_BYTES);
+        EpubCacheManager.EpubFileCache cache = manager.getFileCache(new File("book.epub"));
+        EpubSource memory = EpubSource.fromBytes(new byte[64 * 1024], "memory.epub");
+        List<EpubResource> resources = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            EpubResource resource = new EpubResource();
+            resource.setHref("image" + i + ".jpg");
+            resource.setSource(memory);
+            resources.add(resource);
+        }
+
+        // 资源引用的内存数据源随条目一起被持有，同一条目中只计入一次
+        cache.setParsedResult("resources", resources);
+        long retained = cache.getRetainedBytes(EpubCacheManager.Kind.PARSED);
+        assertTrue(retained >= 64 * 1024);
+        assertTrue(retained < 2 * 64 * 1024);
+
+        for (EpubResource resource : resources) {
+            resource.setSource(null);
+        }
+        cache.setParsedResult("resources", resources);
+        assertTrue(cache.getRetainedBytes(EpubCacheManager.Kind.PARSED) < 1024);
+    }
+
+    @Test
+    public void releasesSourceCacheWhenSourceIsCollected() throws Exception {
+        byte[] data = Files.readAllBytes(ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub").toPath());
+        WeakReference<EpubSource> ref = parseAndForget(data);
+
+        // 缓存的解析结果和资源列表不引用数据源，数据源不再使用后可以被回收
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(ref.get());
+    }
+
+    private static WeakReference<EpubSource> parseAndForget(byte[] data) throws Exception {
+        EpubSource source = EpubSource.fromBytes(data, "collectable.epub");
+        EpubBook book = new EpubParser(source).parse();
+        assertFalse(book.getResources().isEmpty());
+        assertSame(source, book.getResources().get(0).getSource());
+        // 再次解析命中缓存，返回的资源重新关联到数据源
+        assertSame(source, new EpubParser(source).parse().getResources().get(0).getSource());
+        assertFalse(EpubCacheManager.getInstance().getSourceCache(source).getParsedResultCache().isEmpty());
+        return new WeakReference<>(source);
+    }
+
+    @Test
+    public void skipsEntriesLargerThanBudget() {
+        EpubCacheManager manager = new EpubCacheManager(BLOCK);
+        EpubCacheManager.EpubFileCache cache = manager.getFileCache(new File("book.epub"));
+        cache.setBinaryContent("small", new byte[16]);
+        cache.setBinaryContent("huge", new byte[2 * BLOCK]);
+        assertNull(cache.getBinaryContent("huge"));
+        assertNotNull(cache.getBinaryContent("small"));
+        assertEquals(0, manager.getEvictionCount());
+        assertThrows(IllegalArgumentException.class, () -> manager.setMaxBytes(-1));
+    }
+
+    @Test
+    public void sharesIdenticalContentAndInvalidatesReplacedFiles() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        Path a = Files.copy(epubFile.toPath(), tempDir.resolve("a.epub"));
+        Path b = Files.copy(epubFile.toPath(), tempDir.resolve("b.epub"));
+        EpubCacheManager manager = new EpubCacheManager(EpubCacheManager.DEFAULT_MAX_BYTES);
+
+        EpubCacheManager.EpubFileCache cacheA = manager.getFileCache(a.toFile());
+        assertSame(cacheA, manager.getFileCache(b.toFile()));
+        assertSame(cacheA, manager.getFileCache(a.toFile()));
+        cacheA.setTextContent("OEBPS/book.opf", "original");
+
+        // 原地替换a：先写入临时文件再原子移动
+        Path replacement = tempDir.resolve("a.tmp");
+        Files.write(replacement, EpubFixtures.zipOf("mimetype", "application/epub+zip"));
+        Files.move(replacement, a, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(a, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+
+        EpubCacheManager.EpubFileCache replaced = manager.getFileCache(a.toFile());
+        assertNotSame(cacheA, replaced);
+        assertNull(replaced.getTextContent("OEBPS/book.opf"));
+        assertEquals(1, manager.getInvalidationCount());
+        // b的内容未变，仍然命中原来的缓存
+        assertSame(cacheA, manager.getFileCache(b.toFile()));
+        assertEquals("original", manager.getFileCache(b.toFile()).getTextContent("OEBPS/book.opf"));
+
+        // 替换b后旧内容不再被任何路径使用，立即释放
+        Files.copy(a, tempDir.resolve("b.tmp"));
+        Files.move(tempDir.resolve("b.tmp"), b, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(b, FileTime.fromMillis(System.currentTimeMillis() + 20_000));
+        assertSame(replaced, manager.getFileCache(b.toFile()));
+        assertNull(cacheA.getTextContent("OEBPS/book.opf"));
+        assertEquals(0, cacheA.getRetainedBytes());
+    }
+
+    @Test
+    public void sharesParseResultsAcrossPaths() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        File c = Files.copy(epubFile.toPath(), tempDir.resolve("c.epub")).toFile();
+        File d = Files.copy(epubFile.toPath(), tempDir.resolve("d.epub")).toFile();
+        EpubCacheManager manager = EpubCacheManager.getInstance();
+        manager.clearFileCache(c);
+        try {
+            long loads = manager.getStats(EpubCacheManager.Kind.PARSED).getLoadCount();
+            EpubBook first = new EpubParser(c).parse();
+            EpubBook second = new EpubParser(d).parse();
+            // 内容相同的文件只解析一次，返回的副本指向各自的文件
+            assertEquals(loads + 1, manager.getStats(EpubCacheManager.Kind.PARSED).getLoadCount());
+            assertEquals(first.getMetadata().getTitle(), second.getMetadata().getTitle());
+            assertEquals(c, first.getResources().get(0).getEpubFile());
+            assertEquals(d, second.getResources().get(0).getEpubFile());
+        } finally {
+            manager.clearFileCache(c);
+        }
+    }
+
+    @Test
+    public void storesLargeBinaryContentOffHeap() {
+        EpubCacheManager manager = new EpubCacheManager(EpubCacheManager.DEFAULT_MAX_BYTES);
+        manager.setOffHeapCapacity(2 * SLAB, SLAB);
+        manager.setOffHeapThreshold(4096);
+        EpubCacheManager.EpubFileCache cache = manager.getFileCache(new File("book.epub"));
+
+        cache.setBinaryContent("small.png", new byte[1024]);
+        byte[] image = filled(20 * 1024, (byte) 7);
+        cache.setBinaryContent("image.jpg", image);
+        // 缓存的是副本，修改原数组不影响缓存内容
+        image[0] = 99;
+
+        assertEquals(1, manager.getOffHeapEntryCount());
+        assertTrue(manager.getOffHeapRetainedBytes() >= 20 * 1024);
+        assertEquals(SLAB, manager.getOffHeapAllocatedBytes());
+        // 堆内预算只计入小于阈值的内容
+        assertTrue(cache.getRetainedBytes(EpubCacheManager.Kind.BINARY) < 4096);
+        assertArrayEquals(filled(20 * 1024, (byte) 7), cache.getBinaryContent("image.jpg"));
+        ByteBuffer view = cache.getBinaryBuffer("image.jpg");
+        // 堆外内容以堆内副本返回，槽位被复用后视图仍然有效
+        assertFalse(view.isDirect());
+        assertTrue(view.isReadOnly());
+        assertEquals(20 * 1024, view.remaining());
+        assertTrue(cache.containsBinaryContent("image.jpg"));
+        assertFalse(cache.getBinaryContentCache().containsKey("image.jpg"));
+
+        // 替换为小于阈值的内容时释放堆外槽位
+        cache.setBinaryContent("image.jpg", new byte[16]);
+        assertEquals(0, manager.getOffHeapEntryCount());
+        assertEquals(16, cache.getBinaryContent("image.jpg").length);
+        // 释放的槽位写入其他内容后，之前取得的视图不受影响
+        cache.setBinaryContent("other.jpg", filled(20 * 1024, (byte) 3));
+        assertEquals(7, view.get(0));
+        assertEquals(7, view.get(20 * 1024 - 1));
+        cache.setBinaryContent("other.jpg", null);
+
+        cache.putBinaryContent("font.otf", filled(8 * 1024, (byte) 1));
+        assertEquals(1, manager.getOffHeapEntryCount());
+        cache.clear();
+        assertEquals(0, manager.getOffHeapEntryCount());
+        assertEquals(0, manager.getOffHeapRetainedBytes());
+        assertNull(cache.getBinaryContent("font.otf"));
+    }
+
+    @Test
+    public void evictsOffHeapEntriesAndReusesFreeSlabs() {
+        EpubCacheManager manager = new EpubCacheManager(EpubCacheManager.DEFAULT_MAX_BYTES);
+        manager.setOffHeapCapacity(SLAB, SLAB);
+        manager.setOffHeapThreshold(1024);
+        EpubCacheManager.EpubFileCache cache = manager.getFileCache(new File("book.epub"));
+
+        for (int i = 0; i < 5; i++) {
+            cache.setBinaryContent("image" + i, filled(20 * 1024, (byte) i));
+        }
+        // 一个块只能容纳该等级的少数槽位，最早写入的条目被淘汰
+        assertTrue(manager.getOffHeapEvictionCount() > 0);
+        assertEquals(5 - manager.getOffHeapEvictionCount(), manager.getOffHeapEntryCount());
+        assertNull(cache.getBinaryContent("image0"));
+        assertFalse(cache.containsBinaryContent("image0"));
+        assertArrayEquals(filled(20 * 1024, (byte) 4), cache.getBinaryContent("image4"));
+        assertEquals(SLAB, manager.getOffHeapAllocatedBytes());
+
+        // 块完全空闲后可以分配给其他大小等级
+        cache.clear();
+        cache.setBinaryContent("audio.mp3", filled(40 * 1024, (byte) 9));
+        assertEquals(1, manager.getOffHeapEntryCount());
+        assertEquals(SLAB, manager.getOffHeapAllocatedBytes());
+        assertArrayEquals(filled(40 * 1024, (byte) 9), cache.getBinaryContent("audio.mp3"));
+
+        // 超过块大小的内容仍然放在堆内
+        cache.setBinaryContent("video.mp4", new byte[SLAB + 1]);
+        assertTrue(cache.getBinaryContentCache().containsKey("video.mp4"));
+
+        manager.setOffHeapCapacity(0);
+        assertEquals(0, manager.getOffHeapCapacity());
+        assertNull(cache.getBinaryContent("audio.mp3"));
+        cache.setBinaryContent("audio.mp3", new byte[40 * 1024]);
+        assertTrue(cache.getBinaryContentCache().containsKey("audio.mp3"));
+    }
+
+    @Test
+    public void pinsOffHeapSlotsUntilViewsAreClosed() {
+        EpubCacheManager manager = new EpubCacheManager(EpubCacheManager.DEFAULT_MAX_BYTES);
+        manager.setOffHeapCapacity(SLAB, SLAB);
+        manager.setOffHeapThreshold(1024);
+        EpubCacheManager.EpubFileCache cache = manager.getFileCache(new File("book.epub"));
+        cache.setBinaryContent("image0", filled(20 * 1024, (byte) 1));
+
+        EpubCacheManager.BinaryView view = cache.openBinaryBuffer("image0");
+        // 直接返回槽位的只读视图，不复制
+        assertTrue(view.isOffHeap());
+        assertTrue(view.buffer().isDirect());
+        assertTrue(view.buffer().isReadOnly());
+        assertEquals(20 * 1024, view.buffer().remaining());
+        assertEquals(1, cache.getStats(EpubCacheManager.Kind.BINARY).getHitCount());
+
+        // 被固定的条目不会被淘汰，移除后其槽位也不会被复用
+        for (int i = 1; i < 8; i++) {
+            cache.setBinaryContent("image" + i, filled(20 * 1024, (byte) 2));
+        }
+        assertTrue(cache.containsBinaryContent("image0"));
+        cache.setBinaryContent("image0", null);
+        for (int i = 1; i < 8; i++) {
+            cache.setBinaryContent("image" + i, filled(20 * 1024, (byte) 3));
+        }
+        ByteBuffer data = view.buffer();
+        while (data.hasRemaining()) {
+            assertEquals(1, data.get());
+        }
+
+        // 关闭后槽位回到空闲列表，重复关闭没有作用
+        long pinned = manager.getOffHeapRetainedBytes();
+        view.close();
+        view.close();
+        assertTrue(manager.getOffHeapRetainedBytes() < pinned);
+
+        // 堆内内容返回数组的视图
+        cache.setBinaryContent("small.png", new byte[16]);
+        try (EpubCacheManager.BinaryView small = cache.openBinaryBuffer("small.png")) {
+            assertFalse(small.isOffHeap());
+            assertEquals(16, small.buffer().remaining());
+        }
+        assertNull(cache.openBinaryBuffer("missing.png"));
+    }
+
+    @Test
+    public void drainedStoreRejectsNewEntries() {
+        OffHeapSlabStore store = new OffHeapSlabStore(SLAB, SLAB, entry -> { });
+        OffHeapSlabStore.Entry entry = store.put(new byte[2048], null, "a");
+        ByteBuffer view = entry.pin();
+        store.drain();
+        assertFalse(entry.isLive());
+        assertNull(store.put(new byte[2048], null, "b"));
+        // 仍被固定的视图在释放前保持有效
+        assertEquals(2048, view.remaining());
+        entry.unpin();
+        assertEquals(0, store.getUsedBytes());
+    }
+
+    @Test
+    public void offHeapCopiesNeverSeeReusedSlots() throws Exception {
+        EpubCacheManager manager = new EpubCacheManager(EpubCacheManager.DEFAULT_MAX_BYTES);
+        manager.setOffHeapCapacity(SLAB, SLAB);
+        manager.setOffHeapThreshold(1024);
+        EpubCacheManager.EpubFileCache cache = manager.getFileCache(new File("book.epub"));
+
+        // 条目数多于槽位数，写入不断淘汰和复用槽位；每个条目的内容全部为其编号，读到的副本必须一致
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        int id = (i * 7 + seed) % 16;
+                        if (i % 3 == 0) {
+                            cache.setBinaryContent("entry" + id, filled(12 * 1024, (byte) id));
+                        } else if (i % 3 == 1) {
+                            try (EpubCacheManager.BinaryView view = cache.openBinaryBuffer("entry" + id)) {
+                                ByteBuffer data = view != null ? view.buffer() : ByteBuffer.allocate(0);
+                                while (data.hasRemaining()) {
+                                    assertEquals(id, data.get());
+                                }
+                            }
+                        } else {
+                            byte[] data = cache.getBinaryContent("entry" + id);
+                            if (data != null) {
+                                assertArrayEquals(filled(12 * 1024, (byte) id), data);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(manager.getOffHeapEvictionCount() > 0);
+        assertTrue(manager.getOffHeapRetainedBytes() <= manager.getOffHeapCapacity());
+    }
+
+    @Test
+    public void isolatesNamespaces() throws Exception {
+        EpubCacheManager tenantA = EpubCacheManager.getNamespace("tenant-a", 3 * BLOCK + 1024);
+        EpubCacheManager tenantB = EpubCacheManager.getNamespace("tenant-b", 3 * BLOCK + 1024);
+        try {
+            assertSame(tenantA, EpubCacheManager.getNamespace("tenant-a"));
+            assertSame(EpubCacheManager.getInstance(), EpubCacheManager.getNamespace(null));
+            assertEquals("tenant-a", tenantA.getNamespaceName());
+            assertTrue(EpubCacheManager.getNamespaceNames().containsAll(
+                    Arrays.asList(EpubCacheManager.DEFAULT_NAMESPACE, "tenant-a", "tenant-b")));
+
+            File book = new File("book.epub");
+            tenantB.getFileCache(book).setBinaryContent("cover", new byte[BLOCK]);
+            // 租户A批量读取只淘汰自己的内容
+            for (int i = 0; i < 10; i++) {
+                tenantA.getFileCache(book).setBinaryContent("image" + i, new byte[BLOCK]);
+            }
+            assertTrue(tenantA.getRetainedBytes() <= tenantA.getMaxBytes());
+            assertEquals(7, tenantA.getStats().getEvictionCount());
+            assertNotNull(tenantB.getFileCache(book).getBinaryContent("cover"));
+            assertEquals(0, tenantB.getStats().getEvictionCount());
+            assertEquals(1, tenantB.getStats().getHitCount());
+
+            // 读取器配置选择命名空间，解析结果只进入该命名空间
+            File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+            EpubCacheManager.getInstance().clearFileCache(epubFile);
+            EpubReaderConfig config = new EpubReaderConfig().withCacheNamespace("tenant-b");
+            EpubBook parsed = EpubReader.fromFile(epubFile, config).parse();
+            assertFalse(tenantB.getFileCache(epubFile).getParsedResultCache().isEmpty());
+            assertTrue(EpubCacheManager.getInstance().getFileCache(epubFile).getParsedResultCache().isEmpty());
+            assertNotNull(parsed.getResources().get(0).getByteBuffer());
+            assertTrue(tenantB.getRetainedBytes(EpubCacheManager.Kind.PARSED) > 0);
+            assertEquals(1, tenantB.getStats(EpubCacheManager.Kind.PARSED).getLoadCount());
+
+            // 按配置读取调用者的数据源时不修改其命名空间
+            EpubSource source = EpubSource.fromBytes(Files.readAllBytes(epubFile.toPath()), "shared.epub");
+            assertNotNull(EpubReader.fromSource(source, config).parse());
+            assertNull(source.getCacheNamespace());
+            assertSame(EpubCacheManager.getInstance(), source.getCacheManager());
+            assertTrue(EpubCacheManager.getInstance().getSourceCache(source).getParsedResultCache().isEmpty());
+            assertFalse(tenantB.getSourceCache(source).getParsedResultCache().isEmpty());
+
+            // 命名空间在创建时确定，切换命名空间得到新的数据源
+            EpubSource inA = source.withCacheNamespace("tenant-a");
+            assertNotSame(source, inA);
+            assertEquals("tenant-a", inA.getCacheNamespace());
+            assertSame(tenantA, inA.getCacheManager());
+            assertSame(inA, inA.withCacheNamespace("tenant-a"));
+            assertEquals("tenant-b", inA.withCacheNamespace("tenant-b").getCacheNamespace());
+            assertSame(source, inA.withCacheNamespace(EpubCacheManager.DEFAULT_NAMESPACE));
+            assertEquals(source.getName(), inA.getName());
+            assertThrows(IllegalArgumentException.class, () -> source.withCacheNamespace(""));
+
+            tenantB.registerMBean();
+        } finally {
+            assertTrue(EpubCacheManager.removeNamespace("tenant-a"));
+            assertTrue(EpubCacheManager.removeNamespace("tenant-b"));
+        }
+        assertEquals(0, tenantA.getRetainedBytes());
+        assertFalse(EpubCacheManager.removeNamespace("tenant-a"));
+        // 移除时注销MBean，再次获取时重新创建空的命名空间
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(
+                "fun.lzwi.epubime:type=EpubCacheManager,namespace=" + ObjectName.quote("tenant-b"))));
+        EpubCacheManager recreated = EpubCacheManager.getNamespace("tenant-b");
+        assertNotSame(tenantB, recreated);
+        assertEquals(0, recreated.getRetainedBytes());
+        assertTrue(EpubCacheManager.removeNamespace("tenant-b"));
+        assertThrows(IllegalArgumentException.class,
+                () -> EpubCacheManager.removeNamespace(EpubCacheManager.DEFAULT_NAMESPACE));
+    }
+
+    private static byte[] filled(int length, byte value) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, value);
+        return data;
+    }
+}
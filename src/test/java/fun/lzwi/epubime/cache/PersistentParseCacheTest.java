@@ -0,0 +1,191 @@
+package fun.lzwi.epubime.cache;
+
+import fun.lzwi.epubime.ResUtils;
+import fun.lzwi.epubime.epub.EpubBook;
+import fun.lzwi.epubime.epub.EpubChapter;
+import fun.lzwi.epubime.epub.EpubParser;
+import fun.lzwi.epubime.epub.EpubResource;
+import fun.lzwi.epubime.epub.Metadata;
+import fun.lzwi.epubime.zip.ArchiveFingerprint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentParseCacheTest {
+
+    private final File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    public void tearDown() {
+        EpubCacheManager.getInstance().setPersistentParseCache(null);
+        EpubCacheManager.getInstance().clearFileCache(epubFile);
+    }
+
+    @Test
+    public void warmParseLoadsResultFromDisk() throws Exception {
+        PersistentParseCache persistent = new PersistentParseCache(tempDir);
+        EpubCacheManager.getInstance().setPersistentParseCache(persistent);
+        EpubCacheManager.getInstance().clearFileCache(epubFile);
+
+        EpubBook parsed = new EpubParser(epubFile).parse();
+        assertEquals(1, persistent.getWriteCount());
+        assertEquals(0, persistent.getHitCount());
+
+        // 模拟重启：清空内存缓存后从磁盘读取
+        EpubCacheManager.getInstance().clearFileCache(epubFile);
+        EpubBook loaded = new EpubParser(epubFile).parse();
+        assertEquals(1, persistent.getHitCount());
+        assertEquals(1, persistent.getWriteCount());
+
+        assertBookEquals(parsed, loaded);
+        // 读取的资源重新关联到数据源，可以直接读取内容
+        EpubResource resource = loaded.getResources().get(0);
+        assertNotNull(resource.getSource());
+        try (InputStream in = resource.getInputStream()) {
+            assertTrue(in.read() >= 0);
+        }
+    }
+
+    @Test
+    public void roundTripsAllFields() throws Exception {
+        EpubBook book = new EpubBook();
+        book.setVersion("3.0");
+        Metadata metadata = new Metadata();
+        metadata.addTitle("坟");
+        metadata.addTitle("Subtitle");
+        metadata.addCreator("鲁迅");
+        metadata.addContributor("Editor");
+        metadata.addLanguage("zh");
+        metadata.addIdentifier("urn:uuid:1234");
+        metadata.addAccessibilityFeature("alternativeText");
+        metadata.addAccessibilitySummary("Summary");
+        metadata.setModified("2024-01-01T00:00:00Z");
+        metadata.setCover("cover-image");
+        metadata.setLayout("pre-paginated");
+        metadata.setAlignXCenter(true);
+        metadata.setUniqueIdentifier("pub-id");
+        book.setMetadata(metadata);
+
+        EpubResource resource = new EpubResource();
+        resource.setId("cover-image");
+        resource.setHref("OEBPS/images/cover.jpg");
+        resource.setType("image/jpeg");
+        resource.setProperties("cover-image");
+        book.setResources(Arrays.asList(resource));
+
+        EpubChapter part = chapter("part1", "第一部分", "part1.html");
+        part.addChild(chapter("ch1", "第一章", "ch1.html#start"));
+        part.addChild(chapter(null, null, null));
+        book.setNav(Arrays.asList(part));
+        book.setLandmarks(Arrays.asList(chapter("toc", "Contents", "toc.html")));
+
+        PersistentParseCache persistent = new PersistentParseCache(tempDir.resolve("nested"));
+        ArchiveFingerprint fingerprint = ArchiveFingerprint.of(epubFile);
+        persistent.store(fingerprint, "default", book);
+        EpubBook loaded = persistent.load(fingerprint, "default");
+
+        assertBookEquals(book, loaded);
+        assertEquals(Arrays.asList("Summary"), loaded.getMetadata().getAccessibilitySummaries());
+        assertTrue(loaded.getMetadata().isAlignXCenter());
+        assertNull(loaded.getNav().get(0).getChildren().get(1).getTitle());
+        assertNull(persistent.load(fingerprint, "ignorecase"));
+    }
+
+    @Test
+    public void detectsCorruptedAndOutdatedFiles() throws Exception {
+        PersistentParseCache persistent = new PersistentParseCache(tempDir);
+        ArchiveFingerprint fingerprint = ArchiveFingerprint.of(epubFile);
+        EpubBook book = new EpubParser(epubFile).parseWithoutCache();
+        persistent.store(fingerprint, "default", book);
+        Path file = persistent.pathOf(fingerprint, "default");
+        byte[] original = Files.readAllBytes(file);
+
+        // 内容中的一个字节被修改
+        byte[] flipped = original.clone();
+        flipped[flipped.length - 10] ^= 0x40;
+        Files.write(file, flipped);
+        assertNull(persistent.load(fingerprint, "default"));
+        assertEquals(1, persistent.getCorruptionCount());
+        assertFalse(Files.exists(file));
+
+        // 文件被截断
+        Files.write(file, Arrays.copyOf(original, original.length / 2));
+        assertNull(persistent.load(fingerprint, "default"));
+        assertEquals(2, persistent.getCorruptionCount());
+
+        // 格式版本不同的文件视为未命中，不算损坏
+        byte[] outdated = original.clone();
+        ByteBuffer.wrap(outdated).putInt(4, PersistentParseCache.FORMAT_VERSION + 1);
+        Files.write(file, outdated);
+        assertNull(persistent.load(fingerprint, "default"));
+        assertEquals(2, persistent.getCorruptionCount());
+
+        Files.write(file, original);
+        assertNotNull(persistent.load(fingerprint, "default"));
+        persistent.clear();
+        assertFalse(Files.exists(file));
+        assertEquals(3, persistent.getMissCount());
+    }
+
+    private static EpubChapter chapter(String id, String title, String content) {
+        EpubChapter chapter = new EpubChapter();
+        chapter.setId(id);
+        chapter.setTitle(title);
+        chapter.setContent(content);
+        return chapter;
+    }
+
+    private static void assertBookEquals(EpubBook expected, EpubBook actual) {
+        assertEquals(expected.getVersion(), actual.getVersion());
+        Metadata m1 = expected.getMetadata();
+        Metadata m2 = actual.getMetadata();
+        assertEquals(m1.getTitles(), m2.getTitles());
+        assertEquals(m1.getCreators(), m2.getCreators());
+        assertEquals(m1.getContributors(), m2.getContributors());
+        assertEquals(m1.getIdentifiers(), m2.getIdentifiers());
+        assertEquals(m1.getLanguages(), m2.getLanguages());
+        assertEquals(m1.getAccessibilityFeatures(), m2.getAccessibilityFeatures());
+        assertEquals(m1.getModified(), m2.getModified());
+        assertEquals(m1.getCover(), m2.getCover());
+        assertEquals(m1.getLayout(), m2.getLayout());
+        assertEquals(m1.getUniqueIdentifier(), m2.getUniqueIdentifier());
+
+        assertEquals(expected.getResources().size(), actual.getResources().size());
+        for (int i = 0; i < expected.getResources().size(); i++) {
+            EpubResource r1 = expected.getResources().get(i);
+            EpubResource r2 = actual.getResources().get(i);
+            assertEquals(r1.getId(), r2.getId());
+            assertEquals(r1.getHref(), r2.getHref());
+            assertEquals(r1.getType(), r2.getType());
+            assertEquals(r1.getProperties(), r2.getProperties());
+            assertEquals(r1.getFallback(), r2.getFallback());
+        }
+        assertChaptersEqual(expected.getNcx(), actual.getNcx());
+        assertChaptersEqual(expected.getNav(), actual.getNav());
+        assertChaptersEqual(expected.getLandmarks(), actual.getLandmarks());
+        assertChaptersEqual(expected.getPageList(), actual.getPageList());
+    }
+
+    private static void assertChaptersEqual(List<EpubChapter> expected, List<EpubChapter> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+            assertEquals(expected.get(i).getContent(), actual.get(i).getContent());
+            assertChaptersEqual(expected.get(i).getChildren(), actual.get(i).getChildren());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package fun.lzwi.epubime.cache;
+
+import fun.lzwi.epubime.ResUtils;
+import fun.lzwi.epubime.epub.EpubBook;
+import fun.lzwi.epubime.epub.EpubParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    public void concurrentCallersShareOneExecution() throws Exception {
+        SingleFlight<String, Object> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            results.add(executor.submit(() -> flight.execute("book", () -> {
+                loads.incrementAndGet();
+                release.await();
+                return new Object();
+            })));
+            awaitInFlight(flight, 1);
+            for (int i = 1; i < CALLERS; i++) {
+                results.add(executor.submit(() -> flight.execute("book", () -> {
+                    loads.incrementAndGet();
+                    return new Object();
+                })));
+            }
+            // 等待其他调用者都加入正在进行的加载
+            awaitCoalesced(flight, CALLERS - 1);
+            release.countDown();
+
+            Object first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Object> result : results) {
+                assertSame(first, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.getExecutionCount());
+        assertEquals(CALLERS - 1, flight.getCoalescedCount());
+        assertEquals(0, flight.getInFlightCount());
+
+        // 加载完成后再次调用重新执行
+        assertEquals("again", flight.execute("book", () -> "again"));
+        assertEquals(2, flight.getExecutionCount());
+    }
+
+    @Test
+    public void failureIsDeliveredToAllWaitersAndNotRemembered() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        IOException failure = new IOException("broken entry");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> flight.execute("entry", () -> {
+                release.await();
+                throw failure;
+            }));
+            awaitInFlight(flight, 1);
+            Future<String> follower = executor.submit(() -> flight.execute("entry", () -> "unused"));
+            awaitCoalesced(flight, 1);
+            release.countDown();
+
+            ExecutionException leaderError = assertThrows(ExecutionException.class,
+                    () -> leader.get(10, TimeUnit.SECONDS));
+            ExecutionException followerError = assertThrows(ExecutionException.class,
+                    () -> follower.get(10, TimeUnit.SECONDS));
+            assertSame(failure, leaderError.getCause());
+            assertSame(failure, followerError.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, flight.getInFlightCount());
+        assertEquals("ok", flight.execute("entry", () -> "ok"));
+    }
+
+    @Test
+    public void concurrentParsesOfSameBookReturnIndependentCopies() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        EpubCacheManager.getInstance().clearFileCache(epubFile);
+        SingleFlight<Object, EpubBook> parses = EpubParser.getParseFlights();
+        long executionsBefore = parses.getExecutionCount();
+        long coalescedBefore = parses.getCoalescedCount();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<EpubBook> books = new ArrayList<>();
+        try {
+            List<Future<EpubBook>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return new EpubParser(epubFile).parse();
+                }));
+            }
+            start.countDown();
+            for (Future<EpubBook> result : results) {
+                books.add(result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 每次调用要么实际解析，要么等待其他调用的解析结果，要么命中缓存
+        long executions = parses.getExecutionCount() - executionsBefore;
+        long coalesced = parses.getCoalescedCount() - coalescedBefore;
+        assertTrue(executions >= 1);
+        assertTrue(executions + coalesced <= CALLERS);
+        for (int i = 1; i < books.size(); i++) {
+            EpubBook book = books.get(i);
+            assertNotSame(books.get(0), book);
+            assertNotSame(books.get(0).getResources(), book.getResources());
+            assertEquals(books.get(0).getMetadata().getTitle(), book.getMetadata().getTitle());
+            assertEquals(books.get(0).getResources().size(), book.getResources().size());
+        }
+    }
+
+    private static void awaitInFlight(SingleFlight<?, ?> flight, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (flight.getInFlightCount() < count) {
+            assertTrue(System.nanoTime() < deadline, "Load did not start");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitCoalesced(SingleFlight<?, ?> flight, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (flight.getCoalescedCount() < count) {
+            assertTrue(System.nanoTime() < deadline, "Callers were not coalesced");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package fun.lzwi.epubime.epub;
+
+import fun.lzwi.epubime.ResUtils;
+import fun.lzwi.epubime.cache.EpubCacheManager;
+import fun.lzwi.epubime.zip.EpubSource;
+import fun.lzwi.epubime.zip.ZipOperations;
+import fun.lzwi.epubime.zip.ZipUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChapterPrefetcherTest {
+
+    private static final String EPUB = "fun/lzwi/epubime/epub/《坟》鲁迅.epub";
+
+    private static byte[] serve(EpubStreamProcessor processor, String href) throws Exception {
+        AtomicReference<byte[]> content = new AtomicReference<>();
+        processor.processHtmlChapter(href, in -> {
+            try {
+                content.set(ZipOperations.readBinaryContent(in, -1));
+            } catch (java.io.IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        return content.get();
+    }
+
+    @Test
+    public void prefetchesFollowingChaptersAndCancelsOnJump() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        // 内存数据源拥有独立的内容缓存，不受其他测试影响
+        EpubSource source = EpubSource.fromBytes(Files.readAllBytes(epubFile.toPath()));
+        EpubBook book = new EpubParser(source).parse();
+        // 同步执行预取任务，便于断言
+        ChapterPrefetcher prefetcher = new ChapterPrefetcher(book, source, Runnable::run, 2, 1024 * 1024);
+        List<String> order = prefetcher.getReadingOrder();
+        assertTrue(order.size() > 12, "reading order: " + order);
+        assertEquals("OEBPS/Notices.html", order.get(0));
+        assertEquals(order.get(0), prefetcher.resolve("Notices.html#top"));
+
+        EpubStreamProcessor processor = new EpubStreamProcessor(source);
+        processor.setChapterPrefetcher(prefetcher);
+        EpubCacheManager.EpubFileCache cache = EpubCacheManager.getInstance().getSourceCache(source);
+
+        assertArrayEquals(ZipUtils.getZipFileBytes(epubFile, order.get(0)), serve(processor, order.get(0)));
+        assertEquals(0, prefetcher.getHitCount());
+        assertEquals(1, prefetcher.getMissCount());
+        assertEquals(2, prefetcher.getPrefetchCount());
+        assertTrue(cache.getBinaryContentCache().containsKey(order.get(1)));
+        assertTrue(cache.getBinaryContentCache().containsKey(order.get(2)));
+
+        assertArrayEquals(ZipUtils.getZipFileBytes(epubFile, order.get(1)), serve(processor, order.get(1)));
+        assertEquals(1, prefetcher.getHitCount());
+        assertEquals(3, prefetcher.getPrefetchCount());
+
+        // 跳转到其他位置：原窗口内尚未读取的章节被移除
+        assertArrayEquals(ZipUtils.getZipFileBytes(epubFile, order.get(10)), serve(processor, order.get(10)));
+        assertEquals(2, prefetcher.getMissCount());
+        assertEquals(2, prefetcher.getCancelledCount());
+        assertFalse(cache.getBinaryContentCache().containsKey(order.get(2)));
+        assertFalse(cache.getBinaryContentCache().containsKey(order.get(3)));
+        assertTrue(cache.getBinaryContentCache().containsKey(order.get(11)));
+
+        prefetcher.close();
+        assertEquals(0, prefetcher.getPrefetchedBytes());
+        assertFalse(cache.getBinaryContentCache().containsKey(order.get(11)));
+    }
+
+    @Test
+    public void leavesContentItDidNotLoadOrThatWasRead() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        EpubSource source = EpubSource.fromBytes(Files.readAllBytes(epubFile.toPath()));
+        EpubBook book = new EpubParser(source).parse();
+        ChapterPrefetcher prefetcher = new ChapterPrefetcher(book, source, Runnable::run, 2, 1024 * 1024);
+        List<String> order = prefetcher.getReadingOrder();
+        EpubStreamProcessor processor = new EpubStreamProcessor(source);
+        processor.setChapterPrefetcher(prefetcher);
+        EpubCacheManager.EpubFileCache cache = EpubCacheManager.getInstance().getSourceCache(source);
+
+        // 第三章已由其他读取放入缓存，预取器只加载第二章
+        byte[] third = ZipUtils.getZipFileBytes(source, order.get(2));
+        serve(processor, order.get(0));
+        assertEquals(1, prefetcher.getPrefetchCount());
+        // 其他读取访问了预取的第二章
+        assertNotNull(ZipUtils.getZipFileBytes(source, order.get(1)));
+
+        // 跳转后被访问过的和不属于预取器的内容都保留在缓存中
+        serve(processor, order.get(10));
+        assertTrue(cache.containsBinaryContent(order.get(1)));
+        assertTrue(cache.containsBinaryContent(order.get(2)));
+
+        // 缓存中已有、但不是预取器加载的内容计为未命中
+        assertArrayEquals(third, serve(processor, order.get(2)));
+        assertEquals(0, prefetcher.getHitCount());
+        assertEquals(3, prefetcher.getMissCount());
+        prefetcher.close();
+        assertTrue(cache.containsBinaryContent(order.get(2)));
+    }
+
+    @Test
+    public void respectsMemoryCap() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        EpubSource source = EpubSource.fromBytes(Files.readAllBytes(epubFile.toPath()));
+        EpubBook book = new EpubParser(source).parse();
+        ChapterPrefetcher prefetcher = new ChapterPrefetcher(book, source, Runnable::run, 3, 1);
+        EpubStreamProcessor processor = new EpubStreamProcessor(source);
+        processor.setChapterPrefetcher(prefetcher);
+
+        serve(processor, prefetcher.getReadingOrder().get(0));
+        serve(processor, prefetcher.getReadingOrder().get(1));
+        assertEquals(0, prefetcher.getPrefetchCount());
+        assertEquals(0, prefetcher.getHitCount());
+        assertEquals(2, prefetcher.getMissCount());
+        assertEquals(0, prefetcher.getPrefetchedBytes());
+        assertThrows(IllegalArgumentException.class,
+                () -> new ChapterPrefetcher(book, source, Runnable::run, 0, 1));
+    }
+}
@@ -1,5 +1,6 @@
 package fun.lzwi.epubime.epub;
 
+import fun.lzwi.epubime.EpubFixtures;
 import fun.lzwi.epubime.ResUtils;
 import fun.lzwi.epubime.cache.EpubCacheManager;
 import fun.lzwi.epubime.epub.EpubFileReader;
@@ -8,8 +9,13 @@ import fun.lzwi.epubime.parser.MetadataParser;
 import fun.lzwi.epubime.parser.ResourceParser;
 import fun.lzwi.epubime.zip.ZipFileManager;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -46,7 +52,7 @@ public class EpubCacheTest {
         
         // 驗证缓存存在
         EpubCacheManager.EpubFileCache cache = EpubCacheManager.getInstance().getFileCache(epubFile);
-        String cacheKey = "fullParse:" + epubFile.getAbsolutePath();
+        String cacheKey = "fullParse";
         assertNotNull(cache.getParsedResult(cacheKey), "完整解析结果应被缓存");
     }
 
@@ -117,7 +123,7 @@ public class EpubCacheTest {
         
         // 验证缓存存在
         EpubCacheManager.EpubFileCache cache = EpubCacheManager.getInstance().getFileCache(epubFile);
-        String cacheKey = "fullParse:" + epubFile.getAbsolutePath();
+        String cacheKey = "fullParse";
         assertNotNull(cache.getParsedResult(cacheKey), "缓存应存在");
         
         // 清除缓存
@@ -131,4 +137,24 @@ public class EpubCacheTest {
         // 这里我们简化测试，只验证方法调用不会出错
         assertTrue(true, "缓存清除方法应成功执行");
     }
+
+    @Test
+    public void testParseCacheInvalidatedWhenFileReplaced(@TempDir Path tempDir) throws Exception {
+        File source = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        Path book = Files.copy(source.toPath(), tempDir.resolve("book.epub"));
+        assertEquals("坟", new EpubParser(book.toFile()).parse().getMetadata().getTitle());
+
+        // 同一路径被替换为另一本书后不应返回旧的解析结果
+        String opf = "<?xml version=\"1.0\"?><package xmlns=\"http://www.idpf.org/2007/opf\" version=\"2.0\">"
+                + "<metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><dc:title>Replaced</dc:title></metadata>"
+                + "<manifest><item id=\"ncx\" href=\"toc.ncx\" media-type=\"application/x-dtbncx+xml\"/></manifest>"
+                + "<spine toc=\"ncx\"/></package>";
+        String ncx = "<?xml version=\"1.0\"?><ncx xmlns=\"http://www.daisy.org/z3986/2005/ncx/\"><navMap/></ncx>";
+        byte[] bytes = EpubFixtures.minimalEpub(opf, ncx);
+        Path replacement = Files.write(tempDir.resolve("book.tmp"), bytes);
+        Files.move(replacement, book, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(book, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+
+        assertEquals("Replaced", new EpubParser(book.toFile()).parse().getMetadata().getTitle());
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package fun.lzwi.epubime.epub;
 
+import fun.lzwi.epubime.EpubFixtures;
 import fun.lzwi.epubime.ResUtils;
 import fun.lzwi.epubime.exception.EpubParseException;
 import fun.lzwi.epubime.exception.EpubPathValidationException;
@@ -581,4 +582,44 @@ public class EpubParserTest {
         // 这个文件应该是EPUB3，但我们验证版本字段存在
         assertTrue(book.getVersion().startsWith("3.") || book.getVersion().equals("2.0"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void parseResolvesEncodedAndMiscasedHrefs() throws Exception {
+        String opf = "<?xml version=\"1.0\"?><package xmlns=\"http://www.idpf.org/2007/opf\" version=\"2.0\">"
+                + "<metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><dc:title>Hrefs</dc:title></metadata>"
+                + "<manifest>"
+                + "<item id=\"ncx\" href=\"./toc.ncx\" media-type=\"application/x-dtbncx+xml\"/>"
+                + "<item id=\"c1\" href=\"Text/Chapter%201.xhtml\" media-type=\"application/xhtml+xml\"/>"
+                + "<item id=\"img\" href=\"images/cover.jpg\" media-type=\"image/jpeg\"/>"
+                + "</manifest><spine toc=\"ncx\"><itemref idref=\"c1\"/></spine></package>";
+        String ncx = "<?xml version=\"1.0\"?><ncx xmlns=\"http://www.daisy.org/z3986/2005/ncx/\"><navMap>"
+                + "<navPoint id=\"p1\"><navLabel><text>One</text></navLabel><content src=\"Text/Chapter%201.xhtml\"/>"
+                + "</navPoint></navMap></ncx>";
+        byte[] epub = EpubFixtures.minimalEpub(opf, ncx,
+                "OEBPS/Text/Chapter 1.xhtml", "<html><body>one</body></html>",
+                "OEBPS/Images/Cover.jpg", "jpeg");
+
+        EpubBook book = new EpubParser(fun.lzwi.epubime.zip.EpubSource.fromBytes(epub, "hrefs.epub"))
+                .setCaseInsensitiveHrefs(true).parse();
+        assertEquals(1, book.getNcx().size());
+        for (EpubResource resource : book.getResources()) {
+            try (InputStream in = resource.getInputStream()) {
+                assertNotNull(in, resource.getHref());
+            }
+        }
+        assertEquals("OEBPS/Text/Chapter 1.xhtml", hrefOf(book, "c1"));
+        assertEquals("OEBPS/Images/Cover.jpg", hrefOf(book, "img"));
+
+        // 不忽略大小写时只解析编码和"./"段
+        EpubBook strict = new EpubParser(fun.lzwi.epubime.zip.EpubSource.fromBytes(epub, "strict.epub"))
+                .parse();
+        assertEquals(1, strict.getNcx().size());
+        assertEquals("OEBPS/Text/Chapter 1.xhtml", hrefOf(strict, "c1"));
+        assertEquals("OEBPS/images/cover.jpg", hrefOf(strict, "img"));
+    }
+
+    private static String hrefOf(EpubBook book, String id) {
+        return book.getResources().stream().filter(r -> id.equals(r.getId())).findFirst()
+                .map(EpubResource::getHref).orElse(null);
+    }
+}
@@ -5,7 +5,8 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.InputStream;
-import java.util.function.Consumer;
+import java.util.function.Consumer;
+import java.nio.ByteBuffer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -157,4 +158,93 @@ public class EpubResourceTest {
             resource.setProperties(originalProperties); // 恢复原始值
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetByteBuffer() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+
+        // STORED图片直接返回映射文件的只读视图
+        EpubResource image = new EpubResource();
+        image.setEpubFile(epubFile);
+        image.setHref("OEBPS/images/Cover.jpg");
+        ByteBuffer imageBuffer = image.getByteBuffer();
+        assertNotNull(imageBuffer);
+        assertTrue(imageBuffer.isReadOnly());
+        assertTrue(imageBuffer.isDirect(), "STORED content should be a view of the mapped file");
+        assertEquals(16007, imageBuffer.remaining());
+
+        // DEFLATED章节按精确大小解压
+        EpubResource chapter = new EpubResource();
+        chapter.setEpubFile(epubFile);
+        chapter.setHref("OEBPS/Chapter19083.html");
+        ByteBuffer chapterBuffer = chapter.getByteBuffer();
+        assertNotNull(chapterBuffer);
+        assertTrue(chapterBuffer.isReadOnly());
+        byte[] expected;
+        try (InputStream in = chapter.getInputStream()) {
+            java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            expected = out.toByteArray();
+        }
+        assertEquals(ByteBuffer.wrap(expected), chapterBuffer);
+
+        // 不存在的资源返回null
+        EpubResource missing = new EpubResource();
+        missing.setEpubFile(epubFile);
+        missing.setHref("OEBPS/missing.png");
+        assertNull(missing.getByteBuffer());
+
+        // 已加载数据的资源返回数据的只读视图
+        EpubResource loaded = new EpubResource();
+        loaded.setData(new byte[]{1, 2, 3});
+        assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), loaded.getByteBuffer());
+        assertTrue(loaded.getByteBuffer().isReadOnly());
+    }
+
+    @Test
+    public void testTransferTo() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        EpubResource resource = new EpubResource();
+        resource.setEpubFile(epubFile);
+        resource.setHref("OEBPS/images/website.png");
+
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        assertEquals(2059, resource.transferTo(java.nio.channels.Channels.newChannel(out)));
+        assertEquals(2059, out.size());
+
+        java.io.ByteArrayOutputStream range = new java.io.ByteArrayOutputStream();
+        assertEquals(59, resource.transferTo(java.nio.channels.Channels.newChannel(range), 2000, 100));
+        assertArrayEquals(java.util.Arrays.copyOfRange(out.toByteArray(), 2000, 2059), range.toByteArray());
+
+        EpubResource loaded = new EpubResource();
+        loaded.setData(new byte[]{1, 2, 3, 4});
+        java.io.ByteArrayOutputStream loadedOut = new java.io.ByteArrayOutputStream();
+        assertEquals(2, loaded.transferTo(java.nio.channels.Channels.newChannel(loadedOut), 1, 2));
+        assertArrayEquals(new byte[]{2, 3}, loadedOut.toByteArray());
+
+        assertEquals(-1, new EpubResource().transferTo(java.nio.channels.Channels.newChannel(loadedOut)));
+    }
+
+
+    @Test
+    public void testOpenChannel() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        EpubResource resource = new EpubResource();
+        resource.setEpubFile(epubFile);
+        resource.setHref("OEBPS/Chapter19086.html");
+        byte[] expected = fun.lzwi.epubime.zip.ZipUtils.getZipFileBytes(epubFile, "OEBPS/Chapter19086.html");
+
+        try (java.nio.channels.SeekableByteChannel channel = resource.openChannel()) {
+            assertEquals(expected.length, channel.size());
+            java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(100);
+            channel.position(50000);
+            assertEquals(100, channel.read(buffer));
+            assertArrayEquals(java.util.Arrays.copyOfRange(expected, 50000, 50100), buffer.array());
+        }
+        assertNull(new EpubResource().openChannel());
+    }
+}
@@ -0,0 +1,81 @@
+package fun.lzwi.epubime.epub;
+
+import fun.lzwi.epubime.ResUtils;
+import fun.lzwi.epubime.exception.EpubFormatException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EpubStreamParserTest {
+
+    @Test
+    public void testParseMatchesFileParser() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        EpubBook expected = new EpubParser(epubFile).parse();
+
+        EpubBook book;
+        try (InputStream in = new FileInputStream(epubFile)) {
+            EpubStreamParser parser = new EpubStreamParser(in);
+            book = parser.parse();
+            assertEquals(epubFile.length(), parser.getBytesRead());
+        }
+
+        assertEquals(expected.getVersion(), book.getVersion());
+        assertEquals(expected.getMetadata().getTitle(), book.getMetadata().getTitle());
+        assertEquals(expected.getResources().size(), book.getResources().size());
+        assertEquals(expected.getNcx().size(), book.getNcx().size());
+        assertEquals(expected.getNav().size(), book.getNav().size());
+        assertNull(book.getResources().get(0).getEpubFile());
+    }
+
+    @Test
+    public void testResourcesDeliveredWhileStreaming() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        EpubBook expected = new EpubParser(epubFile).parse();
+
+        // 示例文件的OPF位于末尾，之前的条目都需要暂存
+        Map<String, byte[]> delivered = new HashMap<>();
+        List<String> order = new ArrayList<>();
+        try (InputStream in = new FileInputStream(epubFile)) {
+            new EpubStreamParser(in).parse((resource, content) -> {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int n;
+                try {
+                    while ((n = content.read(buffer)) != -1) {
+                        out.write(buffer, 0, n);
+                    }
+                    content.close();
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+                order.add(resource.getHref());
+                delivered.put(resource.getHref(), out.toByteArray());
+            });
+        }
+
+        assertEquals(expected.getResources().size(), delivered.size());
+        assertEquals(delivered.size(), order.size());
+        for (EpubResource resource : expected.getResources()) {
+            assertArrayEquals(resource.getData(), delivered.get(resource.getHref()), resource.getHref());
+        }
+    }
+
+    @Test
+    public void testBufferLimitExceeded() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        try (InputStream in = new FileInputStream(epubFile)) {
+            EpubStreamParser parser = new EpubStreamParser(in, 1024);
+            assertThrows(EpubFormatException.class, parser::parse);
+        }
+    }
+}
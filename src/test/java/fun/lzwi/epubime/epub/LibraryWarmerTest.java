@@ -0,0 +1,171 @@
+package fun.lzwi.epubime.epub;
+
+import fun.lzwi.epubime.EpubFixtures;
+import fun.lzwi.epubime.ResUtils;
+import fun.lzwi.epubime.cache.EpubCacheManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LibraryWarmerTest {
+
+    private static final String EPUB = "fun/lzwi/epubime/epub/《坟》鲁迅.epub";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void warmsBooksFromManifest() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        // 复制出的文件与原文件内容相同，共享同一缓存
+        File copy = tempDir.resolve("copy.epub").toFile();
+        Files.copy(epubFile.toPath(), copy.toPath());
+        Path manifest = tempDir.resolve("hot.txt");
+        Files.write(manifest, Arrays.asList("# 昨日热门", "", epubFile.getAbsolutePath(), "copy.epub",
+                "missing.epub", "copy.epub"), StandardCharsets.UTF_8);
+
+        List<File> files = LibraryWarmer.readManifest(manifest);
+        assertEquals(Arrays.asList(epubFile, tempDir.resolve("copy.epub").toFile(),
+                tempDir.resolve("missing.epub").toFile()), files);
+
+        EpubCacheManager manager = EpubCacheManager.getInstance();
+        manager.clearFileCache(epubFile);
+        AtomicInteger progress = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            LibraryWarmer warmer = new LibraryWarmer(executor, 2)
+                    .withChapters(3)
+                    .withCover(true)
+                    .withBudgetFraction(1.0)
+                    .withProgressListener((file, completed, total, error) -> {
+                        assertEquals(3, total);
+                        progress.incrementAndGet();
+                    });
+            LibraryWarmer.Report report = warmer.warmUp(manifest);
+
+            assertEquals(3, report.getCompleted());
+            assertEquals(3, progress.get());
+            assertEquals(2, report.getWarmedCount());
+            assertEquals(1, report.getFailures().size());
+            assertTrue(report.getFailures().containsKey(files.get(2)));
+            assertTrue(report.getPreloadedEntries() >= 3);
+            assertTrue(report.getElapsedNanos() > 0);
+        } finally {
+            executor.shutdown();
+        }
+
+        // 解析结果和前几个章节已在缓存中
+        EpubCacheManager.EpubFileCache cache = manager.getFileCache(epubFile);
+        assertFalse(cache.getParsedResultCache().isEmpty());
+        EpubBook book = new EpubParser(epubFile).parse();
+        String first = ChapterPrefetcher.entryNamesOf(book).values().iterator().next();
+        assertTrue(cache.getTextContentCache().containsKey(first));
+        manager.clearFileCache(epubFile);
+        manager.clearFileCache(copy);
+    }
+
+    @Test
+    public void stopsAtCacheBudget() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        EpubCacheManager manager = EpubCacheManager.getInstance();
+        manager.getFileCache(epubFile).setTextContent("marker", "预算");
+
+        // 同步执行，缓存已有内容时达到极小的预算比例；书籍仍被解析，只跳过预读
+        LibraryWarmer.Report report = new LibraryWarmer(Runnable::run, 1)
+                .withChapters(3)
+                .withBudgetFraction(Double.MIN_VALUE)
+                .warmUp(Arrays.asList(epubFile, epubFile));
+        assertEquals(2, report.getSkippedCount());
+        assertEquals(2, report.getWarmedCount());
+        assertEquals(0, report.getPreloadedEntries());
+        assertFalse(manager.getFileCache(epubFile).getParsedResultCache().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new LibraryWarmer(Runnable::run, 0));
+        assertThrows(IllegalArgumentException.class, () -> new LibraryWarmer(Runnable::run, 1).withBudgetFraction(2));
+        assertThrows(IllegalArgumentException.class, () -> new LibraryWarmer(Runnable::run, 1).withCacheNamespace(""));
+        manager.clearFileCache(epubFile);
+    }
+
+    @Test
+    public void countsOffHeapUsageAgainstBudget() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        EpubCacheManager manager = EpubCacheManager.getNamespace("warmer-off-heap");
+        try {
+            manager.setOffHeapCapacity(4 * 1024 * 1024);
+            manager.getFileCache(new File("other.epub")).setBinaryContent("audio.mp3", new byte[256 * 1024]);
+            assertEquals(1, manager.getOffHeapEntryCount());
+
+            // 堆内占用远低于预算，堆外存储已超过比例
+            LibraryWarmer.Report report = new LibraryWarmer(Runnable::run, 1)
+                    .withCacheNamespace("warmer-off-heap")
+                    .withChapters(3)
+                    .withBudgetFraction(0.05)
+                    .warmUp(Arrays.asList(epubFile));
+            assertEquals(1, report.getSkippedCount());
+            assertEquals(0, report.getPreloadedEntries());
+        } finally {
+            EpubCacheManager.removeNamespace("warmer-off-heap");
+        }
+    }
+
+    @Test
+    public void countsOnlyCoversItCached() throws Exception {
+        // 未压缩的封面直接读取映射的数据，不进入缓存
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        EpubCacheManager.getInstance().clearFileCache(epubFile);
+        LibraryWarmer warmer = new LibraryWarmer(Runnable::run, 1).withCover(true).withBudgetFraction(1.0);
+        LibraryWarmer.Report report = warmer.warmUp(Arrays.asList(epubFile));
+        assertEquals(1, report.getWarmedCount());
+        assertEquals(0, report.getPreloadedEntries());
+        EpubCacheManager.getInstance().clearFileCache(epubFile);
+
+        String opf = "<?xml version=\"1.0\"?><package xmlns=\"http://www.idpf.org/2007/opf\" version=\"3.0\">"
+                + "<metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><dc:title>Cover</dc:title></metadata>"
+                + "<manifest><item id=\"ncx\" href=\"toc.ncx\" media-type=\"application/x-dtbncx+xml\"/>"
+                + "<item id=\"cover\" href=\"cover.svg\" media-type=\"image/svg+xml\" properties=\"cover-image\"/>"
+                + "</manifest><spine toc=\"ncx\"/></package>";
+        String ncx = "<?xml version=\"1.0\"?><ncx xmlns=\"http://www.daisy.org/z3986/2005/ncx/\"><navMap/></ncx>";
+        Path book = Files.write(tempDir.resolve("cover.epub"),
+                EpubFixtures.minimalEpub(opf, ncx, "OEBPS/cover.svg", "<svg xmlns=\"http://www.w3.org/2000/svg\"/>"));
+        // 压缩的封面解压后放入缓存，已缓存时不再计入
+        assertEquals(1, warmer.warmUp(Arrays.asList(book.toFile())).getPreloadedEntries());
+        assertEquals(0, warmer.warmUp(Arrays.asList(book.toFile())).getPreloadedEntries());
+        EpubCacheManager.getInstance().clearFileCache(book.toFile());
+    }
+
+    @Test
+    public void reportsPreloadFailures() throws Exception {
+        String opf = "<?xml version=\"1.0\"?><package xmlns=\"http://www.idpf.org/2007/opf\" version=\"2.0\">"
+                + "<metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><dc:title>Broken</dc:title></metadata>"
+                + "<manifest><item id=\"ncx\" href=\"toc.ncx\" media-type=\"application/x-dtbncx+xml\"/></manifest>"
+                + "<spine toc=\"ncx\"/></package>";
+        // 目录指向归档之外的路径，解析成功但预读章节失败
+        String ncx = "<?xml version=\"1.0\"?><ncx xmlns=\"http://www.daisy.org/z3986/2005/ncx/\"><navMap>"
+                + "<navPoint id=\"p1\"><navLabel><text>One</text></navLabel><content src=\"../outside.xhtml\"/>"
+                + "</navPoint></navMap></ncx>";
+        Path book = Files.write(tempDir.resolve("broken.epub"), EpubFixtures.minimalEpub(opf, ncx));
+
+        AtomicReference<Exception> reported = new AtomicReference<>();
+        LibraryWarmer.Report report = new LibraryWarmer(Runnable::run, 1)
+                .withChapters(1)
+                .withProgressListener((file, completed, total, error) -> reported.set(error))
+                .warmUp(Arrays.asList(book.toFile()));
+        assertEquals(1, report.getWarmedCount());
+        assertTrue(report.getFailures().isEmpty());
+        assertEquals(1, report.getPreloadFailures().size());
+        assertSame(report.getPreloadFailures().get(book.toFile()), reported.get());
+        assertNotNull(reported.get());
+        EpubCacheManager.getInstance().clearFileCache(book.toFile());
+    }
+}
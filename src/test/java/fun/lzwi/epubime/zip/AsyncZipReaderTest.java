@@ -0,0 +1,75 @@
+package fun.lzwi.epubime.zip;
+
+import fun.lzwi.epubime.ResUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncZipReaderTest {
+
+    private static final String EPUB = "fun/lzwi/epubime/epub/《坟》鲁迅.epub";
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void readEntryMatchesZipUtils() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        try (AsyncZipReader reader = AsyncZipReader.open(epubFile.toPath()).get()) {
+            List<String> names = reader.getIndex().getNames();
+            assertEquals(ZipUtils.getZipFileList(epubFile).size(), names.size());
+            for (String name : names) {
+                ByteBuffer content = reader.readEntry(name).get();
+                assertTrue(content.isReadOnly(), name);
+                assertArrayEquals(ZipUtils.getZipFileBytes(epubFile, name), toBytes(content), name);
+                // 第二次读取使用缓存的数据偏移量
+                assertArrayEquals(ZipUtils.getZipFileBytes(epubFile, name), toBytes(reader.readEntry(name).get()), name);
+            }
+        }
+    }
+
+    @Test
+    public void readEntriesKeepsRequestOrder() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        List<String> names = Arrays.asList("OEBPS/book.opf", "missing.html", "OEBPS/images/Cover.jpg",
+                "OEBPS/Chapter19086.html");
+        try (AsyncZipReader reader = AsyncZipReader.open(epubFile.toPath()).get()) {
+            Map<String, ByteBuffer> contents = reader.readEntries(names).get();
+            assertEquals(names, Arrays.asList(contents.keySet().toArray(new String[0])));
+            assertNull(contents.get("missing.html"));
+            assertNull(reader.readEntry("missing.html").get());
+            for (String name : Arrays.asList("OEBPS/book.opf", "OEBPS/images/Cover.jpg", "OEBPS/Chapter19086.html")) {
+                assertArrayEquals(ZipUtils.getZipFileBytes(epubFile, name), toBytes(contents.get(name)), name);
+            }
+        }
+    }
+
+    @Test
+    public void unsafeNamesAndClosedReaderFail() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        AsyncZipReader reader = AsyncZipReader.open(epubFile.toPath()).get();
+        assertThrows(ExecutionException.class, () -> reader.readEntry("../secret").get());
+        reader.close();
+        assertThrows(ExecutionException.class, () -> reader.readEntry("OEBPS/book.opf").get());
+
+        Path notZip = Files.write(tempDir.resolve("not.epub"), "not a zip".getBytes(StandardCharsets.UTF_8));
+        assertThrows(ExecutionException.class, () -> AsyncZipReader.open(notZip).get());
+    }
+}
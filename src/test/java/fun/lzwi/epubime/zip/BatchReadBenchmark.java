@@ -0,0 +1,148 @@
+package fun.lzwi.epubime.zip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 批量读取顺序的JMH基准测试
+ * 在大型合成EPUB（大量章节和未压缩图片）上，以打乱的请求顺序比较逐个读取与按偏移量合并读取。
+ * 页缓存命中时两种方式都只受解压速度限制，差异来自缓存未命中时的随机寻道与顺序读取：
+ * 设置 coldCache=true 时每次调用前解除映射并清空系统页缓存（需要Linux和root权限，否则在开始前报错退出）。
+ * <p>
+ * 运行：mvn test-compile 后以测试类路径执行本类的main方法，
+ * 或执行 org.openjdk.jmh.Main BatchReadBenchmark -p coldCache=true
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BatchReadBenchmark {
+
+    @Param({"2000"})
+    public int chapters;
+
+    @Param({"400"})
+    public int images;
+
+    @Param({"false"})
+    public boolean coldCache;
+
+    private static final File DROP_CACHES = new File("/proc/sys/vm/drop_caches");
+
+    private File book;
+    private List<String> requested;
+
+    @Setup(Level.Trial)
+    public void createBook() throws IOException {
+        if (coldCache && !DROP_CACHES.canWrite()) {
+            throw new IllegalStateException("coldCache=true needs write access to " + DROP_CACHES
+                    + " (Linux, run as root); rerun as root or with -p coldCache=false");
+        }
+        book = File.createTempFile("epubime-batch-", ".epub");
+        Random random = new Random(42);
+        List<String> names = new ArrayList<>();
+        try (ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(book)))) {
+            for (int i = 0; i < chapters; i++) {
+                String name = "OEBPS/chapter" + i + ".xhtml";
+                names.add(name);
+                out.putNextEntry(new ZipEntry(name));
+                out.write(chapter(random, 40 * 1024));
+                out.closeEntry();
+                if (i % (chapters / images) == 0) {
+                    String image = "OEBPS/images/image" + i + ".jpg";
+                    names.add(image);
+                    byte[] data = new byte[150 * 1024];
+                    random.nextBytes(data);
+                    ZipEntry entry = new ZipEntry(image);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(data.length);
+                    CRC32 crc = new CRC32();
+                    crc.update(data);
+                    entry.setCrc(crc.getValue());
+                    out.putNextEntry(entry);
+                    out.write(data);
+                    out.closeEntry();
+                }
+            }
+        }
+        Collections.shuffle(names, random);
+        requested = names;
+    }
+
+    private static byte[] chapter(Random random, int size) {
+        String[] words = {"<p>", "</p>", "the ", "epub ", "chapter ", "reader ", "鲁迅 ", "坟 ", "\n"};
+        StringBuilder builder = new StringBuilder(size);
+        while (builder.length() < size) {
+            builder.append(words[random.nextInt(words.length)]).append(random.nextInt(1000));
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Invocation)
+    public void dropPageCache() throws IOException, InterruptedException {
+        if (!coldCache) {
+            return;
+        }
+        // 解除映射后页面才能被清出页缓存
+        MappedZipFile.evictAll();
+        System.gc();
+        Thread.sleep(50);
+        Files.write(DROP_CACHES.toPath(), "3".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteBook() throws IOException {
+        MappedZipFile.evict(book);
+        Files.deleteIfExists(book.toPath());
+    }
+
+    @Benchmark
+    public Map<String, byte[]> requestOrder() throws IOException {
+        return ZipUtils.getMultipleZipFileBytes(book, requested, BatchReadMode.REQUEST_ORDER);
+    }
+
+    @Benchmark
+    public Map<String, byte[]> offsetOrder() throws IOException {
+        return ZipUtils.getMultipleZipFileBytes(book, requested, BatchReadMode.OFFSET_ORDER);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BatchReadBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
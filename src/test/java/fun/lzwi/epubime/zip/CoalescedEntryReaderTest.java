@@ -0,0 +1,108 @@
+package fun.lzwi.epubime.zip;
+
+import fun.lzwi.epubime.ResUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoalescedEntryReaderTest {
+
+    private static int[] allEntries(MappedZipFile archive) {
+        int[] entries = new int[archive.getIndex().size()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = i;
+        }
+        return entries;
+    }
+
+    @Test
+    public void testEntriesAreDeliveredInOffsetOrder() throws IOException {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        MappedZipFile archive = MappedZipFile.open(epubFile);
+        int[] entries = allEntries(archive);
+        // 打乱请求顺序并加入重复项
+        List<Integer> shuffled = new ArrayList<>();
+        for (int entry : entries) {
+            shuffled.add(entry);
+        }
+        shuffled.add(entries[3]);
+        Collections.shuffle(shuffled, new Random(1));
+
+        List<Integer> delivered = new ArrayList<>();
+        int reads = CoalescedEntryReader.read(archive, shuffled.stream().mapToInt(Integer::intValue).toArray(),
+                (entry, raw) -> {
+                    delivered.add(entry);
+                    assertEquals(archive.getRawData(entry), raw, archive.getIndex().getName(entry));
+                });
+
+        assertEquals(1, reads, "A small book should be read in a single sequential chunk");
+        assertEquals(entries.length, delivered.size());
+        for (int i = 1; i < delivered.size(); i++) {
+            assertTrue(archive.getIndex().getLocalHeaderOffset(delivered.get(i - 1))
+                    < archive.getIndex().getLocalHeaderOffset(delivered.get(i)));
+        }
+    }
+
+    @Test
+    public void testRunsAreSplitByGapAndSize() throws IOException {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        MappedZipFile archive = MappedZipFile.open(epubFile);
+        int[] entries = allEntries(archive);
+
+        int[] delivered = {0};
+        int reads = CoalescedEntryReader.read(archive, entries, 0, 32 * 1024, (entry, raw) -> {
+            delivered[0]++;
+            assertEquals(archive.getRawData(entry), raw);
+        });
+        assertEquals(entries.length, delivered[0]);
+        assertTrue(reads > 1 && reads < entries.length, "reads: " + reads);
+
+        // 间隔较大的条目不合并
+        int first = archive.findEntry("mimetype");
+        int last = archive.findEntry("OEBPS/book.ncx");
+        assertEquals(2, CoalescedEntryReader.read(archive, new int[]{last, first}, 0, Integer.MAX_VALUE,
+                (entry, raw) -> { }));
+        assertEquals(0, CoalescedEntryReader.read(archive, new int[0], (entry, raw) -> fail()));
+    }
+
+    @Test
+    public void testBatchReadModesReturnSameContent() throws IOException {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        List<String> names = new ArrayList<>(ZipUtils.getZipFileList(epubFile));
+        Collections.shuffle(names, new Random(2));
+        names.add("OEBPS/missing.html");
+
+        Map<String, byte[]> requestOrder = ZipUtils.getMultipleZipFileBytes(epubFile, names, BatchReadMode.REQUEST_ORDER);
+        Map<String, byte[]> offsetOrder = ZipUtils.getMultipleZipFileBytes(epubFile, names, BatchReadMode.OFFSET_ORDER);
+        assertEquals(requestOrder.keySet(), offsetOrder.keySet());
+        for (String name : names) {
+            assertArrayEquals(requestOrder.get(name), offsetOrder.get(name), name);
+        }
+        assertNull(offsetOrder.get("OEBPS/missing.html"));
+
+        // 处理函数仍按请求顺序调用
+        List<String> processed = new ArrayList<>();
+        ZipUtils.processMultipleHtmlContents(epubFile, names, (name, in) -> {
+            processed.add(name);
+            try {
+                assertArrayEquals(requestOrder.get(name), ZipOperations.readBinaryContent(in, -1), name);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, BatchReadMode.OFFSET_ORDER);
+        assertEquals(names.subList(0, names.size() - 1), processed);
+        assertEquals(Arrays.asList("mimetype"), new ArrayList<>(
+                ZipUtils.getMultipleZipFileBytes(epubFile, Arrays.asList("mimetype"), BatchReadMode.OFFSET_ORDER).keySet()));
+        assertTrue(ByteBuffer.wrap(offsetOrder.get("mimetype")).hasRemaining());
+    }
+}
@@ -0,0 +1,135 @@
+package fun.lzwi.epubime.zip;
+
+import fun.lzwi.epubime.ResUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EpubSourceTest {
+
+    private static final String EPUB = "fun/lzwi/epubime/epub/《坟》鲁迅.epub";
+
+    @Test
+    public void memorySourceMatchesFile() throws IOException {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        EpubSource source = EpubSource.fromBytes(Files.readAllBytes(epubFile.toPath()));
+
+        assertEquals(ZipUtils.getZipFileList(epubFile), ZipUtils.getZipFileList(source));
+        for (String name : ZipUtils.getZipFileList(epubFile)) {
+            assertArrayEquals(ZipUtils.getZipFileBytes(epubFile, name), ZipUtils.getZipFileBytes(source, name), name);
+        }
+        assertEquals(ZipUtils.getZipFileContent(epubFile, "META-INF/container.xml"),
+                ZipUtils.getZipFileContent(source, "META-INF/container.xml"));
+        assertNull(ZipUtils.getZipFileBytes(source, "missing.xhtml"));
+    }
+
+    @Test
+    public void memorySourceTransferAndChannel() throws IOException {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        EpubSource source = EpubSource.fromBuffer(ByteBuffer.wrap(Files.readAllBytes(epubFile.toPath())));
+
+        for (String name : new String[]{"OEBPS/book.opf", "OEBPS/Chapter19084.html"}) {
+            byte[] expected = ZipUtils.getZipFileBytes(epubFile, name);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(expected.length, ZipUtils.transferTo(source, name, 0, Long.MAX_VALUE, Channels.newChannel(out)));
+            assertArrayEquals(expected, out.toByteArray(), name);
+
+            try (SeekableByteChannel channel = ZipUtils.getZipFileChannel(source, name)) {
+                ByteBuffer tail = ByteBuffer.allocate(100);
+                channel.position(expected.length - 100);
+                while (tail.hasRemaining() && channel.read(tail) > 0) {
+                    // 继续读取
+                }
+                assertArrayEquals(java.util.Arrays.copyOfRange(expected, expected.length - 100, expected.length),
+                        tail.array(), name);
+            }
+        }
+    }
+
+    @Test
+    public void channelSourceReadsOnlyRequestedRegions() throws IOException {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        try (CountingChannel channel = new CountingChannel(FileChannel.open(epubFile.toPath(), StandardOpenOption.READ))) {
+            EpubSource source = EpubSource.fromChannel(channel);
+
+            String container = ZipUtils.getZipFileContent(source, "META-INF/container.xml");
+            assertEquals(ZipUtils.getZipFileContent(epubFile, "META-INF/container.xml"), container);
+            // EOCD和中央目录，本地文件头，条目数据
+            assertTrue(channel.reads <= 4, "reads: " + channel.reads);
+            assertTrue(channel.bytesRead < epubFile.length() / 4, "bytes read: " + channel.bytesRead);
+
+            String chapter = "OEBPS/Chapter19086.html";
+            assertArrayEquals(ZipUtils.getZipFileBytes(epubFile, chapter), ZipUtils.getZipFileBytes(source, chapter));
+        }
+    }
+
+    /**
+     * 统计读取次数和字节数的通道，不是FileChannel，因此使用定位后读取的路径
+     */
+    private static final class CountingChannel implements SeekableByteChannel {
+        private final SeekableByteChannel delegate;
+        int reads;
+        long bytesRead;
+
+        CountingChannel(SeekableByteChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int n = delegate.read(dst);
+            reads++;
+            if (n > 0) {
+                bytesRead += n;
+            }
+            return n;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
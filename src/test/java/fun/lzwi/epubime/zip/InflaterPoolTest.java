@@ -0,0 +1,76 @@
+package fun.lzwi.epubime.zip;
+
+import fun.lzwi.epubime.ResUtils;
+import fun.lzwi.epubime.cache.EpubCacheManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InflaterPoolTest {
+
+    @Test
+    public void testBorrowAndReleaseMetrics() {
+        InflaterPool pool = new InflaterPool(1);
+        Inflater first = pool.borrow();
+        Inflater second = pool.borrow();
+        assertEquals(0, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+
+        pool.release(first);
+        pool.release(second);
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(1, pool.getDiscardCount());
+
+        assertSame(first, pool.borrow());
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1.0 / 3, pool.getHitRate(), 1e-9);
+
+        pool.resetStatistics();
+        assertEquals(0, pool.getHitCount());
+        assertEquals(0, pool.getMissCount());
+        assertEquals(0.0, pool.getHitRate());
+        assertThrows(IllegalArgumentException.class, () -> new InflaterPool(0));
+    }
+
+    @Test
+    public void testReleasedInflaterIsReset() throws Exception {
+        InflaterPool pool = new InflaterPool(2);
+        Inflater inflater = pool.borrow();
+        inflater.setInput(new byte[]{1, 2, 3});
+        pool.release(inflater);
+        Inflater reused = pool.borrow();
+        assertSame(inflater, reused);
+        assertTrue(reused.needsInput());
+        assertEquals(0, reused.getBytesRead());
+    }
+
+    @Test
+    public void testReadPathsReuseInflaters() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        InflaterPool pool = InflaterPool.getInstance();
+        // 已缓存的内容直接从缓存读取，不经过解压器
+        EpubCacheManager.getInstance().clearFileCache(epubFile);
+
+        // 预热，确保池中有空闲解压器
+        ZipUtils.getMultipleZipFileBytes(epubFile, Arrays.asList("OEBPS/styles.css"));
+        long misses = pool.getMissCount();
+        long hits = pool.getHitCount();
+
+        Map<String, byte[]> bytes = ZipUtils.getMultipleZipFileBytes(epubFile,
+                Arrays.asList("OEBPS/Chapter19083.html", "OEBPS/Chapter19086.html", "OEBPS/Notices.html"));
+        assertEquals(3, bytes.size());
+        try (InputStream in = ZipUtils.getZipFileInputStream(epubFile, "OEBPS/Chapter19084.html")) {
+            assertTrue(ZipOperations.readBinaryContent(in, -1).length > 0);
+        }
+        ZipUtils.processZipFileContent(epubFile, "OEBPS/TOC.xhtml", in -> assertNotNull(in));
+
+        assertEquals(misses, pool.getMissCount(), "Sequential reads should reuse pooled inflaters");
+        assertTrue(pool.getHitCount() >= hits + 5);
+    }
+}
@@ -0,0 +1,275 @@
+package fun.lzwi.epubime.zip;
+
+import fun.lzwi.epubime.ResUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedZipFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File createZip(String name, String comment, String... entries) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.write(("content of " + entry).getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+            if (comment != null) {
+                out.setComment(comment);
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void testIndexMatchesZipFile() throws IOException {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        MappedZipFile archive = MappedZipFile.open(epubFile);
+        ZipEntryIndex index = archive.getIndex();
+
+        List<String> expectedNames = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(epubFile)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry expected = entries.nextElement();
+                expectedNames.add(expected.getName());
+
+                int entry = index.indexOf(expected.getName());
+                assertTrue(entry >= 0, "Entry should be indexed: " + expected.getName());
+                assertEquals(expected.getName().hashCode(), index.getNameHash(entry));
+                assertEquals(expected.getSize(), index.getSize(entry));
+                assertEquals(expected.getCompressedSize(), index.getCompressedSize(entry));
+                assertEquals(expected.getMethod(), index.getMethod(entry));
+                assertEquals(expected.getCrc(), index.getCrc(entry));
+                assertEquals(expected.isDirectory(), index.isDirectory(entry));
+            }
+        }
+        assertEquals(expectedNames, archive.getEntryNames());
+        assertEquals(-1, archive.findEntry("no/such/entry.html"));
+        assertEquals(-1, archive.findEntry(null));
+    }
+
+    @Test
+    public void testStoredRawDataIsEntryContent() throws IOException {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        MappedZipFile archive = MappedZipFile.open(epubFile);
+        int entry = archive.findEntry("mimetype");
+        assertEquals(ZipEntryIndex.METHOD_STORED, archive.getIndex().getMethod(entry));
+
+        ByteBuffer data = archive.getRawData(entry);
+        assertTrue(data.isReadOnly());
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        assertEquals("application/epub+zip", new String(bytes, StandardCharsets.US_ASCII));
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        assertEquals(archive.getIndex().getCrc(entry), crc.getValue());
+    }
+
+    @Test
+    public void testIndexIsReusedAcrossOpens() throws IOException {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        assertSame(MappedZipFile.open(epubFile), MappedZipFile.open(epubFile));
+        assertSame(MappedZipFile.open(epubFile).getIndex(), ZipOperations.getEntryIndex(epubFile));
+        assertSame(ZipUtils.getZipFileList(epubFile), ZipUtils.getZipFileList(epubFile));
+    }
+
+    @Test
+    public void testReindexWhenFileChanges() throws IOException {
+        File file = createZip("book.epub", null, "a.html");
+        MappedZipFile first = MappedZipFile.open(file);
+        assertTrue(first.getIndex().contains("a.html"));
+
+        createZip("book.epub", null, "a.html", "b.html");
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        MappedZipFile second = MappedZipFile.open(file);
+        assertNotSame(first, second);
+        assertTrue(second.getIndex().contains("b.html"));
+    }
+
+    @Test
+    public void testArchiveWithComment() throws IOException {
+        File file = createZip("comment.epub", "an archive comment", "OEBPS/ch1.xhtml", "OEBPS/ch2.xhtml");
+        ZipEntryIndex index = MappedZipFile.open(file).getIndex();
+        assertEquals(2, index.size());
+        assertTrue(index.contains("OEBPS/ch2.xhtml"));
+    }
+
+    @Test
+    public void testManyEntriesLookup() throws IOException {
+        String[] names = new String[500];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "OEBPS/chapter" + i + ".xhtml";
+        }
+        ZipEntryIndex index = MappedZipFile.open(createZip("many.epub", null, names)).getIndex();
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(i, index.indexOf(names[i]));
+        }
+        assertFalse(index.contains("OEBPS/chapter500.xhtml"));
+    }
+
+    @Test
+    public void testInvalidArchive() throws IOException {
+        File file = tempDir.resolve("broken.epub").toFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("not a zip file".getBytes(StandardCharsets.US_ASCII));
+        }
+        assertThrows(ZipException.class, () -> MappedZipFile.open(file));
+        assertNull(MappedZipFile.openIfSupported(file));
+        assertNull(ZipOperations.getEntryIndex(file));
+        assertFalse(ZipOperations.isKnownMissing(file, "mimetype"));
+    }
+
+    @Test
+    public void testContentMatchesZipFile() throws IOException {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        MappedZipFile archive = MappedZipFile.open(epubFile);
+        try (ZipFile zip = new ZipFile(epubFile)) {
+            for (String name : archive.getEntryNames()) {
+                int entry = archive.findEntry(name);
+                byte[] expected = ZipOperations.readBinaryContent(zip.getInputStream(zip.getEntry(name)), -1);
+                assertEquals(ByteBuffer.wrap(expected), archive.getContent(entry), name);
+                assertArrayEquals(expected, archive.getContentBytes(entry), name);
+            }
+        }
+    }
+
+    @Test
+    public void testGetZipFileBufferIsZeroCopyForStoredEntries() throws IOException {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        ByteBuffer first = ZipUtils.getZipFileBuffer(epubFile, "OEBPS/images/website.png");
+        ByteBuffer second = ZipUtils.getZipFileBuffer(epubFile, "OEBPS/images/website.png");
+        assertTrue(first.isReadOnly());
+        assertTrue(first.isDirect());
+        assertEquals(2059, first.remaining());
+        assertEquals(first, second);
+
+        ByteBuffer css = ZipUtils.getZipFileBuffer(epubFile, "OEBPS/styles.css");
+        assertEquals(467, css.remaining());
+        assertTrue(css.isReadOnly());
+
+        assertNull(ZipUtils.getZipFileBuffer(epubFile, "OEBPS/missing.css"));
+        assertThrows(IOException.class, () -> ZipUtils.getZipFileBuffer(epubFile, "../secret"));
+    }
+
+    /**
+     * 每次最多接受chunk字节、总共最多接受budget字节的通道，用于模拟非阻塞通道的部分写入
+     */
+    private static final class ThrottledChannel implements java.nio.channels.WritableByteChannel {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final int chunk;
+        private long budget;
+
+        ThrottledChannel(int chunk, long budget) {
+            this.chunk = chunk;
+            this.budget = budget;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = (int) Math.min(Math.min(chunk, budget), src.remaining());
+            for (int i = 0; i < n; i++) {
+                out.write(src.get());
+            }
+            budget -= n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void testTransferToMatchesEntryContent() throws IOException {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        for (String name : new String[]{"OEBPS/images/Cover.jpg", "OEBPS/Chapter19086.html", "META-INF/"}) {
+            byte[] expected = ZipUtils.getZipFileBytes(epubFile, name);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long transferred = ZipUtils.transferTo(epubFile, name, Channels.newChannel(out));
+            assertEquals(expected.length, transferred, name);
+            assertArrayEquals(expected, out.toByteArray(), name);
+        }
+        assertEquals(-1, ZipUtils.transferTo(epubFile, "OEBPS/missing.jpg", Channels.newChannel(new ByteArrayOutputStream())));
+    }
+
+    @Test
+    public void testTransferToRangeAndResume() throws IOException {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        for (String name : new String[]{"OEBPS/images/Cover.jpg", "OEBPS/Chapter19086.html"}) {
+            byte[] expected = ZipUtils.getZipFileBytes(epubFile, name);
+
+            // 范围传输
+            ByteArrayOutputStream range = new ByteArrayOutputStream();
+            long n = ZipUtils.transferTo(epubFile, name, 1000, 5000, Channels.newChannel(range));
+            assertEquals(5000, n);
+            assertArrayEquals(java.util.Arrays.copyOfRange(expected, 1000, 6000), range.toByteArray());
+
+            // 通道暂时无法写入时返回部分结果，从返回位置继续传输
+            ByteArrayOutputStream resumed = new ByteArrayOutputStream();
+            long position = 0;
+            while (position < expected.length) {
+                ThrottledChannel channel = new ThrottledChannel(777, 3000);
+                long written = ZipUtils.transferTo(epubFile, name, position, Long.MAX_VALUE, channel);
+                assertTrue(written > 0 && written <= 3000, name);
+                resumed.write(channel.out.toByteArray());
+                position += written;
+            }
+            assertArrayEquals(expected, resumed.toByteArray(), name);
+            assertEquals(0, ZipUtils.transferTo(epubFile, name, expected.length, 10, Channels.newChannel(resumed)));
+        }
+    }
+
+    @Test
+    public void testResolveNormalizedNames() throws IOException {
+        File file = createZip("aliases.zip", null, "OEBPS/Text/Chapter 1.xhtml", "OEBPS/Images/Cover.JPG",
+                "OEBPS/styles/a.css", "OEBPS/styles/A.CSS", "OEBPS/literal%20name.html");
+        ZipEntryIndex index = MappedZipFile.open(file).getIndex();
+
+        assertEquals(index.indexOf("OEBPS/Text/Chapter 1.xhtml"), index.resolve("OEBPS/Text/Chapter%201.xhtml", false));
+        assertEquals(index.indexOf("OEBPS/Text/Chapter 1.xhtml"), index.resolve("OEBPS/./Text//Chapter%201.xhtml", false));
+        assertEquals(index.indexOf("OEBPS/Text/Chapter 1.xhtml"), index.resolve("OEBPS/Images/../Text/Chapter 1.xhtml", false));
+        assertEquals(index.indexOf("OEBPS/literal%20name.html"), index.resolve("OEBPS/literal%20name.html", false));
+        assertEquals(index.indexOf("OEBPS/literal%20name.html"), index.resolve("OEBPS/literal%2520name.html", false));
+
+        assertEquals(-1, index.resolve("OEBPS/images/cover.jpg", false));
+        assertEquals(index.indexOf("OEBPS/Images/Cover.JPG"), index.resolve("OEBPS/images/cover.jpg", true));
+        // 仅大小写不同的条目无法忽略大小写匹配，但精确名称仍然可以
+        assertEquals(-1, index.resolve("OEBPS/Styles/a.CSS", true));
+        assertEquals(index.indexOf("OEBPS/styles/A.CSS"), index.resolve("OEBPS/styles/A.CSS", true));
+
+        assertEquals(-1, index.resolve("../OEBPS/styles/a.css", true));
+        assertEquals(-1, index.resolve("OEBPS/bad%zz.css", true));
+        assertNull(ZipEntryIndex.normalizeName("a/../../b"));
+        assertEquals("a/b", ZipEntryIndex.normalizeName("/a/./b/"));
+        assertEquals("中文.html", ZipEntryIndex.normalizeName("%E4%B8%AD%E6%96%87.html"));
+    }
+}
@@ -0,0 +1,56 @@
+package fun.lzwi.epubime.zip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路径安全检查的JMH基准测试
+ * 比较单次扫描的词法检查与基于URLDecoder和Path规范化的原实现，同时用GC分析器比较每次调用的分配量。
+ * <p>
+ * 运行：mvn test-compile 后以测试类路径执行本类的main方法，
+ * 或执行 org.openjdk.jmh.Main PathValidatorBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathValidatorBenchmark {
+
+    @Param({"OEBPS/Text/chapter0042.xhtml", "OEBPS/Images/%E5%B0%81%E9%9D%A2.jpg"})
+    public String path;
+
+    @Benchmark
+    public boolean lexical() {
+        return PathValidator.isPathSafe("", path);
+    }
+
+    @Benchmark
+    public boolean pathBased() {
+        return PathValidator.isPathSafeByPath("", path);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PathValidatorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -2,6 +2,8 @@ package fun.lzwi.epubime.zip;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class PathValidatorTest {
@@ -47,4 +49,51 @@ public class PathValidatorTest {
         assertEquals("", PathValidator.sanitizePath(""));
         assertEquals("", PathValidator.sanitizePath("   "));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLexicalFastPathMatchesPathCheck() {
+        String[] samples = {
+                "OEBPS/Text/chapter1.xhtml", "a/./b/../c.html", "a//b", "a/b/", "%E4%B8%AD%E6%96%87.html",
+                "a+b.html", "%2Fetc", "/etc/passwd", "a/../..", "a/../../x", "...", "a/.../b", "a%2e%2e/b",
+                "%2e%2e/x", "%", "%2", "%zz", "%+1", "a\\..\\..\\x", "C:/x", "a. /b", "name.", "a\u0000b", ""
+        };
+        for (String sample : samples) {
+            assertSameOutcome(sample);
+        }
+        // 常见的条目路径都走快速路径
+        assertTrue(PathValidator.isLexicallySafe("OEBPS/Text/chapter1.xhtml"));
+        assertTrue(PathValidator.isLexicallySafe("a/./b/../c.html"));
+        assertTrue(PathValidator.isLexicallySafe("%E4%B8%AD%E6%96%87.html"));
+        assertTrue(PathValidator.isLexicallySafe(""));
+        assertFalse(PathValidator.isLexicallySafe("%2Fetc"));
+
+        // 随机组合容易触发边界情况的字符
+        String[] alphabet = {"a", "b", ".", "..", "/", "%2F", "%2E", "%2e", "%", "%4", "%41", "+", " ", "\\",
+                ":", "中", "%E4%B8%AD", "%C0%AF", "%00", "*"};
+        Random random = new Random(13);
+        for (int n = 0; n < 20000; n++) {
+            StringBuilder path = new StringBuilder();
+            int parts = random.nextInt(10);
+            for (int i = 0; i < parts; i++) {
+                path.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            assertSameOutcome(path.toString());
+        }
+    }
+
+    private static void assertSameOutcome(String path) {
+        String expected = outcome(() -> PathValidator.isPathSafeByPath("", path));
+        assertEquals(expected, outcome(() -> PathValidator.isPathSafe("", path)), path);
+        if (PathValidator.isLexicallySafe(path)) {
+            assertEquals("true", expected, path);
+        }
+    }
+
+    private static String outcome(java.util.function.BooleanSupplier check) {
+        try {
+            return String.valueOf(check.getAsBoolean());
+        } catch (RuntimeException e) {
+            return e.getClass().getName();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package fun.lzwi.epubime.zip;
+
+import fun.lzwi.epubime.ResUtils;
+import fun.lzwi.epubime.epub.EpubBook;
+import fun.lzwi.epubime.epub.EpubParser;
+import fun.lzwi.epubime.epub.EpubResource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RangeSourceTest {
+
+    private static final String EPUB = "fun/lzwi/epubime/epub/《坟》鲁迅.epub";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void metadataNeedsFewRangeReads() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        FileRangeServer server = new FileRangeServer(epubFile, 5);
+        EpubSource source = EpubSource.fromRemote(server, "books/fen.epub#1", new BlockCache(16 * 1024, 1024 * 1024));
+
+        EpubBook book = new EpubParser(source).parse();
+        EpubBook expected = new EpubParser(epubFile).parse();
+
+        assertEquals(expected.getMetadata().getTitle(), book.getMetadata().getTitle());
+        assertEquals(expected.getResources().size(), book.getResources().size());
+        // 末尾的中央目录（OPF和NCX也在其中）和开头的container.xml
+        assertTrue(server.reads.get() <= 3, "range reads: " + server.reads.get());
+        assertTrue(server.bytesRead.get() < epubFile.length() / 4, "bytes read: " + server.bytesRead.get());
+    }
+
+    @Test
+    public void resourceStreamsFetchOnlyTheirBlocks() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        FileRangeServer server = new FileRangeServer(epubFile, 0);
+        EpubSource source = EpubSource.fromRemote(server, "books/fen.epub#2", new BlockCache(16 * 1024, 1024 * 1024));
+        EpubBook book = new EpubParser(source).parse();
+
+        EpubResource chapter = null;
+        for (EpubResource resource : book.getResources()) {
+            if (resource.getHref().endsWith("Chapter19086.html")) {
+                chapter = resource;
+            }
+        }
+        assertNotNull(chapter);
+        int reads = server.reads.get();
+        long bytes = server.bytesRead.get();
+        try (InputStream in = chapter.getInputStream()) {
+            assertArrayEquals(ZipUtils.getZipFileBytes(epubFile, chapter.getHref()),
+                    ZipOperations.readBinaryContent(in, -1));
+        }
+        // 本地文件头所在的块，以及条目数据剩余的块
+        assertTrue(server.reads.get() - reads <= 2, "range reads: " + (server.reads.get() - reads));
+        assertTrue(server.bytesRead.get() - bytes < epubFile.length() / 2,
+                "bytes read: " + (server.bytesRead.get() - bytes));
+    }
+
+    @Test
+    public void diskCacheSurvivesRestart() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        FileRangeServer server = new FileRangeServer(epubFile, 0);
+        Path dir = tempDir.resolve("blocks");
+
+        BlockCache first = new BlockCache(16 * 1024, 1024 * 1024, dir, 16 * 1024 * 1024);
+        String container = ZipUtils.getZipFileContent(
+                EpubSource.fromRemote(server, "books/fen.epub#3", first), "META-INF/container.xml");
+        int reads = server.reads.get();
+        assertTrue(reads > 0);
+        assertTrue(first.getDiskBytes() > 0);
+
+        // 新的缓存实例模拟进程重启，只能从磁盘命中
+        BlockCache restarted = new BlockCache(16 * 1024, 1024 * 1024, dir, 16 * 1024 * 1024);
+        assertEquals(container, ZipUtils.getZipFileContent(
+                EpubSource.fromRemote(server, "books/fen.epub#3", restarted), "META-INF/container.xml"));
+        assertEquals(reads, server.reads.get());
+        assertTrue(restarted.getDiskHitCount() > 0);
+        assertEquals(0, restarted.getMissCount());
+    }
+
+    @Test
+    public void diskCacheRejectsMismatchedBlocks() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        FileRangeServer server = new FileRangeServer(epubFile, 0);
+        Path dir = tempDir.resolve("mixed");
+        String name = "OEBPS/Chapter19086.html";
+        byte[] expected = ZipUtils.getZipFileBytes(epubFile, name);
+
+        BlockCache first = new BlockCache(16 * 1024, 1024 * 1024, dir, 16 * 1024 * 1024);
+        assertArrayEquals(expected, ZipUtils.getZipFileBytes(EpubSource.fromRemote(server, "books/fen.epub#5", first), name));
+
+        // 以不同块大小复用同一目录，不会读到按旧块大小切分的块
+        BlockCache resized = new BlockCache(8 * 1024, 1024 * 1024, dir, 16 * 1024 * 1024);
+        assertArrayEquals(expected, ZipUtils.getZipFileBytes(EpubSource.fromRemote(server, "books/fen.epub#5", resized), name));
+        assertEquals(0, resized.getDiskHitCount());
+
+        // 被截断的块视为未命中并重新读取；中断的写入留下的临时文件在启动时删除
+        List<Path> blocks = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.blk")) {
+            stream.forEach(blocks::add);
+        }
+        for (Path block : blocks) {
+            Files.write(block, new byte[10]);
+        }
+        Path temp = Files.write(dir.resolve("block1.tmp"), new byte[10]);
+        Files.setLastModifiedTime(temp, FileTime.fromMillis(System.currentTimeMillis() - 3600 * 1000));
+        BlockCache restarted = new BlockCache(16 * 1024, 1024 * 1024, dir, 16 * 1024 * 1024);
+        assertFalse(Files.exists(temp));
+        assertArrayEquals(expected, ZipUtils.getZipFileBytes(EpubSource.fromRemote(server, "books/fen.epub#5", restarted), name));
+        assertEquals(0, restarted.getDiskHitCount());
+        assertTrue(restarted.getMissCount() > 0);
+    }
+
+    @Test
+    public void memoryTierStaysWithinBudget() throws Exception {
+        File epubFile = ResUtils.getFileFromRes(EPUB);
+        FileRangeServer server = new FileRangeServer(epubFile, 0);
+        BlockCache cache = new BlockCache(4 * 1024, 32 * 1024);
+        EpubSource source = EpubSource.fromRemote(server, "books/fen.epub#4", cache);
+
+        for (String name : ZipUtils.getZipFileList(source)) {
+            assertArrayEquals(ZipUtils.getZipFileBytes(epubFile, name), ZipUtils.getZipFileBytes(source, name), name);
+        }
+        assertTrue(cache.getMemoryBytes() <= 32 * 1024);
+    }
+
+    /**
+     * 基于本地文件的范围读取服务，可注入每次请求的延迟并统计请求次数和字节数
+     */
+    static final class FileRangeServer implements RangeReader {
+        private final File file;
+        private final long latencyMillis;
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicLong bytesRead = new AtomicLong();
+
+        FileRangeServer(File file, long latencyMillis) {
+            this.file = file;
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public long size() {
+            return file.length();
+        }
+
+        @Override
+        public void readFully(long position, byte[] buffer, int offset, int length) throws IOException {
+            reads.incrementAndGet();
+            bytesRead.addAndGet(length);
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted", e);
+                }
+            }
+            if (position + length > file.length()) {
+                throw new EOFException("Range exceeds file: " + position + "+" + length);
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.seek(position);
+                raf.readFully(buffer, offset, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package fun.lzwi.epubime.zip;
+
+import fun.lzwi.epubime.ResUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 条目内容读取的JMH分配基准测试
+ * 比较基于Reader/StringBuilder和ByteArrayOutputStream的旧读取方式与按解压大小精确分配、使用池化暂存数组的新方式。
+ * 关注GC分析器输出的 gc.alloc.rate.norm（每次调用分配的字节数），新方式应接近结果本身的大小。
+ * <p>
+ * 运行：mvn test-compile 后以测试类路径执行本类的main方法（已启用GC分析器），
+ * 或执行 org.openjdk.jmh.Main ReadContentBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadContentBenchmark {
+
+    @Param({"OEBPS/Chapter19086.html", "OEBPS/book.opf"})
+    public String entryName;
+
+    private MappedZipFile archive;
+    private int entry;
+
+    @Setup
+    public void openBook() throws IOException {
+        File book = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        archive = MappedZipFile.open(book);
+        entry = archive.findEntry(entryName);
+    }
+
+    @Benchmark
+    public String textReader() throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(archive.openStream(entry), StandardCharsets.UTF_8))) {
+            StringBuilder content = new StringBuilder(ZipOperations.INITIAL_STRING_BUILDER_CAPACITY);
+            char[] buffer = new char[ZipOperations.BUFFER_SIZE];
+            int charsRead;
+            while ((charsRead = reader.read(buffer)) != -1) {
+                content.append(buffer, 0, charsRead);
+            }
+            return content.toString();
+        }
+    }
+
+    @Benchmark
+    public String textPooled() throws IOException {
+        return archive.getContentText(entry);
+    }
+
+    @Benchmark
+    public String textStreamPooled() throws IOException {
+        return ZipOperations.readTextContent(archive.openStream(entry), archive.getIndex().getSize(entry));
+    }
+
+    @Benchmark
+    public byte[] binaryOutputStream() throws IOException {
+        try (InputStream in = archive.openStream(entry);
+             ByteArrayOutputStream out = new ByteArrayOutputStream(ZipOperations.BUFFER_SIZE)) {
+            byte[] buffer = new byte[ZipOperations.BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                out.write(buffer, 0, bytesRead);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public byte[] binaryExactSize() throws IOException {
+        try (InputStream in = archive.openStream(entry)) {
+            return ZipOperations.readBinaryContent(in, archive.getIndex().getSize(entry));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ReadContentBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,186 @@
+package fun.lzwi.epubime.zip;
+
+import fun.lzwi.epubime.ResUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZipEntryChannelTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * 生成可压缩但不过分重复的内容，使压缩结果包含多个动态Huffman块和远距离匹配
+     */
+    private static byte[] createContent(int size, long seed) {
+        Random random = new Random(seed);
+        String[] words = {"the ", "quick ", "brown ", "fox ", "jumps ", "over ", "lazy ", "dog ", "\n",
+                "<p>", "</p>", "鲁迅 ", "坟 "};
+        StringBuilder builder = new StringBuilder(size);
+        while (builder.length() < size) {
+            builder.append(words[random.nextInt(words.length)]);
+            if (random.nextInt(50) == 0) {
+                builder.append(random.nextLong());
+            }
+        }
+        return Arrays.copyOf(builder.toString().getBytes(StandardCharsets.UTF_8), size);
+    }
+
+    private File createZip(String name, byte[] deflated, byte[] stored, int level) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.setLevel(level);
+            out.putNextEntry(new ZipEntry("OEBPS/audio/track.txt"));
+            out.write(deflated);
+            out.closeEntry();
+
+            ZipEntry entry = new ZipEntry("OEBPS/audio/track.mp3");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(stored.length);
+            CRC32 crc = new CRC32();
+            crc.update(stored);
+            entry.setCrc(crc.getValue());
+            out.putNextEntry(entry);
+            out.write(stored);
+            out.closeEntry();
+        }
+        return file;
+    }
+
+    private static void assertRandomReads(SeekableByteChannel channel, byte[] expected, long seed) throws IOException {
+        Random random = new Random(seed);
+        for (int i = 0; i < 200; i++) {
+            int position = random.nextInt(expected.length);
+            int length = Math.min(1 + random.nextInt(20000), expected.length - position);
+            ByteBuffer buffer = random.nextBoolean() ? ByteBuffer.allocate(length) : ByteBuffer.allocateDirect(length);
+            channel.position(position);
+            while (buffer.hasRemaining()) {
+                assertTrue(channel.read(buffer) > 0);
+            }
+            buffer.flip();
+            assertEquals(ByteBuffer.wrap(expected, position, length), buffer, "position " + position);
+            assertEquals(position + length, channel.position());
+        }
+    }
+
+    @Test
+    public void testRandomReadsMatchContent() throws IOException {
+        byte[] deflated = createContent(3 * 1024 * 1024, 1);
+        byte[] stored = createContent(200 * 1024, 2);
+        File file = createZip("media.epub", deflated, stored, Deflater.DEFAULT_COMPRESSION);
+        MappedZipFile archive = MappedZipFile.open(file);
+
+        int entry = archive.findEntry("OEBPS/audio/track.txt");
+        try (SeekableByteChannel channel = archive.openChannel(entry, 64 * 1024)) {
+            assertEquals(deflated.length, channel.size());
+            assertRandomReads(channel, deflated, 3);
+        }
+        InflateCheckpointIndex checkpoints = archive.getCheckpointIndex(entry, 64 * 1024);
+        assertTrue(checkpoints.size() > 10, "Checkpoints should be recorded at block boundaries");
+
+        try (SeekableByteChannel channel = ZipUtils.getZipFileChannel(file, "OEBPS/audio/track.mp3")) {
+            assertEquals(stored.length, channel.size());
+            assertRandomReads(channel, stored, 4);
+        }
+    }
+
+    @Test
+    public void testCheckpointCacheIsBounded() throws IOException {
+        byte[] deflated = createContent(2 * 1024 * 1024, 7);
+        File file = createZip("bounded.epub", deflated, new byte[0], Deflater.DEFAULT_COMPRESSION);
+        MappedZipFile archive = MappedZipFile.open(file);
+        int entry = archive.findEntry("OEBPS/audio/track.txt");
+        long previousMax = MappedZipFile.getMaxCheckpointBytes();
+        try {
+            InflateCheckpointIndex first = archive.getCheckpointIndex(entry, 64 * 1024);
+            assertSame(first, archive.getCheckpointIndex(entry, 64 * 1024));
+            assertTrue(MappedZipFile.getCheckpointBytes() >= first.getRetainedBytes());
+
+            // 上限小于索引大小时淘汰已缓存的索引，新建的索引也不进入缓存
+            MappedZipFile.setMaxCheckpointBytes(first.getRetainedBytes() - 1);
+            assertTrue(MappedZipFile.getCheckpointBytes() < first.getRetainedBytes());
+            InflateCheckpointIndex rebuilt = archive.getCheckpointIndex(entry, 64 * 1024);
+            assertNotSame(first, rebuilt);
+            assertNotSame(rebuilt, archive.getCheckpointIndex(entry, 64 * 1024));
+            try (SeekableByteChannel channel = archive.openChannel(entry, 64 * 1024)) {
+                assertRandomReads(channel, deflated, 8);
+            }
+        } finally {
+            MappedZipFile.setMaxCheckpointBytes(previousMax);
+        }
+    }
+
+    @Test
+    public void testReadsWithoutCheckpoints() throws IOException {
+        byte[] deflated = createContent(600 * 1024, 5);
+        File file = createZip("plain.epub", deflated, new byte[0], Deflater.BEST_SPEED);
+        MappedZipFile archive = MappedZipFile.open(file);
+        try (SeekableByteChannel channel = archive.openChannel(archive.findEntry("OEBPS/audio/track.txt"), 0)) {
+            assertRandomReads(channel, deflated, 6);
+        }
+    }
+
+    @Test
+    public void testStoredBlocksInsideDeflatedEntry() throws IOException {
+        // 随机数据无法压缩，压缩器会输出存储块
+        byte[] deflated = new byte[400 * 1024];
+        new Random(7).nextBytes(deflated);
+        File file = createZip("random.epub", deflated, new byte[0], Deflater.DEFAULT_COMPRESSION);
+        try (SeekableByteChannel channel = ZipUtils.getZipFileChannel(file, "OEBPS/audio/track.txt")) {
+            assertRandomReads(channel, deflated, 8);
+        }
+    }
+
+    @Test
+    public void testSequentialReadMatchesFixture() throws IOException {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        MappedZipFile archive = MappedZipFile.open(epubFile);
+        for (String name : archive.getEntryNames()) {
+            byte[] expected = ZipUtils.getZipFileBytes(epubFile, name);
+            try (SeekableByteChannel channel = ZipUtils.getZipFileChannel(epubFile, name)) {
+                ByteBuffer actual = ByteBuffer.allocate(expected.length);
+                ByteBuffer chunk = ByteBuffer.allocate(1000);
+                while (channel.read(chunk) >= 0) {
+                    chunk.flip();
+                    actual.put(chunk);
+                    chunk.clear();
+                }
+                assertArrayEquals(expected, actual.array(), name);
+            }
+        }
+        assertNull(ZipUtils.getZipFileChannel(epubFile, "OEBPS/missing.mp3"));
+        assertThrows(IOException.class, () -> ZipUtils.getZipFileChannel(epubFile, "../secret"));
+    }
+
+    @Test
+    public void testChannelIsReadOnlyAndClosable() throws IOException {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        SeekableByteChannel channel = ZipUtils.getZipFileChannel(epubFile, "OEBPS/styles.css");
+        assertThrows(NonWritableChannelException.class, () -> channel.write(ByteBuffer.allocate(1)));
+        assertThrows(NonWritableChannelException.class, () -> channel.truncate(0));
+        channel.position(10000);
+        assertEquals(-1, channel.read(ByteBuffer.allocate(10)));
+        assertThrows(IllegalArgumentException.class, () -> channel.position(-1));
+        channel.close();
+        assertFalse(channel.isOpen());
+        assertThrows(ClosedChannelException.class, () -> channel.read(ByteBuffer.allocate(10)));
+    }
+}
@@ -58,9 +58,10 @@ public class ZipFileManagerTest {
         manager.releaseZipFile();
         manager.releaseZipFile();
         
-        // 由于引用计数已归零，下次获取应该创建新的ZIP文件句柄
+        // 引用计数归零后句柄由句柄池保留，下次获取应该重用同一句柄
+        assertEquals(0, ZipFilePool.getInstance().getReferenceCount(epubFile));
         ZipFile zipFile3 = manager.getZipFile(epubFile);
-        assertNotSame(zipFile1, zipFile3, "New ZIP file should be created");
+        assertSame(zipFile1, zipFile3, "Idle pooled ZIP file should be reused");
         
         // 清理资源
         manager.closeCurrentZipFile();
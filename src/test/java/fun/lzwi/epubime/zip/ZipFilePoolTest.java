@@ -0,0 +1,174 @@
+package fun.lzwi.epubime.zip;
+
+import fun.lzwi.epubime.ResUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZipFilePoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File createZip(String name) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("mimetype"));
+            out.write("application/epub+zip".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return file;
+    }
+
+    @Test
+    public void testHandleSharedAcrossThreads() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        ZipFilePool pool = new ZipFilePool(4, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ZipFile> first = executor.submit(() -> pool.acquire(epubFile));
+            Future<ZipFile> second = executor.submit(() -> pool.acquire(epubFile));
+            ZipFile zip1 = first.get();
+            ZipFile zip2 = second.get();
+
+            assertSame(zip1, zip2, "Threads should share one ZIP handle");
+            assertEquals(2, pool.getReferenceCount(epubFile));
+            assertEquals(1, pool.getOpenHandleCount());
+
+            pool.release(zip1);
+            pool.release(zip2);
+            assertEquals(0, pool.getReferenceCount(epubFile));
+
+            // 空闲句柄保留在池中以供重用
+            ZipFile zip3 = pool.acquire(epubFile);
+            assertSame(zip1, zip3);
+            pool.release(zip3);
+        } finally {
+            executor.shutdown();
+            pool.closeAll();
+        }
+    }
+
+    @Test
+    public void testLruEvictionOfIdleHandles() throws Exception {
+        File a = createZip("a.epub");
+        File b = createZip("b.epub");
+        File c = createZip("c.epub");
+        ZipFilePool pool = new ZipFilePool(2, 0);
+
+        ZipFile zipA = pool.acquire(a);
+        ZipFile zipB = pool.acquire(b);
+        pool.release(zipB);
+        pool.release(zipA);
+
+        // 访问a使b成为最久未使用的句柄
+        pool.release(pool.acquire(a));
+
+        ZipFile zipC = pool.acquire(c);
+        assertEquals(2, pool.getOpenHandleCount());
+        assertSame(zipA, pool.acquire(a), "Recently used handle should survive eviction");
+        assertNotSame(zipB, pool.acquire(b), "Least recently used handle should be evicted");
+        assertThrows(IllegalStateException.class, zipB::size, "Evicted handle should be closed");
+
+        pool.release(zipC);
+        pool.closeAll();
+    }
+
+    @Test
+    public void testInUseHandlesAreNotEvicted() throws Exception {
+        File a = createZip("a.epub");
+        File b = createZip("b.epub");
+        ZipFilePool pool = new ZipFilePool(1, 0);
+
+        ZipFile zipA = pool.acquire(a);
+        ZipFile zipB = pool.acquire(b);
+
+        // 两个句柄都在使用中，允许暂时超出容量
+        assertEquals(2, pool.getOpenHandleCount());
+        assertNotNull(zipA.getEntry("mimetype"));
+        assertNotNull(zipB.getEntry("mimetype"));
+
+        pool.release(zipA);
+        assertEquals(1, pool.getOpenHandleCount());
+        pool.release(zipB);
+        pool.closeAll();
+    }
+
+    @Test
+    public void testCloseIdleHandles() throws Exception {
+        File a = createZip("a.epub");
+        ZipFilePool pool = new ZipFilePool(4, 1);
+
+        ZipFile zipA = pool.acquire(a);
+        assertEquals(0, pool.closeIdleHandles(), "Handles in use should not be closed");
+        pool.release(zipA);
+
+        Thread.sleep(20);
+        pool.closeIdleHandles();
+        assertEquals(0, pool.getOpenHandleCount());
+        assertThrows(IllegalStateException.class, zipA::size);
+    }
+
+    @Test
+    public void testCloseDefersUntilReleased() throws Exception {
+        File a = createZip("a.epub");
+        ZipFilePool pool = new ZipFilePool(4, 0);
+
+        ZipFile zipA = pool.acquire(a);
+        pool.close(a);
+        assertEquals(0, pool.getOpenHandleCount());
+        assertNotNull(zipA.getEntry("mimetype"), "Handle in use should stay open");
+
+        pool.release(zipA);
+        assertThrows(IllegalStateException.class, zipA::size);
+    }
+
+    @Test
+    public void testShrinkingClosesIdleHandles() throws Exception {
+        File a = createZip("a.epub");
+        File b = createZip("b.epub");
+        ZipFilePool pool = new ZipFilePool(4, 0);
+
+        ZipFile zipA = pool.acquire(a);
+        ZipFile zipB = pool.acquire(b);
+        pool.release(zipA);
+        pool.setMaxOpenHandles(1);
+        assertEquals(1, pool.getOpenHandleCount());
+        assertThrows(IllegalStateException.class, zipA::size);
+        assertNotNull(zipB.getEntry("mimetype"));
+        pool.release(zipB);
+        pool.closeAll();
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedReleaseReleasesManagedHandle() throws Exception {
+        File a = createZip("a.epub");
+        ZipFileManager.getInstance().getZipFile(a);
+        assertEquals(1, ZipFilePool.getInstance().getReferenceCount(a));
+        ZipOperations.releaseZipFile();
+        assertEquals(0, ZipFilePool.getInstance().getReferenceCount(a));
+        ZipFilePool.getInstance().close(a);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ZipFilePool(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> ZipFilePool.getInstance().acquire(null));
+        assertThrows(IOException.class, () -> ZipFilePool.getInstance().acquire(new File("missing.epub")));
+        assertEquals(0, ZipFilePool.getInstance().getReferenceCount(new File("missing.epub")));
+    }
+}
@@ -0,0 +1,157 @@
+package fun.lzwi.epubime.zip;
+
+import fun.lzwi.epubime.ResUtils;
+import fun.lzwi.epubime.cache.EpubCacheManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZipOperationsTest {
+
+    @Test
+    public void testReadTextContentWithAnySizeHint() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 300 * 1024) {
+            builder.append("鲁迅《坟》chapter ").append(builder.length()).append('\n');
+        }
+        String text = builder.toString();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        for (long hint : new long[]{-1, 0, 10, bytes.length - 1, bytes.length, bytes.length + 1, bytes.length * 3L}) {
+            assertEquals(text, ZipOperations.readTextContent(new ByteArrayInputStream(bytes), hint), "hint " + hint);
+            // 每次只返回少量字节的流
+            assertEquals(text, ZipOperations.readTextContent(new TrickleInputStream(bytes), hint), "hint " + hint);
+        }
+        assertEquals("", ZipOperations.readTextContent(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    public void testDecodeMatchesStringConstructor() {
+        byte[][] samples = {
+                "plain ascii".getBytes(StandardCharsets.UTF_8),
+                "混合 mixed 文本 😀".getBytes(StandardCharsets.UTF_8),
+                {(byte) 0xE4, (byte) 0xB8, 'a', (byte) 0xFF, (byte) 0xC0, (byte) 0x80, (byte) 0xF0, (byte) 0x9F},
+                new byte[0]
+        };
+        for (byte[] sample : samples) {
+            assertEquals(new String(sample, StandardCharsets.UTF_8), ZipOperations.decodeUtf8(sample, 0, sample.length));
+        }
+    }
+
+    @Test
+    public void testReadTextContentClosesStream() throws Exception {
+        TrickleInputStream in = new TrickleInputStream("abc".getBytes(StandardCharsets.UTF_8));
+        assertEquals("abc", ZipOperations.readTextContent(in));
+        assertTrue(in.closed);
+    }
+
+    @Test
+    public void testReadBinaryContentWithAnySizeHint() throws Exception {
+        byte[] bytes = new byte[200 * 1024 + 7];
+        new Random(7).nextBytes(bytes);
+
+        for (long hint : new long[]{-1, 0, 1, bytes.length - 1, bytes.length, bytes.length + 1}) {
+            assertArrayEquals(bytes, ZipOperations.readBinaryContent(new ByteArrayInputStream(bytes), hint), "hint " + hint);
+            assertArrayEquals(bytes, ZipOperations.readBinaryContent(new TrickleInputStream(bytes), hint), "hint " + hint);
+        }
+        assertArrayEquals(new byte[0], ZipOperations.readBinaryContent(new ByteArrayInputStream(new byte[0]), 0));
+    }
+
+    @Test
+    public void testEntryTextMatchesStreamDecoding() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        MappedZipFile archive = MappedZipFile.open(epubFile);
+        for (String name : archive.getEntryNames()) {
+            int entry = archive.findEntry(name);
+            byte[] bytes = archive.getContentBytes(entry);
+            assertEquals(new String(bytes, StandardCharsets.UTF_8), archive.getContentText(entry), name);
+            try (InputStream in = archive.openStream(entry)) {
+                assertArrayEquals(bytes, ZipOperations.readBinaryContent(in, archive.getIndex().getSize(entry)), name);
+            }
+        }
+    }
+
+    @Test
+    public void testByteArrayPoolSizeClasses() {
+        ByteArrayPool pool = new ByteArrayPool(1);
+        byte[] small = pool.borrow(1);
+        assertEquals(ByteArrayPool.MIN_LENGTH, small.length);
+        byte[] medium = pool.borrow(ByteArrayPool.MIN_LENGTH + 1);
+        assertEquals(ByteArrayPool.MIN_LENGTH * 2, medium.length);
+        byte[] huge = pool.borrow(ByteArrayPool.MAX_POOLED_LENGTH + 1);
+        assertEquals(ByteArrayPool.MAX_POOLED_LENGTH + 1, huge.length);
+
+        pool.release(small);
+        pool.release(medium);
+        pool.release(huge);
+        pool.release(new byte[100]);
+        assertSame(small, pool.borrow(ByteArrayPool.MIN_LENGTH));
+        assertSame(medium, pool.borrow(ByteArrayPool.MIN_LENGTH + 100));
+        assertEquals(2, pool.getHitCount());
+        assertEquals(3, pool.getMissCount());
+        assertThrows(IllegalArgumentException.class, () -> new ByteArrayPool(0));
+    }
+
+    @Test
+    public void testCachedBinaryHitsShareOneArray() throws Exception {
+        File epubFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        String name = "OEBPS/Chapter19086.html";
+        EpubCacheManager.getInstance().clearFileCache(epubFile);
+        byte[] expected = ZipUtils.getZipFileBytes(epubFile, name);
+        // 返回给调用者的数组与缓存无关
+        ZipUtils.getZipFileBytes(epubFile, name)[0] ^= 1;
+        ByteBuffer first = ZipUtils.getZipFileBuffer(epubFile, name);
+        assertTrue(first.isReadOnly());
+        assertEquals(ByteBuffer.wrap(expected), first);
+        assertArrayEquals(expected, ZipUtils.getZipFileBytes(epubFile, name));
+
+        java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+            long thread = Thread.currentThread().getId();
+            ZipUtils.getZipFileBuffer(epubFile, name);
+            long before = allocation.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < 100; i++) {
+                assertEquals(expected.length, ZipUtils.getZipFileBuffer(epubFile, name).remaining());
+            }
+            long allocated = allocation.getThreadAllocatedBytes(thread) - before;
+            // 每次命中只分配视图和查找用的小对象，不复制内容
+            assertTrue(allocated / 100 < expected.length / 10, "allocated " + allocated + " bytes for 100 hits");
+        }
+    }
+
+    /**
+     * 每次最多返回13个字节且available始终为0的输入流
+     */
+    private static final class TrickleInputStream extends FilterInputStream {
+        boolean closed;
+
+        TrickleInputStream(byte[] data) {
+            super(new ByteArrayInputStream(data));
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws java.io.IOException {
+            return super.read(b, off, Math.min(len, 13));
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+
+        @Override
+        public void close() throws java.io.IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -70,4 +70,37 @@ import static org.junit.jupiter.api.Assertions.*;public class ZipUtilsTest {
                 fail("Should have thrown IOException");
             });
         });
-    }}
\ No newline at end of file
+    }
+
+
+    @Test
+    public void getMultipleZipFileBytesInParallel() throws Exception {
+        // Test parallel batch reads return the same data as sequential reads
+        File zipFile = ResUtils.getFileFromRes("fun/lzwi/epubime/epub/《坟》鲁迅.epub");
+        List<String> filePaths = new java.util.ArrayList<>(ZipUtils.getZipFileList(zipFile));
+        filePaths.add("nonexistent.txt");
+        java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(4);
+        try {
+            java.util.Map<String, byte[]> expected = ZipUtils.getMultipleZipFileBytes(zipFile, filePaths);
+            java.util.Map<String, byte[]> actual = ZipUtils.getMultipleZipFileBytes(zipFile, filePaths, executor);
+            assertEquals(expected.keySet(), actual.keySet());
+            for (String path : filePaths) {
+                assertArrayEquals(expected.get(path), actual.get(path), path);
+            }
+            assertNull(actual.get("nonexistent.txt"));
+
+            java.util.Map<String, String> texts = ZipUtils.getMultipleZipFileContents(zipFile,
+                    java.util.Arrays.asList("mimetype", "OEBPS/Chapter19086.html", "nonexistent.txt"), executor);
+            assertEquals("application/epub+zip", texts.get("mimetype"));
+            assertEquals(ZipUtils.getZipFileContent(zipFile, "OEBPS/Chapter19086.html"), texts.get("OEBPS/Chapter19086.html"));
+            assertTrue(texts.containsKey("nonexistent.txt"));
+            assertNull(texts.get("nonexistent.txt"));
+        } finally {
+            executor.shutdown();
+        }
+        assertThrows(IOException.class, () -> ZipUtils.getMultipleZipFileBytes(zipFile,
+                java.util.Arrays.asList("mimetype", "../../../etc/passwd"), Runnable::run));
+        assertThrows(IllegalArgumentException.class, () -> ZipUtils.getMultipleZipFileBytes(zipFile,
+                Collections.singletonList("mimetype"), (java.util.concurrent.Executor) null));
+    }
+}